@@ -22,10 +22,14 @@ package org.h2gis.functions.factory;
 
 import org.h2.api.Aggregate;
 import org.h2.tools.RunScript;
+import org.h2.util.StringUtils;
 import org.h2gis.api.Function;
 import org.h2gis.api.ScalarFunction;
 import org.h2gis.functions.io.DriverManager;
 import org.h2gis.functions.io.asc.AscRead;
+import org.h2gis.functions.io.asc.ST_AscTileClip;
+import org.h2gis.functions.io.asc.ST_AscTilePoints;
+import org.h2gis.functions.io.asc.ST_AscTileValue;
 import org.h2gis.functions.io.dbf.DBFRead;
 import org.h2gis.functions.io.dbf.DBFWrite;
 import org.h2gis.functions.io.geojson.GeoJsonRead;
@@ -60,16 +64,23 @@ import org.h2gis.functions.spatial.crs.ST_Transform;
 import org.h2gis.functions.spatial.distance.*;
 import org.h2gis.functions.spatial.earth.ST_GeometryShadow;
 import org.h2gis.functions.spatial.earth.ST_Isovist;
+import org.h2gis.functions.spatial.earth.ST_IsovistTable;
 import org.h2gis.functions.spatial.earth.ST_SunPosition;
 import org.h2gis.functions.spatial.earth.ST_Svf;
+import org.h2gis.functions.spatial.earth.ST_SvfTable;
 import org.h2gis.functions.spatial.edit.*;
 import org.h2gis.functions.spatial.generalize.ST_PrecisionReducer;
 import org.h2gis.functions.spatial.generalize.ST_Simplify;
 import org.h2gis.functions.spatial.generalize.ST_SimplifyPreserveTopology;
+import org.h2gis.functions.spatial.join.ST_KNNJoin;
+import org.h2gis.functions.spatial.join.ST_Nearest;
+import org.h2gis.functions.spatial.join.ST_SpatialJoin;
 import org.h2gis.functions.spatial.mesh.ST_ConstrainedDelaunay;
 import org.h2gis.functions.spatial.mesh.ST_Delaunay;
+import org.h2gis.functions.spatial.mesh.ST_DelaunayTable;
 import org.h2gis.functions.spatial.mesh.ST_Tessellate;
 import org.h2gis.functions.spatial.mesh.ST_Voronoi;
+import org.h2gis.functions.spatial.mesh.ST_VoronoiTable;
 import org.h2gis.functions.spatial.operators.*;
 import org.h2gis.functions.spatial.predicates.*;
 import org.h2gis.functions.spatial.properties.*;
@@ -90,7 +101,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
 import org.h2gis.functions.spatial.crs.ST_FindUTMSRID;
 import org.h2gis.functions.spatial.metadata.FindGeometryMetadata;
 
@@ -109,6 +126,8 @@ import org.h2gis.functions.spatial.metadata.FindGeometryMetadata;
 public class H2GISFunctions {
     /** H2 base type for geometry column {@link java.sql.ResultSetMetaData#getColumnTypeName(int)} */
     public static final String GEOMETRY_BASE_TYPE = "GEOMETRY";
+    /** Name of the constant that holds the version marker of the registered functions */
+    public static final String VERSION_CONSTANT = "H2GIS_FUNCTIONS_VERSION";
     private static final Logger LOGGER = LoggerFactory.getLogger(H2GISFunctions.class);
 
     /**
@@ -311,7 +330,22 @@ public class H2GISFunctions {
                 new ST_GeneratePoints(),
                 new ST_GeneratePointsInGrid(),
                 new AscRead(),
-                new FindGeometryMetadata()
+                new ST_AscTileValue(),
+                new ST_AscTileClip(),
+                new ST_AscTilePoints(),
+                new FindGeometryMetadata(),
+                new ST_SpatialJoin(),
+                new ST_Nearest(),
+                new ST_KNNJoin(),
+                new ST_DelaunayTable(),
+                new ST_VoronoiTable(),
+                new ST_SvfTable(),
+                new ST_IsovistTable(),
+                new ST_DrapeTable(),
+                new ST_TriangleContouringTable(),
+                new ST_SquareGrid(),
+                new ST_HexagonGrid(),
+                new ST_SquareGridAggregate()
         };
     }
 
@@ -324,18 +358,127 @@ public class H2GISFunctions {
      */
     public static void load(Connection connection, String BundleSymbolicName, String BundleVersion) throws SQLException {
         String packagePrepend = BundleSymbolicName+":"+BundleVersion+":";
-        registerH2GISFunctions(connection,packagePrepend);
+        Function[] functions = getBuiltInsFunctions();
+        String version = getFunctionsVersion(functions, packagePrepend);
+        if (!version.equals(getLoadedVersion(connection)) || !isRegistered(connection, functions)) {
+            boolean registered = registerH2GISFunctions(connection, functions, packagePrepend);
+            setLoadedVersion(connection, registered ? version : null);
+        }
         connection.commit();
     }
 
     /**
-     * Register GEOMETRY type and register H2GIS functions
+     * Register GEOMETRY type and register H2GIS functions.
+     * Nothing is done if the same set of functions is already registered in the database.
+     * The version marker is stored only if all the functions have been registered, so a failed registration
+     * is done again by the next call.
      * @param connection Active H2 connection
      * @throws java.sql.SQLException
      */
     public static void load(Connection connection) throws SQLException {
-        registerH2GISFunctions(connection,"");
+        Function[] functions = getBuiltInsFunctions();
+        String version = getFunctionsVersion(functions, "");
+        if (version.equals(getLoadedVersion(connection)) && isRegistered(connection, functions)) {
+            return;
+        }
+        boolean registered = registerH2GISFunctions(connection, functions, "");
         registerSpatialTables(connection);
+        setLoadedVersion(connection, registered ? version : null);
+    }
+
+    /**
+     * Check that all the functions exist in the current schema, a function may have been dropped without
+     * {@link #unRegisterFunction(Statement, Function)}
+     * @param connection Active H2 connection
+     * @param functions Functions to check
+     * @return True if all the functions are registered
+     * @throws SQLException
+     */
+    private static boolean isRegistered(Connection connection, Function[] functions) throws SQLException {
+        Set<String> existingRoutines = getExistingRoutines(connection);
+        for (Function function : functions) {
+            if (!existingRoutines.contains(getAlias(function).toUpperCase())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param connection Active H2 connection
+     * @return The upper case names of the routines of the current schema
+     * @throws SQLException
+     */
+    private static Set<String> getExistingRoutines(Connection connection) throws SQLException {
+        Set<String> existingRoutines = new HashSet<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ROUTINE_NAME FROM INFORMATION_SCHEMA.ROUTINES WHERE ROUTINE_SCHEMA = CURRENT_SCHEMA")) {
+            while (rs.next()) {
+                existingRoutines.add(rs.getString(1).toUpperCase());
+            }
+        }
+        return existingRoutines;
+    }
+
+    /**
+     * Compute the version marker of a set of functions. The marker changes as soon as a function
+     * is added, removed, renamed or bound to another java method.
+     * @param functions Functions to register
+     * @param packagePrepend For OSGi environment only, use Bundle-SymbolicName:Bundle-Version:
+     * @return The version marker
+     */
+    public static String getFunctionsVersion(Function[] functions, String packagePrepend) {
+        CRC32 crc = new CRC32();
+        StringBuilder signature = new StringBuilder(packagePrepend);
+        String implementationVersion = H2GISFunctions.class.getPackage().getImplementationVersion();
+        signature.append(implementationVersion == null ? "" : implementationVersion);
+        for (Function function : functions) {
+            signature.append(';').append(getAlias(function)).append(':').append(function.getClass().getName());
+            if (function instanceof ScalarFunction) {
+                signature.append('.').append(((ScalarFunction) function).getJavaStaticMethod())
+                        .append(getBooleanProperty(function, ScalarFunction.PROP_DETERMINISTIC, false) ? ":D" : "");
+            }
+        }
+        crc.update(signature.toString().getBytes(StandardCharsets.UTF_8));
+        return (implementationVersion == null ? "" : implementationVersion + "-") + Long.toHexString(crc.getValue())
+                + "-" + functions.length;
+    }
+
+    /**
+     * Return the version marker of the functions registered in the current schema
+     * @param connection Active H2 connection
+     * @return The version marker or null if the functions have not been registered by {@link #load(Connection)}
+     * @throws SQLException
+     */
+    public static String getLoadedVersion(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.CONSTANTS "
+                + "WHERE CONSTANT_SCHEMA = CURRENT_SCHEMA AND CONSTANT_NAME = ?")) {
+            ps.setString(1, VERSION_CONSTANT);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) == 0) {
+                    return null;
+                }
+            }
+        }
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT " + VERSION_CONSTANT)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    /**
+     * Store the version marker of the registered functions
+     * @param connection Active H2 connection
+     * @param version The version marker, null to remove it
+     * @throws SQLException
+     */
+    private static void setLoadedVersion(Connection connection, String version) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP CONSTANT IF EXISTS " + VERSION_CONSTANT);
+            if (version != null) {
+                st.execute("CREATE CONSTANT " + VERSION_CONSTANT + " VALUE " + StringUtils.quoteStringSQL(version));
+            }
+        }
     }
 
     /**
@@ -420,42 +563,69 @@ public class H2GISFunctions {
      * @throws java.sql.SQLException
      */
     public static void registerFunction(Statement st,Function function,String packagePrepend,boolean dropAlias) throws SQLException {
+        if(dropAlias) {
+            try {
+                st.execute(getDropStatement(function));
+            } catch (SQLException ex) {
+                // Ignore, some tables constraints may depend on this function
+                LOGGER.debug(ex.getLocalizedMessage(), ex);
+            }
+        }
+        for (String sql : getCreateStatements(function, packagePrepend)) {
+            st.execute(sql);
+        }
+    }
+
+    /**
+     * Return the statement that removes a function
+     *
+     * @param function Function instance
+     * @return the DROP statement
+     * @throws java.sql.SQLException if the function type is not supported
+     */
+    private static String getDropStatement(Function function) throws SQLException {
+        if(function instanceof ScalarFunction) {
+            return "DROP ALIAS IF EXISTS " + getAlias(function);
+        } else if(function instanceof Aggregate) {
+            return "DROP AGGREGATE IF EXISTS " + getAlias(function);
+        } else {
+            throw new SQLException("Unsupported function "+function.getClass().getName());
+        }
+    }
+
+    /**
+     * Return the statements that create a function and its comment
+     *
+     * @param function Function instance
+     * @param packagePrepend For OSGi environment only, use Bundle-SymbolicName:Bundle-Version:
+     * @return the CREATE and COMMENT statements
+     * @throws java.sql.SQLException if the function type is not supported
+     */
+    private static List<String> getCreateStatements(Function function, String packagePrepend) throws SQLException {
         String functionClass = function.getClass().getName();
         String functionAlias = getAlias(function);
-
+        List<String> statements = new ArrayList<>(2);
         if(function instanceof ScalarFunction) {
             ScalarFunction scalarFunction = (ScalarFunction)function;
             String functionName = scalarFunction.getJavaStaticMethod();
-            if(dropAlias) {
-                try {
-                    st.execute("DROP ALIAS IF EXISTS " + functionAlias);
-                } catch (SQLException ex) {
-                    // Ignore, some tables constraints may depend on this function
-                    LOGGER.debug(ex.getLocalizedMessage(), ex);
-                }
-            }
             String deterministic = "";
             if(getBooleanProperty(function,ScalarFunction.PROP_DETERMINISTIC,false)) {
                 deterministic = " DETERMINISTIC";
             }
             // Create alias, H2 does not support prepare statement on create alias
             // "FORCE ALIAS means that the class not existing will not prevent the database from being opened."
-            st.execute("CREATE FORCE ALIAS IF NOT EXISTS " + functionAlias + deterministic + " FOR \"" + packagePrepend + functionClass + "." + functionName + "\"");
+            statements.add("CREATE FORCE ALIAS IF NOT EXISTS " + functionAlias + deterministic + " FOR \"" + packagePrepend + functionClass + "." + functionName + "\"");
             // Set comment
             String functionRemarks = getStringProperty(function, Function.PROP_REMARKS);
             if(!functionRemarks.isEmpty()) {
-                PreparedStatement ps = st.getConnection().prepareStatement("COMMENT ON ALIAS "+functionAlias+" IS ?");
-                ps.setString(1, functionRemarks);
-                ps.execute();
+                statements.add("COMMENT ON ALIAS " + functionAlias + " IS " + StringUtils.quoteStringSQL(functionRemarks));
             }
         } else if(function instanceof Aggregate) {
-                if(dropAlias) {
-                    st.execute("DROP AGGREGATE IF EXISTS " + functionAlias);
-                }
-                st.execute("CREATE FORCE AGGREGATE IF NOT EXISTS " + functionAlias + " FOR \"" + packagePrepend + functionClass + "\"");
+            statements.add("CREATE FORCE AGGREGATE IF NOT EXISTS " + functionAlias + " FOR \"" + packagePrepend + functionClass + "\"");
         } else {
-                throw new SQLException("Unsupported function "+functionClass);
+            throw new SQLException("Unsupported function "+functionClass);
         }
+        return statements;
     }
 
     /**
@@ -482,27 +652,69 @@ public class H2GISFunctions {
             functionAlias = function.getClass().getSimpleName();
         }
         st.execute("DROP ALIAS IF EXISTS " + functionAlias);
+        // The registered functions are no longer the loaded ones
+        st.execute("DROP CONSTANT IF EXISTS " + VERSION_CONSTANT);
     }
     
     
     /**
-     * Register all H2GIS functions
+     * Register all H2GIS functions. The statements are sent as one batch and only the functions
+     * that already exist are dropped before being created. As in {@link #registerFunction(Statement, Function, String, boolean)}
+     * a function that cannot be dropped is kept, only a failed creation makes the registration incomplete.
      *
      * @param connection JDBC Connection
+     * @param functions Functions to register
      * @param packagePrepend For OSGi environment only, use
      * Bundle-SymbolicName:Bundle-Version:
+     * @return False if a function could not be registered
      * @throws SQLException
      */
-    private static void registerH2GISFunctions(Connection connection, String packagePrepend) throws SQLException {
-        Statement st = connection.createStatement();
-        for (Function function : getBuiltInsFunctions()) {
+    private static boolean registerH2GISFunctions(Connection connection, Function[] functions, String packagePrepend) throws SQLException {
+        Set<String> existingRoutines = getExistingRoutines(connection);
+        boolean registered = true;
+        // Index in the batch of the DROP statements, their failure is ignored as in registerFunction
+        Set<Integer> dropStatements = new HashSet<>();
+        int batchSize = 0;
+        try (Statement st = connection.createStatement()) {
+            for (Function function : functions) {
+                try {
+                    if (existingRoutines.contains(getAlias(function).toUpperCase())) {
+                        String dropStatement = getDropStatement(function);
+                        dropStatements.add(batchSize);
+                        st.addBatch(dropStatement);
+                        batchSize++;
+                    }
+                    for (String sql : getCreateStatements(function, packagePrepend)) {
+                        st.addBatch(sql);
+                        batchSize++;
+                    }
+                } catch (SQLException ex) {
+                    // Catch to register other functions
+                    ex.printStackTrace(System.err);
+                    registered = false;
+                }
+            }
             try {
-                registerFunction(st, function, packagePrepend);
-            } catch (SQLException ex) {
-                // Catch to register other functions
-                ex.printStackTrace(System.err);
+                st.executeBatch();
+            } catch (BatchUpdateException ex) {
+                // The other statements of the batch are executed
+                int[] updateCounts = ex.getUpdateCounts();
+                for (int i = 0; i < batchSize; i++) {
+                    boolean failed = updateCounts == null || i >= updateCounts.length
+                            || updateCounts[i] == Statement.EXECUTE_FAILED;
+                    if (failed && !dropStatements.contains(i)) {
+                        registered = false;
+                    }
+                }
+                if (registered) {
+                    // Some tables constraints may depend on the dropped functions
+                    LOGGER.debug(ex.getLocalizedMessage(), ex);
+                } else {
+                    ex.printStackTrace(System.err);
+                }
             }
         }
+        return registered;
     }
 
     /**
@@ -516,5 +728,6 @@ public class H2GISFunctions {
         for (Function function : getBuiltInsFunctions()) {
             unRegisterFunction(st, function);
         }
+        setLoadedVersion(connection, null);
     }
 }
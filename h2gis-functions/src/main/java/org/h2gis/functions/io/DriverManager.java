@@ -25,8 +25,11 @@ import org.h2gis.api.AbstractFunction;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.ProgressVisitor;
 import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.io.csv.CSVDriverFunction;
+import org.h2gis.functions.io.csv.CSVEngine;
 import org.h2gis.functions.io.dbf.DBFDriverFunction;
 import org.h2gis.functions.io.dbf.DBFEngine;
+import org.h2gis.functions.io.geojson.GeoJsonEngine;
 import org.h2gis.functions.io.shp.SHPDriverFunction;
 import org.h2gis.functions.io.shp.SHPEngine;
 import org.h2gis.utilities.JDBCUtilities;
@@ -49,11 +52,19 @@ public class DriverManager extends AbstractFunction implements ScalarFunction, D
 
     private static final DriverDef[] DRIVERS = new DriverDef[] {
             new DriverDef(DBFEngine.class.getName(),"dbf"),
-            new DriverDef(SHPEngine.class.getName(),"shp")};
+            new DriverDef(SHPEngine.class.getName(),"shp"),
+            new DriverDef(CSVEngine.class.getName(),"csv"),
+            new DriverDef(GeoJsonEngine.class.getName(),"geojson"),
+            new DriverDef(GeoJsonEngine.class.getName(),"geojsonl"),
+            new DriverDef(GeoJsonEngine.class.getName(),"geojsons")};
     private static final int FORMAT = 0;
     private static final int DESCRIPTION = 1;
     private static final String[][] formatDescription = new String[][] {{"dbf", DBFDriverFunction.DESCRIPTION},
-                                                                        {"shp", SHPDriverFunction.DESCRIPTION}};
+                                                                        {"shp", SHPDriverFunction.DESCRIPTION},
+                                                                        {"csv", CSVDriverFunction.DESCRIPTION},
+                                                                        {"geojson", "GeoJSON 1.0"},
+                                                                        {"geojsonl", "GeoJSON text sequence"},
+                                                                        {"geojsons", "GeoJSON text sequence"}};
 
     public DriverManager() {
         addProperty(PROP_NAME, "FILE_TABLE");
@@ -77,7 +88,8 @@ public class DriverManager extends AbstractFunction implements ScalarFunction, D
 
     @Override
     public boolean isSpatialFormat(String extension) {
-        return extension.equalsIgnoreCase("shp");
+        return extension.equalsIgnoreCase("shp") || extension.equalsIgnoreCase("geojson")
+                || extension.equalsIgnoreCase("geojsonl") || extension.equalsIgnoreCase("geojsons");
     }
 
     /**
@@ -87,14 +99,29 @@ public class DriverManager extends AbstractFunction implements ScalarFunction, D
      * @param tableName [[catalog.]schema.]table reference
      */
     public static void openFile(Connection connection, String fileName, String tableName) throws SQLException {
+        openFile(connection, fileName, tableName, null);
+    }
+
+    /**
+     * Create a new table
+     * @param connection Active connection, do not close this connection.
+     * @param fileName File path to write, if exists it may be replaced
+     * @param tableName [[catalog.]schema.]table reference
+     * @param options Options given to the file driver, e.g. the CSV separator or the DBF encoding, may be null
+     */
+    public static void openFile(Connection connection, String fileName, String tableName, String options) throws SQLException {
         String ext = fileName.substring(fileName.lastIndexOf('.') + 1,fileName.length());
         final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
         for(DriverDef driverDef : DRIVERS) {
             if(driverDef.getFileExt().equalsIgnoreCase(ext)) {
                 try (Statement st = connection.createStatement()) {
+                    String engineArguments = StringUtils.quoteJavaString(fileName);
+                    if (options != null) {
+                        engineArguments += "," + StringUtils.quoteJavaString(options);
+                    }
                     st.execute(String.format("CREATE TABLE %s COMMENT %s ENGINE %s WITH %s",
                             TableLocation.parse(tableName, isH2).toString(isH2),StringUtils.quoteStringSQL(fileName),
-                            StringUtils.quoteJavaString(driverDef.getClassName()),StringUtils.quoteJavaString(fileName)));
+                            StringUtils.quoteJavaString(driverDef.getClassName()),engineArguments));
                 }
                 return;
             }
@@ -169,7 +196,7 @@ public class DriverManager extends AbstractFunction implements ScalarFunction, D
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            String options) throws SQLException, IOException {
-        openFile(connection, fileName.getAbsolutePath(), tableReference);
+        openFile(connection, fileName.getAbsolutePath(), tableReference, options);
     }
 
     @Override
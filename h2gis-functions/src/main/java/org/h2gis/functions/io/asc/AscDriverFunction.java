@@ -27,7 +27,6 @@ import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -96,15 +95,49 @@ public class AscDriverFunction implements DriverFunction {
         if(prjFile.exists()) {
             srid = PRJUtil.getSRID(prjFile);
         }
-        try(FileInputStream fos = new FileInputStream(fileName)) {
-            ascReaderDriver.read(connection, fos, progress, tableReference, srid);
-        }
+        ascReaderDriver.read(connection, fileName, progress, tableReference, srid);
     }
 
+    /**
+     *
+     * @param connection Active connection, do not close this connection.
+     * @param tableReference Table to create
+     * @param fileName File path to read
+     * @param progress
+     * @param options the import options ie "tilesize=256 downscale=2 threads=4", tilesize stores the cells by
+     *                square tiles of this number of cells, see {@link AscReaderDriver#setTileSize(int)}
+     * @throws SQLException Table write error
+     * @throws IOException File read error
+     */
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            String options) throws SQLException, IOException {
-        importFile(connection, tableReference, fileName, progress);
+        AscReaderDriver ascReaderDriver = new AscReaderDriver();
+        if (options != null && !options.trim().isEmpty()) {
+            for (String option : options.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator <= 0) {
+                    throw new SQLException("Invalid ASC import option " + option);
+                }
+                String key = option.substring(0, separator);
+                int value;
+                try {
+                    value = Integer.parseInt(option.substring(separator + 1));
+                } catch (NumberFormatException ex) {
+                    throw new SQLException("Invalid ASC import option " + option, ex);
+                }
+                if (key.equalsIgnoreCase("tilesize")) {
+                    ascReaderDriver.setTileSize(value);
+                } else if (key.equalsIgnoreCase("downscale")) {
+                    ascReaderDriver.setDownScale(Math.max(1, value));
+                } else if (key.equalsIgnoreCase("threads")) {
+                    ascReaderDriver.setThreadCount(value);
+                } else {
+                    throw new SQLException("Invalid ASC import option " + option);
+                }
+            }
+        }
+        importFile(connection, tableReference, fileName, progress, ascReaderDriver);
     }
 
     @Override
@@ -47,7 +47,11 @@ public class AscRead extends AbstractFunction implements ScalarFunction {
                 "CALL ASCREAD('dem.asc', 'MYTABLE', GEOM_FILTER, DOWNSCALE_INT, AS_POINTS);\n" +
                 "GEOM_FILTER - Extract only pixels that intersects the provided geometry envelope, null to disable filter\n" +
                 "DOWNSCALE_INT - Coefficient used for exporting less cells (1 all cells, 2 for size / 2)\n" +
-                "AS_POLYGONS - If true pixels are converted to polygons. (default false)");
+                "AS_POLYGONS - If true pixels are converted to polygons. (default false)\n" +
+                "CALL ASCREAD('dem.asc', 'MYTABLE', GEOM_FILTER, DOWNSCALE_INT, AS_POLYGONS, TILE_SIZE);\n" +
+                "TILE_SIZE - If greater than 0 the pixels are stored by square tiles of TILE_SIZE pixels, one row per tile\n" +
+                "with the tile envelope, the min and max values and the binary TILE read by ST_AscTileValue,\n" +
+                "ST_AscTileClip and ST_AscTilePoints");
     }
 
     @Override
@@ -113,4 +117,30 @@ public class AscRead extends AbstractFunction implements ScalarFunction {
         }
         ascReaderFunction.importFile(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(), ascReaderDriver);
     }
+
+    /**
+     * Import an ASC file by tiles.
+     * @param connection
+     * @param fileName
+     * @param tableReference
+     * @param envelope Extract only pixels that intersects the provided geometry envelope, null to disable filter
+     * @param downScale Coefficient used for exporting less cells (1 all cells, 2 for size / 2)
+     * @param extractAsPolygons If true pixels are converted to polygon, ignored when the pixels are stored by tiles
+     * @param tileSize If greater than 0 the pixels are stored by square tiles of this number of pixels
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static void readAscii(Connection connection, String fileName, String tableReference, Geometry envelope, int downScale, boolean extractAsPolygons, int tileSize) throws IOException, SQLException {
+        AscDriverFunction ascReaderFunction = new AscDriverFunction();
+        AscReaderDriver ascReaderDriver = new AscReaderDriver();
+        if(envelope != null && !envelope.isEmpty()) {
+            ascReaderDriver.setExtractEnvelope(envelope.getEnvelopeInternal());
+        }
+        if(downScale > 1) {
+            ascReaderDriver.setDownScale(downScale);
+        }
+        ascReaderDriver.setAs3DPoint(!extractAsPolygons);
+        ascReaderDriver.setTileSize(tileSize);
+        ascReaderFunction.importFile(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(), ascReaderDriver);
+    }
 }
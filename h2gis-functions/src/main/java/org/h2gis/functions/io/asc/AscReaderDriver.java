@@ -22,34 +22,57 @@ package org.h2gis.functions.io.asc;
 
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.utility.PipelinedWriter;
+import org.h2gis.utilities.JDBCUtilities;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
 
-import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Types;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Driver to import ESRI ASCII Raster file as polygons
  *
+ * The cell values are parsed from the bytes of the file. When reading a file the values are cut into bands of about
+ * {@link #BAND_SIZE} bytes parsed by a pool of threads, the rows are inserted in the order of the file. The cells
+ * filtered out by the envelope or the down scale are skipped without being parsed.
+ *
+ * When a tile size is set the cells are stored by square tiles, one row per tile with the tile envelope and the
+ * binary {@link AscTile} of the cell values, instead of one geometry per cell.
+ *
  * @author Nicolas Fortin (Université Gustave Eiffel 2020)
  */
 public class AscReaderDriver {
-    private static final int BATCH_MAX_SIZE = 100;
-    private static final int BUFFER_SIZE = 16384;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int HEADER_BUFFER_SIZE = 8192;
+    /** Size in bytes of the bands of cell values parsed by each thread */
+    public static final int BAND_SIZE = 64 * 1024;
     private boolean as3DPoint = false;
     private Envelope extractEnvelope = null;
     private int downScale = 1;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int tileSize = 0;
     private String lastWord = "";
 
     private int nrows;
@@ -57,8 +80,12 @@ public class AscReaderDriver {
     private double cellSize;
     private double yValue;
     private double xValue;
-    private boolean readFirst;
     private int noData;
+    // Extracted cells, the bounds are included
+    private int rowBegin;
+    private int rowEnd;
+    private int colBegin;
+    private int colEnd;
 
     /**
      * @return If true ASC is imported as 3D points cloud, Raster is imported in pixel polygons otherwise.
@@ -102,56 +129,86 @@ public class AscReaderDriver {
         this.downScale = downScale;
     }
 
-    private void readHeader(Scanner scanner) throws IOException {
+    /**
+     * @return Number of threads parsing the bands of a file
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param threadCount Number of threads parsing the bands of a file
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @return Number of rows and columns of cells stored in each row of the table, 0 if the cells are stored as
+     * geometries
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @param tileSize Number of rows and columns of cells stored in each row of the table, as a binary
+     * {@link AscTile}. 0 to store one geometry per cell.
+     */
+    public void setTileSize(int tileSize) {
+        this.tileSize = Math.max(0, tileSize);
+    }
+
+    private void readHeader(AscTokenizer tokenizer) throws IOException {
         // NCOLS
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         if (!lastWord.equalsIgnoreCase("NCOLS")) {
             throw new IOException("Unexpected word " + lastWord);
         }
         // XXX
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         ncols = Integer.parseInt(lastWord);
         if (ncols <= 0) {
             throw new IOException("NCOLS <= 0");
         }
         // NROWS
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         if (!lastWord.equalsIgnoreCase("NROWS")) {
             throw new IOException("Unexpected word " + lastWord);
         }
         // XXX
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         nrows = Integer.parseInt(lastWord);
         if (nrows <= 0) {
             throw new IOException("NROWS <= 0");
         }
         // XLLCENTER or XLLCORNER
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         if (!(lastWord.equalsIgnoreCase("XLLCENTER") || lastWord.equalsIgnoreCase("XLLCORNER"))) {
             throw new IOException("Unexpected word " + lastWord);
         }
         boolean isXCenter = lastWord.equalsIgnoreCase("XLLCENTER");
         // XXX
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         xValue = Double.parseDouble(lastWord);
 
         // YLLCENTER or YLLCORNER
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         if (!(lastWord.equalsIgnoreCase("YLLCENTER") || lastWord.equalsIgnoreCase("YLLCORNER"))) {
             throw new IOException("Unexpected word " + lastWord);
         }
         boolean isYCenter = lastWord.equalsIgnoreCase("YLLCENTER");
         // XXX
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         yValue = Double.parseDouble(lastWord);
 
         // CELLSIZE
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         if (!lastWord.equalsIgnoreCase("CELLSIZE")) {
             throw new IOException("Unexpected word " + lastWord);
         }
         // XXX
-        lastWord = scanner.next();
+        lastWord = tokenizer.nextWord();
         cellSize = Double.parseDouble(lastWord);
         // Compute offsets
         if (isXCenter) {
@@ -162,17 +219,208 @@ public class AscReaderDriver {
         } else {
             yValue = yValue + cellSize * nrows;
         }
-        // Optional NODATA_VALUE
-        lastWord = scanner.next();
-        readFirst = false;
+        // Optional NODATA_VALUE, the values start with a digit or a sign
         noData = -9999;
-        if (lastWord.equalsIgnoreCase("NODATA_VALUE")) {
-            readFirst = true;
+        int next = tokenizer.peek();
+        if (next != '-' && next != '+' && (next < '0' || next > '9')) {
+            lastWord = tokenizer.nextWord();
+            if (!lastWord.equalsIgnoreCase("NODATA_VALUE")) {
+                throw new IOException("Unexpected word " + lastWord);
+            }
             // XXX
-            lastWord = scanner.next();
+            lastWord = tokenizer.nextWord();
             noData = Integer.parseInt(lastWord);
         }
     }
+    /**
+     * Compute the extracted rows and columns
+     */
+    private void computeExtractedCells() {
+        rowBegin = 0;
+        colBegin = 0;
+        rowEnd = nrows - 1;
+        colEnd = ncols - 1;
+        if(extractEnvelope != null) {
+            colBegin = (int)Math.floor((extractEnvelope.getMinX() - xValue) / cellSize);
+            colEnd = (int)Math.ceil((extractEnvelope.getMaxX() - xValue) / cellSize);
+            rowBegin = nrows - (int)Math.ceil((extractEnvelope.getMaxY() - (yValue - cellSize * nrows)) / cellSize);
+            rowEnd = nrows - (int)Math.ceil((extractEnvelope.getMinY() - (yValue - cellSize * nrows)) / cellSize);
+        }
+    }
+
+    /**
+     * @return Number of cells to read, up to the last extracted row
+     */
+    private long getReadCellCount() {
+        return (long) Math.max(0, Math.min(nrows, rowEnd + 1)) * ncols;
+    }
+
+    private boolean isExtracted(int i, int j) {
+        return (downScale == 1 || (i % downScale == 0 && j % downScale == 0))
+                && i >= rowBegin && i <= rowEnd && j >= colBegin && j <= colEnd;
+    }
+
+    private void createTable(Connection connection, String tableReference, int srid) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            if(tileSize > 0) {
+                String binaryType = JDBCUtilities.isH2DataBase(connection) ? "BINARY VARYING" : "BYTEA";
+                st.execute("CREATE TABLE " + tableReference + "(PK SERIAL NOT NULL, THE_GEOM GEOMETRY(POLYGON, "+srid+"), TILE_ROW int, TILE_COL int, Z_MIN int, Z_MAX int, TILE " + binaryType + ", " + " CONSTRAINT ASC_PK PRIMARY KEY (PK))");
+            } else if(as3DPoint) {
+                st.execute("CREATE TABLE " + tableReference + "(PK SERIAL NOT NULL, THE_GEOM GEOMETRY(POINTZ, "+srid+"), " + " CONSTRAINT ASC_PK PRIMARY KEY (PK))");
+            } else {
+                st.execute("CREATE TABLE " + tableReference + "(PK SERIAL NOT NULL, THE_GEOM GEOMETRY(POLYGON, "+srid+"),Z int, " + " CONSTRAINT ASC_PK PRIMARY KEY (PK))");
+            }
+        }
+    }
+
+    /**
+     * Parse cell values and write the rows of the extracted cells
+     *
+     * @param tokenizer Cell values
+     * @param firstCell Index of the first cell, row * ncols + column
+     * @param cellCount Number of cells to read
+     * @param factory Geometry factory
+     * @param srid Geometry SRID
+     * @param target Target of the rows
+     * @param rows Receive the rows
+     * @param rowProgress Progression, one step per row
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void readCells(AscTokenizer tokenizer, long firstCell, long cellCount, GeometryFactory factory, int srid,
+                           int target, PipelinedWriter.RowSink rows, ProgressVisitor rowProgress)
+            throws IOException, SQLException {
+        int i = (int) (firstCell / ncols);
+        int j = (int) (firstCell % ncols);
+        for (long cell = 0; cell < cellCount; cell++) {
+            if (!isExtracted(i, j)) {
+                if (!tokenizer.skipWord()) {
+                    throw new IOException("Unexpected end of file");
+                }
+            } else {
+                int data = tokenizer.nextInt();
+                double x = xValue + j * cellSize;
+                double y = yValue - i * cellSize;
+                if (as3DPoint) {
+                    if (data != noData) {
+                        Point point = factory.createPoint(new Coordinate(x + cellSize / 2, y - cellSize / 2, data));
+                        point.setSRID(srid);
+                        rows.write(target, new Object[]{point});
+                    }
+                } else {
+                    Polygon cellPolygon = factory.createPolygon(new Coordinate[]{new Coordinate(x, y), new Coordinate(x, y - cellSize * downScale), new Coordinate(x + cellSize * downScale, y - cellSize * downScale), new Coordinate(x + cellSize * downScale, y), new Coordinate(x, y)});
+                    cellPolygon.setSRID(srid);
+                    rows.write(target, new Object[]{cellPolygon, data != noData ? data : null});
+                }
+            }
+            if (++j == ncols) {
+                j = 0;
+                i++;
+                rowProgress.endStep();
+            }
+        }
+    }
+
+    /**
+     * Parse cell values and write the extracted cells by square tiles of {@link #getTileSize()} cells. The tiles are
+     * aligned on the down scaled grid and only one band of tiles is kept in memory.
+     *
+     * @param tokenizer Cell values
+     * @param cellCount Number of cells to read
+     * @param factory Geometry factory
+     * @param srid Geometry SRID
+     * @param target Target of the rows
+     * @param rows Receive the rows
+     * @param rowProgress Progression, one step per row
+     * @throws IOException
+     * @throws SQLException
+     */
+    private void readTiles(AscTokenizer tokenizer, long cellCount, GeometryFactory factory, int srid, int target,
+                           PipelinedWriter.RowSink rows, ProgressVisitor rowProgress)
+            throws IOException, SQLException {
+        // Extracted rows and columns of the down scaled grid, the bounds are included
+        int outRowBegin = (Math.max(0, rowBegin) + downScale - 1) / downScale;
+        int outRowEnd = Math.floorDiv(Math.min(nrows - 1, rowEnd), downScale);
+        int outColBegin = (Math.max(0, colBegin) + downScale - 1) / downScale;
+        int outColEnd = Math.floorDiv(Math.min(ncols - 1, colEnd), downScale);
+        if (outRowBegin > outRowEnd || outColBegin > outColEnd) {
+            for (long cell = 0; cell < cellCount; cell++) {
+                if (!tokenizer.skipWord()) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+            return;
+        }
+        int outCols = outColEnd - outColBegin + 1;
+        int[] band = new int[tileSize * outCols];
+        int bandFirstRow = outRowBegin;
+        int i = 0;
+        int j = 0;
+        for (long cell = 0; cell < cellCount; cell++) {
+            if (!isExtracted(i, j)) {
+                if (!tokenizer.skipWord()) {
+                    throw new IOException("Unexpected end of file");
+                }
+            } else {
+                band[(i / downScale - bandFirstRow) * outCols + j / downScale - outColBegin] = tokenizer.nextInt();
+            }
+            if (++j == ncols) {
+                int outRow = i / downScale;
+                if (i % downScale == 0 && outRow >= outRowBegin && outRow <= outRowEnd
+                        && ((outRow + 1) % tileSize == 0 || outRow == outRowEnd)) {
+                    writeTiles(band, bandFirstRow, outRow, outColBegin, outColEnd, factory, srid, target, rows);
+                    bandFirstRow = outRow + 1;
+                }
+                j = 0;
+                i++;
+                rowProgress.endStep();
+            }
+        }
+    }
+
+    /**
+     * Write the tiles of a band of the down scaled grid
+     *
+     * @param band Cell values of the band
+     * @param firstRow First row of the band
+     * @param lastRow Last row of the band
+     * @param firstCol First extracted column
+     * @param lastCol Last extracted column
+     * @param factory Geometry factory
+     * @param srid Geometry SRID
+     * @param target Target of the rows
+     * @param rows Receive the rows
+     * @throws SQLException
+     */
+    private void writeTiles(int[] band, int firstRow, int lastRow, int firstCol, int lastCol,
+                            GeometryFactory factory, int srid, int target, PipelinedWriter.RowSink rows)
+            throws SQLException {
+        double outCellSize = cellSize * downScale;
+        int bandCols = lastCol - firstCol + 1;
+        int tileRows = lastRow - firstRow + 1;
+        for (int tileCol = firstCol / tileSize; tileCol <= lastCol / tileSize; tileCol++) {
+            int tileFirstCol = Math.max(firstCol, tileCol * tileSize);
+            int tileCols = Math.min(lastCol, tileCol * tileSize + tileSize - 1) - tileFirstCol + 1;
+            int[] values = new int[tileRows * tileCols];
+            Integer zMin = null;
+            Integer zMax = null;
+            for (int row = 0; row < tileRows; row++) {
+                System.arraycopy(band, row * bandCols + tileFirstCol - firstCol, values, row * tileCols, tileCols);
+                for (int col = row * tileCols; col < (row + 1) * tileCols; col++) {
+                    int value = values[col];
+                    if (value != noData) {
+                        zMin = zMin == null ? value : Math.min(zMin, value);
+                        zMax = zMax == null ? value : Math.max(zMax, value);
+                    }
+                }
+            }
+            AscTile tile = new AscTile(srid, tileCols, tileRows, xValue + tileFirstCol * outCellSize,
+                    yValue - firstRow * outCellSize, outCellSize, noData, values);
+            rows.write(target, new Object[]{tile.toPolygon(factory), firstRow / tileSize, tileCol, zMin, zMax,
+                    tile.toBytes()});
+        }
+    }
+
     /**
      * Read asc stream
      *
@@ -186,91 +434,198 @@ public class AscReaderDriver {
      */
     public void read(Connection connection, InputStream inputStream, ProgressVisitor progress, String tableReference,
                      int srid) throws SQLException, IOException {
-        BufferedInputStream bof = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.flip();
+        AscTokenizer tokenizer = new AscTokenizer(Channels.newChannel(inputStream), buffer, 0);
         try {
-            Scanner scanner = new Scanner(bof);
             // Read HEADER
-            readHeader(scanner);
-
-            // Read values
-            Statement st = connection.createStatement();
-            PreparedStatement preparedStatement;
-            if(as3DPoint) {
-                st.execute("CREATE TABLE " + tableReference + "(PK SERIAL NOT NULL, THE_GEOM GEOMETRY(POINTZ, "+srid+"), " + " CONSTRAINT ASC_PK PRIMARY KEY (PK))");
-                preparedStatement = connection.prepareStatement("INSERT INTO " + tableReference +
-                        "(the_geom) VALUES (?)");
+            readHeader(tokenizer);
+        } catch (NumberFormatException ex) {
+            throw new SQLException("Unexpected word " + lastWord, ex);
+        }
+        createTable(connection, tableReference, srid);
+        computeExtractedCells();
+        final long cellCount = getReadCellCount();
+        ProgressVisitor rowProgress = progress != null ? progress.subProcess((int) (cellCount / ncols))
+                : new EmptyProgressVisitor();
+        final GeometryFactory factory = new GeometryFactory();
+        try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+            int target = writer.addTable(tableReference, 1);
+            if (tileSize > 0) {
+                writer.run(rows -> readTiles(tokenizer, cellCount, factory, srid, target, rows, rowProgress));
             } else {
-                st.execute("CREATE TABLE " + tableReference + "(PK SERIAL NOT NULL, THE_GEOM GEOMETRY(POLYGON, "+srid+"),Z int, " + " CONSTRAINT ASC_PK PRIMARY KEY (PK))");
-                preparedStatement = connection.prepareStatement("INSERT INTO " + tableReference +
-                        "(the_geom, Z) VALUES (?, ?)");
+                writer.run(rows -> readCells(tokenizer, 0, cellCount, factory, srid, target, rows, rowProgress));
             }
-            // Read data
-            GeometryFactory factory = new GeometryFactory();
-            int batchSize = 0;
-            int firstRow = 0;
-            int firstCol = 0;
-            int lastRow = nrows;
-            int lastCol = ncols;
-            // Compute envelope
-            if(extractEnvelope != null) {
-                firstCol = (int)Math.floor((extractEnvelope.getMinX() - xValue) / cellSize);
-                lastCol = (int)Math.ceil((extractEnvelope.getMaxX() - xValue) / cellSize);
-                firstRow = nrows - (int)Math.ceil((extractEnvelope.getMaxY() - (yValue - cellSize * nrows)) / cellSize);
-                lastRow = nrows - (int)Math.ceil((extractEnvelope.getMinY() - (yValue - cellSize * nrows)) / cellSize);
+        }
+    }
+
+    /**
+     * Read asc file, the bands of cell values are parsed by several threads if more than one thread is set and if the
+     * cells are not stored by tiles.
+     *
+     * @param connection
+     * @param file ASC file
+     * @param progress
+     * @param tableReference
+     * @param srid the espg code of the input file
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void read(Connection connection, File file, ProgressVisitor progress, String tableReference,
+                     int srid) throws SQLException, IOException {
+        if (threadCount <= 1 || tileSize > 0) {
+            try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+                read(connection, inputStream, progress, tableReference, srid);
+            }
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BUFFER_SIZE);
+            buffer.flip();
+            AscTokenizer tokenizer = new AscTokenizer(channel, buffer, 0);
+            try {
+                readHeader(tokenizer);
+            } catch (NumberFormatException ex) {
+                throw new SQLException("Unexpected word " + lastWord, ex);
             }
-            ProgressVisitor cellProgress = new EmptyProgressVisitor();
-            if (progress != null) {
-                cellProgress = progress.subProcess(lastRow);
+            long dataStart = tokenizer.getPosition();
+            createTable(connection, tableReference, srid);
+            computeExtractedCells();
+            long cellCount = getReadCellCount();
+            // Cut the values into bands ending on a white space
+            List<long[]> bands = new ArrayList<>();
+            long fileSize = channel.size();
+            long bandStart = dataStart;
+            while (bandStart < fileSize) {
+                long bandEnd = nextWhitespace(channel, Math.min(fileSize, bandStart + BAND_SIZE), fileSize);
+                bands.add(new long[]{bandStart, bandEnd});
+                bandStart = bandEnd;
             }
-            for (int i = 0; i < nrows; i++) {
-                for (int j = 0; j < ncols; j++) {
-                    if (readFirst) {
-                        lastWord = scanner.next();
-                    } else {
-                        readFirst = true;
-                    }
-                    if((downScale == 1 || (i % downScale == 0 && j % downScale == 0)) && (extractEnvelope == null || (i >= firstRow && i <= lastRow && j >= firstCol && j <= lastCol))) {
-                        int data = Integer.parseInt(lastWord);
-                        double x = xValue + j * cellSize;
-                        double y = yValue - i * cellSize;
-                        if (as3DPoint) {
-                            if (data != noData) {
-                                Point cell = factory.createPoint(new Coordinate(new Coordinate(x + cellSize / 2, y - cellSize / 2, data)));
-                                cell.setSRID(srid);
-                                preparedStatement.setObject(1, cell);
-                                preparedStatement.addBatch();
-                                batchSize++;
-                            }
+            ProgressVisitor bandProgress = progress != null ? progress.subProcess(bands.size())
+                    : new EmptyProgressVisitor();
+            GeometryFactory factory = new GeometryFactory();
+            ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+                Thread thread = new Thread(r, "H2GIS ASC parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                // Count the values of each band to locate their first cell
+                List<Future<Long>> counts = new ArrayList<>(bands.size());
+                for (long[] band : bands) {
+                    counts.add(pool.submit(() -> mapBand(channel, band).countWords()));
+                }
+                long[] firstCells = new long[bands.size() + 1];
+                for (int i = 0; i < bands.size(); i++) {
+                    firstCells[i + 1] = firstCells[i] + getResult(counts.get(i));
+                }
+                if (firstCells[bands.size()] < cellCount) {
+                    throw new SQLException("Unexpected end of file, " + firstCells[bands.size()]
+                            + " values read, " + cellCount + " expected");
+                }
+                int target = writer.addTable(tableReference, 1);
+                writer.run(rows -> {
+                    ArrayDeque<Future<List<Object[]>>> pending = new ArrayDeque<>();
+                    for (int i = 0; i < bands.size() && firstCells[i] < cellCount; i++) {
+                        final long[] band = bands.get(i);
+                        final long firstCell = firstCells[i];
+                        final long bandCellCount = Math.min(firstCells[i + 1], cellCount) - firstCell;
+                        if (!hasExtractedCells(firstCell, bandCellCount)) {
+                            pending.add(CompletableFuture.completedFuture(Collections.emptyList()));
                         } else {
-                            Polygon cell = factory.createPolygon(new Coordinate[]{new Coordinate(x, y), new Coordinate(x, y - cellSize * downScale), new Coordinate(x + cellSize * downScale, y - cellSize * downScale), new Coordinate(x + cellSize * downScale, y), new Coordinate(x, y)});
-                            cell.setSRID(srid);
-                            preparedStatement.setObject(1, cell);
-                            if (data != noData) {
-                                preparedStatement.setObject(2, data);
-                            } else {
-                                preparedStatement.setNull(2, Types.INTEGER);
-                            }
-                            preparedStatement.addBatch();
-                            batchSize++;
+                            pending.add(pool.submit(() -> {
+                                List<Object[]> bandRows = new ArrayList<>();
+                                readCells(mapBand(channel, band), firstCell, bandCellCount, factory, srid, target,
+                                        (t, values) -> bandRows.add(values), new EmptyProgressVisitor());
+                                return bandRows;
+                            }));
                         }
-                        if (batchSize >= BATCH_MAX_SIZE) {
-                            preparedStatement.executeBatch();
-                            preparedStatement.clearBatch();
-                            batchSize = 0;
+                        if (pending.size() > threadCount * 2) {
+                            writeBand(pending.poll(), target, rows, bandProgress);
                         }
                     }
-                }
-                cellProgress.endStep();
-                if(i > lastRow) {
-                    break;
-                }
+                    while (!pending.isEmpty()) {
+                        writeBand(pending.poll(), target, rows, bandProgress);
+                    }
+                });
+            } finally {
+                pool.shutdownNow();
             }
-            if (batchSize > 0) {
-                preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * @param firstCell Index of the first cell of a band
+     * @param cellCount Number of cells of the band
+     * @return True if a row of the band contains extracted cells
+     */
+    private boolean hasExtractedCells(long firstCell, long cellCount) {
+        if (cellCount <= 0) {
+            return false;
+        }
+        long firstRow = firstCell / ncols;
+        long lastRow = (firstCell + cellCount - 1) / ncols;
+        if (lastRow < rowBegin || firstRow > rowEnd) {
+            return false;
+        }
+        if (downScale > 1 && lastRow == firstRow && firstRow % downScale != 0) {
+            return false;
+        }
+        return true;
+    }
+
+    private void writeBand(Future<List<Object[]>> band, int target, PipelinedWriter.RowSink rows,
+                           ProgressVisitor bandProgress) throws SQLException, IOException {
+        for (Object[] row : getResult(band)) {
+            rows.write(target, row);
+        }
+        bandProgress.endStep();
+    }
+
+    private static <T> T getResult(Future<T> future) throws SQLException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            } else if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
             }
-        } catch (NoSuchElementException | NumberFormatException ex) {
-            throw new SQLException("Unexpected word " + lastWord, ex);
+            throw new SQLException(ex.getCause());
+        }
+    }
+
+    private static AscTokenizer mapBand(FileChannel channel, long[] band) throws IOException {
+        return new AscTokenizer(null, channel.map(FileChannel.MapMode.READ_ONLY, band[0], band[1] - band[0]),
+                band[0]);
+    }
+
+    /**
+     * @param channel File
+     * @param position Start of the search
+     * @param fileSize Size of the file
+     * @return Position of the first white space from the position, or the file size
+     * @throws IOException
+     */
+    private static long nextWhitespace(FileChannel channel, long position, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return fileSize;
+            }
+            for (int i = 0; i < read; i++) {
+                if ((buffer.get(i) & 0xFF) <= ' ') {
+                    return position + i;
+                }
+            }
+            position += read;
         }
+        return fileSize;
     }
 
 }
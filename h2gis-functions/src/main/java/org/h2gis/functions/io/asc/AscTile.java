@@ -0,0 +1,257 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.asc;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * Block of cells of an ESRI ASCII Raster, stored in one row by the tiled import of {@link AscReaderDriver}.
+ *
+ * The binary form holds a 48 bytes header followed by the cell values as 32 bits integers, row by row from the
+ * north-west cell:
+ *
+ * magic (int 'ASCT'), version (int), srid (int), number of columns (int), number of rows (int),
+ * minimum x (double), maximum y (double), cell size (double), no data value (int)
+ *
+ * @author Nicolas Fortin
+ */
+public class AscTile {
+    private static final int MAGIC = 0x41534354;
+    private static final int VERSION = 1;
+    /** Size of the binary header */
+    public static final int HEADER_SIZE = 48;
+
+    private final int srid;
+    private final int ncols;
+    private final int nrows;
+    private final double minX;
+    private final double maxY;
+    private final double cellSize;
+    private final int noData;
+    private final int[] values;
+
+    /**
+     * @param srid SRID of the coordinates
+     * @param ncols Number of columns
+     * @param nrows Number of rows
+     * @param minX West bound
+     * @param maxY North bound
+     * @param cellSize Width and height of a cell
+     * @param noData Value of the cells without data
+     * @param values Cell values, row by row from the north-west cell
+     */
+    public AscTile(int srid, int ncols, int nrows, double minX, double maxY, double cellSize, int noData,
+                   int[] values) {
+        if (values.length != ncols * nrows) {
+            throw new IllegalArgumentException("Expected " + ncols * nrows + " values, got " + values.length);
+        }
+        this.srid = srid;
+        this.ncols = ncols;
+        this.nrows = nrows;
+        this.minX = minX;
+        this.maxY = maxY;
+        this.cellSize = cellSize;
+        this.noData = noData;
+        this.values = values;
+    }
+
+    /**
+     * Read the binary form of a tile
+     *
+     * @param bytes Binary tile
+     * @return The tile
+     * @throws SQLException If the binary is not a tile
+     */
+    public static AscTile fromBytes(byte[] bytes) throws SQLException {
+        if (bytes.length < HEADER_SIZE) {
+            throw new SQLException("Not a raster tile");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC) {
+            throw new SQLException("Not a raster tile");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new SQLException("Unsupported raster tile version " + version);
+        }
+        int srid = buffer.getInt();
+        int ncols = buffer.getInt();
+        int nrows = buffer.getInt();
+        double minX = buffer.getDouble();
+        double maxY = buffer.getDouble();
+        double cellSize = buffer.getDouble();
+        int noData = buffer.getInt();
+        if (ncols < 0 || nrows < 0 || bytes.length != HEADER_SIZE + 4L * ncols * nrows) {
+            throw new SQLException("Invalid raster tile size");
+        }
+        int[] values = new int[ncols * nrows];
+        buffer.asIntBuffer().get(values);
+        return new AscTile(srid, ncols, nrows, minX, maxY, cellSize, noData, values);
+    }
+
+    /**
+     * @return The binary form of the tile
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * values.length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(srid).putInt(ncols).putInt(nrows);
+        buffer.putDouble(minX).putDouble(maxY).putDouble(cellSize).putInt(noData);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * @return SRID of the coordinates
+     */
+    public int getSRID() {
+        return srid;
+    }
+
+    /**
+     * @return Number of columns
+     */
+    public int getColumnCount() {
+        return ncols;
+    }
+
+    /**
+     * @return Number of rows
+     */
+    public int getRowCount() {
+        return nrows;
+    }
+
+    /**
+     * @return Width and height of a cell
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return Value of the cells without data
+     */
+    public int getNoData() {
+        return noData;
+    }
+
+    /**
+     * @param row Row from the north
+     * @param column Column from the west
+     * @return The cell value, the no data value included
+     */
+    public int getValue(int row, int column) {
+        return values[row * ncols + column];
+    }
+
+    /**
+     * @return Bounds of the tile
+     */
+    public Envelope getEnvelope() {
+        return new Envelope(minX, minX + ncols * cellSize, maxY - nrows * cellSize, maxY);
+    }
+
+    /**
+     * @param factory Geometry factory
+     * @return Bounds of the tile as a polygon
+     */
+    public Polygon toPolygon(GeometryFactory factory) {
+        Polygon polygon = (Polygon) factory.toGeometry(getEnvelope());
+        polygon.setSRID(srid);
+        return polygon;
+    }
+
+    /**
+     * @param x X coordinate
+     * @param y Y coordinate
+     * @return The value of the cell containing the location, null if the location is out of the tile or if the cell
+     * has no data. The west and north cell borders belong to the cell.
+     */
+    public Integer getValue(double x, double y) {
+        int column = (int) Math.floor((x - minX) / cellSize);
+        int row = (int) Math.floor((maxY - y) / cellSize);
+        if (column < 0 || column >= ncols || row < 0 || row >= nrows) {
+            return null;
+        }
+        int value = getValue(row, column);
+        return value == noData ? null : value;
+    }
+
+    /**
+     * Extract the cells intersecting an envelope
+     *
+     * @param envelope Extracted area
+     * @return The extracted tile, null if no cell intersects the envelope
+     */
+    public AscTile clip(Envelope envelope) {
+        int firstColumn = Math.max(0, (int) Math.floor((envelope.getMinX() - minX) / cellSize));
+        int lastColumn = Math.min(ncols - 1, (int) Math.ceil((envelope.getMaxX() - minX) / cellSize) - 1);
+        int firstRow = Math.max(0, (int) Math.floor((maxY - envelope.getMaxY()) / cellSize));
+        int lastRow = Math.min(nrows - 1, (int) Math.ceil((maxY - envelope.getMinY()) / cellSize) - 1);
+        if (envelope.isNull() || firstColumn > lastColumn || firstRow > lastRow) {
+            return null;
+        }
+        int clipColumns = lastColumn - firstColumn + 1;
+        int clipRows = lastRow - firstRow + 1;
+        int[] clipValues = new int[clipColumns * clipRows];
+        for (int row = 0; row < clipRows; row++) {
+            System.arraycopy(values, (firstRow + row) * ncols + firstColumn, clipValues, row * clipColumns,
+                    clipColumns);
+        }
+        return new AscTile(srid, clipColumns, clipRows, minX + firstColumn * cellSize, maxY - firstRow * cellSize,
+                cellSize, noData, clipValues);
+    }
+
+    /**
+     * @param factory Geometry factory
+     * @return The centers of the cells with data, the value is the z coordinate
+     */
+    public MultiPoint toPoints(GeometryFactory factory) {
+        int count = 0;
+        for (int value : values) {
+            if (value != noData) {
+                count++;
+            }
+        }
+        Point[] points = new Point[count];
+        int index = 0;
+        for (int row = 0; row < nrows; row++) {
+            double y = maxY - (row + 0.5) * cellSize;
+            for (int column = 0; column < ncols; column++) {
+                int value = values[row * ncols + column];
+                if (value != noData) {
+                    points[index++] = factory.createPoint(new Coordinate(minX + (column + 0.5) * cellSize, y, value));
+                }
+            }
+        }
+        MultiPoint multiPoint = factory.createMultiPoint(points);
+        multiPoint.setSRID(srid);
+        return multiPoint;
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.asc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Split the bytes of an ESRI ASCII Raster file into words separated by white spaces, the cell values are parsed
+ * without creating any String.
+ *
+ * The bytes are read from a buffer, refilled from a channel if one is given. Without a channel the buffer holds a
+ * region of the file, ie a mapped band of rows.
+ *
+ * @author Nicolas Fortin
+ */
+final class AscTokenizer {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    // Offset of the buffer first byte in the source
+    private long bufferOffset;
+    private long tokenStart = -1;
+
+    /**
+     * @param channel Source of the bytes, null if the buffer holds all the bytes to read
+     * @param buffer Buffer of the bytes, must be empty if a channel is given
+     * @param offset Offset of the buffer first byte in the source
+     */
+    AscTokenizer(ReadableByteChannel channel, ByteBuffer buffer, long offset) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.bufferOffset = offset;
+    }
+
+    /**
+     * @return Offset in the source of the next byte to read
+     */
+    long getPosition() {
+        return bufferOffset + buffer.position();
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    /**
+     * Read the next bytes from the channel when the buffer is consumed
+     *
+     * @return False at the end of the source
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        if (buffer.hasRemaining()) {
+            return true;
+        }
+        if (channel == null) {
+            return false;
+        }
+        bufferOffset += buffer.limit();
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read > 0;
+    }
+
+    /**
+     * Skip the white spaces before the next word
+     *
+     * @return False at the end of the source
+     * @throws IOException
+     */
+    boolean skipWhitespaces() throws IOException {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        while (true) {
+            if (position == limit) {
+                buffer.position(position);
+                if (!fill()) {
+                    return false;
+                }
+                position = buffer.position();
+                limit = buffer.limit();
+            }
+            if (!isWhitespace(buffer.get(position))) {
+                buffer.position(position);
+                tokenStart = getPosition();
+                return true;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * @return The first byte of the next word, or -1 at the end of the source
+     * @throws IOException
+     */
+    int peek() throws IOException {
+        return skipWhitespaces() ? buffer.get(buffer.position()) & 0xFF : -1;
+    }
+
+    /**
+     * @return The next word
+     * @throws IOException At the end of the source
+     */
+    String nextWord() throws IOException {
+        if (!skipWhitespaces()) {
+            throw new IOException("Unexpected end of file");
+        }
+        StringBuilder word = new StringBuilder();
+        while (fill()) {
+            byte b = buffer.get(buffer.position());
+            if (isWhitespace(b)) {
+                break;
+            }
+            word.append((char) (b & 0xFF));
+            buffer.position(buffer.position() + 1);
+        }
+        return word.toString();
+    }
+
+    /**
+     * Skip the next word
+     *
+     * @return False at the end of the source
+     * @throws IOException
+     */
+    boolean skipWord() throws IOException {
+        if (!skipWhitespaces()) {
+            return false;
+        }
+        int position = buffer.position();
+        int limit = buffer.limit();
+        while (true) {
+            if (position == limit) {
+                buffer.position(position);
+                if (!fill()) {
+                    return true;
+                }
+                position = buffer.position();
+                limit = buffer.limit();
+            }
+            if (isWhitespace(buffer.get(position))) {
+                buffer.position(position);
+                return true;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Parse the next word as an integer, ie -9999 or +12
+     *
+     * @return The integer value
+     * @throws IOException At the end of the source or if the word is not an integer
+     */
+    int nextInt() throws IOException {
+        if (!skipWhitespaces()) {
+            throw new IOException("Unexpected end of file");
+        }
+        int position = buffer.position();
+        int limit = buffer.limit();
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (true) {
+            if (position == limit) {
+                buffer.position(position);
+                boolean more = fill();
+                position = buffer.position();
+                limit = buffer.limit();
+                if (!more) {
+                    break;
+                }
+            }
+            b = buffer.get(position);
+            if (isWhitespace(b)) {
+                break;
+            }
+            if (b < '0' || b > '9' || digits > 10) {
+                buffer.position(position);
+                throw new IOException("Unexpected value at offset " + tokenStart);
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            position++;
+        }
+        buffer.position(position);
+        if (negative) {
+            value = -value;
+        }
+        if (digits == 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IOException("Unexpected value at offset " + tokenStart);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Count the remaining words
+     *
+     * @return Number of words
+     * @throws IOException
+     */
+    long countWords() throws IOException {
+        long count = 0;
+        while (skipWord()) {
+            count++;
+        }
+        return count;
+    }
+}
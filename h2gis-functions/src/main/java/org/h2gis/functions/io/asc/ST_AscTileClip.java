@@ -0,0 +1,59 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.asc;
+
+import org.h2gis.api.DeterministicScalarFunction;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.SQLException;
+
+/**
+ * Extract the cells of a raster tile intersecting the envelope of a geometry
+ *
+ * @author Nicolas Fortin
+ */
+public class ST_AscTileClip extends DeterministicScalarFunction {
+
+    public ST_AscTileClip() {
+        addProperty(PROP_REMARKS, "Return the cells of a raster tile, imported by ASCREAD with a tile size,\n" +
+                "intersecting the envelope of the geometry. Return null if no cell intersects the envelope.\n" +
+                "SELECT ST_AscTilePoints(ST_AscTileClip(TILE, THE_GEOM)) FROM PRECIP30MIN;");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "clip";
+    }
+
+    /**
+     * @param tile Binary raster tile
+     * @param geometry Extracted area
+     * @return The binary raster tile of the intersecting cells
+     * @throws SQLException
+     */
+    public static byte[] clip(byte[] tile, Geometry geometry) throws SQLException {
+        if (tile == null || geometry == null || geometry.isEmpty()) {
+            return null;
+        }
+        AscTile clipped = AscTile.fromBytes(tile).clip(geometry.getEnvelopeInternal());
+        return clipped == null ? null : clipped.toBytes();
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.asc;
+
+import org.h2gis.api.DeterministicScalarFunction;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.sql.SQLException;
+
+/**
+ * Convert a raster tile into the points of its cells
+ *
+ * @author Nicolas Fortin
+ */
+public class ST_AscTilePoints extends DeterministicScalarFunction {
+
+    public ST_AscTilePoints() {
+        addProperty(PROP_REMARKS, "Convert a raster tile, imported by ASCREAD with a tile size, into a MULTIPOINT Z\n" +
+                "of the cell centers with the cell value as Z. The cells without data are skipped.\n" +
+                "SELECT SUM(ST_NumGeometries(ST_AscTilePoints(TILE))) FROM PRECIP30MIN;");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "toPoints";
+    }
+
+    /**
+     * @param tile Binary raster tile
+     * @return The cell centers
+     * @throws SQLException
+     */
+    public static Geometry toPoints(byte[] tile) throws SQLException {
+        if (tile == null) {
+            return null;
+        }
+        return AscTile.fromBytes(tile).toPoints(new GeometryFactory());
+    }
+}
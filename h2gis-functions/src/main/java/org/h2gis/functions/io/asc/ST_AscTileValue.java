@@ -0,0 +1,62 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.asc;
+
+import org.h2gis.api.DeterministicScalarFunction;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Point;
+
+import java.sql.SQLException;
+
+/**
+ * Read the value of a raster tile at a location
+ *
+ * @author Nicolas Fortin
+ */
+public class ST_AscTileValue extends DeterministicScalarFunction {
+
+    public ST_AscTileValue() {
+        addProperty(PROP_REMARKS, "Return the value of the cell of a raster tile, imported by ASCREAD with a tile size,\n" +
+                "containing the point. Return null if the point is out of the tile or if the cell has no data.\n" +
+                "SELECT ST_AscTileValue(TILE, 'POINT(-179.74 -80.18)') FROM PRECIP30MIN WHERE THE_GEOM && 'POINT(-179.74 -80.18)';");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "getValue";
+    }
+
+    /**
+     * @param tile Binary raster tile
+     * @param point Location
+     * @return The cell value
+     * @throws SQLException
+     */
+    public static Integer getValue(byte[] tile, Geometry point) throws SQLException {
+        if (tile == null || point == null || point.isEmpty()) {
+            return null;
+        }
+        if (!(point instanceof Point)) {
+            throw new SQLException("Only POINT is supported");
+        }
+        return AscTile.fromBytes(tile).getValue(((Point) point).getX(), ((Point) point).getY());
+    }
+}
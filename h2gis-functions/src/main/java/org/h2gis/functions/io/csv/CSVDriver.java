@@ -0,0 +1,229 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.csv;
+
+import org.h2.util.DateTimeUtils;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueBoolean;
+import org.h2.value.ValueDate;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueGeometry;
+import org.h2.value.ValueInteger;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueTimestamp;
+import org.h2.value.ValueVarchar;
+import org.h2gis.api.FileDriver;
+import org.h2gis.functions.io.file_table.IndexedRowReader;
+import org.h2gis.functions.io.file_table.RowOffsetIndex;
+import org.h2gis.functions.io.utility.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read the rows of a CSV file linked as a table.
+ *
+ * The columns and their types are read from the header and a sample of the first rows, like {@link CSVReaderDriver}.
+ * The byte offsets of the rows are kept in a {@link RowOffsetIndex} sidecar file built on the first opening, a row is
+ * read from its offset.
+ *
+ * @author Nicolas Fortin
+ */
+public class CSVDriver implements FileDriver {
+    private final CSVReaderDriver settings = new CSVReaderDriver();
+    private FileChannel channel;
+    private IndexedRowReader reader;
+    private CSVScanner scanner;
+    private CSVReaderDriver.Columns columns;
+    private CSVReaderDriver.RowConverter converter;
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Open the file and load or build its row index
+     *
+     * @param file CSV file, not compressed
+     * @param options CSV options ie "charset=UTF-8 fieldSeparator=; fieldDelimiter=\" geometry=wkt srid=4326", may be
+     *                null
+     * @throws IOException
+     */
+    public void initDriverFromFile(File file, String options) throws IOException {
+        if (FileUtil.isGzipFile(file)) {
+            throw new IOException("The compressed file " + file.getName() + " cannot be linked, import it instead");
+        }
+        try {
+            settings.setOptions(options);
+            settings.checkCharset();
+        } catch (SQLException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            CSVScanner headerScanner = newScanner(0);
+            headerScanner.skipByteOrderMark();
+            List<String> header = new ArrayList<>();
+            headerScanner.readRow(header);
+            long dataStart = headerScanner.getPosition();
+            List<String[]> sample = new ArrayList<>();
+            while (settings.isInferTypes() && sample.size() < settings.getSampleSize()
+                    && headerScanner.readRow(values)) {
+                sample.add(values.toArray(new String[0]));
+            }
+            columns = settings.new Columns(header, sample, true);
+            converter = settings.new RowConverter(columns);
+            String key = "CSV " + (int) settings.getFieldSeparator() + " " + (int) settings.getFieldDelimiter();
+            RowOffsetIndex index = RowOffsetIndex.open(file, key, () -> {
+                RowOffsetIndex.Builder builder = new RowOffsetIndex.Builder();
+                CSVScanner rowScanner = newScanner(dataStart);
+                long rowStart;
+                while ((rowStart = rowScanner.skipRow()) >= 0) {
+                    builder.add(rowStart);
+                }
+                return builder.build(channel.size(), Collections.emptyList());
+            });
+            reader = new IndexedRowReader(channel, index);
+            scanner = newScanner(0);
+        } catch (SQLException ex) {
+            close();
+            throw new IOException(ex.getMessage(), ex);
+        } catch (IOException | RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    private CSVScanner newScanner(long offset) {
+        return new CSVScanner(new CSVReaderDriver.PositionalChannel(channel, offset), offset,
+                CSVReaderDriver.BUFFER_SIZE, settings.getFieldSeparator(), settings.getFieldDelimiter(),
+                settings.getCharset());
+    }
+
+    /**
+     * @return Number of columns, the point column built from the longitudes and latitudes included
+     */
+    int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * @param column Column index
+     * @return Column name
+     */
+    String getColumnName(int column) {
+        return columns.getLabel(column);
+    }
+
+    /**
+     * @param column Column index
+     * @return Column type
+     */
+    CSVReaderDriver.ColumnType getColumnType(int column) {
+        return columns.getType(column);
+    }
+
+    /**
+     * @param column Column index
+     * @return True if the column is the point column built from the longitudes and latitudes
+     */
+    boolean isPointColumn(int column) {
+        return column == columns.getPointIndex();
+    }
+
+    /**
+     * @return SRID of the geometry columns
+     */
+    int getSrid() {
+        return settings.getSrid();
+    }
+
+    @Override
+    public long getRowCount() {
+        return reader.getIndex().getRowCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    @Override
+    public synchronized Value[] getRow(long rowId) throws IOException {
+        ByteBuffer row = reader.read(rowId);
+        scanner.readRow(row.array(), row.arrayOffset() + row.position(), row.arrayOffset() + row.limit(), values);
+        Object[] objects;
+        try {
+            objects = converter.convert(values);
+        } catch (SQLException ex) {
+            throw new IOException("Cannot read the row " + (rowId + 1) + ", " + ex.getMessage(), ex);
+        }
+        Value[] rowValues = new Value[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            rowValues[i] = getValue(objects[i]);
+        }
+        return rowValues;
+    }
+
+    /**
+     * @param object Value converted by the {@link CSVReaderDriver.RowConverter}
+     * @return H2 value
+     */
+    private static Value getValue(Object object) {
+        if (object == null) {
+            return ValueNull.INSTANCE;
+        } else if (object instanceof String) {
+            return ValueVarchar.get((String) object);
+        } else if (object instanceof Integer) {
+            return ValueInteger.get((Integer) object);
+        } else if (object instanceof Long) {
+            return ValueBigint.get((Long) object);
+        } else if (object instanceof Double) {
+            return ValueDouble.get((Double) object);
+        } else if (object instanceof Boolean) {
+            return ValueBoolean.get((Boolean) object);
+        } else if (object instanceof LocalDate) {
+            LocalDate date = (LocalDate) object;
+            return ValueDate.fromDateValue(DateTimeUtils.dateValue(date.getYear(), date.getMonthValue(),
+                    date.getDayOfMonth()));
+        } else if (object instanceof LocalDateTime) {
+            LocalDateTime timestamp = (LocalDateTime) object;
+            return ValueTimestamp.fromDateValueAndNanos(DateTimeUtils.dateValue(timestamp.getYear(),
+                    timestamp.getMonthValue(), timestamp.getDayOfMonth()), timestamp.toLocalTime().toNanoOfDay());
+        }
+        return ValueGeometry.getFromGeometry(object);
+    }
+
+    @Override
+    public void insertRow(Object[] values) throws IOException {
+        throw new IOException("A linked CSV file cannot be modified");
+    }
+}
@@ -24,11 +24,14 @@ import org.h2.tools.Csv;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.ProgressVisitor;
 import org.h2gis.functions.io.utility.FileUtil;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 
 import java.io.*;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -42,7 +45,6 @@ import java.util.regex.Pattern;
 public class CSVDriverFunction implements DriverFunction{
 
     public static String DESCRIPTION = "CSV file (Comma Separated Values)";
-    private static final int BATCH_MAX_SIZE = 100;
     private static final int AVERAGE_NODE_SIZE = 500;
     
     @Override
@@ -101,33 +103,56 @@ public class CSVDriverFunction implements DriverFunction{
                 try (Statement st = connection.createStatement()) {
                     JDBCUtilities.attachCancelResultSet(st, progress);
                     Csv csv = new Csv();
+                    String charset = null;
                     if (csvOptions != null && csvOptions.indexOf('=') >= 0) {
-                        csv.setOptions(csvOptions);
+                        charset = csv.setOptions(csvOptions);
                     }
-                    csv.write(fileName.getPath(), st.executeQuery(tableReference), null);
+                    write(csv, charset, st.executeQuery(tableReference), fileName);
                 }
             } else {
                 throw new SQLException("The select query must be enclosed in parenthesis: '(SELECT * FROM ORDERS)'.");
             }
 
         } else {
-            if (FileUtil.isExtensionWellFormated(fileName, "csv")) {
+            if (FileUtil.isExtensionWellFormated(fileName, "csv", true)) {
                 final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
                 TableLocation location = TableLocation.parse(tableReference, isH2);
                 try (Statement st = connection.createStatement()) {
                     JDBCUtilities.attachCancelResultSet(st, progress);
                     Csv csv = new Csv();
+                    String charset = null;
                     if (csvOptions != null && csvOptions.indexOf('=') >= 0) {
-                        csv.setOptions(csvOptions);
+                        charset = csv.setOptions(csvOptions);
                     }
-                    csv.write(fileName.getPath(), st.executeQuery("SELECT * FROM " + location.toString()), null);
+                    write(csv, charset, st.executeQuery("SELECT * FROM " + location.toString()), fileName);
                 }
             } else {
-                throw new SQLException("Only .csv extension is supported");
+                throw new SQLException("Only .csv and .csv.gz extensions are supported");
             }
         }
     }
     
+    /**
+     * Write the result set in the file, compressed if the file has the .gz extension
+     *
+     * @param csv CSV writer
+     * @param charset Character set or null for UTF-8
+     * @param rs Rows to write, closed by this method
+     * @param fileName Output file
+     * @throws SQLException
+     * @throws IOException
+     */
+    private static void write(Csv csv, String charset, ResultSet rs, File fileName) throws SQLException, IOException {
+        if (FileUtil.isGzipFile(fileName)) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtil.openOutputStream(fileName),
+                    charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset)))) {
+                csv.write(writer, rs);
+            }
+        } else {
+            csv.write(fileName.getPath(), rs, null);
+        }
+    }
+    
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress)
             throws SQLException, IOException {
@@ -140,14 +165,22 @@ public class CSVDriverFunction implements DriverFunction{
      * @param tableReference [[catalog.]schema.]table reference
      * @param fileName File path to read
      * @param progress
-     * @param csvOptions  the CSV options ie "charset=UTF-8 fieldSeparator=| fieldDelimiter=,"
+     * @param csvOptions  the CSV options ie "charset=UTF-8 fieldSeparator=| fieldDelimiter=,", with the options
+     *                    "threads=4 types=true sample=1000 geometry=wkt lon=x lat=y srid=4326" the file is read by a
+     *                    {@link CSVReaderDriver} into typed columns
      * @throws SQLException
      * @throws IOException 
      */
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            String csvOptions) throws SQLException, IOException {
-        if (FileUtil.isFileImportable(fileName, "csv")) {
+        if (CSVReaderDriver.isReaderOption(csvOptions)) {
+            if (FileUtil.isFileImportable(fileName, "csv", true)) {
+                CSVReaderDriver csvReaderDriver = new CSVReaderDriver();
+                csvReaderDriver.setOptions(csvOptions);
+                csvReaderDriver.read(connection, fileName, progress, tableReference);
+            }
+        } else if (FileUtil.isFileImportable(fileName, "csv", true)) {
             final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
             TableLocation requestedTable = TableLocation.parse(tableReference, isH2);
             String table = requestedTable.getTable();
@@ -157,74 +190,52 @@ public class CSVDriverFunction implements DriverFunction{
             // Given the file size and an average node file size.
             // Skip how many nodes in order to update progression at a step of 1%
             long readFileSizeEachNode = Math.max(1, (fileSize / AVERAGE_NODE_SIZE) / 100);            
-            int average_row_size = 0;
-            connection.setAutoCommit(false);
             Csv csv = new Csv();
             if (csvOptions != null && csvOptions.indexOf('=') >= 0) {
                 csv.setOptions(csvOptions);
             }            
-            ResultSet reader = csv.read(new BufferedReader(new InputStreamReader(fis)), null);
+            ResultSet reader = csv.read(new BufferedReader(new InputStreamReader(FileUtil.uncompressedInputStream(fileName, fis))), null);
             ResultSetMetaData metadata = reader.getMetaData();
             int columnCount = metadata.getColumnCount();
 
             StringBuilder createTable = new StringBuilder("CREATE TABLE ");
             createTable.append(table).append("(");
 
-            StringBuilder insertTable = new StringBuilder("INSERT INTO ");
-            insertTable.append(table).append(" VALUES(");
-
             for (int i = 0; i < columnCount; i++) {
                 if(i>0){
                     createTable.append(",");
-                    insertTable.append(",");
                 }
                 createTable.append(metadata.getColumnName(i + 1)).append(" VARCHAR");
-                insertTable.append("?");
             }
             createTable.append(")");
-            insertTable.append(")");
 
             try (Statement stmt = connection.createStatement()) {
                 stmt.execute(createTable.toString());
             }
 
-            PreparedStatement pst = connection.prepareStatement(insertTable.toString());
-            long batchSize = 0;
-            try {
-                while (reader.next()) {
-                    if (progress.isCanceled()) {
-                        throw new SQLException("Canceled by user");
-                    }
-
-                    for (int i = 0; i < columnCount; i++) {
-                        pst.setString(i + 1, reader.getString(i + 1));
-                    }
-                    pst.addBatch();
-                    batchSize++;
-                    if (batchSize >= BATCH_MAX_SIZE) {
-                        pst.executeBatch();
-                        connection.commit();
-                        pst.clearBatch();
-                        batchSize = 0;
-                    }
-                    if (average_row_size++ % readFileSizeEachNode == 0) {
-                        // Update Progress
-                        try {
-                            progress.setStep((int) (((double) fc.position() / fileSize) * 100));
-                        } catch (IOException ex) {
-                            // Ignore
+            try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                int target = writer.addTable(table, 0);
+                writer.run(rows -> {
+                    int rowCount = 0;
+                    while (reader.next()) {
+                        if (progress.isCanceled()) {
+                            throw new SQLException("Canceled by user");
+                        }
+                        Object[] row = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            row[i] = reader.getString(i + 1);
+                        }
+                        rows.write(target, row);
+                        if (rowCount++ % readFileSizeEachNode == 0) {
+                            // Update Progress
+                            try {
+                                progress.setStep((int) (((double) fc.position() / fileSize) * 100));
+                            } catch (IOException ex) {
+                                // Ignore
+                            }
                         }
                     }
-                }
-                if (batchSize > 0) {
-                    pst.executeBatch();
-                    pst.clearBatch();
-                    connection.commit();
-                }
-
-            } finally {
-                pst.close();                
-                connection.setAutoCommit(true);
+                });
             }
         }
     }
@@ -0,0 +1,78 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.csv;
+
+import org.h2.command.ddl.CreateTableData;
+import org.h2.table.Column;
+import org.h2.value.ExtTypeInfoGeometry;
+import org.h2.value.TypeInfo;
+import org.h2gis.functions.io.file_table.FileEngine;
+import org.h2gis.utilities.GeometryTypeCodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * CSV Table factory, the second argument of the engine is the CSV options.
+ *
+ * @author Nicolas Fortin
+ */
+public class CSVEngine extends FileEngine<CSVDriver> {
+
+    @Override
+    protected CSVDriver createDriver(File filePath, List<String> args) throws IOException {
+        CSVDriver driver = new CSVDriver();
+        driver.initDriverFromFile(filePath, args.size() > 1 ? args.get(1) : null);
+        return driver;
+    }
+
+    @Override
+    protected void feedCreateTableData(CSVDriver driver, CreateTableData data) throws IOException {
+        for (int i = 0; i < driver.getColumnCount(); i++) {
+            data.columns.add(new Column(driver.getColumnName(i), getTypeInfo(driver, i)));
+        }
+    }
+
+    private static TypeInfo getTypeInfo(CSVDriver driver, int column) {
+        switch (driver.getColumnType(column)) {
+            case BOOLEAN:
+                return TypeInfo.TYPE_BOOLEAN;
+            case INTEGER:
+                return TypeInfo.TYPE_INTEGER;
+            case BIGINT:
+                return TypeInfo.TYPE_BIGINT;
+            case DOUBLE:
+                return TypeInfo.TYPE_DOUBLE;
+            case DATE:
+                return TypeInfo.TYPE_DATE;
+            case TIMESTAMP:
+                return TypeInfo.TYPE_TIMESTAMP;
+            case GEOMETRY:
+                int type = driver.isPointColumn(column) ? GeometryTypeCodes.POINT : GeometryTypeCodes.GEOMETRY;
+                return TypeInfo.getTypeInfo(TypeInfo.TYPE_GEOMETRY.getValueType(),
+                        TypeInfo.TYPE_GEOMETRY.getPrecision(), TypeInfo.TYPE_GEOMETRY.getScale(),
+                        new ExtTypeInfoGeometry(type, driver.getSrid()));
+            default:
+                return TypeInfo.TYPE_VARCHAR;
+        }
+    }
+}
@@ -0,0 +1,923 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.csv;
+
+import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.utility.FileUtil;
+import org.h2gis.functions.io.utility.PipelinedWriter;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKTReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Import a CSV or TSV file into a table with typed columns.
+ *
+ * The rows are split from the bytes of the file by a {@link CSVScanner}. The column types are inferred from a sample
+ * of the first rows, the values are stored as BOOLEAN, INTEGER, BIGINT, DOUBLE PRECISION, DATE (yyyy-MM-dd),
+ * TIMESTAMP (yyyy-MM-dd hh:mm:ss) or VARCHAR. A column of WKT, EWKT or hexadecimal (E)WKB values can be decoded
+ * into a GEOMETRY column, and a longitude and a latitude column into a THE_GEOM point column.
+ *
+ * A file that is not compressed is cut into chunks parsed by a pool of threads. The chunks are aligned on the rows
+ * by counting the value delimiters before their start, a delimiter is expected to open or close a delimited value,
+ * or to be doubled inside a delimited value.
+ *
+ * @author Erwan Bocher
+ * @author Nicolas Fortin
+ */
+public class CSVReaderDriver {
+    /** Size of the chunks parsed by a thread */
+    public static final int CHUNK_SIZE = 1024 * 1024;
+    /** Default number of rows read to infer the column types */
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+    static final int BUFFER_SIZE = 64 * 1024;
+    // Rows between two progress updates of a sequential import
+    private static final int PROGRESS_ROWS = 1000;
+    private static final Pattern SIMPLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final String ASCII_CHARACTERS = "\n\r\t ,;|\"'";
+    private static final List<String> READER_OPTIONS = Arrays.asList("threads", "types", "sample", "geometry", "lon",
+            "lat", "srid");
+
+    private char fieldSeparator = ',';
+    private char fieldDelimiter = '"';
+    private Charset charset = StandardCharsets.UTF_8;
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private boolean inferTypes = true;
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+    private String geometryColumn;
+    private String lonColumn;
+    private String latColumn;
+    private int srid = 0;
+
+    /**
+     * @param fieldSeparator Value separator, an ASCII character
+     */
+    public void setFieldSeparator(char fieldSeparator) {
+        this.fieldSeparator = fieldSeparator;
+    }
+
+    /**
+     * @param fieldDelimiter Value delimiter, an ASCII character, 0 if the values are never delimited
+     */
+    public void setFieldDelimiter(char fieldDelimiter) {
+        this.fieldDelimiter = fieldDelimiter;
+    }
+
+    /**
+     * @param charset Text encoding, the ASCII characters must be encoded on one byte
+     */
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * @param threadCount Number of parsing threads, the compressed files are parsed by one thread
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @param inferTypes False to store all the values as VARCHAR, except the geometries
+     */
+    public void setInferTypes(boolean inferTypes) {
+        this.inferTypes = inferTypes;
+    }
+
+    /**
+     * @param sampleSize Number of rows read to infer the column types
+     */
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = Math.max(1, sampleSize);
+    }
+
+    /**
+     * @param geometryColumn Column of WKT, EWKT or hexadecimal (E)WKB values, stored as GEOMETRY
+     */
+    public void setGeometryColumn(String geometryColumn) {
+        this.geometryColumn = geometryColumn;
+    }
+
+    /**
+     * Build a THE_GEOM point column from the longitude and latitude columns, the two columns are kept.
+     *
+     * @param lonColumn Column of the longitudes
+     * @param latColumn Column of the latitudes
+     */
+    public void setPointColumns(String lonColumn, String latColumn) {
+        this.lonColumn = lonColumn;
+        this.latColumn = latColumn;
+    }
+
+    /**
+     * @param srid SRID of the geometries, unless given by an EWKT or EWKB value
+     */
+    public void setSrid(int srid) {
+        this.srid = srid;
+    }
+
+    /**
+     * @param options Reader options ie "threads=4 types=false sample=5000 geometry=wkt srid=4326 lon=x lat=y" and
+     *                the CSV options "charset=UTF-8 fieldSeparator=; fieldDelimiter=\""
+     * @throws SQLException Invalid option
+     */
+    public void setOptions(String options) throws SQLException {
+        if (options == null) {
+            return;
+        }
+        for (String option : options.trim().split("\\s+")) {
+            if (option.isEmpty()) {
+                continue;
+            }
+            int separator = option.indexOf('=');
+            if (separator <= 0) {
+                throw new SQLException("Invalid CSV import option " + option);
+            }
+            String key = option.substring(0, separator).toLowerCase();
+            String value = option.substring(separator + 1);
+            try {
+                switch (key) {
+                    case "charset":
+                        setCharset(Charset.forName(value));
+                        break;
+                    case "fieldseparator":
+                        if (value.length() != 1) {
+                            throw new SQLException("Invalid CSV import option " + option);
+                        }
+                        setFieldSeparator(value.charAt(0));
+                        break;
+                    case "fielddelimiter":
+                        if (value.length() > 1) {
+                            throw new SQLException("Invalid CSV import option " + option);
+                        }
+                        setFieldDelimiter(value.isEmpty() ? 0 : value.charAt(0));
+                        break;
+                    case "threads":
+                        setThreadCount(Integer.parseInt(value));
+                        break;
+                    case "types":
+                        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                            throw new SQLException("Invalid CSV import option " + option);
+                        }
+                        setInferTypes(Boolean.parseBoolean(value));
+                        break;
+                    case "sample":
+                        setSampleSize(Integer.parseInt(value));
+                        break;
+                    case "geometry":
+                        setGeometryColumn(value);
+                        break;
+                    case "lon":
+                        lonColumn = value;
+                        break;
+                    case "lat":
+                        latColumn = value;
+                        break;
+                    case "srid":
+                        setSrid(Integer.parseInt(value));
+                        break;
+                    default:
+                        throw new SQLException("Invalid CSV import option " + option);
+                }
+            } catch (IllegalArgumentException ex) {
+                throw new SQLException("Invalid CSV import option " + option, ex);
+            }
+        }
+        if ((lonColumn == null) != (latColumn == null)) {
+            throw new SQLException("The lon and lat options must be used together");
+        }
+    }
+
+    /**
+     * @param options Import options
+     * @return True if the options contain an option of this reader, that are not options of the H2 CSV tool
+     */
+    public static boolean isReaderOption(String options) {
+        if (options == null) {
+            return false;
+        }
+        for (String option : options.trim().split("\\s+")) {
+            int separator = option.indexOf('=');
+            if (separator > 0 && READER_OPTIONS.contains(option.substring(0, separator).toLowerCase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the file and insert its rows in a new table
+     *
+     * @param connection Active connection, do not close this connection.
+     * @param file CSV or TSV file, compressed if it has the .gz extension
+     * @param progress Progression
+     * @param tableReference Table to create
+     * @throws SQLException Table write error or value not matching the inferred column type
+     * @throws IOException File read error
+     */
+    public void read(Connection connection, File file, ProgressVisitor progress, String tableReference)
+            throws SQLException, IOException {
+        checkCharset();
+        final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
+        TableLocation requestedTable = TableLocation.parse(tableReference, isH2);
+        String table = requestedTable.getTable();
+        boolean gzip = FileUtil.isGzipFile(file);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ReadableByteChannel input = gzip
+                    ? Channels.newChannel(FileUtil.uncompressedInputStream(file, Channels.newInputStream(channel)))
+                    : channel;
+            CSVScanner scanner = new CSVScanner(input, 0, BUFFER_SIZE, fieldSeparator, fieldDelimiter, charset);
+            scanner.skipByteOrderMark();
+            List<String> header = new ArrayList<>();
+            scanner.readRow(header);
+            long dataStart = scanner.getPosition();
+            List<String[]> sample = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            while (inferTypes && sample.size() < sampleSize && scanner.readRow(values)) {
+                sample.add(values.toArray(new String[0]));
+            }
+            Columns columns = new Columns(header, sample, isH2);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE " + table + "(" + columns.getDefinition() + ")");
+            }
+            if (header.isEmpty()) {
+                return;
+            }
+            try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                int target = writer.addTable(table, 0);
+                if (gzip || threadCount <= 1 || fileSize - dataStart <= CHUNK_SIZE) {
+                    writer.run(rows -> {
+                        RowConverter converter = new RowConverter(columns);
+                        for (String[] row : sample) {
+                            rows.write(target, converter.convert(Arrays.asList(row)));
+                        }
+                        long rowCount = sample.size();
+                        while (scanner.readRow(values)) {
+                            if (rowCount++ % PROGRESS_ROWS == 0) {
+                                if (progress.isCanceled()) {
+                                    throw new SQLException("Canceled by user");
+                                }
+                                progress.setStep((int) (((double) channel.position() / fileSize) * 100));
+                            }
+                            rows.write(target, converter.convert(values));
+                        }
+                    });
+                } else {
+                    writer.run(rows -> readChunks(channel, dataStart, columns, target, rows, progress));
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws SQLException The separator or the delimiter is not encoded on one byte by the charset
+     */
+    void checkCharset() throws SQLException {
+        String ascii = ASCII_CHARACTERS + fieldSeparator + (fieldDelimiter != 0 ? fieldDelimiter : ' ');
+        if (!Arrays.equals(ascii.getBytes(StandardCharsets.US_ASCII), ascii.getBytes(charset))) {
+            throw new SQLException("The charset " + charset.name() + " is not supported by the CSV reader");
+        }
+    }
+
+    char getFieldSeparator() {
+        return fieldSeparator;
+    }
+
+    char getFieldDelimiter() {
+        return fieldDelimiter;
+    }
+
+    Charset getCharset() {
+        return charset;
+    }
+
+    boolean isInferTypes() {
+        return inferTypes;
+    }
+
+    int getSampleSize() {
+        return sampleSize;
+    }
+
+    int getSrid() {
+        return srid;
+    }
+
+    /**
+     * Parse the chunks of the file in a pool of threads, the rows are written in the order of the file
+     *
+     * @param channel File
+     * @param dataStart Offset of the first row after the header
+     * @param columns Table columns
+     * @param target Writer target of the table
+     * @param rows Row sink
+     * @param progress Progression, one step per chunk
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void readChunks(FileChannel channel, long dataStart, Columns columns, int target,
+                            PipelinedWriter.RowSink rows, ProgressVisitor progress) throws SQLException, IOException {
+        long fileSize = channel.size();
+        int chunkCount = (int) ((fileSize - dataStart + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        ProgressVisitor chunkProgress = progress.subProcess(chunkCount);
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "H2GIS CSV parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // A chunk starts in a delimited value if an odd number of delimiters is before it
+            boolean[] inDelimitedValue = new boolean[chunkCount];
+            if (fieldDelimiter != 0) {
+                List<Future<Long>> counts = new ArrayList<>(chunkCount);
+                for (int i = 0; i < chunkCount; i++) {
+                    long start = dataStart + (long) i * CHUNK_SIZE;
+                    counts.add(pool.submit(() -> countDelimiters(channel, start,
+                            Math.min(fileSize, start + CHUNK_SIZE))));
+                }
+                long delimiterCount = 0;
+                for (int i = 0; i < chunkCount; i++) {
+                    inDelimitedValue[i] = delimiterCount % 2 != 0;
+                    delimiterCount += getResult(counts.get(i));
+                }
+            }
+            ArrayDeque<Future<List<Object[]>>> pending = new ArrayDeque<>();
+            for (int i = 0; i < chunkCount; i++) {
+                long start = dataStart + (long) i * CHUNK_SIZE;
+                long end = i == chunkCount - 1 ? Long.MAX_VALUE : start + CHUNK_SIZE;
+                boolean delimited = inDelimitedValue[i];
+                pending.add(pool.submit(() -> readChunk(channel, dataStart, start, end, delimited, columns)));
+                if (pending.size() > threadCount * 2) {
+                    writeChunk(pending.poll(), target, rows, chunkProgress);
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeChunk(pending.poll(), target, rows, chunkProgress);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Parse the rows starting in a chunk
+     *
+     * @param channel File
+     * @param dataStart Offset of the first row after the header
+     * @param start Offset of the chunk
+     * @param end End of the chunk, the row starting before the end is read up to its end
+     * @param inDelimitedValue True if the chunk starts in a delimited value
+     * @param columns Table columns
+     * @return Rows of the chunk
+     * @throws SQLException
+     * @throws IOException
+     */
+    private List<Object[]> readChunk(FileChannel channel, long dataStart, long start, long end,
+                                     boolean inDelimitedValue, Columns columns) throws SQLException, IOException {
+        boolean atRowStart = start == dataStart;
+        if (!atRowStart) {
+            ByteBuffer previous = ByteBuffer.allocate(1);
+            channel.read(previous, start - 1);
+            atRowStart = previous.get(0) == '\n';
+        }
+        CSVScanner scanner = new CSVScanner(new PositionalChannel(channel, start), start, BUFFER_SIZE,
+                fieldSeparator, fieldDelimiter, charset);
+        if (!scanner.skipToRowStart(inDelimitedValue, atRowStart)) {
+            return Collections.emptyList();
+        }
+        RowConverter converter = new RowConverter(columns);
+        List<Object[]> chunkRows = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        while (scanner.readRow(values, end)) {
+            chunkRows.add(converter.convert(values));
+        }
+        return chunkRows;
+    }
+
+    private void writeChunk(Future<List<Object[]>> chunk, int target, PipelinedWriter.RowSink rows,
+                            ProgressVisitor chunkProgress) throws SQLException, IOException {
+        if (chunkProgress.isCanceled()) {
+            throw new SQLException("Canceled by user");
+        }
+        for (Object[] row : getResult(chunk)) {
+            rows.write(target, row);
+        }
+        chunkProgress.endStep();
+    }
+
+    /**
+     * @param channel File
+     * @param start Offset of the first byte
+     * @param end Offset after the last byte
+     * @return Number of delimiters between the offsets
+     * @throws IOException
+     */
+    private long countDelimiters(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        byte delimiter = (byte) fieldDelimiter;
+        long count = 0;
+        long position = start;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == delimiter) {
+                    count++;
+                }
+            }
+            position += read;
+        }
+        return count;
+    }
+
+    private static <T> T getResult(Future<T> future) throws SQLException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            } else if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
+            }
+            throw new SQLException(ex.getCause());
+        }
+    }
+
+    private static boolean isBoolean(String value) {
+        return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false");
+    }
+
+    /**
+     * @param value Text value
+     * @return True if the value is an integer without leading zero
+     */
+    private static boolean isInteger(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (start == value.length() || hasLeadingZero(value, start)) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param value Text value
+     * @return True if the value is a decimal number without leading zero, NaN and Infinity are not accepted
+     */
+    private static boolean isDouble(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (hasLeadingZero(value, start)) {
+            return false;
+        }
+        boolean digit = false;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '.' && c != 'e' && c != 'E' && c != '-' && c != '+') {
+                return false;
+            }
+        }
+        if (!digit) {
+            return false;
+        }
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Codes and identifiers like 00123 are kept as text
+     */
+    private static boolean hasLeadingZero(String value, int start) {
+        return value.length() > start + 1 && value.charAt(start) == '0' && value.charAt(start + 1) >= '0'
+                && value.charAt(start + 1) <= '9';
+    }
+
+    private static boolean isDate(String value) {
+        if (value.length() != 10) {
+            return false;
+        }
+        try {
+            LocalDate.parse(value);
+            return true;
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isTimestamp(String value) {
+        try {
+            parseTimestamp(value);
+            return true;
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @param value yyyy-MM-dd, yyyy-MM-dd hh:mm[:ss[.SSS]] or yyyy-MM-ddThh:mm[:ss[.SSS]]
+     * @return Timestamp
+     */
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value.length() == 10) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        if (value.length() > 10 && value.charAt(10) == ' ') {
+            value = value.substring(0, 10) + 'T' + value.substring(11);
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    /**
+     * Column types
+     */
+    enum ColumnType {
+        BOOLEAN("BOOLEAN"), INTEGER("INTEGER"), BIGINT("BIGINT"), DOUBLE("DOUBLE PRECISION"), DATE("DATE"),
+        TIMESTAMP("TIMESTAMP"), VARCHAR("VARCHAR"), GEOMETRY("GEOMETRY");
+
+        private final String sqlType;
+
+        ColumnType(String sqlType) {
+            this.sqlType = sqlType;
+        }
+    }
+
+    /**
+     * Names and types of the table columns
+     */
+    final class Columns {
+        private final String[] labels;
+        private final String[] names;
+        private final ColumnType[] types;
+        private final int lonIndex;
+        private final int latIndex;
+        private final String pointName;
+
+        /**
+         * @param header Column names
+         * @param sample First rows
+         * @param isH2 True if the table is created in H2
+         * @throws SQLException A geometry, lon or lat column is not in the header
+         */
+        Columns(List<String> header, List<String[]> sample, boolean isH2) throws SQLException {
+            int columnCount = header.size();
+            labels = new String[columnCount];
+            names = new String[columnCount];
+            types = new ColumnType[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                String name = header.get(i) == null ? "COLUMN" + (i + 1) : header.get(i);
+                labels[i] = SIMPLE_NAME.matcher(name).matches() ? TableLocation.capsIdentifier(name, isH2) : name;
+                names[i] = TableLocation.quoteIdentifier(labels[i], isH2);
+                types[i] = inferTypes ? inferType(sample, i) : ColumnType.VARCHAR;
+            }
+            if (geometryColumn != null) {
+                types[getIndex(header, geometryColumn)] = ColumnType.GEOMETRY;
+            }
+            if (lonColumn != null) {
+                lonIndex = getIndex(header, lonColumn);
+                latIndex = getIndex(header, latColumn);
+                pointName = TableLocation.capsIdentifier("THE_GEOM", isH2);
+            } else {
+                lonIndex = -1;
+                latIndex = -1;
+                pointName = null;
+            }
+        }
+
+        /**
+         * @return Number of columns, including the point column
+         */
+        int size() {
+            return pointName != null ? names.length + 1 : names.length;
+        }
+
+        /**
+         * @param column Column index
+         * @return Column name, not quoted
+         */
+        String getLabel(int column) {
+            return column < labels.length ? labels[column] : pointName;
+        }
+
+        /**
+         * @param column Column index
+         * @return Column type, GEOMETRY for the point column
+         */
+        ColumnType getType(int column) {
+            return column < types.length ? types[column] : ColumnType.GEOMETRY;
+        }
+
+        /**
+         * @return Index of the point column built from the longitudes and latitudes, -1 if there is none
+         */
+        int getPointIndex() {
+            return pointName != null ? names.length : -1;
+        }
+
+        private int getIndex(List<String> header, String column) throws SQLException {
+            for (int i = 0; i < header.size(); i++) {
+                if (column.equalsIgnoreCase(header.get(i))) {
+                    return i;
+                }
+            }
+            throw new SQLException("The column " + column + " is not in the header of the file");
+        }
+
+        /**
+         * @return Column definitions of the CREATE TABLE statement
+         */
+        String getDefinition() {
+            StringBuilder definition = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    definition.append(", ");
+                }
+                definition.append(names[i]).append(" ").append(types[i].sqlType);
+                if (types[i] == ColumnType.GEOMETRY && srid != 0) {
+                    definition.append("(GEOMETRY, ").append(srid).append(")");
+                }
+            }
+            if (pointName != null) {
+                definition.append(", ").append(pointName).append(" GEOMETRY(POINT");
+                if (srid != 0) {
+                    definition.append(", ").append(srid);
+                }
+                definition.append(")");
+            }
+            return definition.toString();
+        }
+
+        /**
+         * @param sample First rows
+         * @param column Column index
+         * @return The most specific type of all the values of the column
+         */
+        private ColumnType inferType(List<String[]> sample, int column) {
+            boolean hasValue = false;
+            boolean isBoolean = true;
+            boolean isInteger = true;
+            boolean isBigint = true;
+            boolean isDouble = true;
+            boolean isDate = true;
+            boolean isTimestamp = true;
+            for (String[] row : sample) {
+                String value = column < row.length ? row[column] : null;
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                hasValue = true;
+                isBoolean = isBoolean && isBoolean(value);
+                if (isBigint && !isInteger(value)) {
+                    isBigint = false;
+                    isInteger = false;
+                } else if (isInteger) {
+                    try {
+                        Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        isInteger = false;
+                    }
+                }
+                if (isBigint) {
+                    try {
+                        Long.parseLong(value);
+                    } catch (NumberFormatException ex) {
+                        isBigint = false;
+                    }
+                }
+                isDouble = isDouble && isDouble(value);
+                isDate = isDate && isDate(value);
+                isTimestamp = isTimestamp && isTimestamp(value);
+            }
+            if (!hasValue) {
+                return ColumnType.VARCHAR;
+            } else if (isBoolean) {
+                return ColumnType.BOOLEAN;
+            } else if (isInteger) {
+                return ColumnType.INTEGER;
+            } else if (isBigint) {
+                return ColumnType.BIGINT;
+            } else if (isDouble) {
+                return ColumnType.DOUBLE;
+            } else if (isDate) {
+                return ColumnType.DATE;
+            } else if (isTimestamp) {
+                return ColumnType.TIMESTAMP;
+            }
+            return ColumnType.VARCHAR;
+        }
+    }
+
+    /**
+     * Convert the text values of a row into the column types, a converter is used by a single thread
+     */
+    final class RowConverter {
+        private final Columns columns;
+        private final GeometryFactory factory = new GeometryFactory();
+        private final WKTReader wktReader = new WKTReader(factory);
+        private final WKBReader wkbReader = new WKBReader(factory);
+
+        RowConverter(Columns columns) {
+            this.columns = columns;
+        }
+
+        /**
+         * @param values Text values of a row
+         * @return Row of the table
+         * @throws SQLException A value does not match the type of its column
+         */
+        Object[] convert(List<String> values) throws SQLException {
+            int columnCount = columns.types.length;
+            Object[] row = new Object[columns.pointName != null ? columnCount + 1 : columnCount];
+            for (int i = 0; i < columnCount && i < values.size(); i++) {
+                String value = values.get(i);
+                if (value != null) {
+                    row[i] = convert(value, i);
+                }
+            }
+            if (columns.pointName != null) {
+                String lon = columns.lonIndex < values.size() ? values.get(columns.lonIndex) : null;
+                String lat = columns.latIndex < values.size() ? values.get(columns.latIndex) : null;
+                if (lon != null && lat != null) {
+                    try {
+                        Point point = factory.createPoint(new Coordinate(Double.parseDouble(lon),
+                                Double.parseDouble(lat)));
+                        point.setSRID(srid);
+                        row[columnCount] = point;
+                    } catch (NumberFormatException ex) {
+                        throw new SQLException("Cannot read the point " + lon + " " + lat, ex);
+                    }
+                }
+            }
+            return row;
+        }
+
+        private Object convert(String value, int column) throws SQLException {
+            ColumnType type = columns.types[column];
+            if (type == ColumnType.VARCHAR) {
+                return value;
+            } else if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                switch (type) {
+                    case BOOLEAN:
+                        if (!isBoolean(value)) {
+                            break;
+                        }
+                        return Boolean.valueOf(value);
+                    case INTEGER:
+                        return Integer.valueOf(value);
+                    case BIGINT:
+                        return Long.valueOf(value);
+                    case DOUBLE:
+                        return Double.valueOf(value);
+                    case DATE:
+                        return LocalDate.parse(value);
+                    case TIMESTAMP:
+                        return parseTimestamp(value);
+                    case GEOMETRY:
+                        return readGeometry(value);
+                    default:
+                        return value;
+                }
+            } catch (IllegalArgumentException | DateTimeParseException ex) {
+                // Handled below
+            }
+            throw new SQLException("The value " + value + " of the column " + columns.names[column]
+                    + " does not match the type " + type.sqlType + ", set the option types=false or a larger sample=");
+        }
+
+        /**
+         * @param value WKT, EWKT, hexadecimal WKB or EWKB
+         * @return Geometry
+         * @throws SQLException
+         */
+        private Geometry readGeometry(String value) throws SQLException {
+            int geometrySrid = srid;
+            String text = value;
+            if (value.regionMatches(true, 0, "SRID=", 0, 5)) {
+                int separator = value.indexOf(';');
+                if (separator < 0) {
+                    throw new SQLException("Cannot read the geometry " + value);
+                }
+                geometrySrid = Integer.parseInt(value.substring(5, separator).trim());
+                text = value.substring(separator + 1);
+            }
+            Geometry geometry;
+            try {
+                // The WKB byte order is 00 or 01
+                if (text.charAt(0) == '0') {
+                    geometry = wkbReader.read(WKBReader.hexToBytes(text));
+                } else {
+                    geometry = wktReader.read(text);
+                }
+            } catch (ParseException | RuntimeException ex) {
+                throw new SQLException("Cannot read the geometry " + value, ex);
+            }
+            if (geometry.getSRID() == 0) {
+                geometry.setSRID(geometrySrid);
+            }
+            return geometry;
+        }
+    }
+
+    /**
+     * Channel reading a file from an offset without changing the position of the file channel, the channels of
+     * several threads can read the same file.
+     */
+    static final class PositionalChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position;
+
+        PositionalChannel(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int read = channel.read(dst, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            // The file channel is closed by the reader
+        }
+    }
+}
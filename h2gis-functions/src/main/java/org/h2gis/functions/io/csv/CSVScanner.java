@@ -0,0 +1,322 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read the rows of a delimited text file from the bytes of a channel.
+ *
+ * The separator and the delimiter must be ASCII characters and the charset must encode them on one byte, the row
+ * ends are found without decoding the text. A row is kept in the buffer until its end is found, the buffer grows
+ * for the rows larger than its size.
+ *
+ * @author Nicolas Fortin
+ */
+class CSVScanner {
+    private final ReadableByteChannel channel;
+    private final byte separator;
+    private final byte delimiter;
+    private final boolean hasDelimiter;
+    private final Charset charset;
+    private byte[] buffer;
+    // File offset of the first byte of the buffer
+    private long bufferOffset;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfFile = false;
+    // Unescaped bytes of a delimited value
+    private byte[] valueBytes = new byte[256];
+
+    /**
+     * @param channel Bytes to read
+     * @param offset File offset of the first byte of the channel
+     * @param bufferSize Initial size of the buffer
+     * @param separator Value separator
+     * @param delimiter Value delimiter, 0 if the values are not delimited
+     * @param charset Text encoding
+     */
+    CSVScanner(ReadableByteChannel channel, long offset, int bufferSize, char separator, char delimiter,
+               Charset charset) {
+        this.channel = channel;
+        this.bufferOffset = offset;
+        this.buffer = new byte[bufferSize];
+        this.separator = (byte) separator;
+        this.delimiter = (byte) delimiter;
+        this.hasDelimiter = delimiter != 0;
+        this.charset = charset;
+    }
+
+    /**
+     * @return File offset of the next byte to read
+     */
+    long getPosition() {
+        return bufferOffset + position;
+    }
+
+    /**
+     * Skip the UTF-8 byte order mark if the channel starts with it
+     *
+     * @throws IOException
+     */
+    void skipByteOrderMark() throws IOException {
+        while (limit - position < 3 && !endOfFile) {
+            fill();
+        }
+        if (limit - position >= 3 && buffer[position] == (byte) 0xEF && buffer[position + 1] == (byte) 0xBB
+                && buffer[position + 2] == (byte) 0xBF) {
+            position += 3;
+        }
+    }
+
+    /**
+     * Move to the start of the next row
+     *
+     * @param inDelimitedValue True if the first byte is in a delimited value
+     * @param atRowStart True if the first byte starts a row when it is not in a delimited value
+     * @return False if no row starts before the end of the channel
+     * @throws IOException
+     */
+    boolean skipToRowStart(boolean inDelimitedValue, boolean atRowStart) throws IOException {
+        if (atRowStart && !inDelimitedValue) {
+            return true;
+        }
+        while (true) {
+            for (int i = position; i < limit; i++) {
+                byte b = buffer[i];
+                if (hasDelimiter && b == delimiter) {
+                    inDelimitedValue = !inDelimitedValue;
+                } else if (b == '\n' && !inDelimitedValue) {
+                    position = i + 1;
+                    return true;
+                }
+            }
+            position = limit;
+            if (endOfFile) {
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Read the values of the next row, the blank lines are skipped
+     *
+     * @param values Receive the values, null for the empty values not delimited
+     * @return False if there is no more row
+     * @throws IOException
+     */
+    boolean readRow(List<String> values) throws IOException {
+        return readRow(values, Long.MAX_VALUE);
+    }
+
+    /**
+     * Read the values of the next row starting before a file offset, the blank lines are skipped
+     *
+     * @param values Receive the values, null for the empty values not delimited
+     * @param end File offset, the rows starting at or after this offset are not read
+     * @return False if there is no more row starting before the offset
+     * @throws IOException
+     */
+    boolean readRow(List<String> values, long end) throws IOException {
+        values.clear();
+        while (true) {
+            if (bufferOffset + position >= end) {
+                return false;
+            }
+            int rowEnd = findRowEnd(buffer, position, limit);
+            if (rowEnd < 0) {
+                if (!endOfFile) {
+                    fill();
+                    continue;
+                }
+                if (position == limit) {
+                    return false;
+                }
+                rowEnd = limit;
+            }
+            int rowStart = position;
+            position = Math.min(limit, rowEnd + 1);
+            if (parseRow(buffer, rowStart, rowEnd, values)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Skip the next row, the blank lines are skipped
+     *
+     * @return File offset of the first byte of the skipped row, -1 if there is no more row
+     * @throws IOException
+     */
+    long skipRow() throws IOException {
+        while (true) {
+            int rowEnd = findRowEnd(buffer, position, limit);
+            if (rowEnd < 0) {
+                if (!endOfFile) {
+                    fill();
+                    continue;
+                }
+                if (position == limit) {
+                    return -1;
+                }
+                rowEnd = limit;
+            }
+            int rowStart = position;
+            position = Math.min(limit, rowEnd + 1);
+            if (!isBlank(buffer, rowStart, rowEnd)) {
+                return bufferOffset + rowStart;
+            }
+        }
+    }
+
+    /**
+     * Read the values of the first row of an array, the bytes are not copied into the buffer
+     *
+     * @param bytes Array containing the row
+     * @param from First byte of the row
+     * @param to End of the array, excluded
+     * @param values Receive the values, null for the empty values not delimited
+     * @return False if the row is blank
+     */
+    boolean readRow(byte[] bytes, int from, int to, List<String> values) {
+        values.clear();
+        int rowEnd = findRowEnd(bytes, from, to);
+        return parseRow(bytes, from, rowEnd < 0 ? to : rowEnd, values);
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        return to == from || (to == from + 1 && bytes[from] == '\r');
+    }
+
+    /**
+     * @param bytes Array to search
+     * @param from First byte of the row
+     * @param to End of the search, excluded
+     * @return Index of the end of the row starting at from, -1 if the row end is not before to
+     */
+    private int findRowEnd(byte[] bytes, int from, int to) {
+        boolean inDelimitedValue = false;
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                if (!inDelimitedValue) {
+                    return i;
+                }
+            } else if (hasDelimiter && b == delimiter) {
+                inDelimitedValue = !inDelimitedValue;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Split a row into values
+     *
+     * @param bytes Array containing the row
+     * @param from First byte of the row
+     * @param to End of the row, excluded
+     * @param values Receive the values
+     * @return False if the row is blank
+     */
+    private boolean parseRow(byte[] bytes, int from, int to, List<String> values) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return false;
+        }
+        int p = from;
+        while (true) {
+            while (p < to && bytes[p] == ' ' && separator != ' ') {
+                p++;
+            }
+            if (hasDelimiter && p < to && bytes[p] == delimiter) {
+                p++;
+                int length = 0;
+                while (p < to) {
+                    byte b = bytes[p++];
+                    if (b == delimiter) {
+                        if (p < to && bytes[p] == delimiter) {
+                            p++;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (length == valueBytes.length) {
+                        valueBytes = Arrays.copyOf(valueBytes, length * 2);
+                    }
+                    valueBytes[length++] = b;
+                }
+                values.add(new String(valueBytes, 0, length, charset));
+                while (p < to && bytes[p] != separator) {
+                    p++;
+                }
+            } else {
+                int start = p;
+                while (p < to && bytes[p] != separator) {
+                    p++;
+                }
+                int end = p;
+                while (end > start && bytes[end - 1] == ' ' && separator != ' ') {
+                    end--;
+                }
+                values.add(end == start ? null : new String(bytes, start, end - start, charset));
+            }
+            if (p >= to) {
+                return true;
+            }
+            // Skip the separator
+            p++;
+        }
+    }
+
+    /**
+     * Move the remaining bytes to the start of the buffer, grow the buffer if it is full, then read more bytes
+     *
+     * @throws IOException
+     */
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            bufferOffset += position;
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read;
+        do {
+            read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+        } while (read == 0);
+        if (read < 0) {
+            endOfFile = true;
+        } else {
+            limit += read;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.h2gis.functions.io.dbf.internal.DbaseFileHeader;
 import org.h2gis.functions.io.file_table.FileEngine;
 import org.h2gis.functions.io.file_table.H2TableIndex;
 import org.h2gis.functions.io.utility.FileUtil;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 
@@ -49,7 +50,9 @@ import java.util.regex.Pattern;
 public class DBFDriverFunction implements DriverFunction {
 
     public static String DESCRIPTION = "dBase III format";
-    private static final int BATCH_MAX_SIZE = 100;
+    private static final int PROGRESS_STEP_SIZE = 100;
+    // Rows fetched at once by the export result sets
+    private static final int FETCH_SIZE = 1000;
 
     @Override
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
@@ -64,34 +67,15 @@ public class DBFDriverFunction implements DriverFunction {
         if (matcher.find()) {
             if (tableReference.startsWith("(") && tableReference.endsWith(")")) {
                 if (FileUtil.isExtensionWellFormated(fileName, "dbf")) {
-                    PreparedStatement ps = connection.prepareStatement(tableReference, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                    ResultSet rs = ps.executeQuery();
-                    int recordCount = 0;
-                    rs.last();
-                    recordCount = rs.getRow();
-                    rs.beforeFirst();
-                    ProgressVisitor copyProgress = progress.subProcess(recordCount);
-                    ResultSetMetaData resultSetMetaData = rs.getMetaData();
-                    ArrayList<Integer> columnIndexes = new ArrayList<Integer>();
-                    DbaseFileHeader header = dBaseHeaderFromMetaData(resultSetMetaData, columnIndexes);
-                    if (encoding != null) {
-                        header.setEncoding(encoding);
-                    }
-                    header.setNumRecords(recordCount);
-                    DBFDriver dbfDriver = new DBFDriver();
-                    dbfDriver.initDriver(fileName, header);
-                    Object[] row = new Object[header.getNumFields()];
-                    while (rs.next()) {
-                        int i = 0;
-                        for (Integer index : columnIndexes) {
-                            row[i++] = rs.getObject(index);
-                        }
-                        dbfDriver.insertRow(row);
-                        if (copyProgress != null) {
-                            copyProgress.endStep();
+                    // The row count is not known, the record count is written in the header on close
+                    ProgressVisitor copyProgress = progress.subProcess(1);
+                    try (PreparedStatement ps = connection.prepareStatement(tableReference, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        ps.setFetchSize(FETCH_SIZE);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            doExport(rs, fileName, new EmptyProgressVisitor(), encoding);
                         }
                     }
-                    dbfDriver.close();
+                    copyProgress.endOfProgress();
                 }
 
             } else {
@@ -100,45 +84,23 @@ public class DBFDriverFunction implements DriverFunction {
 
         } else {
             if (FileUtil.isExtensionWellFormated(fileName, "dbf")) {
-                int recordCount = JDBCUtilities.getRowCount(connection, tableReference);
                 final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
                 String tableName = TableLocation.parse(tableReference, isH2).toString(isH2);
                 // Read table content
-                Statement st = connection.createStatement();
-                ProgressVisitor lineProgress = null;
-                if (!(progress instanceof EmptyProgressVisitor)) {
-                    try (ResultSet rs = st.executeQuery(String.format("select count(*) from %s", tableName))) {
-                        if (rs.next()) {
-                            lineProgress = progress.subProcess(rs.getInt(1));
+                try (Statement st = connection.createStatement()) {
+                    // The row count is only used by the progression
+                    ProgressVisitor lineProgress = progress;
+                    if (!(progress instanceof EmptyProgressVisitor)) {
+                        try (ResultSet rs = st.executeQuery(String.format("select count(*) from %s", tableName))) {
+                            if (rs.next()) {
+                                lineProgress = progress.subProcess(rs.getInt(1));
+                            }
                         }
                     }
-                }
-                try {
+                    st.setFetchSize(FETCH_SIZE);
                     try (ResultSet rs = st.executeQuery(String.format("select * from %s", tableName))) {
-                        ResultSetMetaData resultSetMetaData = rs.getMetaData();
-                        ArrayList<Integer> columnIndexes = new ArrayList<Integer>();
-                        DbaseFileHeader header = dBaseHeaderFromMetaData(resultSetMetaData, columnIndexes);
-                        if (encoding != null) {
-                            header.setEncoding(encoding);
-                        }
-                        header.setNumRecords(recordCount);
-                        DBFDriver dbfDriver = new DBFDriver();
-                        dbfDriver.initDriver(fileName, header);
-                        Object[] row = new Object[header.getNumFields()];
-                        while (rs.next()) {
-                            int i = 0;
-                            for (Integer index : columnIndexes) {
-                                row[i++] = rs.getObject(index);
-                            }
-                            dbfDriver.insertRow(row);
-                            if (lineProgress != null) {
-                                lineProgress.endStep();
-                            }
-                        }
-                        dbfDriver.close();
+                        doExport(rs, fileName, lineProgress, encoding);
                     }
-                } finally {
-                    st.close();
                 }
             } else {
                 throw new SQLException("Only .dbf extension is supported");
@@ -147,6 +109,37 @@ public class DBFDriverFunction implements DriverFunction {
 
     }
 
+    /**
+     * Write the rows in one pass, the record count is written in the header when the file is closed
+     * @param rs the rows to export
+     * @param fileName File path to write, if exists it may be replaced
+     * @param progress to display the IO progress
+     * @param encoding File encoding, null will use default encoding
+     */
+    private static void doExport(ResultSet rs, File fileName, ProgressVisitor progress, String encoding) throws SQLException, IOException {
+        ResultSetMetaData resultSetMetaData = rs.getMetaData();
+        ArrayList<Integer> columnIndexes = new ArrayList<Integer>();
+        DbaseFileHeader header = dBaseHeaderFromMetaData(resultSetMetaData, columnIndexes);
+        if (encoding != null) {
+            header.setEncoding(encoding);
+        }
+        DBFDriver dbfDriver = new DBFDriver();
+        dbfDriver.initDriver(fileName, header);
+        try {
+            Object[] row = new Object[header.getNumFields()];
+            while (rs.next()) {
+                int i = 0;
+                for (Integer index : columnIndexes) {
+                    row[i++] = rs.getObject(index);
+                }
+                dbfDriver.insertRow(row);
+                progress.endStep();
+            }
+        } finally {
+            dbfDriver.close();
+        }
+    }
+
     @Override
     public String getFormatDescription(String format) {
         if(format.equalsIgnoreCase("dbf")) {
@@ -198,7 +191,7 @@ public class DBFDriverFunction implements DriverFunction {
             final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
             String parsedTable = TableLocation.parse(tableReference, isH2).toString(isH2);
             DbaseFileHeader dbfHeader = dbfDriver.getDbaseFileHeader();
-            ProgressVisitor copyProgress = progress.subProcess((int) (dbfDriver.getRowCount() / BATCH_MAX_SIZE));
+            ProgressVisitor copyProgress = progress.subProcess((int) (dbfDriver.getRowCount() / PROGRESS_STEP_SIZE));
             if (dbfHeader.getNumFields() == 0) {
                 JDBCUtilities.createEmptyTable(connection, parsedTable);
             } else {
@@ -214,33 +207,20 @@ public class DBFDriverFunction implements DriverFunction {
                                 getSQLColumnTypes(dbfHeader, isH2)));
                     }
                     try {
-                        connection.setAutoCommit(false);
-                        try (PreparedStatement preparedStatement = connection.prepareStatement(
-                                String.format("INSERT INTO %s VALUES ( %s )", parsedTable,
-                                        getQuestionMark(dbfHeader.getNumFields() + 1)))) {
-                            long batchSize = 0;
-                            for (int rowId = 0; rowId < dbfDriver.getRowCount(); rowId++) {
-                                preparedStatement.setObject(1, rowId + 1);
-                                Object[] values = dbfDriver.getRow(rowId);
-                                for (int columnId = 0; columnId < values.length; columnId++) {
-                                    preparedStatement.setObject(columnId + 2, values[columnId]);
-                                }
-                                preparedStatement.addBatch();
-                                batchSize++;
-                                if (batchSize >= BATCH_MAX_SIZE) {
-                                    preparedStatement.executeBatch();
-                                    connection.commit();
-                                    preparedStatement.clearBatch();
-                                    batchSize = 0;
-                                    copyProgress.endStep();
+                        try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                            int target = writer.addTable(parsedTable, 0);
+                            writer.run(rows -> {
+                                for (int rowId = 0; rowId < dbfDriver.getRowCount(); rowId++) {
+                                    Object[] values = dbfDriver.getRow(rowId);
+                                    Object[] row = new Object[values.length + 1];
+                                    row[0] = rowId + 1;
+                                    System.arraycopy(values, 0, row, 1, values.length);
+                                    rows.write(target, row);
+                                    if ((rowId + 1) % PROGRESS_STEP_SIZE == 0) {
+                                        copyProgress.endStep();
+                                    }
                                 }
-                            }
-                            if (batchSize > 0) {
-                                preparedStatement.executeBatch();
-                                connection.commit();
-                                preparedStatement.clearBatch();
-                            }
-                            connection.setAutoCommit(true);
+                            });
                         }
                     } catch (Exception ex) {
                         connection.createStatement().execute("DROP TABLE IF EXISTS " + parsedTable);
@@ -23,6 +23,8 @@ package org.h2gis.functions.io.dbf.internal;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.text.FieldPosition;
@@ -43,6 +45,9 @@ import java.util.Locale;
  * w.close();
  * </PRE></CODE> You must supply the <CODE>moreRecords</CODE> and
  * <CODE>getMyRecord()</CODE> logic...
+ * The records are written in one pass, when the channel is a FileChannel the
+ * record count of the header is updated on close so it does not have to be
+ * known before writing.
  *
  * @author Ian Schneider
  * @source $URL:
@@ -56,7 +61,13 @@ public class DbaseFileWriter {
 	private ByteBuffer buffer;
 	private static final Number NULL_NUMBER = Integer.valueOf(0);
 	private static final String NULL_STRING = "";
+	// Position of the record count in the header
+	private static final int RECORD_COUNT_OFFSET = 4;
+	private static final int BUFFER_SIZE = 64 * 1024;
 	private Charset charset;
+	private int recordCount = 0;
+	// Record count written in the header
+	private int headerRecordCount;
 
 	/**
 	 * Create a DbaseFileWriter using the specified header and writing to the
@@ -96,6 +107,7 @@ public class DbaseFileWriter {
 	 */
 	public DbaseFileWriter(DbaseFileHeader header, WritableByteChannel out,
 			Charset charset) throws IOException {
+		headerRecordCount = header.getNumRecords();
 		header.writeHeader(out);
 		this.header = header;
 		this.channel = out;
@@ -106,15 +118,17 @@ public class DbaseFileWriter {
 	}
 
 	private void init() throws IOException {
-		buffer = ByteBuffer.allocateDirect(header.getRecordLength());
+		// Hold several records to limit the channel writes
+		int recordLength = header.getRecordLength();
+		buffer = ByteBuffer.allocateDirect(Math.max(1, BUFFER_SIZE / recordLength) * recordLength);
 	}
 
-	private void write() throws IOException {
-		buffer.position(0);
-		int r = buffer.remaining();
-                do {
-                        r -= channel.write(buffer);
-                } while (r > 0);
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
 	}
 
 	/**
@@ -134,7 +148,9 @@ public class DbaseFileWriter {
 					+ record.length + " expected " + header.getNumFields());
 		}
 
-		buffer.position(0);
+		if (buffer.remaining() < header.getRecordLength()) {
+			flush();
+		}
 
 		// put the 'not-deleted' marker
 		buffer.put((byte) ' ');
@@ -149,8 +165,7 @@ public class DbaseFileWriter {
 			}
 
 		}
-
-		write();
+		recordCount++;
 	}
 
 	private String fieldString(Object obj, final int col) {
@@ -206,6 +221,12 @@ public class DbaseFileWriter {
 		// buffer.put((byte) 0).position(0).limit(1);
 		// write();
 		if (channel.isOpen()) {
+			flush();
+			if (recordCount != headerRecordCount && channel instanceof FileChannel) {
+				ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+				count.putInt(0, recordCount);
+				((FileChannel) channel).write(count, RECORD_COUNT_OFFSET);
+			}
 			channel.close();
 		}
 
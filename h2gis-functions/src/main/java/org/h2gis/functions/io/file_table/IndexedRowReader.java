@@ -0,0 +1,92 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.file_table;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read the bytes of the rows of a file indexed by a {@link RowOffsetIndex}.
+ *
+ * The file is read by windows of 256 KB so a scan of the rows reads the file sequentially, a row larger than the
+ * window is read in a buffer of its size. A reader is not thread safe.
+ *
+ * @author Nicolas Fortin
+ */
+public class IndexedRowReader {
+    private static final int WINDOW_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final RowOffsetIndex index;
+    private ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    // File offset of the first byte of the window
+    private long windowStart = 0;
+    private int windowLength = 0;
+
+    /**
+     * @param channel Indexed file, closed by the owner of the reader
+     * @param index Row offsets of the file
+     */
+    public IndexedRowReader(FileChannel channel, RowOffsetIndex index) {
+        this.channel = channel;
+        this.index = index;
+    }
+
+    /**
+     * @return Row offsets of the file
+     */
+    public RowOffsetIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @param rowId Row index [0-getRowCount()[
+     * @return Heap buffer positioned on the first byte of the row and limited to its end. The content is valid
+     * until the next call.
+     * @throws IOException
+     */
+    public ByteBuffer read(long rowId) throws IOException {
+        if (rowId < 0 || rowId >= index.getRowCount()) {
+            throw new IOException("The row " + rowId + " does not exist");
+        }
+        long start = index.getRowStart((int) rowId);
+        long end = index.getRowEnd((int) rowId);
+        if (start < windowStart || end > windowStart + windowLength) {
+            if (end - start > window.capacity()) {
+                window = ByteBuffer.allocate((int) (end - start));
+            }
+            window.clear();
+            while (window.position() < end - start) {
+                if (channel.read(window, start + window.position()) < 0) {
+                    throw new EOFException("The file is shorter than its row index");
+                }
+            }
+            windowStart = start;
+            windowLength = window.position();
+        }
+        ByteBuffer row = window.duplicate();
+        row.limit((int) (end - windowStart));
+        row.position((int) (start - windowStart));
+        return row;
+    }
+}
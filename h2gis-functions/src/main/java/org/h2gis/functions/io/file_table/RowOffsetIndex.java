@@ -0,0 +1,265 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.file_table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Byte offsets of the rows of a text file, used to read a row of a linked file without reading the previous ones.
+ *
+ * An absolute offset is kept every 1024 rows and the offset of each row is stored relatively to it on 4 bytes. The
+ * index is saved in a sidecar file, the name of the indexed file followed by {@link #EXTENSION}, with the size and
+ * the modification time of the indexed file and a key describing how the rows have been split. The sidecar file is
+ * rebuilt when they do not match. The index can hold a few strings of metadata, ie the columns found while building
+ * the index.
+ *
+ * @author Nicolas Fortin
+ */
+public class RowOffsetIndex {
+    /** Extension appended to the name of the indexed file */
+    public static final String EXTENSION = ".idx";
+    private static final int MAGIC = 0x48324958;
+    private static final int VERSION = 1;
+    private static final int BLOCK_SHIFT = 10;
+    private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(RowOffsetIndex.class);
+
+    private final long[] blockOffsets;
+    private final int[] rowOffsets;
+    private final int rowCount;
+    private final long endOffset;
+    private final List<String> metadata;
+
+    private RowOffsetIndex(long[] blockOffsets, int[] rowOffsets, int rowCount, long endOffset,
+                           List<String> metadata) {
+        this.blockOffsets = blockOffsets;
+        this.rowOffsets = rowOffsets;
+        this.rowCount = rowCount;
+        this.endOffset = endOffset;
+        this.metadata = Collections.unmodifiableList(new ArrayList<>(metadata));
+    }
+
+    /**
+     * Load the sidecar index of a file, or build it and try to save it. An index that cannot be saved, ie in a read
+     * only folder, is only kept in memory.
+     *
+     * @param file Indexed file
+     * @param key Format and options used to split the rows
+     * @param factory Build the index if the sidecar file is missing or outdated
+     * @return Row index of the file
+     * @throws IOException
+     */
+    public static RowOffsetIndex open(File file, String key, IndexFactory factory) throws IOException {
+        RowOffsetIndex index = load(file, key);
+        if (index == null) {
+            long length = file.length();
+            long lastModified = file.lastModified();
+            index = factory.build();
+            try {
+                index.save(file, key, length, lastModified);
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot write the row index " + getIndexFile(file).getAbsolutePath(), ex);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @param file Indexed file
+     * @return Sidecar index file
+     */
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + EXTENSION);
+    }
+
+    /**
+     * @param file Indexed file
+     * @param key Format and options used to split the rows
+     * @return The index read from the sidecar file, null if it is missing, outdated or unreadable
+     */
+    public static RowOffsetIndex load(File file, String key) {
+        File indexFile = getIndexFile(file);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile.toPath()),
+                BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != file.length()
+                    || in.readLong() != file.lastModified() || !in.readUTF().equals(key)) {
+                return null;
+            }
+            int metadataCount = in.readInt();
+            List<String> metadata = new ArrayList<>(metadataCount);
+            for (int i = 0; i < metadataCount; i++) {
+                metadata.add(in.readUTF());
+            }
+            int rowCount = in.readInt();
+            long endOffset = in.readLong();
+            long[] blockOffsets = new long[getBlockCount(rowCount)];
+            for (int i = 0; i < blockOffsets.length; i++) {
+                blockOffsets[i] = in.readLong();
+            }
+            int[] rowOffsets = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                rowOffsets[i] = in.readInt();
+            }
+            return new RowOffsetIndex(blockOffsets, rowOffsets, rowCount, endOffset, metadata);
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot read the row index " + indexFile.getAbsolutePath() + ", it will be rebuilt", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Write the sidecar file
+     *
+     * @param file Indexed file
+     * @param key Format and options used to split the rows
+     * @param length Size of the indexed file when the index has been built
+     * @param lastModified Modification time of the indexed file when the index has been built
+     * @throws IOException
+     */
+    private void save(File file, String key, long length, long lastModified) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(getIndexFile(file).toPath()), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(length);
+            out.writeLong(lastModified);
+            out.writeUTF(key);
+            out.writeInt(metadata.size());
+            for (String value : metadata) {
+                out.writeUTF(value);
+            }
+            out.writeInt(rowCount);
+            out.writeLong(endOffset);
+            for (int i = 0; i < getBlockCount(rowCount); i++) {
+                out.writeLong(blockOffsets[i]);
+            }
+            for (int i = 0; i < rowCount; i++) {
+                out.writeInt(rowOffsets[i]);
+            }
+        }
+    }
+
+    private static int getBlockCount(int rowCount) {
+        return (rowCount + BLOCK_MASK) >>> BLOCK_SHIFT;
+    }
+
+    /**
+     * @return Number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param row Row index [0-getRowCount()[
+     * @return Offset of the first byte of the row
+     */
+    public long getRowStart(int row) {
+        return blockOffsets[row >>> BLOCK_SHIFT] + rowOffsets[row];
+    }
+
+    /**
+     * @param row Row index [0-getRowCount()[
+     * @return Offset following the last byte of the row, the start of the next row or the end of the data
+     */
+    public long getRowEnd(int row) {
+        return row + 1 < rowCount ? getRowStart(row + 1) : endOffset;
+    }
+
+    /**
+     * @return Metadata stored with the offsets
+     */
+    public List<String> getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Build an index when the sidecar file cannot be used
+     */
+    @FunctionalInterface
+    public interface IndexFactory {
+        /**
+         * @return Index of the file
+         * @throws IOException
+         */
+        RowOffsetIndex build() throws IOException;
+    }
+
+    /**
+     * Collect the row offsets in the order of the file
+     */
+    public static class Builder {
+        private long[] blockOffsets = new long[16];
+        private int[] rowOffsets = new int[BLOCK_MASK + 1];
+        private int rowCount = 0;
+
+        /**
+         * @param offset Offset of the first byte of the next row, greater than the offset of the previous row
+         * @throws IOException The file has too many rows or the rows are too large
+         */
+        public void add(long offset) throws IOException {
+            if (rowCount == Integer.MAX_VALUE) {
+                throw new IOException("Too many rows to index");
+            }
+            int block = rowCount >>> BLOCK_SHIFT;
+            if ((rowCount & BLOCK_MASK) == 0) {
+                if (block == blockOffsets.length) {
+                    blockOffsets = Arrays.copyOf(blockOffsets, block * 2);
+                }
+                blockOffsets[block] = offset;
+            }
+            long relativeOffset = offset - blockOffsets[block];
+            if (relativeOffset > Integer.MAX_VALUE) {
+                throw new IOException("The rows are too large to be indexed");
+            }
+            if (rowCount == rowOffsets.length) {
+                rowOffsets = Arrays.copyOf(rowOffsets, (int) Math.min(Integer.MAX_VALUE - 8, rowCount * 2L));
+            }
+            rowOffsets[rowCount++] = (int) relativeOffset;
+        }
+
+        /**
+         * @param endOffset Offset following the last byte of the last row
+         * @param metadata Metadata stored with the offsets, each string is at most 65535 bytes in modified UTF-8
+         * @return The index
+         */
+        public RowOffsetIndex build(long endOffset, List<String> metadata) {
+            return new RowOffsetIndex(blockOffsets, rowOffsets, rowCount, endOffset, metadata);
+        }
+    }
+}
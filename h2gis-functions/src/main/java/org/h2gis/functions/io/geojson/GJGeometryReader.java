@@ -55,6 +55,19 @@ public class GJGeometryReader {
      */
     public Geometry parseGeometry(JsonParser jsParser) throws IOException, SQLException {        
         jsParser.nextToken(); // START_OBJECT {        
+        return parseGeometryObject(jsParser);
+    }
+
+    /**
+     * Parses a GeoJSON geometry, the parser is on the START_OBJECT token of the geometry. The parser is left on the
+     * END_OBJECT token of the geometry.
+     *
+     * @param jsParser
+     * @throws IOException
+     * @return Geometry
+     * @throws java.sql.SQLException
+     */
+    public Geometry parseGeometryObject(JsonParser jsParser) throws IOException, SQLException {
         jsParser.nextToken(); // FIELD_NAME type     
         jsParser.nextToken(); // VALUE_STRING Point or whatever supported
         String geomType = jsParser.getText();
@@ -0,0 +1,430 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.geojson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import org.h2.value.Value;
+import org.h2.value.ValueBigint;
+import org.h2.value.ValueBoolean;
+import org.h2.value.ValueDouble;
+import org.h2.value.ValueGeometry;
+import org.h2.value.ValueNull;
+import org.h2.value.ValueVarchar;
+import org.h2gis.api.FileDriver;
+import org.h2gis.functions.io.file_table.IndexedRowReader;
+import org.h2gis.functions.io.file_table.RowOffsetIndex;
+import org.h2gis.functions.io.utility.FileUtil;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read the features of a GeoJSON file linked as a table.
+ *
+ * The file is either a FeatureCollection or a GeoJSON text sequence (RFC 8142), one feature per line optionally
+ * preceded by a record separator. On the first opening the file is read once to find the byte offset of each feature,
+ * the properties and their types, they are kept in a {@link RowOffsetIndex} sidecar file. A feature is then parsed
+ * from its offset when its row is read.
+ *
+ * The properties are stored as BIGINT, DOUBLE PRECISION, BOOLEAN or VARCHAR, the arrays and the objects as their JSON
+ * text.
+ *
+ * @author Erwan Bocher
+ * @author Nicolas Fortin
+ */
+public class GeoJsonDriver implements FileDriver {
+    private static final String INDEX_KEY = "GeoJSON";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Record separator of the GeoJSON text sequences
+    private static final int RECORD_SEPARATOR = 0x1E;
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeoJsonDriver.class);
+
+    private final JsonFactory jsFactory = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build();
+    private final GJGeometryReader geometryReader = new GJGeometryReader(new GeometryFactory());
+    private FileChannel channel;
+    private IndexedRowReader reader;
+    private int srid = 0;
+    private String[] columnNames;
+    private int[] columnTypes;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+
+    /**
+     * Open the file and load or build its feature index
+     *
+     * @param file GeoJSON file, not compressed
+     * @throws IOException
+     */
+    public void initDriverFromFile(File file) throws IOException {
+        if (FileUtil.isGzipFile(file)) {
+            throw new IOException("The compressed file " + file.getName() + " cannot be linked, import it instead");
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            RowOffsetIndex index = RowOffsetIndex.open(file, INDEX_KEY, () -> buildIndex(file));
+            List<String> metadata = index.getMetadata();
+            srid = Integer.parseInt(metadata.get(0));
+            int columnCount = (metadata.size() - 1) / 2;
+            columnNames = new String[columnCount];
+            columnTypes = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columnNames[i] = metadata.get(1 + 2 * i);
+                columnTypes[i] = Integer.parseInt(metadata.get(2 + 2 * i));
+                columnIndex.put(columnNames[i], i);
+            }
+            reader = new IndexedRowReader(channel, index);
+        } catch (IOException | RuntimeException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read the whole file to find the features, their properties and the CRS
+     *
+     * @param file GeoJSON file
+     * @return Index of the features, the metadata is the SRID followed by the name and the SQL type of each property
+     * @throws IOException
+     */
+    private RowOffsetIndex buildIndex(File file) throws IOException {
+        RowOffsetIndex.Builder builder = new RowOffsetIndex.Builder();
+        Map<String, Integer> properties = new LinkedHashMap<>();
+        int parsedSrid = 0;
+        try (InputStream in = new RecordSeparatorFilter(new BufferedInputStream(Files.newInputStream(file.toPath()),
+                BUFFER_SIZE));
+             JsonParser jp = jsFactory.createParser(in)) {
+            JsonToken token;
+            while ((token = jp.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IOException("Malformed GeoJSON file. Expected an object, found '" + jp.getText() + "'");
+                }
+                long start = jp.getTokenLocation().getByteOffset();
+                boolean isCollection = false;
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = jp.getText();
+                    JsonToken value = jp.nextToken();
+                    if (field.equalsIgnoreCase(GeoJsonField.FEATURES) && value == JsonToken.START_ARRAY) {
+                        isCollection = true;
+                        while (jp.nextToken() == JsonToken.START_OBJECT) {
+                            builder.add(jp.getTokenLocation().getByteOffset());
+                            readFeatureMetadata(jp, properties);
+                        }
+                    } else if (field.equalsIgnoreCase(GeoJsonField.CRS) && value == JsonToken.START_OBJECT) {
+                        parsedSrid = readCRS(jp);
+                    } else if (field.equalsIgnoreCase(GeoJsonField.PROPERTIES) && value == JsonToken.START_OBJECT) {
+                        readPropertiesMetadata(jp, properties);
+                    } else {
+                        jp.skipChildren();
+                    }
+                }
+                if (!isCollection) {
+                    // A feature of a sequence
+                    builder.add(start);
+                }
+            }
+        }
+        List<String> metadata = new ArrayList<>(1 + properties.size() * 2);
+        metadata.add(Integer.toString(parsedSrid));
+        for (Map.Entry<String, Integer> property : properties.entrySet()) {
+            metadata.add(property.getKey());
+            metadata.add(Integer.toString(property.getValue() == Types.NULL ? Types.VARCHAR : property.getValue()));
+        }
+        return builder.build(channel.size(), metadata);
+    }
+
+    /**
+     * Collect the properties of a feature, the parser is on the START_OBJECT token of the feature
+     *
+     * @param jp
+     * @param properties Name and SQL type of the properties
+     * @throws IOException
+     */
+    private static void readFeatureMetadata(JsonParser jp, Map<String, Integer> properties) throws IOException {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.getText();
+            if (jp.nextToken() == JsonToken.START_OBJECT && field.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
+                readPropertiesMetadata(jp, properties);
+            } else {
+                jp.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Merge the types of the properties of a feature, a property having distinct types is a VARCHAR
+     *
+     * @param jp
+     * @param properties Name and SQL type of the properties, NULL if only null values have been found
+     * @throws IOException
+     */
+    private static void readPropertiesMetadata(JsonParser jp, Map<String, Integer> properties) throws IOException {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String name = jp.getText().toUpperCase();
+            int type;
+            switch (jp.nextToken()) {
+                case VALUE_NULL:
+                    type = Types.NULL;
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    type = Types.BOOLEAN;
+                    break;
+                case VALUE_NUMBER_INT:
+                    type = Types.BIGINT;
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    type = Types.DOUBLE;
+                    break;
+                default:
+                    jp.skipChildren();
+                    type = Types.VARCHAR;
+                    break;
+            }
+            Integer previous = properties.get(name);
+            if (previous == null || previous == Types.NULL) {
+                properties.put(name, type);
+            } else if (type != Types.NULL && type != previous) {
+                boolean isNumber = (type == Types.BIGINT || type == Types.DOUBLE)
+                        && (previous == Types.BIGINT || previous == Types.DOUBLE);
+                properties.put(name, isNumber ? Types.DOUBLE : Types.VARCHAR);
+            }
+        }
+    }
+
+    /**
+     * Read the SRID of a CRS object, the parser is on its START_OBJECT token
+     *
+     * Syntax:
+     *
+     * "crs": {"type": "name", "properties": {"name": "urn:ogc:def:crs:EPSG::4326"}}
+     *
+     * @param jp
+     * @return SRID or 0 if the CRS is not supported
+     * @throws IOException
+     */
+    private static int readCRS(JsonParser jp) throws IOException {
+        String crsURI = null;
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.getText();
+            if (jp.nextToken() == JsonToken.START_OBJECT && field.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    String property = jp.getText();
+                    if (jp.nextToken() == JsonToken.VALUE_STRING && property.equalsIgnoreCase(GeoJsonField.NAME)) {
+                        crsURI = jp.getText();
+                    } else {
+                        jp.skipChildren();
+                    }
+                }
+            } else {
+                jp.skipChildren();
+            }
+        }
+        if (crsURI != null) {
+            String crs = crsURI.toLowerCase();
+            try {
+                if (crs.startsWith(GeoJsonField.CRS_URN_EPSG)) {
+                    return Integer.parseInt(crs.substring(GeoJsonField.CRS_URN_EPSG.length()));
+                } else if (crs.startsWith("epsg:")) {
+                    return Integer.parseInt(crs.substring(5));
+                } else if (crsURI.equalsIgnoreCase(GeoJsonField.CRS_URN_OGC)) {
+                    return 4326;
+                }
+            } catch (NumberFormatException ex) {
+                // Not supported
+            }
+            LOGGER.warn("The CRS URN " + crsURI + " is not supported.");
+        }
+        return 0;
+    }
+
+    /**
+     * @return Number of properties
+     */
+    int getPropertyCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * @param property Property index
+     * @return Upper case property name
+     */
+    String getPropertyName(int property) {
+        return columnNames[property];
+    }
+
+    /**
+     * @param property Property index
+     * @return SQL type of the property, see {@link Types}
+     */
+    int getPropertyType(int property) {
+        return columnTypes[property];
+    }
+
+    /**
+     * @return SRID of the geometries
+     */
+    int getSrid() {
+        return srid;
+    }
+
+    @Override
+    public long getRowCount() {
+        return reader.getIndex().getRowCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @param rowId Row index
+     * @return The geometry followed by the properties
+     * @throws IOException
+     */
+    @Override
+    public synchronized Value[] getRow(long rowId) throws IOException {
+        ByteBuffer row = reader.read(rowId);
+        Value[] values = new Value[columnNames.length + 1];
+        Arrays.fill(values, ValueNull.INSTANCE);
+        try (JsonParser jp = jsFactory.createParser(row.array(), row.arrayOffset() + row.position(),
+                row.remaining())) {
+            jp.nextToken(); // START_OBJECT {
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String field = jp.getText();
+                JsonToken token = jp.nextToken();
+                if (token == JsonToken.START_OBJECT && field.equalsIgnoreCase(GeoJsonField.GEOMETRY)) {
+                    Geometry geometry = geometryReader.parseGeometryObject(jp);
+                    geometry.setSRID(srid);
+                    values[0] = ValueGeometry.getFromGeometry(geometry);
+                } else if (token == JsonToken.START_OBJECT && field.equalsIgnoreCase(GeoJsonField.PROPERTIES)) {
+                    readProperties(jp, values);
+                } else {
+                    jp.skipChildren();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new IOException("Cannot read the feature " + (rowId + 1) + ", " + ex.getMessage(), ex);
+        }
+        return values;
+    }
+
+    /**
+     * Read the properties of a feature, the parser is on the START_OBJECT token of the properties
+     *
+     * @param jp
+     * @param values Row values, the properties are stored after the geometry
+     * @throws IOException
+     */
+    private void readProperties(JsonParser jp, Value[] values) throws IOException {
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            Integer column = columnIndex.get(jp.getText().toUpperCase());
+            JsonToken token = jp.nextToken();
+            if (column == null || token == JsonToken.VALUE_NULL) {
+                jp.skipChildren();
+                continue;
+            }
+            switch (columnTypes[column]) {
+                case Types.BOOLEAN:
+                    values[column + 1] = ValueBoolean.get(jp.getBooleanValue());
+                    break;
+                case Types.BIGINT:
+                    values[column + 1] = ValueBigint.get(jp.getLongValue());
+                    break;
+                case Types.DOUBLE:
+                    values[column + 1] = ValueDouble.get(jp.getDoubleValue());
+                    break;
+                default:
+                    if (token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT) {
+                        StringWriter json = new StringWriter();
+                        try (JsonGenerator generator = jsFactory.createGenerator(json)) {
+                            generator.copyCurrentStructure(jp);
+                        }
+                        values[column + 1] = ValueVarchar.get(json.toString());
+                    } else {
+                        values[column + 1] = ValueVarchar.get(jp.getText());
+                    }
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public void insertRow(Object[] values) throws IOException {
+        throw new IOException("A linked GeoJSON file cannot be modified");
+    }
+
+    /**
+     * Replace the record separators of a GeoJSON text sequence by spaces, the byte offsets are unchanged
+     */
+    private static final class RecordSeparatorFilter extends FilterInputStream {
+        RecordSeparatorFilter(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            return b == RECORD_SEPARATOR ? ' ' : b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            for (int i = off; i < off + read; i++) {
+                if (b[i] == RECORD_SEPARATOR) {
+                    b[i] = ' ';
+                }
+            }
+            return read;
+        }
+    }
+}
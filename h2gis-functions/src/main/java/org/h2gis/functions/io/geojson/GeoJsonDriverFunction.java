@@ -87,7 +87,28 @@ public class GeoJsonDriverFunction implements DriverFunction {
      */
     @Override
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress, String encoding) throws SQLException, IOException{
+        exportTable(connection, tableReference, fileName, progress, encoding, -1);
+    }
+
+    /**
+     * Export a table or a query to a geojson file
+     *
+     * @param connection
+     * @param tableReference
+     * @param fileName
+     * @param progress
+     * @param encoding
+     * @param precision Number of decimal digits of the coordinates, -1 to keep their full precision
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress, String encoding, int precision) throws SQLException, IOException{
         GeoJsonWriteDriver geoJsonDriver = new GeoJsonWriteDriver(connection);
+        try {
+            geoJsonDriver.setPrecision(precision);
+        } catch (IllegalArgumentException ex) {
+            throw new SQLException(ex.getMessage(), ex);
+        }
         geoJsonDriver.write(progress,tableReference, fileName, encoding);
     }
 
@@ -0,0 +1,75 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.geojson;
+
+import org.h2.command.ddl.CreateTableData;
+import org.h2.table.Column;
+import org.h2.value.ExtTypeInfoGeometry;
+import org.h2.value.TypeInfo;
+import org.h2gis.functions.io.file_table.FileEngine;
+import org.h2gis.utilities.GeometryTypeCodes;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * GeoJSON and GeoJSON text sequence Table factory.
+ *
+ * @author Nicolas Fortin
+ */
+public class GeoJsonEngine extends FileEngine<GeoJsonDriver> {
+
+    @Override
+    protected GeoJsonDriver createDriver(File filePath, List<String> args) throws IOException {
+        GeoJsonDriver driver = new GeoJsonDriver();
+        driver.initDriverFromFile(filePath);
+        return driver;
+    }
+
+    @Override
+    protected void feedCreateTableData(GeoJsonDriver driver, CreateTableData data) throws IOException {
+        TypeInfo geometryType = TypeInfo.getTypeInfo(TypeInfo.TYPE_GEOMETRY.getValueType(),
+                TypeInfo.TYPE_GEOMETRY.getPrecision(), TypeInfo.TYPE_GEOMETRY.getScale(),
+                new ExtTypeInfoGeometry(GeometryTypeCodes.GEOMETRY, driver.getSrid()));
+        for (int i = 0; i < driver.getPropertyCount(); i++) {
+            TypeInfo typeInfo;
+            switch (driver.getPropertyType(i)) {
+                case Types.BOOLEAN:
+                    typeInfo = TypeInfo.TYPE_BOOLEAN;
+                    break;
+                case Types.BIGINT:
+                    typeInfo = TypeInfo.TYPE_BIGINT;
+                    break;
+                case Types.DOUBLE:
+                    typeInfo = TypeInfo.TYPE_DOUBLE;
+                    break;
+                default:
+                    typeInfo = TypeInfo.TYPE_VARCHAR;
+                    break;
+            }
+            data.columns.add(new Column(FileEngine.getUniqueColumnName(driver.getPropertyName(i), data.columns), typeInfo));
+        }
+        // The geometry column comes first, its name must not collide with a property
+        data.columns.add(0, new Column(FileEngine.getUniqueColumnName("THE_GEOM", data.columns), geometryType));
+    }
+}
@@ -0,0 +1,257 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.geojson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.locationtech.jts.geom.*;
+
+import java.io.IOException;
+
+/**
+ * Write a JTS geometry as a GeoJSON geometry object into a Jackson {@link JsonGenerator}.
+ *
+ * The ordinates are read from the {@link CoordinateSequence} of the geometries, no coordinate array is copied.
+ * When a precision is set the ordinates are rounded to this number of decimal digits and formatted in a reused
+ * buffer, the trailing zeros are not written.
+ *
+ * A writer is not thread safe.
+ *
+ * @author Erwan Bocher
+ * @author Nicolas Fortin
+ */
+public class GeoJsonGeometryWriter {
+    /** Maximum precision, a rounded ordinate must be exactly stored in a long */
+    public static final int MAX_PRECISION = 15;
+    // Rounded values greater than 2^53 are not exact
+    private static final double MAX_SCALED_VALUE = 9007199254740992d;
+    private static final long[] POWERS_OF_TEN = new long[MAX_PRECISION + 1];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    // Sign, 16 digits and the decimal separator
+    private final char[] buffer = new char[20];
+    private int precision = -1;
+
+    /**
+     * Writer of the ordinates with their full precision
+     */
+    public GeoJsonGeometryWriter() {
+    }
+
+    /**
+     * @param precision Number of decimal digits of the ordinates, -1 to keep their full precision
+     */
+    public GeoJsonGeometryWriter(int precision) {
+        setPrecision(precision);
+    }
+
+    /**
+     * @return Number of decimal digits of the ordinates, -1 if they are written with their full precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @param precision Number of decimal digits of the ordinates, -1 to keep their full precision
+     */
+    public void setPrecision(int precision) {
+        if (precision < -1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be between 0 and " + MAX_PRECISION
+                    + ", or -1 to keep the full precision");
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * Write the GeoJSON geometry object.
+     *
+     * Syntax:
+     *
+     * {"type": "Point", "coordinates": [102.0, 0.5]}
+     *
+     * @param geom Geometry to write
+     * @param gen Generator
+     * @throws IOException
+     */
+    public void write(Geometry geom, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        if (geom instanceof Point) {
+            gen.writeStringField("type", "Point");
+            gen.writeFieldName("coordinates");
+            CoordinateSequence seq = ((Point) geom).getCoordinateSequence();
+            if (seq.size() > 0) {
+                writePosition(seq, 0, gen);
+            } else {
+                gen.writeStartArray();
+                gen.writeEndArray();
+            }
+        } else if (geom instanceof LineString) {
+            gen.writeStringField("type", "LineString");
+            gen.writeFieldName("coordinates");
+            writePositions(((LineString) geom).getCoordinateSequence(), gen);
+        } else if (geom instanceof Polygon) {
+            gen.writeStringField("type", "Polygon");
+            gen.writeFieldName("coordinates");
+            writeRings((Polygon) geom, gen);
+        } else if (geom instanceof MultiPoint) {
+            gen.writeStringField("type", "MultiPoint");
+            gen.writeFieldName("coordinates");
+            gen.writeStartArray();
+            for (int i = 0; i < geom.getNumGeometries(); i++) {
+                CoordinateSequence seq = ((Point) geom.getGeometryN(i)).getCoordinateSequence();
+                if (seq.size() > 0) {
+                    writePosition(seq, 0, gen);
+                }
+            }
+            gen.writeEndArray();
+        } else if (geom instanceof MultiLineString) {
+            gen.writeStringField("type", "MultiLineString");
+            gen.writeFieldName("coordinates");
+            gen.writeStartArray();
+            for (int i = 0; i < geom.getNumGeometries(); i++) {
+                writePositions(((LineString) geom.getGeometryN(i)).getCoordinateSequence(), gen);
+            }
+            gen.writeEndArray();
+        } else if (geom instanceof MultiPolygon) {
+            gen.writeStringField("type", "MultiPolygon");
+            gen.writeFieldName("coordinates");
+            gen.writeStartArray();
+            for (int i = 0; i < geom.getNumGeometries(); i++) {
+                writeRings((Polygon) geom.getGeometryN(i), gen);
+            }
+            gen.writeEndArray();
+        } else if (geom instanceof GeometryCollection) {
+            gen.writeStringField("type", "GeometryCollection");
+            gen.writeArrayFieldStart("geometries");
+            for (int i = 0; i < geom.getNumGeometries(); i++) {
+                write(geom.getGeometryN(i), gen);
+            }
+            gen.writeEndArray();
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type " + geom.getGeometryType());
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Write the exterior ring then the interior rings of a polygon
+     *
+     * @param polygon
+     * @param gen
+     * @throws IOException
+     */
+    private void writeRings(Polygon polygon, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        if (!polygon.isEmpty()) {
+            writePositions(polygon.getExteriorRing().getCoordinateSequence(), gen);
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                writePositions(polygon.getInteriorRingN(i).getCoordinateSequence(), gen);
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Write an array of positions
+     *
+     * @param seq
+     * @param gen
+     * @throws IOException
+     */
+    private void writePositions(CoordinateSequence seq, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        for (int i = 0; i < seq.size(); i++) {
+            writePosition(seq, i, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Write a position, [X,Y] or [X,Y,Z]
+     *
+     * @param seq
+     * @param index
+     * @param gen
+     * @throws IOException
+     */
+    private void writePosition(CoordinateSequence seq, int index, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        writeOrdinate(seq.getX(index), gen);
+        writeOrdinate(seq.getY(index), gen);
+        double z = seq.getZ(index);
+        if (!Double.isNaN(z)) {
+            writeOrdinate(z, gen);
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Write an ordinate rounded to the precision
+     *
+     * @param value
+     * @param gen
+     * @throws IOException
+     */
+    private void writeOrdinate(double value, JsonGenerator gen) throws IOException {
+        if (precision < 0) {
+            gen.writeNumber(value);
+            return;
+        }
+        double scaled = value * POWERS_OF_TEN[precision];
+        if (!(Math.abs(scaled) < MAX_SCALED_VALUE)) {
+            // Too large or not finite
+            gen.writeNumber(value);
+            return;
+        }
+        // Half values are rounded away from zero
+        long rounded = Math.round(Math.abs(scaled));
+        boolean negative = scaled < 0 && rounded != 0;
+        long integerPart = rounded / POWERS_OF_TEN[precision];
+        long fractionPart = rounded % POWERS_OF_TEN[precision];
+        // The digits are written from the end of the buffer
+        int position = buffer.length;
+        if (fractionPart != 0) {
+            int digits = precision;
+            while (fractionPart % 10 == 0) {
+                fractionPart /= 10;
+                digits--;
+            }
+            for (int i = 0; i < digits; i++) {
+                buffer[--position] = (char) ('0' + fractionPart % 10);
+                fractionPart /= 10;
+            }
+            buffer[--position] = '.';
+        }
+        do {
+            buffer[--position] = (char) ('0' + integerPart % 10);
+            integerPart /= 10;
+        } while (integerPart != 0);
+        if (negative) {
+            buffer[--position] = '-';
+        }
+        gen.writeRawValue(buffer, position, buffer.length - position);
+    }
+}
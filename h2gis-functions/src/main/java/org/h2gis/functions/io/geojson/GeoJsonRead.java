@@ -23,6 +23,7 @@ package org.h2gis.functions.io.geojson;
 import org.h2gis.api.AbstractFunction;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.io.utility.FileUtil;
 import org.h2gis.utilities.URIUtilities;
 
 import java.io.IOException;
@@ -38,7 +39,7 @@ import java.sql.SQLException;
 public class GeoJsonRead extends AbstractFunction implements ScalarFunction {
 
     public GeoJsonRead() {
-        addProperty(PROP_REMARKS, "Import a GeoJSON 1.0 file.");
+        addProperty(PROP_REMARKS, "Import a GeoJSON 1.0 file.\nA .geojson.gz file is decompressed while it is read.");
     }
 
     @Override
@@ -54,7 +55,7 @@ public class GeoJsonRead extends AbstractFunction implements ScalarFunction {
      * @throws SQLException 
      */
     public static void readGeoJson(Connection connection, String fileName) throws IOException, SQLException {
-        final String name = URIUtilities.fileFromString(fileName).getName();
+        final String name = FileUtil.removeGzipExtension(URIUtilities.fileFromString(fileName).getName());
         String tableName = name.substring(0, name.lastIndexOf(".")).toUpperCase();
         if (tableName.matches("^[a-zA-Z][a-zA-Z0-9_]*$")) {
             readGeoJson(connection, fileName, tableName);
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.functions.io.utility.FileUtil;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
@@ -58,7 +59,6 @@ public class GeoJsonReaderDriver {
     private final File fileName;
     private final Connection connection;
     private static GeometryFactory GF;
-    private PreparedStatement preparedStatement = null;
     private JsonFactory jsFactory;
     private int featureCounter = 1;
     private ProgressVisitor progress = new EmptyProgressVisitor();
@@ -75,7 +75,6 @@ public class GeoJsonReaderDriver {
     private TableLocation tableLocation;
     private Map<String, Integer> cachedColumnNames;
     private Map<String, Integer> cachedColumnIndex;
-    private static final int BATCH_MAX_SIZE = 100;
 
     static {
         geomTypes = new ArrayList<String>();
@@ -109,7 +108,7 @@ public class GeoJsonReaderDriver {
      * @throws java.io.IOException
      */
     public void read(ProgressVisitor progress, String tableReference) throws SQLException, IOException {
-        if (FileUtil.isFileImportable(fileName, "geojson")) {
+        if (FileUtil.isFileImportable(fileName, "geojson", true)) {
             this.isH2 = JDBCUtilities.isH2DataBase(connection);
             this.tableLocation = TableLocation.parse(tableReference, isH2);
             if (fileName.length() > 0) {
@@ -149,11 +148,12 @@ public class GeoJsonReaderDriver {
         this.progress = progress.subProcess(100);
         init();
         if (parseMetadata()) {
-            connection.setAutoCommit(false);
             GF = new GeometryFactory(new PrecisionModel(), parsedSRID);
-            parseData();
+            try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                int target = writer.addTable(tableLocation.toString(), 0);
+                writer.run(rows -> parseData(rows, target));
+            }
             setGeometryTypeConstraints();
-            connection.setAutoCommit(true);
 
         } else {
             throw new SQLException("Cannot create the table " + tableLocation + " to import the GeoJSON data");
@@ -161,7 +161,7 @@ public class GeoJsonReaderDriver {
     }
 
     /**
-     * Parses the all GeoJSON feature to create the PreparedStatement.
+     * Parses the all GeoJSON feature to create the table.
      *
      * @throws SQLException
      * @throws IOException
@@ -180,7 +180,7 @@ public class GeoJsonReaderDriver {
             cachedColumnNames = new LinkedHashMap<String, Integer>();
             finalGeometryTypes = new HashSet<String>();
 
-            try (JsonParser jp = jsFactory.createParser(fis)) {
+            try (JsonParser jp = jsFactory.createParser(FileUtil.uncompressedInputStream(fileName, fis))) {
                 jp.nextToken();//START_OBJECT
                 jp.nextToken(); // field_name (type)
                 jp.nextToken(); // value_string (FeatureCollection)
@@ -216,22 +216,17 @@ public class GeoJsonReaderDriver {
             createTable.append("THE_GEOM GEOMETRY(geometry,").append(parsedSRID).append(")");
 
             cachedColumnIndex = new HashMap<String, Integer>();
-            StringBuilder insertTable = new StringBuilder("INSERT INTO ");
-            insertTable.append(tableLocation).append(" VALUES(?");
             int i = 1;
             for (Map.Entry<String, Integer> columns : cachedColumnNames.entrySet()) {
                 String columnName = columns.getKey();
                 cachedColumnIndex.put(columnName, i++);
                 createTable.append(",").append(columns.getKey()).append(" ").append(getSQLTypeName(columns.getValue()));
-                insertTable.append(",").append("?");
             }
             createTable.append(")");
-            insertTable.append(")");
 
             try (Statement stmt = connection.createStatement()) {
                 stmt.execute(createTable.toString());
             }
-            preparedStatement = connection.prepareStatement(insertTable.toString());
             return true;
 
         } else {
@@ -890,10 +885,12 @@ public class GeoJsonReaderDriver {
      * Parses the featureCollection
      *
      * @param jp
+     * @param rows Receiver of the parsed features
+     * @param target Index of the table in the writer
      * @throws IOException
      * @throws SQLException
      */
-    private void parseFeatures(JsonParser jp) throws IOException, SQLException {
+    private void parseFeatures(JsonParser jp, PipelinedWriter.RowSink rows, int target) throws IOException, SQLException {
         jp.nextToken(); // FIELD_NAME features
         // Passes all the properties until "Feature" object is found
         while (!jp.getText().equalsIgnoreCase(GeoJsonField.FEATURES)
@@ -911,7 +908,6 @@ public class GeoJsonReaderDriver {
         if (firstParam.equalsIgnoreCase(GeoJsonField.FEATURES)) {
             jp.nextToken(); // START_ARRAY [
             JsonToken token = jp.nextToken(); // START_OBJECT {
-            long batchSize = 0;
             while (token != JsonToken.END_ARRAY) {
                 jp.nextToken(); // FIELD_NAME type
                 jp.nextToken(); // VALUE_STRING Feature
@@ -920,19 +916,7 @@ public class GeoJsonReaderDriver {
                     if (progress.isCanceled()) {
                         throw new SQLException("Canceled by user");
                     }
-                    Object[] values = parseFeature(jp);
-                    for (int i = 0; i < values.length; i++) {
-                        preparedStatement.setObject(i + 1, values[i]);
-                    }
-
-                    preparedStatement.addBatch();
-                    batchSize++;
-                    if (batchSize >= BATCH_MAX_SIZE) {
-                        preparedStatement.executeBatch();
-                        connection.commit();
-                        preparedStatement.clearBatch();
-                        batchSize = 0;
-                    }
+                    rows.write(target, parseFeature(jp));
 
                     token = jp.nextToken(); //START_OBJECT new feature                    
                     featureCounter++;
@@ -944,11 +928,6 @@ public class GeoJsonReaderDriver {
                             // Ignore
                         }
                     }
-                    if (batchSize > 0) {
-                        preparedStatement.executeBatch();
-                        connection.commit();
-                        preparedStatement.clearBatch();
-                    }
                 } else {
                     throw new SQLException("Malformed GeoJSON file. Expected 'Feature', found '" + geomType + "'");
                 }
@@ -1252,20 +1231,22 @@ public class GeoJsonReaderDriver {
     /**
      * Parses the GeoJSON data and set the values to the table.
      *
+     * @param rows Receiver of the parsed features
+     * @param target Index of the table in the writer
      * @throws IOException
      * @throws SQLException
      */
-    private void parseData() throws IOException, SQLException {
+    private void parseData(PipelinedWriter.RowSink rows, int target) throws IOException, SQLException {
         FileInputStream fis = null;
         try {
             fis = new FileInputStream(fileName);
-            try (JsonParser jp = jsFactory.createParser(fis)) {
+            try (JsonParser jp = jsFactory.createParser(FileUtil.uncompressedInputStream(fileName, fis))) {
                 jp.nextToken();//START_OBJECT
                 jp.nextToken(); // field_name (type)
                 jp.nextToken(); // value_string (FeatureCollection)
                 String geomType = jp.getText();
                 if (geomType.equalsIgnoreCase(GeoJsonField.FEATURECOLLECTION)) {
-                    parseFeatures(jp);
+                    parseFeatures(jp, rows, target);
                 } else {
                     throw new SQLException("Malformed GeoJSON file. Expected 'FeatureCollection', found '" + geomType + "'");
                 }
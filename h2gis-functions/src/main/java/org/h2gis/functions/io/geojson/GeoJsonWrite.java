@@ -38,7 +38,9 @@ public class GeoJsonWrite extends AbstractFunction implements ScalarFunction {
 
     
     public GeoJsonWrite(){
-        addProperty(PROP_REMARKS, "Export a spatial table to a GeoJSON 1.0 file.\n As optional argument an encoding value is supported.");
+        addProperty(PROP_REMARKS, "Export a spatial table to a GeoJSON 1.0 file, .geojson.gz files are compressed.\n As optional argument an encoding value is supported.\n"
+                + "The last optional argument is the number of decimal digits of the coordinates, by default they "
+                + "keep their full precision.");
     }
     
     @Override
@@ -46,6 +48,22 @@ public class GeoJsonWrite extends AbstractFunction implements ScalarFunction {
         return "writeGeoJson";
     }
     
+    /**
+     * Write the GeoJSON file with coordinates rounded to a number of decimal digits.
+     *
+     * @param connection
+     * @param fileName
+     * @param tableReference
+     * @param encoding
+     * @param precision Number of decimal digits of the coordinates
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static void writeGeoJson(Connection connection, String fileName, String tableReference, String encoding, int precision) throws IOException, SQLException {
+        GeoJsonDriverFunction geoJsonDriver = new GeoJsonDriverFunction();
+        geoJsonDriver.exportTable(connection,tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(),encoding, precision);
+    }
+
     /**
      * Write the GeoJSON file.
      *
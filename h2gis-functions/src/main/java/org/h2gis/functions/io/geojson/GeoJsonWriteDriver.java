@@ -61,6 +61,7 @@ public class GeoJsonWriteDriver {
     private final Connection connection;
     private Map<String, Integer> cachedColumnNames;
     private int columnCountProperties = -1;
+    private final GeoJsonGeometryWriter geometryWriter = new GeoJsonGeometryWriter();
 
     /**
      * A simple GeoJSON driver to write a spatial table to a GeoJSON file.
@@ -69,7 +70,14 @@ public class GeoJsonWriteDriver {
      */
     public GeoJsonWriteDriver(Connection connection) {
         this.connection = connection;
-    }    
+    }
+
+    /**
+     * @param precision Number of decimal digits of the coordinates, -1 to keep their full precision
+     */
+    public void setPrecision(int precision) {
+        geometryWriter.setPrecision(precision);
+    }
     
     
     /**
@@ -97,8 +105,8 @@ public class GeoJsonWriteDriver {
      * @throws java.io.IOException
      */
     public void write(ProgressVisitor progress, ResultSet rs, File fileName, String encoding) throws SQLException, IOException {
-        if (FileUtil.isExtensionWellFormated(fileName, "geojson")) {
-            FileOutputStream fos = null;
+        if (FileUtil.isExtensionWellFormated(fileName, "geojson", true)) {
+            OutputStream fos = null;
             JsonEncoding jsonEncoding = JsonEncoding.UTF8;
             if (encoding != null) {
                 try {
@@ -108,7 +116,7 @@ public class GeoJsonWriteDriver {
                 }
             }
             try {                
-                fos = new FileOutputStream(fileName);
+                fos = FileUtil.openOutputStream(fileName);
                 int rowCount = 0;
                 int type = rs.getType();
                 if (type == ResultSet.TYPE_SCROLL_INSENSITIVE || type == ResultSet.TYPE_SCROLL_SENSITIVE) {
@@ -155,7 +163,7 @@ public class GeoJsonWriteDriver {
                 }
             }
         } else {
-            throw new SQLException("Only .geojson extension is supported");
+            throw new SQLException("Only .geojson and .geojson.gz extensions are supported");
         }
     }
     
@@ -183,7 +191,7 @@ public class GeoJsonWriteDriver {
                 throw new SQLException("The select query must be enclosed in parenthesis: '(SELECT * FROM ORDERS)'.");
             }
         } else {
-            if (FileUtil.isExtensionWellFormated(fileName, "geojson")) {
+            if (FileUtil.isExtensionWellFormated(fileName, "geojson", true)) {
                 JsonEncoding jsonEncoding =  JsonEncoding.UTF8;
                 if (encoding != null) {
                     try {
@@ -193,9 +201,9 @@ public class GeoJsonWriteDriver {
                     }
                 }
                 
-                FileOutputStream fos = null;
+                OutputStream fos = null;
                 try {
-                    fos = new FileOutputStream(fileName);
+                    fos = FileUtil.openOutputStream(fileName);
                     final TableLocation parse = TableLocation.parse(tableName, JDBCUtilities.isH2DataBase(connection));
                     int recordCount = JDBCUtilities.getRowCount(connection, parse);
                     if (recordCount > 0) {
@@ -248,7 +256,7 @@ public class GeoJsonWriteDriver {
                     }
                 }
             } else {
-                throw new SQLException("Only .geojson extension is supported");
+                throw new SQLException("Only .geojson and .geojson.gz extensions are supported");
             }
         }
     }
@@ -315,233 +323,13 @@ public class GeoJsonWriteDriver {
      * @param jsonGenerator
      * @param geometry
      */
-    private void writeGeometry(Geometry geom, JsonGenerator gen) throws IOException {       
+    private void writeGeometry(Geometry geom, JsonGenerator gen) throws IOException {
         if (geom != null) {
-            gen.writeObjectFieldStart("geometry");
-            if (geom instanceof Point) {
-                write((Point) geom, gen);
-            } else if (geom instanceof MultiPoint) {
-                write((MultiPoint) geom, gen);
-            } else if (geom instanceof LineString) {
-                write((LineString) geom, gen);
-            } else if (geom instanceof MultiLineString) {
-                write((MultiLineString) geom, gen);
-            } else if (geom instanceof Polygon) {
-                write((Polygon) geom, gen);
-            } else if (geom instanceof MultiPolygon) {
-                write((MultiPolygon) geom, gen);
-            } else if (geom instanceof GeometryCollection) {
-                write((GeometryCollection) geom, gen);
-            } else {
-                throw new RuntimeException("Unsupported Geomery type");
-            }
-            gen.writeEndObject();
+            gen.writeFieldName("geometry");
+            geometryWriter.write(geom, gen);
         } else {
             gen.writeNullField("geometry");
         }
-        
-    }
-
-    /**
-     * Point coordinates are in x, y order (easting, northing for projected
-     * coordinates, longitude, latitude for geographic coordinates):
-     *
-     * { "type": "Point", "coordinates": [100.0, 0.0] }
-     *
-     *
-     * @param point
-     * @param gen
-     * @throws IOException
-     */
-    private void write(Point point, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "Point");
-        gen.writeFieldName("coordinates");
-        writeCoordinate(point.getCoordinate(), gen);
-    }
-
-    /**
-     * Coordinates of a MultiPoint are an array of positions:
-     *
-     * { "type": "MultiPoint", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
-     *
-     *
-     * @param points
-     * @param gen
-     * @throws IOException
-     */
-    private void write(MultiPoint points, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "MultiPoint");
-        gen.writeFieldName("coordinates");
-        writeCoordinates(points.getCoordinates(), gen);
-    }
-
-    /**
-     * Coordinates of LineString are an array of positions :
-     *
-     * { "type": "LineString", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
-     *
-     * @param geom
-     * @param gen
-     * @throws IOException
-     */
-    private void write(LineString geom, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "LineString");
-        gen.writeFieldName("coordinates");
-        writeCoordinates(geom.getCoordinates(), gen);
-    }
-
-    /**
-     * Coordinates of a MultiLineString are an array of LineString coordinate
-     * arrays:
-     *
-     * { "type": "MultiLineString", "coordinates": [ [ [100.0, 0.0], [101.0,
-     * 1.0] ], [ [102.0, 2.0], [103.0, 3.0] ] ] }
-     *
-     * @param geom
-     * @param gen
-     * @throws IOException
-     */
-    private void write(MultiLineString geom, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "MultiLineString");
-        gen.writeFieldName("coordinates");
-        gen.writeStartArray();
-        for (int i = 0; i < geom.getNumGeometries(); ++i) {
-            writeCoordinates(geom.getGeometryN(i).getCoordinates(), gen);
-        }
-        gen.writeEndArray();
-    }
-
-    /**
-     * Each element in the geometries array of a GeometryCollection is one of
-     * the geometry objects described above:
-     *
-     * { "type": "GeometryCollection", "geometries": [ { "type": "Point",
-     * "coordinates": [100.0, 0.0] }, { "type": "LineString", "coordinates": [
-     * [101.0, 0.0], [102.0, 1.0] ] } ] }
-     *
-     * @param coll
-     * @param gen
-     * @throws IOException
-     */
-    private void write(GeometryCollection coll, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "GeometryCollection");
-        gen.writeArrayFieldStart("geometries");
-        for (int i = 0; i < coll.getNumGeometries(); ++i) {
-            Geometry geom = coll.getGeometryN(i);
-            gen.writeStartObject();
-            if (geom instanceof Point) {
-                write((Point) geom, gen);
-            } else if (geom instanceof MultiPoint) {
-                write((MultiPoint) geom, gen);
-            } else if (geom instanceof LineString) {
-                write((LineString) geom, gen);
-            } else if (geom instanceof MultiLineString) {
-                write((MultiLineString) geom, gen);
-            } else if (geom instanceof Polygon) {
-                write((Polygon) geom, gen);
-            } else if (geom instanceof MultiPolygon) {
-                write((MultiPolygon) geom, gen);
-            } else if (geom instanceof GeometryCollection) {
-                write((GeometryCollection) geom, gen);
-            } else {
-                throw new RuntimeException("Unsupported Geomery type");
-            }
-             gen.writeEndObject();
-        }
-        gen.writeEndArray();
-    }
-
-    /**
-     * Coordinates of a Polygon are an array of LinearRing coordinate arrays.
-     * The first element in the array represents the exterior ring. Any
-     * subsequent elements represent interior rings (or holes).
-     *
-     * No holes:
-     *
-     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ] ] }
-     *
-     * With holes:
-     *
-     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ], [ [100.2, 0.2], [100.8, 0.2],
-     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2] ] ] }
-     *
-     * @param geom
-     * @param gen
-     * @throws IOException
-     */
-    private void write(Polygon geom, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "Polygon");
-        gen.writeFieldName("coordinates");
-        gen.writeStartArray();
-        writeCoordinates(geom.getExteriorRing().getCoordinates(), gen);
-        for (int i = 0; i < geom.getNumInteriorRing(); ++i) {
-            writeCoordinates(geom.getInteriorRingN(i).getCoordinates(), gen);
-        }
-        gen.writeEndArray();
-    }
-
-    /**
-     *
-     *
-     * Coordinates of a MultiPolygon are an array of Polygon coordinate arrays:
-     *
-     * { "type": "MultiPolygon", "coordinates": [ [[[102.0, 2.0], [103.0, 2.0],
-     * [103.0, 3.0], [102.0, 3.0], [102.0, 2.0]]], [[[100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0]], [[100.2, 0.2], [100.8, 0.2],
-     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2]]] ] }
-     *
-     * @param geom
-     * @param gen
-     * @throws IOException
-     */
-    private void write(MultiPolygon geom, JsonGenerator gen) throws IOException {
-        gen.writeStringField("type", "MultiPolygon");
-        gen.writeFieldName("coordinates");
-        gen.writeStartArray();
-        for (int i = 0; i < geom.getNumGeometries(); ++i) {
-            Polygon p = (Polygon) geom.getGeometryN(i);
-            gen.writeStartArray();
-            writeCoordinates(p.getExteriorRing().getCoordinates(), gen);
-            for (int j = 0; j < p.getNumInteriorRing(); ++j) {
-                writeCoordinates(p.getInteriorRingN(j).getCoordinates(), gen);
-            }
-            gen.writeEndArray();
-        }
-        gen.writeEndArray();
-    }
-
-    /**
-     * Write coordinate positions.
-     *
-     * @param coordinate
-     * @param gen
-     * @throws IOException
-     */
-    private void writeCoordinate(Coordinate coordinate, JsonGenerator gen) throws IOException {
-        gen.writeStartArray();
-        gen.writeNumber(coordinate.x);
-        gen.writeNumber(coordinate.y);
-        if (!Double.isNaN(coordinate.z)) {
-            gen.writeNumber(coordinate.z);
-        }
-        gen.writeEndArray();
-    }
-
-    /**
-     * Write coordinate array.
-     *
-     * @param coordinates
-     * @param gen
-     * @throws IOException
-     */
-    private void writeCoordinates(Coordinate[] coordinates, JsonGenerator gen) throws IOException {
-        gen.writeStartArray();
-        for (Coordinate coord : coordinates) {
-            writeCoordinate(coord, gen);
-        }
-        gen.writeEndArray();
     }
 
     /**
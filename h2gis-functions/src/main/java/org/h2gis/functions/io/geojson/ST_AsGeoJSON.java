@@ -20,20 +20,33 @@
 
 package org.h2gis.functions.io.geojson;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.h2gis.api.DeterministicScalarFunction;
 import org.locationtech.jts.geom.*;
 
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.sql.SQLException;
+
 /**
  * Transform a JTS geometry to a GeoJSON geometry representation.
  *
+ * The geometries are written by a {@link GeoJsonGeometryWriter} into a buffer reused by each thread.
+ *
  * @author Erwan Bocher
  */
 public class ST_AsGeoJSON extends DeterministicScalarFunction {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ThreadLocal<GeoJsonBuffer> BUFFER = new ThreadLocal<>();
+    private static final int MAX_REUSED_LENGTH = 1 << 20;
+
     public ST_AsGeoJSON() {
         addProperty(PROP_REMARKS, "Return the geometry as a Geometry Javascript Object Notation (GeoJSON 1.0) element.\n"
                 + "2D and 3D Geometries are both supported.\n"
-                + "GeoJSON only supports SFS 1.1 geometry types (POINT, LINESTRING, POLYGON and COLLECTION).");
+                + "GeoJSON only supports SFS 1.1 geometry types (POINT, LINESTRING, POLYGON and COLLECTION).\n"
+                + "The optional argument is the maximum number of decimal digits of the coordinates.");
     }
 
     @Override
@@ -48,107 +61,105 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      * @return
      */
     public static String toGeojson(Geometry geom) {
-        StringBuilder sb = new StringBuilder();
-        toGeojsonGeometry(geom, sb);
-        return sb.toString();
+        try {
+            return toGeojson(geom, -1);
+        } catch (SQLException ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex.getCause());
+        }
+    }
+
+    /**
+     * Convert the geometry to a GeoJSON representation, the coordinates are
+     * rounded to a number of decimal digits.
+     *
+     * @param geom
+     * @param maxDecimalDigits Number of decimal digits, -1 to keep the full
+     * precision
+     * @return
+     * @throws SQLException
+     */
+    public static String toGeojson(Geometry geom, int maxDecimalDigits) throws SQLException {
+        if (geom == null) {
+            return null;
+        }
+        if (maxDecimalDigits < -1 || maxDecimalDigits > GeoJsonGeometryWriter.MAX_PRECISION) {
+            throw new SQLException("The number of decimal digits must be between 0 and "
+                    + GeoJsonGeometryWriter.MAX_PRECISION);
+        }
+        GeoJsonBuffer buffer = BUFFER.get();
+        try {
+            if (buffer == null) {
+                buffer = new GeoJsonBuffer();
+                BUFFER.set(buffer);
+            }
+            String json = buffer.toGeojson(geom, maxDecimalDigits);
+            if (json.length() > MAX_REUSED_LENGTH) {
+                // Do not keep the memory of a huge geometry
+                BUFFER.remove();
+            }
+            return json;
+        } catch (IOException | RuntimeException ex) {
+            // The generator state is unknown, it is not reused
+            BUFFER.remove();
+            throw new SQLException("Cannot convert the geometry to GeoJSON", ex);
+        }
     }
-    
-    
+
     /**
      * Transform a JTS geometry to a GeoJSON representation.
      *
      * @param geom
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonGeometry(Geometry geom, StringBuilder sb) {
-        if (geom instanceof Point) {
-            toGeojsonPoint((Point) geom, sb);
-        } else if (geom instanceof LineString) {
-            toGeojsonLineString((LineString) geom, sb);
-        } else if (geom instanceof Polygon) {
-            toGeojsonPolygon((Polygon) geom, sb);
-        } else if (geom instanceof MultiPoint) {
-            toGeojsonMultiPoint((MultiPoint) geom, sb);
-        } else if (geom instanceof MultiLineString) {
-            toGeojsonMultiLineString((MultiLineString) geom, sb);
-        } else if (geom instanceof MultiPolygon) {
-            toGeojsonMultiPolygon((MultiPolygon) geom, sb);
-        } else {
-            toGeojsonGeometryCollection((GeometryCollection) geom, sb);
-        }
+        sb.append(toGeojson(geom));
     }
 
     /**
-     * For type "Point", the "coordinates" member must be a single position.
-     *
-     * A position is the fundamental geometry construct. The "coordinates"
-     * member of a geometry object is composed of one position (in the case of a
-     * Point geometry), an array of positions (LineString or MultiPoint
-     * geometries), an array of arrays of positions (Polygons,
-     * MultiLineStrings), or a multidimensional array of positions
-     * (MultiPolygon).
-     *
-     * A position is represented by an array of numbers. There must be at least
-     * two elements, and may be more. The order of elements must follow x, y, z
-     * order (easting, northing, altitude for coordinates in a projected
-     * coordinate reference system, or longitude, latitude, altitude for
-     * coordinates in a geographic coordinate reference system). Any number of
-     * additional elements are allowed -- interpretation and meaning of
-     * additional elements is beyond the scope of this specification.
-     *
      * Syntax:
      *
      * { "type": "Point", "coordinates": [100.0, 0.0] }
      *
      * @param point
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonPoint(Point point, StringBuilder sb) {
-        Coordinate coord = point.getCoordinate();
-        sb.append("{\"type\":\"Point\",\"coordinates\":[");
-        sb.append(coord.x).append(",").append(coord.y);
-        if (!Double.isNaN(coord.z)) {
-            sb.append(",").append(coord.z);
-        }
-        sb.append("]}");
+        sb.append(toGeojson(point));
     }
 
     /**
-     * Coordinates of a MultiPoint are an array of positions.
-     *
      * Syntax:
      *
      * { "type": "MultiPoint", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
      *
      * @param multiPoint
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonMultiPoint(MultiPoint multiPoint, StringBuilder sb) {
-        sb.append("{\"type\":\"MultiPoint\",\"coordinates\":");
-        toGeojsonCoordinates(multiPoint.getCoordinates(), sb);
-        sb.append("}");
+        sb.append(toGeojson(multiPoint));
     }
 
     /**
-     * Coordinates of LineString are an array of positions.
-     *
      * Syntax:
      *
      * { "type": "LineString", "coordinates": [ [100.0, 0.0], [101.0, 1.0] ] }
      *
      * @param lineString
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonLineString(LineString lineString, StringBuilder sb) {
-        sb.append("{\"type\":\"LineString\",\"coordinates\":");
-        toGeojsonCoordinates(lineString.getCoordinates(), sb);
-        sb.append("}");
+        sb.append(toGeojson(lineString));
     }
 
     /**
-     * Coordinates of a MultiLineString are an array of LineString coordinate
-     * arrays.
-     *
      * Syntax:
      *
      * { "type": "MultiLineString", "coordinates": [ [ [100.0, 0.0], [101.0,
@@ -156,119 +167,56 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      *
      * @param multiLineString
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonMultiLineString(MultiLineString multiLineString, StringBuilder sb) {
-        sb.append("{\"type\":\"MultiLineString\",\"coordinates\":[");
-        for (int i = 0; i < multiLineString.getNumGeometries(); i++) {
-            toGeojsonCoordinates(multiLineString.getGeometryN(i).getCoordinates(), sb);
-            if (i < multiLineString.getNumGeometries() - 1) {
-                sb.append(",");
-            }
-        }
-        sb.append("]}");
+        sb.append(toGeojson(multiLineString));
     }
 
     /**
-     * Coordinates of a Polygon are an array of LinearRing coordinate arrays.
-     * The first element in the array represents the exterior ring. Any
-     * subsequent elements represent interior rings (or holes).
-     *
      * Syntax:
      *
-     * No holes:
-     *
      * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
      * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ] ] }
      *
-     * With holes:
-     *
-     * { "type": "Polygon", "coordinates": [ [ [100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0] ], [ [100.2, 0.2], [100.8, 0.2],
-     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2] ] ] }
-     *
-     *
      * @param polygon
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonPolygon(Polygon polygon, StringBuilder sb) {
-        sb.append("{\"type\":\"Polygon\",\"coordinates\":[");
-        //Process exterior ring
-        toGeojsonCoordinates(polygon.getExteriorRing().getCoordinates(), sb);
-        //Process interior rings
-        for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
-            sb.append(",");
-            toGeojsonCoordinates(polygon.getInteriorRingN(i).getCoordinates(), sb);
-        }
-        sb.append("]}");
+        sb.append(toGeojson(polygon));
     }
 
     /**
-     * Coordinates of a MultiPolygon are an array of Polygon coordinate arrays.
-     *
      * Syntax:
      *
      * { "type": "MultiPolygon", "coordinates": [ [[[102.0, 2.0], [103.0, 2.0],
-     * [103.0, 3.0], [102.0, 3.0], [102.0, 2.0]]], [[[100.0, 0.0], [101.0, 0.0],
-     * [101.0, 1.0], [100.0, 1.0], [100.0, 0.0]], [[100.2, 0.2], [100.8, 0.2],
-     * [100.8, 0.8], [100.2, 0.8], [100.2, 0.2]]] ] }
+     * [103.0, 3.0], [102.0, 3.0], [102.0, 2.0]]] ] }
      *
      * @param multiPolygon
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonMultiPolygon(MultiPolygon multiPolygon, StringBuilder sb) {
-        sb.append("{\"type\":\"MultiPolygon\",\"coordinates\":[");
-
-        for (int i = 0; i < multiPolygon.getNumGeometries(); i++) {
-            Polygon p = (Polygon) multiPolygon.getGeometryN(i);
-            sb.append("[");
-            //Process exterior ring
-            toGeojsonCoordinates(p.getExteriorRing().getCoordinates(), sb);
-            //Process interior rings
-            for (int j = 0; j < p.getNumInteriorRing(); j++) {
-                sb.append(",");
-                toGeojsonCoordinates(p.getInteriorRingN(j).getCoordinates(), sb);
-            }
-            sb.append("]");
-            if (i < multiPolygon.getNumGeometries() - 1) {
-                sb.append(",");
-            }
-        }
-        sb.append("]}");
+        sb.append(toGeojson(multiPolygon));
     }
 
     /**
-     * A GeoJSON object with type "GeometryCollection" is a geometry object
-     * which represents a collection of geometry objects.
-     *
-     * A geometry collection must have a member with the name "geometries". The
-     * value corresponding to "geometries"is an array. Each element in this
-     * array is a GeoJSON geometry object.
-     *
      * Syntax:
      *
      * { "type": "GeometryCollection", "geometries": [ { "type": "Point",
-     * "coordinates": [100.0, 0.0] }, { "type": "LineString", "coordinates": [
-     * [101.0, 0.0], [102.0, 1.0] ] } ] }
+     * "coordinates": [100.0, 0.0] } ] }
      *
      * @param geometryCollection
      * @param sb
+     * @deprecated Use {@link #toGeojson(Geometry)} or {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonGeometryCollection(GeometryCollection geometryCollection, StringBuilder sb) {
-        sb.append("{\"type\":\"GeometryCollection\",\"geometries\":[");
-        for (int i = 0; i < geometryCollection.getNumGeometries(); i++) {
-            Geometry geom = geometryCollection.getGeometryN(i);
-            if (geom instanceof Point) {
-                toGeojsonPoint((Point) geom, sb);
-            } else if (geom instanceof LineString) {
-                toGeojsonLineString((LineString) geom, sb);
-            } else if (geom instanceof Polygon) {
-                toGeojsonPolygon((Polygon) geom, sb);
-            }
-            if (i < geometryCollection.getNumGeometries() - 1) {
-                sb.append(",");
-            }
-        }
-        sb.append("]}");
+        sb.append(toGeojson(geometryCollection));
     }
 
     /**
@@ -281,7 +229,9 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
      *
      * @param coords
      * @param sb
+     * @deprecated Use {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonCoordinates(Coordinate[] coords, StringBuilder sb) {
         sb.append("[");
         for (int i = 0; i < coords.length; i++) {
@@ -296,15 +246,15 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
     /**
      * Convert a JTS coordinate to a GeoJSON representation.
      *
-     * Only x, y and z values are supported.
-     *
      * Syntax:
      *
      * [X,Y] or [X,Y,Z]
      *
      * @param coord
      * @param sb
+     * @deprecated Use {@link GeoJsonGeometryWriter}
      */
+    @Deprecated
     public static void toGeojsonCoordinate(Coordinate coord, StringBuilder sb) {
         sb.append("[");
         sb.append(coord.x).append(",").append(coord.y);
@@ -326,4 +276,27 @@ public class ST_AsGeoJSON extends DeterministicScalarFunction {
                 .append(e.getMinY()).append(",").append(e.getMaxX()).append(",")
                 .append(e.getMaxY()).append("]").toString();
     }
+
+    /**
+     * Generator and characters reused by the conversions of a thread
+     */
+    private static class GeoJsonBuffer {
+        private final CharArrayWriter writer = new CharArrayWriter(256);
+        private final JsonGenerator generator;
+        private final GeoJsonGeometryWriter geometryWriter = new GeoJsonGeometryWriter();
+
+        GeoJsonBuffer() throws IOException {
+            generator = JSON_FACTORY.createGenerator(writer);
+            // The geometries are consecutive root values, nothing is written between them
+            generator.setRootValueSeparator(null);
+        }
+
+        String toGeojson(Geometry geom, int maxDecimalDigits) throws IOException {
+            writer.reset();
+            geometryWriter.setPrecision(maxDecimalDigits);
+            geometryWriter.write(geom, generator);
+            generator.flush();
+            return writer.toString();
+        }
+    }
 }
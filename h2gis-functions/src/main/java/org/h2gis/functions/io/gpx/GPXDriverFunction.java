@@ -23,7 +23,9 @@ package org.h2gis.functions.io.gpx;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.ProgressVisitor;
 import org.h2gis.functions.io.gpx.model.GPXTablesFactory;
+import org.h2gis.functions.io.gpx.model.GpxFilesReader;
 import org.h2gis.functions.io.gpx.model.GpxParser;
+import org.h2gis.functions.io.utility.FileUtil;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 
@@ -31,6 +33,7 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * This class is used to read a GPX file
@@ -92,7 +95,7 @@ public class GPXDriverFunction implements DriverFunction {
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            String options) throws SQLException, IOException {
-        importFile(connection, tableReference, fileName, progress);
+        importFile(connection, tableReference, fileName, progress, options, false);
     }
 
     /**
@@ -108,14 +111,65 @@ public class GPXDriverFunction implements DriverFunction {
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            boolean deleteTables) throws SQLException, IOException {
+        importFile(connection, tableReference, fileName, progress, null, deleteTables);
+    }
+
+    /**
+     *
+     * @param connection Active connection, do not close this connection.
+     * @param tableReference prefix uses to store the GPX tables
+     * @param fileName File path to read, a directory or a pattern on the file names ie /data/*.gpx to import
+     *                 several files in the same tables
+     * @param progress
+     * @param options the import options ie "threads=4 compact=true", threads is the number of files parsed at the
+     *                same time, compact stores the tracks as measured lines without the track points table
+     * @param deleteTables true to delete the existing tables
+     * @throws SQLException Table write error
+     * @throws IOException File read error
+     */
+    public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
+                           String options, boolean deleteTables) throws SQLException, IOException {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        boolean compactTracks = false;
+        if (options != null && !options.trim().isEmpty()) {
+            for (String option : options.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator <= 0) {
+                    throw new SQLException("Invalid GPX import option " + option);
+                }
+                String key = option.substring(0, separator);
+                String value = option.substring(separator + 1);
+                if (key.equalsIgnoreCase("threads")) {
+                    try {
+                        threadCount = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        throw new SQLException("Invalid GPX import option " + option, ex);
+                    }
+                } else if (key.equalsIgnoreCase("compact")) {
+                    compactTracks = Boolean.parseBoolean(value);
+                } else {
+                    throw new SQLException("Unknown GPX import option " + key);
+                }
+            }
+        }
         boolean isH2 = JDBCUtilities.isH2DataBase(connection);
-        if (fileName.length() == 0) {
+        if (fileName.isDirectory() || FileUtil.isGlobPattern(fileName)) {
+            List<File> files = FileUtil.listFiles(fileName, "gpx");
+            if (deleteTables) {
+                GPXTablesFactory.dropOSMTables(connection, isH2, tableReference);
+            }
+            GpxFilesReader reader = new GpxFilesReader();
+            reader.setThreadCount(threadCount);
+            reader.setCompactTracks(compactTracks);
+            reader.read(files, tableReference, connection, progress);
+        } else if (fileName.length() == 0) {
             JDBCUtilities.createEmptyTable(connection, TableLocation.parse(tableReference, isH2).toString());
         } else {
             if (deleteTables) {
                 GPXTablesFactory.dropOSMTables(connection, isH2, tableReference);
             }
             GpxParser gpd = new GpxParser();
+            gpd.setCompactTracks(compactTracks);
             gpd.read(fileName, tableReference, connection);
         }
     }
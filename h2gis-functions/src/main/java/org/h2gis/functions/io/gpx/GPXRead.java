@@ -41,7 +41,12 @@ public class GPXRead extends AbstractFunction implements ScalarFunction {
     public GPXRead() {
         addProperty(PROP_REMARKS, "Read a GPX file and copy the content in the specified tables."
                 + "\nThe user can set a prefix name for all GPX tables and specify if the existing GPX\n"
-                + " tables must be dropped.");
+                + " tables must be dropped.\n"
+                + "A directory or a pattern on the file names ie '/data/tracks/*.gpx' imports several files in the\n"
+                + " same tables, with a file_name column.\n"
+                + "Import options can be set as a last argument ie 'threads=4 compact=true' to set the number of\n"
+                + " files parsed at the same time and to store the tracks as LINESTRING M, the measure being the\n"
+                + " time of the point in seconds since 1970, instead of one row per track point.");
     }
 
     @Override
@@ -51,22 +56,38 @@ public class GPXRead extends AbstractFunction implements ScalarFunction {
     
     
     /**
-     * Copy data from GPX File into a new table in specified connection.
+     * Copy data from GPX files into new tables in specified connection.
      *
      * @param connection Active connection
+     * @param fileName File path of the GPX file, a directory or a pattern on the file names ie /data/*.gpx
      * @param tableReference [[catalog.]schema.]table reference
-     * @param fileName File path of the SHP file
      * @param deleteTables  true to delete the existing tables
+     * @param options import options ie "threads=4 compact=true"
      * @throws java.io.IOException
      * @throws java.sql.SQLException
      */
-    public static void readGPX(Connection connection, String fileName, String tableReference, boolean deleteTables) throws IOException, SQLException {
+    public static void readGPX(Connection connection, String fileName, String tableReference, boolean deleteTables,
+                               String options) throws IOException, SQLException {
         File file = URIUtilities.fileFromString(fileName);
-        if (FileUtil.isFileImportable(file, "gpx")) {
+        if (file.isDirectory() || FileUtil.isGlobPattern(file) || FileUtil.isFileImportable(file, "gpx")) {
             GPXDriverFunction gpxdf = new GPXDriverFunction();
-            gpxdf.importFile(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(), deleteTables);
+            gpxdf.importFile(connection, tableReference, file, new EmptyProgressVisitor(), options, deleteTables);
         }
     }
+
+    /**
+     * Copy data from GPX File into a new table in specified connection.
+     *
+     * @param connection Active connection
+     * @param tableReference [[catalog.]schema.]table reference
+     * @param fileName File path of the SHP file
+     * @param deleteTables  true to delete the existing tables
+     * @throws java.io.IOException
+     * @throws java.sql.SQLException
+     */
+    public static void readGPX(Connection connection, String fileName, String tableReference, boolean deleteTables) throws IOException, SQLException {
+        readGPX(connection, fileName, tableReference, deleteTables, null);
+    }
     
 
     /**
@@ -25,7 +25,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
-import java.sql.PreparedStatement;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 
 /**
  * Abstract class of all Gpx-Parsers. It contains the more general attributes,
@@ -52,9 +52,11 @@ public abstract class AbstractGpxParser extends DefaultHandler {
     private StringStack elementNames;
     // Variable to know if we are in an element supposed to be parser by a specific parser
     private boolean specificElement;
-    //PreparedStatement to manage gpx tables
-    private PreparedStatement wptPreparedStmt, rtePreparedStmt, rteptPreparedStmt,
-            trkPreparedStmt, trkSegmentsPreparedStmt, trkPointsPreparedStmt;
+    //Sink receiving the rows of the gpx tables
+    private PipelinedWriter.RowSink rowSink;
+    //Index of each gpx table in the sink, -1 if the table is not imported
+    private int wptTarget = -1, rteTarget = -1, rteptTarget = -1,
+            trkTarget = -1, trkSegmentsTarget = -1, trkPointsTarget = -1;
 
     /**
      * Fires one or more times for each text node encountered. It saves text
@@ -181,105 +183,129 @@ public abstract class AbstractGpxParser extends DefaultHandler {
     }
 
     /**
-     * Get the PreparedStatement of the waypoints table.
+     * Gives the sink used to write the rows of the gpx tables.
      *
      * @return
      */
-    public PreparedStatement getWptPreparedStmt() {
-        return wptPreparedStmt;
+    public PipelinedWriter.RowSink getRowSink() {
+        return rowSink;
     }
 
     /**
-     * Set the PreparedStatement of the waypoints table.
+     * Set the sink used to write the rows of the gpx tables.
      *
-     * @param wptPreparedStmt
+     * @param rowSink
      */
-    public void setWptPreparedStmt(PreparedStatement wptPreparedStmt) {
-        this.wptPreparedStmt = wptPreparedStmt;
+    public void setRowSink(PipelinedWriter.RowSink rowSink) {
+        this.rowSink = rowSink;
     }
 
     /**
-     * Set the PreparedStatement of the route table.
+     * Gives the index of the waypoints table in the row sink.
      *
-     * @param rtePreparedStmt
+     * @return
+     */
+    public int getWptTarget() {
+        return wptTarget;
+    }
+
+    /**
+     * Set the index of the waypoints table in the row sink.
+     *
+     * @param wptTarget
      */
-    public void setRtePreparedStmt(PreparedStatement rtePreparedStmt) {
-        this.rtePreparedStmt = rtePreparedStmt;
+    public void setWptTarget(int wptTarget) {
+        this.wptTarget = wptTarget;
     }
 
     /**
-     * Gives the preparedstatement used to store route data
+     * Gives the index of the route table in the row sink.
      *
      * @return
      */
-    public PreparedStatement getRtePreparedStmt() {
-        return rtePreparedStmt;
+    public int getRteTarget() {
+        return rteTarget;
     }
 
     /**
-     * Set the PreparedStatement of the route points table.
+     * Set the index of the route table in the row sink.
      *
-     * @param rteptPreparedStmt
+     * @param rteTarget
      */
-    public void setRteptPreparedStmt(PreparedStatement rteptPreparedStmt) {
-        this.rteptPreparedStmt = rteptPreparedStmt;
+    public void setRteTarget(int rteTarget) {
+        this.rteTarget = rteTarget;
     }
 
     /**
-     * Gives the prepared statement used to store the route points.
+     * Gives the index of the route points table in the row sink.
      *
      * @return
      */
-    public PreparedStatement getRteptPreparedStmt() {
-        return rteptPreparedStmt;
+    public int getRteptTarget() {
+        return rteptTarget;
     }
 
     /**
-     * Gives the prepared statement used to store the track.
-     * @return 
+     * Set the index of the route points table in the row sink.
+     *
+     * @param rteptTarget
      */
-    public PreparedStatement getTrkPreparedStmt() {
-        return trkPreparedStmt;
+    public void setRteptTarget(int rteptTarget) {
+        this.rteptTarget = rteptTarget;
     }
 
     /**
-     * Gives the prepared statement used to store the track points.
-     * @return 
+     * Gives the index of the track table in the row sink.
+     *
+     * @return
      */
-    public PreparedStatement getTrkPointsPreparedStmt() {
-        return trkPointsPreparedStmt;
+    public int getTrkTarget() {
+        return trkTarget;
     }
 
     /**
-     * Gives the prepared statement used to store the track segments.
-     * @return 
+     * Set the index of the track table in the row sink.
+     *
+     * @param trkTarget
      */
-    public PreparedStatement getTrkSegmentsPreparedStmt() {
-        return trkSegmentsPreparedStmt;
+    public void setTrkTarget(int trkTarget) {
+        this.trkTarget = trkTarget;
     }
 
     /**
-     * Set the prepared statement used to store the track.
-     * @param trkPreparedStmt 
+     * Gives the index of the track segments table in the row sink.
+     *
+     * @return
      */
-    public void setTrkPreparedStmt(PreparedStatement trkPreparedStmt) {
-        this.trkPreparedStmt = trkPreparedStmt;
+    public int getTrkSegmentsTarget() {
+        return trkSegmentsTarget;
     }
 
     /**
-     * Set the prepared statement used to store the track segments.
-     * @param trkSegmentsPreparedStmt 
+     * Set the index of the track segments table in the row sink.
+     *
+     * @param trkSegmentsTarget
      */
-    public void setTrkSegmentsPreparedStmt(PreparedStatement trkSegmentsPreparedStmt) {
-        this.trkSegmentsPreparedStmt = trkSegmentsPreparedStmt;
+    public void setTrkSegmentsTarget(int trkSegmentsTarget) {
+        this.trkSegmentsTarget = trkSegmentsTarget;
     }
 
     /**
-     * Set the prepared statement used to store the track points.
-     * @param trkPointsPreparedStmt 
+     * Gives the index of the track points table in the row sink.
+     *
+     * @return
+     */
+    public int getTrkPointsTarget() {
+        return trkPointsTarget;
+    }
+
+    /**
+     * Set the index of the track points table in the row sink.
+     *
+     * @param trkPointsTarget
      */
-    public void setTrkPointsPreparedStmt(PreparedStatement trkPointsPreparedStmt) {
-        this.trkPointsPreparedStmt = trkPointsPreparedStmt;
+    public void setTrkPointsTarget(int trkPointsTarget) {
+        this.trkPointsTarget = trkPointsTarget;
     }
 
     /**
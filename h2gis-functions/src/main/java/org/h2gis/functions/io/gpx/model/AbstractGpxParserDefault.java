@@ -20,6 +20,7 @@
 
 package org.h2gis.functions.io.gpx.model;
 
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.TableUtilities;
@@ -74,6 +75,8 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
     private String keywords;
     // The max size of the StringStack
     public static final int STRINGSTACK_SIZE = 50;
+    // Store the tracks as measured lines instead of track points
+    private boolean compactTracks = false;
 
     /**
      * Initialisation of all the indicators used to read the document.
@@ -139,6 +142,7 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
         }
         
         StringBuilder tableNames = new StringBuilder();
+        PipelinedWriter writer = new PipelinedWriter(connection);
         
         // We create the tables to store all gpx data in the database        
         if (gpxPreparser.getTotalWpt() > 0) {
@@ -146,7 +150,8 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
             if (JDBCUtilities.tableExists(connection, TableLocation.parse(wptTableName,isH2))) {
                 throw new SQLException("The table " + wptTableName + " already exists.");
             }
-            setWptPreparedStmt(GPXTablesFactory.createWayPointsTable(connection, wptTableName, isH2));
+            GPXTablesFactory.createWayPointsTable(connection, wptTableName, isH2).close();
+            setWptTarget(writer.addTable(wptTableName, 0));
             tableNames.append(wptTableName).append(",");
         }
         if (gpxPreparser.getTotalRte() > 0 && gpxPreparser.getTotalRtept() > 0) {
@@ -158,8 +163,10 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
             if (JDBCUtilities.tableExists(connection, TableLocation.parse(routePointsTableName, isH2))) {
                 throw new SQLException("The table " + routePointsTableName + " already exists.");
             }
-            setRtePreparedStmt(GPXTablesFactory.createRouteTable(connection, routeTableName, isH2));           
-            setRteptPreparedStmt(GPXTablesFactory.createRoutePointsTable(connection, routePointsTableName, isH2));
+            GPXTablesFactory.createRouteTable(connection, routeTableName, isH2).close();
+            GPXTablesFactory.createRoutePointsTable(connection, routePointsTableName, isH2).close();
+            setRteTarget(writer.addTable(routeTableName, 0));
+            setRteptTarget(writer.addTable(routePointsTableName, 0));
             tableNames.append(routeTableName).append(",").append(routePointsTableName).append(",");
         }
         
@@ -176,44 +183,72 @@ public abstract class AbstractGpxParserDefault extends AbstractGpxParser {
             }
 
             String trackPointsTableName = TableUtilities.caseIdentifier(requestedTable, table + GPXTablesFactory.TRACKPOINT, isH2);
-            if (JDBCUtilities.tableExists(connection, TableLocation.parse(trackPointsTableName,isH2))) {
+            if (!compactTracks && JDBCUtilities.tableExists(connection, TableLocation.parse(trackPointsTableName,isH2))) {
                 throw new SQLException("The table " + trackPointsTableName + " already exists.");
             }
-            setTrkPreparedStmt(GPXTablesFactory.createTrackTable(connection, trackTableName, isH2));
-            setTrkSegmentsPreparedStmt(GPXTablesFactory.createTrackSegmentsTable(connection, trackSegmentsTableName, isH2));
-            setTrkPointsPreparedStmt(GPXTablesFactory.createTrackPointsTable(connection, trackPointsTableName, isH2));
-            tableNames.append(trackTableName).append(",").append(trackSegmentsTableName).append(",").append(trackPointsTableName).append(",");
+            GPXTablesFactory.createTrackTable(connection, trackTableName, isH2, compactTracks).close();
+            GPXTablesFactory.createTrackSegmentsTable(connection, trackSegmentsTableName, isH2, compactTracks).close();
+            setTrkTarget(writer.addTable(trackTableName, 0));
+            setTrkSegmentsTarget(writer.addTable(trackSegmentsTableName, 0));
+            tableNames.append(trackTableName).append(",").append(trackSegmentsTableName).append(",");
+            if (!compactTracks) {
+                GPXTablesFactory.createTrackPointsTable(connection, trackPointsTableName, isH2).close();
+                setTrkPointsTarget(writer.addTable(trackPointsTableName, 0));
+                tableNames.append(trackPointsTableName).append(",");
+            }
         }
         
         // Initialisation of the contentHandler by default
+        // The SAX parsing runs in the producer thread of the writer, the rows
+        // are written by the current thread
         try {
+            writer.run(rows -> parse(inputFile, rows));
+        } catch (IOException ex) {
+            throw new SQLException("Cannot parse the file " + inputFile.getAbsolutePath(), ex);
+        }
+        success = true;
+
+        return success;
+    }
+
+    /**
+     * Parse the document and send its rows to the targets set on this parser.
+     *
+     * @param inputFile a File representing the gpx file to read
+     * @param rows Receive the rows of the document
+     * @throws SQLException if a row cannot be written or the document is not valid
+     * @throws IOException if the file cannot be read
+     */
+    public void parse(File inputFile, PipelinedWriter.RowSink rows) throws SQLException, IOException {
+        clear();
+        setRowSink(rows);
+        try (FileInputStream fis = new FileInputStream(inputFile)) {
             setReader(XMLReaderFactory.createXMLReader());
             getReader().setErrorHandler(this);
             getReader().setContentHandler(this);
-            getReader().parse(new InputSource(new FileInputStream(inputFile)));
-            success = true;
+            getReader().parse(new InputSource(fis));
         } catch (SAXException ex) {
             throw new SQLException(ex);
-        } catch (IOException ex) {
-            throw new SQLException("Cannot parse the file " + inputFile.getAbsolutePath(), ex);
-        } finally {
-            // When the reading ends, close() method has to be called
-            if (getWptPreparedStmt() != null) {
-                getWptPreparedStmt().close();
-            }
-            if (getRteptPreparedStmt() != null) {
-                getRtePreparedStmt().close();
-                getRteptPreparedStmt().close();
-            }
-            if (getTrkPointsPreparedStmt() != null) {
-                getTrkPreparedStmt().close();
-                getTrkSegmentsPreparedStmt().close();
-                getTrkPointsPreparedStmt().close();
-            }
         }
+    }
 
-        return success;
-    }    
+    /**
+     * @return true if the tracks are stored as measured lines, without the track points table
+     */
+    public boolean isCompactTracks() {
+        return compactTracks;
+    }
+
+    /**
+     * Store the tracks and the track segments as measured lines (MULTILINESTRING M and LINESTRING M), the measure
+     * of a vertex being the time of the track point in seconds since 1970-01-01T00:00:00Z, NaN if the point has no
+     * time. The track points table is not created.
+     *
+     * @param compactTracks true to store the tracks as measured lines
+     */
+    public void setCompactTracks(boolean compactTracks) {
+        this.compactTracks = compactTracks;
+    }
 
     /**
      * Fires whenever an XML start markup is encountered. It takes general
@@ -27,7 +27,6 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
@@ -59,8 +58,9 @@ public abstract class AbstractGpxParserRte extends AbstractGpxParser {
         setReader(reader);
         setParent(parent);
         setContentBuffer(parent.getContentBuffer());
-        setRtePreparedStmt(parent.getRtePreparedStmt());
-        setRteptPreparedStmt(parent.getRteptPreparedStmt());
+        setRowSink(parent.getRowSink());
+        setRteTarget(parent.getRteTarget());
+        setRteptTarget(parent.getRteptTarget());
         setElementNames(parent.getElementNames());
         setCurrentLine(parent.getCurrentLine());
         setRteList(new ArrayList<Coordinate>());
@@ -132,14 +132,7 @@ public abstract class AbstractGpxParserRte extends AbstractGpxParser {
             }
             // if </rte> markup is found, the currentLine is added in the table rtedbd and the default contentHandler is setted.
             try {
-                PreparedStatement pStm = getRtePreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentLine().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                getRowSink().write(getRteTarget(), getCurrentLine().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the route line ", ex);
             }
@@ -149,14 +142,7 @@ public abstract class AbstractGpxParserRte extends AbstractGpxParser {
             // if </rtept> markup is found, the currentPoint is added in the table rteptdbd.
             point = false;
             try {
-                PreparedStatement pStm = getRteptPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentPoint().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                getRowSink().write(getRteptTarget(), getCurrentPoint().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the route points ", ex);
             }
@@ -24,13 +24,21 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LineString;
 import org.locationtech.jts.geom.MultiLineString;
 import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.impl.PackedCoordinateSequence;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -55,6 +63,10 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
     private int trksegID = 1;
     //The track point id
     private int trkptID = 1;
+    // True to store the track as measured lines instead of track points
+    private boolean compactTracks;
+    // Time of the points of the track segment, used as measure of the compact tracks
+    private double[] trksegTimes = new double[64];
 
     /**
      * Create a new specific parser. It has in memory the default parser, the
@@ -67,9 +79,11 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
         setReader(reader);
         setParent(parent);
         setContentBuffer(parent.getContentBuffer());
-        setTrkPreparedStmt(parent.getTrkPreparedStmt());
-        setTrkSegmentsPreparedStmt(parent.getTrkSegmentsPreparedStmt());
-        setTrkPointsPreparedStmt(parent.getTrkPointsPreparedStmt());
+        setRowSink(parent.getRowSink());
+        setTrkTarget(parent.getTrkTarget());
+        setTrkSegmentsTarget(parent.getTrkSegmentsTarget());
+        setTrkPointsTarget(parent.getTrkPointsTarget());
+        compactTracks = parent.isCompactTracks();
         setElementNames(parent.getElementNames());
         setCurrentLine(parent.getCurrentLine());
         setTrksegList(new ArrayList<Coordinate>());
@@ -144,38 +158,24 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
             getCurrentLine().setGeometry(geometry);
             // if </trk> markup is found, the currentLine is added in the table rtedbd and the default contentHandler is setted.
             try {
-                PreparedStatement pStm = getTrkPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentLine().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                getRowSink().write(getTrkTarget(), getCurrentLine().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the track line ", ex);
             }
             getReader().setContentHandler(parent);
 
         } else if (getCurrentElement().compareToIgnoreCase("trkseg") == 0) {
-            Coordinate[] trksegArray = trksegList.toArray(new Coordinate[0]);
             // If there are more than one trackpoint, we can set a geometry to the track segment
             if (trksegList.size() > 1) {
-                LineString geometry = getGeometryFactory().createLineString(trksegArray);
+                LineString geometry = compactTracks ? createMeasuredLine()
+                        : getGeometryFactory().createLineString(trksegList.toArray(new Coordinate[0]));
                 geometry.setSRID(4326);
                 getCurrentSegment().setGeometry(geometry);
                 trkList.add(geometry);
             }
             // if </trkseg> markup is found, the currentSegment is added in the table trksegdbd.
             try {
-                PreparedStatement pStm = getTrkSegmentsPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentSegment().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                getRowSink().write(getTrkSegmentsTarget(), getCurrentSegment().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the track segment ", ex);
             }
@@ -183,17 +183,18 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
         } else if (getCurrentElement().equalsIgnoreCase(GPXTags.TRKPT)) {
             // if </trkpt> markup is found, the currentPoint is added in the table trkptdbd.
             point = false;
-            try {
-                PreparedStatement pStm = getTrkPointsPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentPoint().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
+            if (compactTracks) {
+                int index = trksegList.size() - 1;
+                if (index >= trksegTimes.length) {
+                    trksegTimes = Arrays.copyOf(trksegTimes, trksegTimes.length * 2);
+                }
+                trksegTimes[index] = toEpochSeconds(getCurrentPoint().getValues()[GpxMetadata.PTTIME]);
+            } else {
+                try {
+                    getRowSink().write(getTrkPointsTarget(), getCurrentPoint().getValues());
+                } catch (SQLException ex) {
+                    throw new SAXException("Cannot import the track waypoints.", ex);
                 }
-                pStm.execute();
-            } catch (SQLException ex) {
-                throw new SAXException("Cannot import the track waypoints.", ex);
             }
         } else if (point) {
             getCurrentPoint().setAttribute(getCurrentElement(), getContentBuffer());
@@ -204,6 +205,44 @@ public abstract class AbstractGpxParserTrk extends AbstractGpxParser {
         }
     }
 
+    /**
+     * Create the LINESTRING M of the track segment, the measure of a vertex is the time of the track point
+     *
+     * @return the measured line
+     */
+    private LineString createMeasuredLine() {
+        double[] ordinates = new double[trksegList.size() * 3];
+        for (int i = 0; i < trksegList.size(); i++) {
+            Coordinate coordinate = trksegList.get(i);
+            ordinates[i * 3] = coordinate.x;
+            ordinates[i * 3 + 1] = coordinate.y;
+            ordinates[i * 3 + 2] = trksegTimes[i];
+        }
+        return getGeometryFactory().createLineString(new PackedCoordinateSequence.Double(ordinates, 3, 1));
+    }
+
+    /**
+     * Convert a GPX time, ie 2001-06-24T15:09:09Z, to a number of seconds since 1970-01-01T00:00:00Z. A time
+     * without offset is in UTC.
+     *
+     * @param time the time read in the document
+     * @return the number of seconds or NaN if the time is missing or cannot be parsed
+     */
+    static double toEpochSeconds(Object time) {
+        if (time == null) {
+            return Double.NaN;
+        }
+        try {
+            TemporalAccessor dateTime = DateTimeFormatter.ISO_DATE_TIME.parseBest(time.toString().trim(),
+                    OffsetDateTime::from, LocalDateTime::from);
+            Instant instant = dateTime instanceof OffsetDateTime ? ((OffsetDateTime) dateTime).toInstant()
+                    : ((LocalDateTime) dateTime).toInstant(ZoneOffset.UTC);
+            return instant.getEpochSecond() + instant.getNano() / 1e9;
+        } catch (DateTimeParseException ex) {
+            return Double.NaN;
+        }
+    }
+
     /**
      * *****************************
      ***** GETTERS AND SETTERS ***** *****************************
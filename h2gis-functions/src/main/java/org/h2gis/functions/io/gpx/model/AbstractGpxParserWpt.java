@@ -24,7 +24,6 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 /**
@@ -49,7 +48,8 @@ public class AbstractGpxParserWpt extends AbstractGpxParser {
         setReader(reader);
         setParent(parent);
         setContentBuffer(parent.getContentBuffer());
-        setWptPreparedStmt(parent.getWptPreparedStmt());
+        setRowSink(parent.getRowSink());
+        setWptTarget(parent.getWptTarget());
         setElementNames(parent.getElementNames());
         setCurrentPoint(parent.getCurrentPoint());
     }
@@ -91,14 +91,7 @@ public class AbstractGpxParserWpt extends AbstractGpxParser {
         if (getCurrentElement().equalsIgnoreCase(GPXTags.WPT)) {
             //if </wpt> markup is found, the currentPoint is added in the table wptdbd and the default contentHandler is setted.
             try {
-                PreparedStatement pStm = getWptPreparedStmt();
-                int i = 1;
-                Object[] values = getCurrentPoint().getValues();
-                for (Object object : values) {
-                    pStm.setObject(i, object);
-                    i++;
-                }
-                pStm.execute();
+                getRowSink().write(getWptTarget(), getCurrentPoint().getValues());
             } catch (SQLException ex) {
                 throw new SAXException("Cannot import the waypoint.", ex);
             }
@@ -190,13 +190,28 @@ public class GPXTablesFactory {
      * @throws SQLException
      */
     public static PreparedStatement createTrackTable(Connection connection, String trackTableName,boolean isH2) throws SQLException {
+        return createTrackTable(connection, trackTableName, isH2, false);
+    }
+
+    /**
+     * Create the track table
+     *
+     * @param connection
+     * @param trackTableName
+     * @param isH2 set true if it's an H2 database
+     * @param measured true to store MULTILINESTRING M geometries, the measure being the time of the track points
+     * @return
+     * @throws SQLException
+     */
+    public static PreparedStatement createTrackTable(Connection connection, String trackTableName, boolean isH2, boolean measured) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             StringBuilder sb = new StringBuilder("CREATE TABLE ");
             sb.append(trackTableName).append(" (");
             if (isH2) {
-                sb.append("the_geom GEOMETRY(MULTILINESTRING) CHECK ST_SRID(THE_GEOM) = 4326,");
+                sb.append("the_geom GEOMETRY(MULTILINESTRING").append(measured ? " M" : "")
+                        .append(") CHECK ST_SRID(THE_GEOM) = 4326,");
             } else {
-                sb.append("the_geom GEOMETRY(MULTILINESTRING, 4326),");
+                sb.append("the_geom GEOMETRY(MULTILINESTRING").append(measured ? "M" : "").append(", 4326),");
             }
             sb.append(" id INT,");
             sb.append(GPXTags.NAME.toLowerCase()).append(" TEXT,");
@@ -230,10 +245,29 @@ public class GPXTablesFactory {
      * @throws SQLException
      */
     public static PreparedStatement createTrackSegmentsTable(Connection connection, String trackSegementsTableName,boolean isH2) throws SQLException {
+        return createTrackSegmentsTable(connection, trackSegementsTableName, isH2, false);
+    }
+
+    /**
+     * Create the track segments table to store the segments of a track
+     *
+     * @param connection
+     * @param trackSegementsTableName
+     * @param isH2 set true if it's an H2 database
+     * @param measured true to store LINESTRING M geometries, the measure being the time of the track points
+     * @return
+     * @throws SQLException
+     */
+    public static PreparedStatement createTrackSegmentsTable(Connection connection, String trackSegementsTableName, boolean isH2,
+                                                             boolean measured) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             StringBuilder sb = new StringBuilder("CREATE TABLE ");
             sb.append(trackSegementsTableName).append(" (");
-            sb.append("the_geom GEOMETRY(LINESTRING, 4326),");
+            if (measured) {
+                sb.append(isH2 ? "the_geom GEOMETRY(LINESTRING M, 4326)," : "the_geom GEOMETRY(LINESTRINGM, 4326),");
+            } else {
+                sb.append("the_geom GEOMETRY(LINESTRING, 4326),");
+            }
             sb.append(" id INT,");
             sb.append(GPXTags.EXTENSIONS).append(" TEXT,");
             sb.append("id_track INT);");
@@ -299,6 +333,19 @@ public class GPXTablesFactory {
     }
     
     
+    /**
+     * Add the file_name column, filled when several GPX files are imported in the same tables
+     *
+     * @param connection
+     * @param tableName
+     * @throws SQLException
+     */
+    public static void addFileNameColumn(Connection connection, String tableName) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + tableName + " ADD COLUMN file_name TEXT");
+        }
+    }
+
     /**
      * Drop the existing GPX tables used to store the imported OSM GPX 
      *
@@ -0,0 +1,177 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.gpx.model;
+
+import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.utility.PipelinedWriter;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Import several GPX files into the same tables.
+ *
+ * The files are parsed by a pool of threads, each file by its own {@link GpxParser}, and all the rows are inserted
+ * by the thread of the connection through a single {@link PipelinedWriter}. All the GPX tables are created, with a
+ * file_name column holding the name of the imported file. The identifiers are numbered per file, a row is identified
+ * by its file_name and id.
+ *
+ * @author Erwan Bocher
+ * @author Nicolas Fortin
+ */
+public class GpxFilesReader {
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private boolean compactTracks = false;
+
+    /**
+     * @param threadCount Number of files parsed at the same time
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @param compactTracks true to store the tracks as measured lines, see
+     * {@link AbstractGpxParserDefault#setCompactTracks(boolean)}
+     */
+    public void setCompactTracks(boolean compactTracks) {
+        this.compactTracks = compactTracks;
+    }
+
+    /**
+     * Read the files and insert their content in the tables prefixed by the table name.
+     *
+     * @param files GPX files
+     * @param tableName the table used to create all tables
+     * @param connection the connection to the database
+     * @param progress Progression, one step per file
+     * @throws SQLException if a table exists already, or if a file cannot be read or written
+     */
+    public void read(List<File> files, String tableName, Connection connection, ProgressVisitor progress)
+            throws SQLException {
+        final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
+        TableLocation requestedTable = TableLocation.parse(tableName, isH2);
+        String table = requestedTable.getTable();
+        List<String> suffixes = new ArrayList<>(Arrays.asList(GPXTablesFactory.WAYPOINT, GPXTablesFactory.ROUTE,
+                GPXTablesFactory.ROUTEPOINT, GPXTablesFactory.TRACK, GPXTablesFactory.TRACKSEGMENT));
+        if (!compactTracks) {
+            suffixes.add(GPXTablesFactory.TRACKPOINT);
+        }
+        String[] tableNames = new String[suffixes.size()];
+        for (int i = 0; i < tableNames.length; i++) {
+            tableNames[i] = TableUtilities.caseIdentifier(requestedTable, table + suffixes.get(i), isH2);
+            if (JDBCUtilities.tableExists(connection, TableLocation.parse(tableNames[i], isH2))) {
+                throw new SQLException("The table " + tableNames[i] + " already exists.");
+            }
+        }
+        GPXTablesFactory.createWayPointsTable(connection, tableNames[0], isH2).close();
+        GPXTablesFactory.createRouteTable(connection, tableNames[1], isH2).close();
+        GPXTablesFactory.createRoutePointsTable(connection, tableNames[2], isH2).close();
+        GPXTablesFactory.createTrackTable(connection, tableNames[3], isH2, compactTracks).close();
+        GPXTablesFactory.createTrackSegmentsTable(connection, tableNames[4], isH2, compactTracks).close();
+        if (!compactTracks) {
+            GPXTablesFactory.createTrackPointsTable(connection, tableNames[5], isH2).close();
+        }
+        PipelinedWriter writer = new PipelinedWriter(connection);
+        int[] targets = new int[]{-1, -1, -1, -1, -1, -1};
+        for (int i = 0; i < tableNames.length; i++) {
+            GPXTablesFactory.addFileNameColumn(connection, tableNames[i]);
+            targets[i] = writer.addTable(tableNames[i], 0);
+        }
+        ProgressVisitor fileProgress = progress.subProcess(files.size());
+        try {
+            writer.run(rows -> parseFiles(files, rows, targets, fileProgress));
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Parse the files in a pool of threads, the rows are sent to the sink one at a time.
+     *
+     * @param files GPX files
+     * @param rows Rows of all the files
+     * @param targets Targets of the waypoints, routes, route points, tracks, track segments and track points
+     * @param progress Progression, one step per file
+     * @throws SQLException if a file cannot be parsed or written
+     */
+    private void parseFiles(List<File> files, PipelinedWriter.RowSink rows, int[] targets, ProgressVisitor progress)
+            throws SQLException {
+        Object lock = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "H2GIS GPX parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> tasks = new ArrayList<>(files.size());
+            for (File file : files) {
+                String fileName = file.getName();
+                tasks.add(pool.submit(() -> {
+                    GpxParser parser = new GpxParser();
+                    parser.setCompactTracks(compactTracks);
+                    parser.setWptTarget(targets[0]);
+                    parser.setRteTarget(targets[1]);
+                    parser.setRteptTarget(targets[2]);
+                    parser.setTrkTarget(targets[3]);
+                    parser.setTrkSegmentsTarget(targets[4]);
+                    parser.setTrkPointsTarget(targets[5]);
+                    // The file name is appended to the rows, the sink is shared by the parsing threads
+                    parser.parse(file, (target, values) -> {
+                        Object[] row = Arrays.copyOf(values, values.length + 1);
+                        row[values.length] = fileName;
+                        synchronized (lock) {
+                            rows.write(target, row);
+                        }
+                    });
+                    synchronized (lock) {
+                        progress.endStep();
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    tasks.get(i).get();
+                } catch (ExecutionException ex) {
+                    throw new SQLException("Cannot parse the file " + files.get(i).getAbsolutePath(), ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException(ex);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -36,7 +36,7 @@ import java.sql.SQLException;
 public class JsonWrite extends AbstractFunction implements ScalarFunction{
 
     public JsonWrite(){
-         addProperty(PROP_REMARKS, "Export a table to a JSON file.\n As optional argument an encoding value is supported.");
+         addProperty(PROP_REMARKS, "Export a table to a JSON file, .json.gz files are compressed.\n As optional argument an encoding value is supported.");
     }
     
     @Override
@@ -72,7 +72,7 @@ public class JsonWriteDriver {
      * @throws java.io.IOException
      */
     public void write(ProgressVisitor progress, ResultSet rs, File fileName, String encoding) throws SQLException, IOException {
-        if (FileUtil.isExtensionWellFormated(fileName, "json")) {
+        if (FileUtil.isExtensionWellFormated(fileName, "json", true)) {
             JsonEncoding jsonEncoding = JsonEncoding.UTF8;
             if (encoding != null) {
                 try {
@@ -81,9 +81,9 @@ public class JsonWriteDriver {
                     throw new SQLException("Only UTF-8, UTF-16BE, UTF-16LE, UTF-32BE, UTF-32LE encoding is supported");
                 }
             }
-            FileOutputStream fos = null;
+            OutputStream fos = null;
             try {
-            fos = new FileOutputStream(fileName);
+            fos = FileUtil.openOutputStream(fileName);
             int rowCount = 0;
                 int type = rs.getType();
                 if (type == ResultSet.TYPE_SCROLL_INSENSITIVE || type == ResultSet.TYPE_SCROLL_SENSITIVE) {
@@ -234,7 +234,7 @@ public class JsonWriteDriver {
                 }
             }
         } else {
-            throw new SQLException("Only .json extension is supported");
+            throw new SQLException("Only .json and .json.gz extensions are supported");
         }
     }    
     
@@ -260,8 +260,8 @@ public class JsonWriteDriver {
                 throw new SQLException("The select query must be enclosed in parenthesis: '(SELECT * FROM ORDERS)'.");
             }        
         } else {
-        if (FileUtil.isExtensionWellFormated(fileName, "json")) {
-        FileOutputStream fos = null;
+        if (FileUtil.isExtensionWellFormated(fileName, "json", true)) {
+        OutputStream fos = null;
         try {
             JsonEncoding jsonEncoding = JsonEncoding.UTF8;
             if (encoding != null) {
@@ -271,7 +271,7 @@ public class JsonWriteDriver {
                     throw new SQLException("Only UTF-8, UTF-16BE, UTF-16LE, UTF-32BE, UTF-32LE encoding is supported");
                 }
             }
-            fos = new FileOutputStream(fileName);
+            fos = FileUtil.openOutputStream(fileName);
             int recordCount = JDBCUtilities.getRowCount(connection, tableName);
             if (recordCount > 0) {
                 try ( // Read table content
@@ -418,7 +418,7 @@ public class JsonWriteDriver {
                 }
             }
         } else {
-            throw new SQLException("Only .json extension is supported");
+            throw new SQLException("Only .json and .json.gz extensions are supported");
         }
     }
     }   
@@ -76,6 +76,42 @@ public class KMLDriverFunction implements DriverFunction {
         kMLWriter.write(progress, tableReference, fileName, encoding);
     }
 
+    /**
+     * Export a table or a select query to a KML or KMZ file.
+     *
+     * @param connection Active connection, do not close this connection.
+     * @param tableReference Table name or select query enclosed in parenthesis
+     * @param fileName File path to write
+     * @param progress to display the IO progress
+     * @param encoding File encoding, null for UTF-8
+     * @param options export options ie "threads=4", threads is the number of threads encoding the placemarks
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
+            String encoding, String options) throws SQLException, IOException {
+        KMLWriterDriver kMLWriter = new KMLWriterDriver(connection);
+        if (options != null && !options.trim().isEmpty()) {
+            for (String option : options.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator <= 0) {
+                    throw new SQLException("Invalid KML export option " + option);
+                }
+                String key = option.substring(0, separator);
+                if (key.equalsIgnoreCase("threads")) {
+                    try {
+                        kMLWriter.setThreadCount(Integer.parseInt(option.substring(separator + 1)));
+                    } catch (NumberFormatException ex) {
+                        throw new SQLException("Invalid KML export option " + option, ex);
+                    }
+                } else {
+                    throw new SQLException("Unknown KML export option " + key);
+                }
+            }
+        }
+        kMLWriter.write(progress, tableReference, fileName, encoding);
+    }
+
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress)
             throws SQLException, IOException {
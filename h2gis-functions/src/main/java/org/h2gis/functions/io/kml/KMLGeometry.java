@@ -141,7 +141,7 @@ public class KMLGeometry {
         sb.append("<LineString>");
         appendExtrude(extrude, sb);
         appendAltitudeMode(altitudeModeEnum, sb);
-        appendKMLCoordinates(lineString.getCoordinates(), sb);
+        appendKMLCoordinates(lineString.getCoordinateSequence(), sb);
         sb.append("</LineString>");
     }
 
@@ -177,7 +177,7 @@ public class KMLGeometry {
         sb.append("<LinearRing>");
         appendExtrude(extrude, sb);
         appendAltitudeMode(altitudeModeEnum, sb);
-        appendKMLCoordinates(lineString.getCoordinates(), sb);
+        appendKMLCoordinates(lineString.getCoordinateSequence(), sb);
         sb.append("</LinearRing>");
     }
 
@@ -294,6 +294,33 @@ public class KMLGeometry {
         sb.append("</coordinates>");
     }
 
+    /**
+     * Build a string represention to kml coordinates, the ordinates are read from the sequence without copying the
+     * coordinates
+     *
+     * Syntax :
+     *
+     * <coordinates>...</coordinates> <!-- lon,lat[,alt] tuples -->
+     *
+     * @param seq
+     * @param sb
+     */
+    public static void appendKMLCoordinates(CoordinateSequence seq, StringBuilder sb) {
+        sb.append("<coordinates>");
+        int size = seq.size();
+        for (int i = 0; i < size; i++) {
+            sb.append(seq.getX(i)).append(',').append(seq.getY(i));
+            double z = seq.getZ(i);
+            if (!Double.isNaN(z)) {
+                sb.append(',').append(z);
+            }
+            if (i < size - 1) {
+                sb.append(' ');
+            }
+        }
+        sb.append("</coordinates>");
+    }
+
     /**
      * Append the extrude value
      *
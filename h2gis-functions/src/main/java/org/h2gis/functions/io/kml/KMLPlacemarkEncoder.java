@@ -0,0 +1,181 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.kml;
+
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Encode KML placemarks into bytes.
+ *
+ * The placemarks are appended to a reused character buffer, the geometries by {@link KMLGeometry}, then encoded in
+ * a reused byte buffer when they are written. Placemarks can be encoded by several encoders in distinct threads and
+ * their bytes concatenated in the document.
+ *
+ * An encoder is not thread safe.
+ *
+ * @author Erwan Bocher
+ * @author Nicolas Fortin
+ */
+public class KMLPlacemarkEncoder {
+    private final String schemaUrl;
+    private final String[] fieldNames;
+    private final CharsetEncoder encoder;
+    private final StringBuilder sb = new StringBuilder(8192);
+    private char[] chars = new char[0];
+    private ByteBuffer bytes = ByteBuffer.allocate(0);
+
+    /**
+     * @param schemaName Name of the schema of the extended data, null to not write the extended data
+     * @param fieldNames Names of the fields of the extended data
+     * @param charset Encoding of the document
+     */
+    public KMLPlacemarkEncoder(String schemaName, String[] fieldNames, Charset charset) {
+        this.schemaUrl = schemaName == null ? null : escape("#" + schemaName);
+        this.fieldNames = new String[fieldNames.length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            this.fieldNames[i] = escape(fieldNames[i]);
+        }
+        // The byte order mark is written once, at the start of the document
+        if (charset.equals(StandardCharsets.UTF_16)) {
+            charset = StandardCharsets.UTF_16BE;
+        }
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Append a placemark
+     *
+     * @param geometry Geometry of the placemark, may be null
+     * @param values Values of the fields of the extended data, the null values are not written
+     * @throws SQLException If the geometry type is not supported
+     */
+    public void encode(Geometry geometry, String[] values) throws SQLException {
+        sb.append("<Placemark>");
+        if (schemaUrl != null) {
+            sb.append("<ExtendedData><SchemaData schemaUrl=\"").append(schemaUrl).append("\">");
+            for (int i = 0; i < fieldNames.length; i++) {
+                if (values[i] != null) {
+                    sb.append("<SimpleData name=\"").append(fieldNames[i]).append("\">");
+                    appendEscaped(values[i]);
+                    sb.append("</SimpleData>");
+                }
+            }
+            sb.append("</SchemaData></ExtendedData>");
+        }
+        if (geometry != null) {
+            KMLGeometry.toKMLGeometry(geometry, ExtrudeMode.NONE, AltitudeMode.NONE, sb);
+        }
+        sb.append("</Placemark>");
+    }
+
+    /**
+     * @return Number of characters of the placemarks not written yet
+     */
+    public int length() {
+        return sb.length();
+    }
+
+    /**
+     * Write the placemarks appended since the last write
+     *
+     * @param out Document stream
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        encodeBytes();
+        out.write(bytes.array(), 0, bytes.position());
+    }
+
+    /**
+     * @return The bytes of the placemarks appended since the last write
+     */
+    public byte[] toByteArray() {
+        encodeBytes();
+        return Arrays.copyOf(bytes.array(), bytes.position());
+    }
+
+    /**
+     * Encode the characters into the byte buffer then clear the characters
+     */
+    private void encodeBytes() {
+        int length = sb.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        sb.getChars(0, length, chars, 0);
+        sb.setLength(0);
+        int maxBytes = (int) Math.ceil(length * (double) encoder.maxBytesPerChar());
+        if (bytes.capacity() < maxBytes) {
+            bytes = ByteBuffer.allocate(Math.max(maxBytes, bytes.capacity() * 2));
+        }
+        bytes.clear();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(chars, 0, length), bytes, true);
+        encoder.flush(bytes);
+    }
+
+    /**
+     * Append a text with the XML special characters escaped
+     *
+     * @param text
+     */
+    private void appendEscaped(String text) {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                default:
+                    continue;
+            }
+            sb.append(text, start, i).append(entity);
+            start = i + 1;
+        }
+        sb.append(text, start, text.length());
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
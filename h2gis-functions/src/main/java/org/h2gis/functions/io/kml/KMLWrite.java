@@ -37,7 +37,9 @@ import java.sql.SQLException;
 public class KMLWrite extends AbstractFunction implements ScalarFunction {
 
     public KMLWrite() {
-        addProperty(PROP_REMARKS, "Export a spatial table to a KML or KMZ file.");
+        addProperty(PROP_REMARKS, "Export a spatial table to a KML or KMZ file.\n"
+                + "CALL KMLWrite('FILENAME', 'TABLE'[,'ENCODING', 'OPTIONS'])\n"
+                + "The option 'threads=4' encodes the placemarks with the given number of threads.");
     }
 
     @Override
@@ -57,4 +59,19 @@ public class KMLWrite extends AbstractFunction implements ScalarFunction {
         KMLDriverFunction kMLDriverFunction = new KMLDriverFunction();
         kMLDriverFunction.exportTable(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor());
     }
+
+    /**
+     * This method is used to write a spatial table into a KML file
+     * @param connection
+     * @param fileName
+     * @param tableReference Table name or select query enclosed in parenthesis
+     * @param encoding File encoding, null for UTF-8
+     * @param options Export options ie "threads=4"
+     * @throws SQLException
+     * @throws IOException
+     */
+    public static void writeKML(Connection connection, String fileName, String tableReference, String encoding, String options) throws SQLException, IOException {
+        KMLDriverFunction kMLDriverFunction = new KMLDriverFunction();
+        kMLDriverFunction.exportTable(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(), encoding, options);
+    }
 }
@@ -28,9 +28,15 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.*;
+import java.nio.charset.Charset;
 import java.sql.*;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -40,20 +46,42 @@ import org.h2gis.utilities.Tuple;
 
 /**
  * KML writer
+ *
+ * The schema and the folder are written by a {@link XMLStreamWriter}, the placemarks are encoded in bytes by
+ * {@link KMLPlacemarkEncoder} and may be encoded by several threads.
  * 
  * @author Erwan Bocher
  */
 public class KMLWriterDriver {
-    
+    // Size of the output buffer and of the placemark blocks written by a single thread
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Number of placemarks encoded by a task
+    private static final int BLOCK_SIZE = 1000;
+
     private final Connection connection;
     private HashMap<Integer, String> kmlFields;
     private int columnCount = -1;
     private String tableName;
+    private int threadCount = 1;
 
     public KMLWriterDriver(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * @return Number of threads encoding the placemarks
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param threadCount Number of threads encoding the placemarks, 1 to encode them in the writing thread
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
     /**
      * Write spatial table or sql query to kml or kmz file format.
      *
@@ -154,7 +182,7 @@ public class KMLWriterDriver {
     private void writeKMZ(ProgressVisitor progress,File fileName, String fileNameWithExtension, ResultSet rs,String geomField,  String encoding) throws SQLException {
         ZipOutputStream zos = null;
         try {
-            zos = new ZipOutputStream(new FileOutputStream(fileName));
+            zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), BUFFER_SIZE));
             // Create a zip entry for the main KML file
             zos.putNextEntry(new ZipEntry(fileNameWithExtension));
             writeKMLDocument(progress, zos, rs, geomField, encoding);
@@ -198,8 +226,8 @@ public class KMLWriterDriver {
             if (newEncoding == null || newEncoding.isEmpty()) {
                 newEncoding = "UTF-8";
             }
-            XMLStreamWriter xmlOut = streamWriterFactory.createXMLStreamWriter(
-                    new BufferedOutputStream(outputStream), newEncoding);
+            BufferedOutputStream out = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+            XMLStreamWriter xmlOut = streamWriterFactory.createXMLStreamWriter(out, newEncoding);
             xmlOut.writeStartDocument(newEncoding, "1.0");
             xmlOut.writeStartElement("kml");
             xmlOut.writeDefaultNamespace("http://www.opengis.net/kml/2.2");
@@ -217,11 +245,9 @@ public class KMLWriterDriver {
                 xmlOut.writeStartElement("name");
                 xmlOut.writeCharacters(tableName);
                 xmlOut.writeEndElement();//Name
-                while (rs.next()) {
-                    writePlacemark(xmlOut, rs, geomField);
-                    progress.endStep();
-                }
-
+                // The placemarks are encoded in bytes and written after the elements already written
+                xmlOut.flush();
+                writePlacemarks(progress, out, rs, geomField, Charset.forName(newEncoding));
             } finally {
                 rs.close();
             }
@@ -229,12 +255,137 @@ public class KMLWriterDriver {
             xmlOut.writeEndElement();//Folder
             xmlOut.writeEndElement();//KML
             xmlOut.writeEndDocument();//DOC
+            xmlOut.flush();
             xmlOut.close();
-        } catch (XMLStreamException ex) {
+            out.flush();
+        } catch (XMLStreamException | IOException ex) {
             throw new SQLException(ex);
         }
     }
 
+    /**
+     * Write the placemarks of the rows. With more than one thread the rows are read by blocks encoded in a pool of
+     * threads, and the encoded blocks are written in the order of the rows.
+     *
+     * @param progress
+     * @param out Document stream
+     * @param rs Rows
+     * @param geomField Geometry column
+     * @param charset Encoding of the document
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void writePlacemarks(ProgressVisitor progress, OutputStream out, ResultSet rs, String geomField,
+                                 Charset charset) throws SQLException, IOException {
+        int geomIndex = rs.findColumn(geomField);
+        int[] fieldIndexes = new int[0];
+        String[] fieldNames = new String[0];
+        if (columnCount > 1) {
+            fieldIndexes = kmlFields.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            fieldNames = new String[fieldIndexes.length];
+            for (int i = 0; i < fieldIndexes.length; i++) {
+                fieldNames[i] = kmlFields.get(fieldIndexes[i]);
+            }
+        }
+        final String schemaName = columnCount > 1 ? tableName : null;
+        final String[] names = fieldNames;
+        if (threadCount <= 1) {
+            KMLPlacemarkEncoder encoder = new KMLPlacemarkEncoder(schemaName, names, charset);
+            while (rs.next()) {
+                encoder.encode(getGeometry(rs, geomIndex), getValues(rs, fieldIndexes));
+                if (encoder.length() >= BUFFER_SIZE) {
+                    encoder.writeTo(out);
+                }
+                progress.endStep();
+            }
+            encoder.writeTo(out);
+            return;
+        }
+        ThreadLocal<KMLPlacemarkEncoder> encoders = ThreadLocal.withInitial(
+                () -> new KMLPlacemarkEncoder(schemaName, names, charset));
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "H2GIS KML encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+            boolean hasNext = rs.next();
+            while (hasNext) {
+                Geometry[] geometries = new Geometry[BLOCK_SIZE];
+                String[][] values = new String[BLOCK_SIZE][];
+                int blockLength = 0;
+                while (hasNext && blockLength < BLOCK_SIZE) {
+                    geometries[blockLength] = getGeometry(rs, geomIndex);
+                    values[blockLength] = getValues(rs, fieldIndexes);
+                    blockLength++;
+                    hasNext = rs.next();
+                }
+                final int length = blockLength;
+                pendingBlocks.add(pool.submit(() -> {
+                    KMLPlacemarkEncoder encoder = encoders.get();
+                    for (int i = 0; i < length; i++) {
+                        encoder.encode(geometries[i], values[i]);
+                    }
+                    return encoder.toByteArray();
+                }));
+                if (pendingBlocks.size() > threadCount * 2) {
+                    writeBlock(pendingBlocks.poll(), out);
+                }
+                for (int i = 0; i < blockLength; i++) {
+                    progress.endStep();
+                }
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeBlock(pendingBlocks.poll(), out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void writeBlock(Future<byte[]> block, OutputStream out) throws SQLException, IOException {
+        try {
+            out.write(block.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException) {
+                throw (SQLException) ex.getCause();
+            }
+            throw new SQLException("Cannot encode the placemarks", ex.getCause());
+        }
+    }
+
+    /**
+     * @param rs Row
+     * @param geomIndex Geometry column
+     * @return The geometry of the row
+     * @throws SQLException If the geometry is not in WGS84
+     */
+    private static Geometry getGeometry(ResultSet rs, int geomIndex) throws SQLException {
+        Geometry geom = (Geometry) rs.getObject(geomIndex);
+        if (geom == null) {
+            return null;
+        }
+        int inputSRID = geom.getSRID();
+        if (inputSRID == 0) {
+            throw new SQLException("A coordinate reference system must be set to save the KML file");
+        } else if (inputSRID != 4326) {
+            throw new SQLException("The kml format supports only the WGS84 projection.");
+        }
+        return geom;
+    }
+
+    private static String[] getValues(ResultSet rs, int[] fieldIndexes) throws SQLException {
+        String[] values = new String[fieldIndexes.length];
+        for (int i = 0; i < fieldIndexes.length; i++) {
+            values[i] = rs.getString(fieldIndexes[i]);
+        }
+        return values;
+    }
+
     /**
      * Specifies a custom KML schema that is used to add custom data to KML
      * Features. The "id" attribute is required and must be unique within the
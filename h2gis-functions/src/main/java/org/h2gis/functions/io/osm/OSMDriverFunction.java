@@ -39,6 +39,7 @@ public class OSMDriverFunction implements DriverFunction {
     public static String DESCRIPTION = "OSM file (0.6)";
     public static String DESCRIPTION_GZ = "OSM Gzipped file (0.6)";
     public static String DESCRIPTION_BZ2 = "OSM Bzipped file (0.6)";
+    public static String DESCRIPTION_PBF = "OSM PBF file (0.6)";
 
 
     @Override
@@ -59,6 +60,8 @@ public class OSMDriverFunction implements DriverFunction {
             return DESCRIPTION_GZ;
         } else  if (format.equalsIgnoreCase("bz2")) {
             return DESCRIPTION_BZ2;
+        } else  if (format.equalsIgnoreCase("pbf")) {
+            return DESCRIPTION_PBF;
         } else {
             return "";
         }
@@ -68,7 +71,8 @@ public class OSMDriverFunction implements DriverFunction {
     public boolean isSpatialFormat(String extension) {
         return extension.equalsIgnoreCase("osm") ||
                 extension.equalsIgnoreCase("gz") ||
-                extension.equalsIgnoreCase("bz2");
+                extension.equalsIgnoreCase("bz2") ||
+                extension.equalsIgnoreCase("pbf");
     }
 
     @Override
@@ -92,7 +96,7 @@ public class OSMDriverFunction implements DriverFunction {
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            String options) throws SQLException, IOException {
-        importFile(connection, tableReference, fileName, progress, false);
+        importFile(connection, tableReference, fileName, progress, options, false);
     }
 
     /**
@@ -107,19 +111,78 @@ public class OSMDriverFunction implements DriverFunction {
      */
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress, boolean deleteTables) throws SQLException, IOException {
-        if(fileName == null || !(fileName.getName().endsWith(".osm") || fileName.getName().endsWith("osm.gz") || fileName.getName().endsWith("osm.bz2"))) {
-            throw new IOException(new IllegalArgumentException("This driver handle only .osm, .osm.gz and .osm.bz2 files"));
+        importFile(connection, tableReference, fileName, progress, null, deleteTables);
+    }
+
+    /**
+     *
+     * @param connection Active connection, do not close this connection.
+     * @param tableReference prefix uses to store the OSM tables
+     * @param fileName File path to read
+     * @param progress
+     * @param options the import options ie "threads=4 tags=false members=false geometries=true", threads is used
+     *                by the .osm.pbf reader only
+     * @param deleteTables  true to delete the existing tables
+     * @throws SQLException Table write error
+     * @throws IOException File read error
+     */
+    public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
+                           String options, boolean deleteTables) throws SQLException, IOException {
+        if(fileName == null || !(fileName.getName().endsWith(".osm") || fileName.getName().endsWith("osm.gz")
+                || fileName.getName().endsWith("osm.bz2") || fileName.getName().endsWith(".pbf"))) {
+            throw new IOException(new IllegalArgumentException("This driver handle only .osm, .osm.gz, .osm.bz2 and .osm.pbf files"));
+        }
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        boolean importTags = true;
+        boolean importMembers = true;
+        boolean buildGeometries = false;
+        if (options != null && !options.trim().isEmpty()) {
+            for (String option : options.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator <= 0) {
+                    throw new SQLException("Invalid OSM import option " + option);
+                }
+                String key = option.substring(0, separator);
+                String value = option.substring(separator + 1);
+                if (key.equalsIgnoreCase("threads")) {
+                    try {
+                        threadCount = Integer.parseInt(value);
+                    } catch (NumberFormatException ex) {
+                        throw new SQLException("Invalid OSM import option " + option, ex);
+                    }
+                } else if (key.equalsIgnoreCase("tags")) {
+                    importTags = Boolean.parseBoolean(value);
+                } else if (key.equalsIgnoreCase("members")) {
+                    importMembers = Boolean.parseBoolean(value);
+                } else if (key.equalsIgnoreCase("geometries")) {
+                    buildGeometries = Boolean.parseBoolean(value);
+                } else {
+                    throw new SQLException("Unknown OSM import option " + key);
+                }
+            }
         }
         if(deleteTables){
             OSMTablesFactory.dropOSMTables(connection, JDBCUtilities.isH2DataBase(connection), tableReference);
         }
-        OSMParser osmp = new OSMParser();
-        osmp.read(connection, tableReference, fileName, progress);
+        if (fileName.getName().endsWith(".pbf")) {
+            OSMPbfParser pbfParser = new OSMPbfParser();
+            pbfParser.setThreadCount(threadCount);
+            pbfParser.setImportTags(importTags);
+            pbfParser.setImportMembers(importMembers);
+            pbfParser.setBuildGeometries(buildGeometries);
+            pbfParser.read(connection, tableReference, fileName, progress);
+        } else {
+            OSMParser osmp = new OSMParser();
+            osmp.setImportTags(importTags);
+            osmp.setImportMembers(importMembers);
+            osmp.setBuildGeometries(buildGeometries);
+            osmp.read(connection, tableReference, fileName, progress);
         }
+    }
 
     @Override
     public String[] getImportFormats() {
-        return new String[]{"osm","gz","bz2"};
+        return new String[]{"osm","gz","bz2","pbf"};
     }
 
 }
@@ -0,0 +1,196 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.operation.polygonize.Polygonizer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Build the way geometries from the node coordinates while an OSM file is read, then the multipolygon relations
+ * from the way geometries once the file has been imported.
+ *
+ * @author Nicolas Fortin
+ */
+final class OSMGeometryBuilder {
+    // Keys of the closed ways stored as polygons
+    private static final Set<String> AREA_KEYS = new HashSet<>(Arrays.asList("building", "landuse", "leisure",
+            "natural", "amenity", "shop", "tourism", "historic", "man_made", "military", "aeroway", "place",
+            "water"));
+    // Values of the natural key describing lines
+    private static final Set<String> LINEAR_NATURAL = new HashSet<>(Arrays.asList("coastline", "cliff", "ridge",
+            "arete", "tree_row"));
+    private static final int BATCH_SIZE = 1000;
+
+    private final OSMNodeStore nodes = new OSMNodeStore();
+    private final GeometryFactory gf;
+
+    /**
+     * @param gf Factory of the built geometries
+     */
+    OSMGeometryBuilder(GeometryFactory gf) {
+        this.gf = gf;
+    }
+
+    /**
+     * Store a node coordinate, the nodes must be added before the ways using them
+     *
+     * @param id Node identifier
+     * @param lon Longitude
+     * @param lat Latitude
+     */
+    void addNode(long id, double lon, double lat) {
+        nodes.put(id, lon, lat);
+    }
+
+    /**
+     * @param tags Way tags
+     * @return True if the way is a polygon when it is closed
+     */
+    static boolean isArea(Map<String, String> tags) {
+        String area = tags.get("area");
+        if (area != null) {
+            return !area.equals("no");
+        }
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            if (AREA_KEYS.contains(entry.getKey())) {
+                return !entry.getKey().equals("natural") || !LINEAR_NATURAL.contains(entry.getValue());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Build the geometry of a way, the nodes missing from the file are skipped.
+     *
+     * @param refs Node identifiers of the way
+     * @param area True if the way is a polygon when it is closed
+     * @return A polygon, a linestring or null if the way has less than two known nodes
+     */
+    Geometry wayGeometry(long[] refs, boolean area) {
+        Coordinate[] coordinates = new Coordinate[refs.length];
+        int count = 0;
+        for (long ref : refs) {
+            Coordinate coordinate = nodes.get(ref);
+            if (coordinate != null) {
+                coordinates[count++] = coordinate;
+            }
+        }
+        if (count < 2) {
+            return null;
+        }
+        if (count < coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, count);
+        }
+        if (area && count >= 4 && refs[0] == refs[refs.length - 1]
+                && coordinates[0].equals2D(coordinates[count - 1])) {
+            return gf.createPolygon(coordinates);
+        }
+        return gf.createLineString(coordinates);
+    }
+
+    /**
+     * Fill the geometry of the multipolygon and boundary relations by polygonizing the geometries of their member
+     * ways. It requires the relation tags and the way members.
+     *
+     * @param connection
+     * @param isH2
+     * @param requestedTable
+     * @param osmTableName
+     * @return Number of relations with a geometry
+     * @throws SQLException
+     */
+    int buildRelationGeometries(Connection connection, boolean isH2, TableLocation requestedTable, String osmTableName) throws SQLException {
+        String relationTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION, isH2);
+        String relationTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION_TAG, isH2);
+        String wayMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_MEMBER, isH2);
+        String wayTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY, isH2);
+        String query = "SELECT M.ID_RELATION, W.THE_GEOM FROM " + wayMemberTableName + " M, " + wayTableName
+                + " W WHERE M.ID_WAY = W.ID_WAY AND M.ID_RELATION IN (SELECT ID_RELATION FROM "
+                + relationTagTableName + " WHERE TAG_KEY = 'type' AND TAG_VALUE IN ('multipolygon', 'boundary'))"
+                + " ORDER BY M.ID_RELATION";
+        int count = 0;
+        int batchSize = 0;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery(query);
+             PreparedStatement update = connection.prepareStatement("UPDATE " + relationTableName
+                     + " SET THE_GEOM = ? WHERE ID_RELATION = ?")) {
+            long relationId = 0;
+            Polygonizer polygonizer = null;
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                if (polygonizer == null || id != relationId) {
+                    if (polygonizer != null && addRelationGeometry(update, relationId, polygonizer)) {
+                        count++;
+                        if (++batchSize >= BATCH_SIZE) {
+                            update.executeBatch();
+                            batchSize = 0;
+                        }
+                    }
+                    // Only the fully enclosed rings are kept, so the inner rings become holes
+                    polygonizer = new Polygonizer(true);
+                    relationId = id;
+                }
+                Geometry geometry = (Geometry) rs.getObject(2);
+                if (geometry instanceof Polygon) {
+                    polygonizer.add(((Polygon) geometry).getExteriorRing());
+                } else if (geometry != null) {
+                    polygonizer.add(geometry);
+                }
+            }
+            if (polygonizer != null && addRelationGeometry(update, relationId, polygonizer)) {
+                count++;
+                batchSize++;
+            }
+            if (batchSize > 0) {
+                update.executeBatch();
+            }
+        }
+        return count;
+    }
+
+    private boolean addRelationGeometry(PreparedStatement update, long relationId, Polygonizer polygonizer) throws SQLException {
+        // The polygonizer returns a raw collection of polygons
+        Collection<?> polygons = polygonizer.getPolygons();
+        if (polygons.isEmpty()) {
+            return false;
+        }
+        update.setObject(1, gf.createMultiPolygon(polygons.toArray(new Polygon[0])));
+        update.setLong(2, relationId);
+        update.addBatch();
+        return true;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.locationtech.jts.geom.Coordinate;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap store of the node coordinates, used to build the way geometries while the file is read.
+ *
+ * Each node uses 16 bytes of direct memory: the identifier, then the longitude and the latitude as 1e-7 degree
+ * integers, the precision of the OSM coordinates. The nodes are stored by chunks in the order of the file, the OSM
+ * files being sorted by node identifier a lookup is a binary search. Unsorted nodes are sorted before the first
+ * lookup.
+ *
+ * @author Nicolas Fortin
+ */
+final class OSMNodeStore {
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NODE_BYTES = 16;
+    private static final double COORDINATE_SCALE = 1e7;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long size = 0;
+    private long lastId = Long.MIN_VALUE;
+    private boolean sorted = true;
+
+    /**
+     * Add a node
+     *
+     * @param id Node identifier
+     * @param lon Longitude
+     * @param lat Latitude
+     */
+    void put(long id, double lon, double lat) {
+        int offset = (int) (size & CHUNK_MASK) * NODE_BYTES;
+        if (offset == 0) {
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE * NODE_BYTES));
+        }
+        ByteBuffer chunk = chunks.get(chunks.size() - 1);
+        chunk.putLong(offset, id);
+        chunk.putInt(offset + 8, (int) Math.round(lon * COORDINATE_SCALE));
+        chunk.putInt(offset + 12, (int) Math.round(lat * COORDINATE_SCALE));
+        if (id < lastId) {
+            sorted = false;
+        }
+        lastId = id;
+        size++;
+    }
+
+    /**
+     * @return Number of stored nodes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @param id Node identifier
+     * @return Node coordinate or null if the node is not in the store
+     */
+    Coordinate get(long id) {
+        if (!sorted) {
+            sort();
+        }
+        long low = 0;
+        long high = size - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long middleId = id(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                ByteBuffer chunk = chunks.get((int) (middle >>> CHUNK_SHIFT));
+                int offset = (int) (middle & CHUNK_MASK) * NODE_BYTES;
+                return new Coordinate(chunk.getInt(offset + 8) / COORDINATE_SCALE,
+                        chunk.getInt(offset + 12) / COORDINATE_SCALE);
+            }
+        }
+        return null;
+    }
+
+    private long id(long index) {
+        return chunks.get((int) (index >>> CHUNK_SHIFT)).getLong((int) (index & CHUNK_MASK) * NODE_BYTES);
+    }
+
+    /**
+     * In place heap sort of the nodes by identifier
+     */
+    private void sort() {
+        for (long i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (long end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        lastId = id(size - 1);
+        sorted = true;
+    }
+
+    private void siftDown(long root, long end) {
+        while (root * 2 + 1 < end) {
+            long child = root * 2 + 1;
+            if (child + 1 < end && id(child) < id(child + 1)) {
+                child++;
+            }
+            if (id(root) >= id(child)) {
+                return;
+            }
+            swap(root, child);
+            root = child;
+        }
+    }
+
+    private void swap(long i, long j) {
+        ByteBuffer chunkI = chunks.get((int) (i >>> CHUNK_SHIFT));
+        ByteBuffer chunkJ = chunks.get((int) (j >>> CHUNK_SHIFT));
+        int offsetI = (int) (i & CHUNK_MASK) * NODE_BYTES;
+        int offsetJ = (int) (j & CHUNK_MASK) * NODE_BYTES;
+        long id = chunkI.getLong(offsetI);
+        long coordinates = chunkI.getLong(offsetI + 8);
+        chunkI.putLong(offsetI, chunkJ.getLong(offsetJ));
+        chunkI.putLong(offsetI + 8, chunkJ.getLong(offsetJ + 8));
+        chunkJ.putLong(offsetJ, id);
+        chunkJ.putLong(offsetJ + 8, coordinates);
+    }
+}
@@ -24,10 +24,12 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.h2.api.ErrorCode;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.TableUtilities;
 import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -41,12 +43,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.text.ParseException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
@@ -61,28 +62,14 @@ import java.util.zip.GZIPInputStream;
 public class OSMParser extends DefaultHandler {
 
     
-    // Set the same batch size as OSMOSIS
-    private static final int BATCH_SIZE = 8000;
-    private PreparedStatement nodePreparedStmt;
-    private PreparedStatement nodeTagPreparedStmt;
-    private PreparedStatement wayPreparedStmt;
-    private PreparedStatement wayTagPreparedStmt;
-    private PreparedStatement relationPreparedStmt;
-    private PreparedStatement relationTagPreparedStmt;
-    private PreparedStatement nodeMemberPreparedStmt;
-    private PreparedStatement wayMemberPreparedStmt;
-    private PreparedStatement relationMemberPreparedStmt;
-    private PreparedStatement wayNodePreparedStmt;
-    private int nodePreparedStmtBatchSize = 0;
-    private int nodeTagPreparedStmtBatchSize = 0;
-    private int wayPreparedStmtBatchSize = 0;
-    private int wayTagPreparedStmtBatchSize = 0;
-    private int relationPreparedStmtBatchSize = 0;
-    private int relationTagPreparedStmtBatchSize = 0;
-    private int nodeMemberPreparedStmtBatchSize = 0;
-    private int wayMemberPreparedStmtBatchSize = 0;
-    private int relationMemberPreparedStmtBatchSize = 0;
-    private int wayNodePreparedStmtBatchSize = 0;
+    //Sink receiving the rows of the osm tables and index of each table in it
+    private PipelinedWriter.RowSink rowSink;
+    private int nodeTarget, nodeTagTarget, wayTarget, wayTagTarget, wayNodeTarget, relationTarget,
+            relationTagTarget, nodeMemberTarget, wayMemberTarget, relationMemberTarget;
+    private boolean importTags = true;
+    private boolean importMembers = true;
+    private boolean buildGeometries = false;
+    private OSMGeometryBuilder geometryBuilder;
     private Set<String> insertedTagsKeys = new HashSet<String>();
     private int idMemberOrder = 1;
     private TAG_LOCATION tagLocation;
@@ -98,12 +85,32 @@ public class OSMParser extends DefaultHandler {
     // For progression information return
     private static final int AVERAGE_NODE_SIZE = 500;
     private static String TAG_DUPLICATE_EXCEPTION = String.valueOf(ErrorCode.DUPLICATE_KEY_1);
-    private Connection connection;
 
     public OSMParser() {
 
     }
 
+    /**
+     * @param importTags False to leave the tag tables empty
+     */
+    public void setImportTags(boolean importTags) {
+        this.importTags = importTags;
+    }
+
+    /**
+     * @param importMembers False to leave the relation member tables empty
+     */
+    public void setImportMembers(boolean importMembers) {
+        this.importMembers = importMembers;
+    }
+
+    /**
+     * @param buildGeometries True to fill a geometry column of the way and relation tables while the file is read
+     */
+    public void setBuildGeometries(boolean buildGeometries) {
+        this.buildGeometries = buildGeometries;
+    }
+
     /**
      * Read the OSM file and create its corresponding tables.
      *
@@ -116,19 +123,17 @@ public class OSMParser extends DefaultHandler {
      */
     public boolean read(Connection connection, String tableName, File inputFile, ProgressVisitor progress) throws SQLException {
         this.progress = progress.subProcess(100);
-        this.connection=connection;
         // Initialisation
         final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
         boolean success = false;
-        connection.setAutoCommit(false);
         TableLocation requestedTable = TableLocation.parse(tableName, isH2);
         String osmTableName = requestedTable.getTable();
-        checkOSMTables(connection, isH2, requestedTable, osmTableName);
-        createOSMDatabaseModel(connection, isH2, requestedTable, osmTableName);
+        OSMTablesFactory.checkOSMTables(connection, isH2, requestedTable, osmTableName);
+        PipelinedWriter writer = new PipelinedWriter(connection);
+        geometryBuilder = buildGeometries ? new OSMGeometryBuilder(gf) : null;
+        createOSMDatabaseModel(connection, isH2, requestedTable, osmTableName, writer);
 
-        FileInputStream fs = null;
-        try {
-            fs = new FileInputStream(inputFile);
+        try (FileInputStream fs = new FileInputStream(inputFile)) {
             this.fc = fs.getChannel();
             this.fileSize = fc.size();
             if (fileSize > 0) {
@@ -136,92 +141,40 @@ public class OSMParser extends DefaultHandler {
                 // Skip how many nodes in order to update progression at a step of 1%
                 readFileSizeEachNode = Math.max(1, (this.fileSize / AVERAGE_NODE_SIZE) / 100);
                 nodeCountProgress = 0;
-                XMLReader parser = XMLReaderFactory.createXMLReader();
-                parser.setErrorHandler(this);
-                parser.setContentHandler(this);
+                final InputSource source;
                 if (inputFile.getName().endsWith(".osm")) {
-                    parser.parse(new InputSource(fs));
+                    source = new InputSource(fs);
                 } else if (inputFile.getName().endsWith(".osm.gz")) {
-                    parser.parse(new InputSource(new GZIPInputStream(fs)));
+                    source = new InputSource(new GZIPInputStream(fs));
                 } else if (inputFile.getName().endsWith(".osm.bz2")) {
-                    parser.parse(new InputSource(new BZip2CompressorInputStream(fs)));
+                    source = new InputSource(new BZip2CompressorInputStream(fs));
                 } else {
                     throw new SQLException("Supported formats are .osm, .osm.gz, .osm.bz2");
                 }
+                // The file is parsed in the producer thread of the writer
+                writer.run(rows -> {
+                    rowSink = rows;
+                    try {
+                        XMLReader parser = XMLReaderFactory.createXMLReader();
+                        parser.setErrorHandler(this);
+                        parser.setContentHandler(this);
+                        parser.parse(source);
+                    } catch (SAXException ex) {
+                        throw new SQLException(ex);
+                    }
+                });
             }
             success = true;
-        } catch (SAXException ex) {
-            throw new SQLException(ex);
         } catch (IOException ex) {
             throw new SQLException("Cannot parse the file " + inputFile.getAbsolutePath(), ex);
-        } finally {
-            try {
-                if (fs != null) {
-                    fs.close();
-                }
-            } catch (IOException ex) {
-                throw new SQLException("Cannot close the file " + inputFile.getAbsolutePath(), ex);
-            }
-            // When the reading ends, close() method has to be called
-            if (nodePreparedStmt != null) {
-                nodePreparedStmt.close();
-            }
-            if (nodeTagPreparedStmt != null) {
-                nodeTagPreparedStmt.close();
-            }
-            if (wayPreparedStmt != null) {
-                wayPreparedStmt.close();
-            }
-            if (wayTagPreparedStmt != null) {
-                wayTagPreparedStmt.close();
-            }
-            if (wayNodePreparedStmt != null) {
-                wayNodePreparedStmt.close();
-            }
-            if (relationPreparedStmt != null) {
-                relationPreparedStmt.close();
-            }
-            if (relationTagPreparedStmt != null) {
-                relationTagPreparedStmt.close();
-            }
-            if (nodeMemberPreparedStmt != null) {
-                nodeMemberPreparedStmt.close();
-            }
-            if (wayMemberPreparedStmt != null) {
-                wayMemberPreparedStmt.close();
-            }
-            if (relationMemberPreparedStmt != null) {
-                relationMemberPreparedStmt.close();
-            }            
-            connection.setAutoCommit(true);
         }
-
+        if (geometryBuilder != null && importTags && importMembers) {
+            geometryBuilder.buildRelationGeometries(connection, isH2, requestedTable, osmTableName);
+        }
+        geometryBuilder = null;
         return success;
     }
 
-    /**
-     * Check if one table already exists
-     *
-     * @param connection
-     * @param isH2
-     * @param requestedTable
-     * @param osmTableName
-     * @throws SQLException
-     */
-    private void checkOSMTables(Connection connection, boolean isH2, TableLocation requestedTable, String osmTableName) throws SQLException {
-        String[] omsTables = new String[]{OSMTablesFactory.NODE, OSMTablesFactory.NODE_TAG, OSMTablesFactory.WAY, OSMTablesFactory.WAY_NODE, 
-            OSMTablesFactory.WAY_TAG, OSMTablesFactory.RELATION, OSMTablesFactory.RELATION_TAG, OSMTablesFactory.NODE_MEMBER, OSMTablesFactory.WAY_MEMBER, OSMTablesFactory.RELATION_MEMBER};
-        for (String omsTableSuffix : omsTables) {
-            String osmTable = TableUtilities.caseIdentifier(requestedTable, osmTableName + omsTableSuffix, isH2);
-            if (JDBCUtilities.tableExists(connection, TableLocation.parse(osmTable, isH2))) {
-                throw new SQLException("The table " + osmTable + " already exists.");
-            }
-        }
-    }    
-     
-
-    
-
     /**
      * Create the OMS data model to store the content of the file
      *
@@ -229,29 +182,40 @@ public class OSMParser extends DefaultHandler {
      * @param isH2
      * @param requestedTable
      * @param osmTableName
+     * @param writer
      * @throws SQLException
      */
-    private void createOSMDatabaseModel(Connection connection, boolean isH2, TableLocation requestedTable, String osmTableName) throws SQLException {
+    private void createOSMDatabaseModel(Connection connection, boolean isH2, TableLocation requestedTable, String osmTableName, PipelinedWriter writer) throws SQLException {
         String nodeTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE, isH2);
-        nodePreparedStmt = OSMTablesFactory.createNodeTable(connection, nodeTableName, isH2);
+        OSMTablesFactory.createNodeTable(connection, nodeTableName, isH2).close();
+        nodeTarget = writer.addTable(nodeTableName, 0);
         String nodeTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE_TAG, isH2);
-        nodeTagPreparedStmt = OSMTablesFactory.createNodeTagTable(connection, nodeTagTableName);
+        OSMTablesFactory.createNodeTagTable(connection, nodeTagTableName).close();
+        nodeTagTarget = writer.addTable(nodeTagTableName, 0);
         String wayTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY, isH2);
-        wayPreparedStmt = OSMTablesFactory.createWayTable(connection, wayTableName, isH2);
+        OSMTablesFactory.createWayTable(connection, wayTableName, isH2, buildGeometries).close();
+        wayTarget = writer.addTable(wayTableName, 0);
         String wayTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_TAG, isH2);
-        wayTagPreparedStmt = OSMTablesFactory.createWayTagTable(connection, wayTagTableName);
+        OSMTablesFactory.createWayTagTable(connection, wayTagTableName).close();
+        wayTagTarget = writer.addTable(wayTagTableName, 0);
         String wayNodeTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_NODE, isH2);
-        wayNodePreparedStmt = OSMTablesFactory.createWayNodeTable(connection, wayNodeTableName);
+        OSMTablesFactory.createWayNodeTable(connection, wayNodeTableName).close();
+        wayNodeTarget = writer.addTable(wayNodeTableName, 0);
         String relationTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION, isH2);
-        relationPreparedStmt = OSMTablesFactory.createRelationTable(connection, relationTableName);
+        OSMTablesFactory.createRelationTable(connection, relationTableName, buildGeometries).close();
+        relationTarget = writer.addTable(relationTableName, 0);
         String relationTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION_TAG, isH2);
-        relationTagPreparedStmt = OSMTablesFactory.createRelationTagTable(connection, relationTagTableName);
+        OSMTablesFactory.createRelationTagTable(connection, relationTagTableName).close();
+        relationTagTarget = writer.addTable(relationTagTableName, 0);
         String nodeMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE_MEMBER, isH2);
-        nodeMemberPreparedStmt = OSMTablesFactory.createNodeMemberTable(connection, nodeMemberTableName);
+        OSMTablesFactory.createNodeMemberTable(connection, nodeMemberTableName).close();
+        nodeMemberTarget = writer.addTable(nodeMemberTableName, 0);
         String wayMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_MEMBER, isH2);
-        wayMemberPreparedStmt = OSMTablesFactory.createWayMemberTable(connection, wayMemberTableName);
+        OSMTablesFactory.createWayMemberTable(connection, wayMemberTableName).close();
+        wayMemberTarget = writer.addTable(wayMemberTableName, 0);
         String relationMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION_MEMBER, isH2);
-        relationMemberPreparedStmt = OSMTablesFactory.createRelationMemberTable(connection, relationMemberTableName);
+        OSMTablesFactory.createRelationMemberTable(connection, relationMemberTableName).close();
+        relationMemberTarget = writer.addTable(relationMemberTableName, 0);
     }
 
     @Override
@@ -289,37 +253,25 @@ public class OSMParser extends DefaultHandler {
             relationOSMElement = new OSMElement();
             setCommonsAttributes(relationOSMElement, attributes);
             tagLocation = TAG_LOCATION.RELATION;
-        } else if (localName.compareToIgnoreCase("member") == 0) {
+        } else if (localName.compareToIgnoreCase("member") == 0 && importMembers) {
             if (type.equalsIgnoreCase("node")) {
                 try {
-                    nodeMemberPreparedStmt.setObject(1, relationOSMElement.getID());
-                    nodeMemberPreparedStmt.setObject(2, Long.valueOf(attributes.getValue("ref")));
-                    nodeMemberPreparedStmt.setObject(3, attributes.getValue("role"));
-                    nodeMemberPreparedStmt.setObject(4, idMemberOrder);
-                    nodeMemberPreparedStmt.addBatch();
-                    nodeMemberPreparedStmtBatchSize++;
+                    rowSink.write(nodeMemberTarget, new Object[]{relationOSMElement.getID(),
+                            Long.valueOf(attributes.getValue("ref")), attributes.getValue("role"), idMemberOrder});
                 } catch (SQLException ex) {
                     throw new SAXException("Cannot insert the node member for the relation :  " + relationOSMElement.getID(), ex);
                 }
             } else if (type.equalsIgnoreCase("way")) {
                 try {
-                    wayMemberPreparedStmt.setObject(1, relationOSMElement.getID());
-                    wayMemberPreparedStmt.setObject(2, Long.valueOf(attributes.getValue("ref")));
-                    wayMemberPreparedStmt.setObject(3, attributes.getValue("role"));
-                    wayMemberPreparedStmt.setObject(4, idMemberOrder);
-                    wayMemberPreparedStmt.addBatch();
-                    wayMemberPreparedStmtBatchSize++;
+                    rowSink.write(wayMemberTarget, new Object[]{relationOSMElement.getID(),
+                            Long.valueOf(attributes.getValue("ref")), attributes.getValue("role"), idMemberOrder});
                 } catch (SQLException ex) {
                     throw new SAXException("Cannot insert the way member for the relation :  " + relationOSMElement.getID(), ex);
                 }
             } else if (type.equalsIgnoreCase("relation")) {
                 try {
-                    relationMemberPreparedStmt.setObject(1, relationOSMElement.getID());
-                    relationMemberPreparedStmt.setObject(2, Long.valueOf(attributes.getValue("ref")));
-                    relationMemberPreparedStmt.setObject(3, attributes.getValue("role"));
-                    relationMemberPreparedStmt.setObject(4, idMemberOrder);
-                    relationMemberPreparedStmt.addBatch();
-                    relationMemberPreparedStmtBatchSize++;
+                    rowSink.write(relationMemberTarget, new Object[]{relationOSMElement.getID(),
+                            Long.valueOf(attributes.getValue("ref")), attributes.getValue("role"), idMemberOrder});
                 } catch (SQLException ex) {
                     throw new SAXException("Cannot insert the relation member for the relation :  " + relationOSMElement.getID(), ex);
                 }
@@ -327,49 +279,24 @@ public class OSMParser extends DefaultHandler {
         }
     }
 
-    @Override
-    public void endDocument() throws SAXException {
-        // Execute remaining batch
-        try {
-            nodePreparedStmtBatchSize = insertBatch(nodePreparedStmt, nodePreparedStmtBatchSize, 1);
-            nodeTagPreparedStmtBatchSize = insertBatch(nodeTagPreparedStmt, nodeTagPreparedStmtBatchSize, 1);
-            wayPreparedStmtBatchSize = insertBatch(wayPreparedStmt, wayPreparedStmtBatchSize, 1);
-            wayTagPreparedStmtBatchSize = insertBatch(wayTagPreparedStmt, wayTagPreparedStmtBatchSize, 1);
-            relationPreparedStmtBatchSize = insertBatch(relationPreparedStmt, relationPreparedStmtBatchSize, 1);
-            relationTagPreparedStmtBatchSize = insertBatch(relationTagPreparedStmt, relationTagPreparedStmtBatchSize, 1);
-            nodeMemberPreparedStmtBatchSize = insertBatch(nodeMemberPreparedStmt,nodeMemberPreparedStmtBatchSize, 1);
-            wayMemberPreparedStmtBatchSize = insertBatch(wayMemberPreparedStmt, wayMemberPreparedStmtBatchSize, 1);
-            relationMemberPreparedStmtBatchSize = insertBatch(relationMemberPreparedStmt, relationMemberPreparedStmtBatchSize, 1);
-            wayNodePreparedStmtBatchSize = insertBatch(wayNodePreparedStmt, wayNodePreparedStmtBatchSize, 1);
-        } catch (SQLException ex) {
-            throw new SAXException("Could not insert sql batch", ex);
-        }
-    }
-
     @Override
     public void endElement(String uri, String localName, String qName) throws SAXException {
         if (localName.compareToIgnoreCase("node") == 0) {
             tagLocation = TAG_LOCATION.OTHER;
             try {
-                nodePreparedStmt.setObject(1, nodeOSMElement.getID());
-                nodePreparedStmt.setObject(2, nodeOSMElement.getPoint(gf));
-                nodePreparedStmt.setObject(3, nodeOSMElement.getElevation());
-                nodePreparedStmt.setObject(4, nodeOSMElement.getUser());
-                nodePreparedStmt.setObject(5, nodeOSMElement.getUID());
-                nodePreparedStmt.setObject(6, nodeOSMElement.getVisible());
-                nodePreparedStmt.setObject(7, nodeOSMElement.getVersion());
-                nodePreparedStmt.setObject(8, nodeOSMElement.getChangeSet());
-                nodePreparedStmt.setObject(9, nodeOSMElement.getTimeStamp(), Types.DATE);
-                nodePreparedStmt.setString(10, nodeOSMElement.getName());
-                nodePreparedStmt.addBatch();
-                nodePreparedStmtBatchSize++;
-                HashMap<String, String> tags = nodeOSMElement.getTags();
-                for (Map.Entry<String, String> entry : tags.entrySet()) {
-                    nodeTagPreparedStmt.setObject(1, nodeOSMElement.getID());
-                    nodeTagPreparedStmt.setObject(2, entry.getKey());
-                    nodeTagPreparedStmt.setObject(3, entry.getValue());
-                    nodeTagPreparedStmt.addBatch();
-                    nodeTagPreparedStmtBatchSize++;
+                Point point = nodeOSMElement.getPoint(gf);
+                if (geometryBuilder != null) {
+                    geometryBuilder.addNode(nodeOSMElement.getID(), point.getX(), point.getY());
+                }
+                rowSink.write(nodeTarget, new Object[]{nodeOSMElement.getID(), point,
+                        nodeOSMElement.getElevation(), nodeOSMElement.getUser(), nodeOSMElement.getUID(),
+                        nodeOSMElement.getVisible(), nodeOSMElement.getVersion(), nodeOSMElement.getChangeSet(),
+                        nodeOSMElement.getTimeStamp(), nodeOSMElement.getName()});
+                if (importTags) {
+                    HashMap<String, String> tags = nodeOSMElement.getTags();
+                    for (Map.Entry<String, String> entry : tags.entrySet()) {
+                        rowSink.write(nodeTagTarget, new Object[]{nodeOSMElement.getID(), entry.getKey(), entry.getValue()});
+                    }
                 }
             } catch (SQLException ex) {
                 throw new SAXException("Cannot insert the node  :  " + nodeOSMElement.getID(), ex);
@@ -377,31 +304,30 @@ public class OSMParser extends DefaultHandler {
         } else if (localName.compareToIgnoreCase("way") == 0) {
             tagLocation = TAG_LOCATION.OTHER;
             try {
-                wayPreparedStmt.setObject(1, wayOSMElement.getID());
-                wayPreparedStmt.setObject(2, wayOSMElement.getUser());
-                wayPreparedStmt.setObject(3, wayOSMElement.getUID());
-                wayPreparedStmt.setObject(4, wayOSMElement.getVisible());
-                wayPreparedStmt.setObject(5, wayOSMElement.getVersion());
-                wayPreparedStmt.setObject(6, wayOSMElement.getChangeSet());
-                wayPreparedStmt.setTimestamp(7, wayOSMElement.getTimeStamp());
-                wayPreparedStmt.setString(8, wayOSMElement.getName());
-                wayPreparedStmt.addBatch();
-                wayPreparedStmtBatchSize++;
-                HashMap<String, String> tags = wayOSMElement.getTags();
-                for (Map.Entry<String, String> entry : tags.entrySet()) {
-                    wayTagPreparedStmt.setObject(1, wayOSMElement.getID());
-                    wayTagPreparedStmt.setObject(2, entry.getKey());
-                    wayTagPreparedStmt.setObject(3, entry.getValue());
-                    wayTagPreparedStmt.addBatch();
-                    wayTagPreparedStmtBatchSize++;
+                if (geometryBuilder != null) {
+                    List<Long> nodesRef = wayOSMElement.getNodesRef();
+                    long[] refs = new long[nodesRef.size()];
+                    for (int i = 0; i < refs.length; i++) {
+                        refs[i] = nodesRef.get(i);
+                    }
+                    rowSink.write(wayTarget, new Object[]{wayOSMElement.getID(), wayOSMElement.getUser(),
+                            wayOSMElement.getUID(), wayOSMElement.getVisible(), wayOSMElement.getVersion(),
+                            wayOSMElement.getChangeSet(), wayOSMElement.getTimeStamp(), wayOSMElement.getName(),
+                            geometryBuilder.wayGeometry(refs, OSMGeometryBuilder.isArea(wayOSMElement.getTags()))});
+                } else {
+                    rowSink.write(wayTarget, new Object[]{wayOSMElement.getID(), wayOSMElement.getUser(),
+                            wayOSMElement.getUID(), wayOSMElement.getVisible(), wayOSMElement.getVersion(),
+                            wayOSMElement.getChangeSet(), wayOSMElement.getTimeStamp(), wayOSMElement.getName()});
+                }
+                if (importTags) {
+                    HashMap<String, String> tags = wayOSMElement.getTags();
+                    for (Map.Entry<String, String> entry : tags.entrySet()) {
+                        rowSink.write(wayTagTarget, new Object[]{wayOSMElement.getID(), entry.getKey(), entry.getValue()});
+                    }
                 }
                 int order = 1;
                 for (long ref :  wayOSMElement.getNodesRef()) {
-                    wayNodePreparedStmt.setObject(1, wayOSMElement.getID());
-                    wayNodePreparedStmt.setObject(2, ref);
-                    wayNodePreparedStmt.setObject(3, order++);
-                    wayNodePreparedStmt.addBatch();
-                    wayNodePreparedStmtBatchSize++;
+                    rowSink.write(wayNodeTarget, new Object[]{wayOSMElement.getID(), ref, order++});
                 }
             } catch (SQLException ex) {
                 throw new SAXException("Cannot insert the way  :  " + wayOSMElement.getID(), ex);
@@ -409,22 +335,21 @@ public class OSMParser extends DefaultHandler {
         } else if (localName.compareToIgnoreCase("relation") == 0) {
             tagLocation = TAG_LOCATION.OTHER;
             try {
-                relationPreparedStmt.setObject(1, relationOSMElement.getID());
-                relationPreparedStmt.setObject(2, relationOSMElement.getUser());
-                relationPreparedStmt.setObject(3, relationOSMElement.getUID());
-                relationPreparedStmt.setObject(4, relationOSMElement.getVisible());
-                relationPreparedStmt.setObject(5, relationOSMElement.getVersion());
-                relationPreparedStmt.setObject(6, relationOSMElement.getChangeSet());
-                relationPreparedStmt.setTimestamp(7, relationOSMElement.getTimeStamp());
-                relationPreparedStmt.addBatch();
-                relationPreparedStmtBatchSize++;
-                HashMap<String, String> tags = relationOSMElement.getTags();
-                for (Map.Entry<String, String> entry : tags.entrySet()) {
-                    relationTagPreparedStmt.setObject(1, relationOSMElement.getID());
-                    relationTagPreparedStmt.setObject(2, entry.getKey());
-                    relationTagPreparedStmt.setObject(3, entry.getValue());
-                    relationTagPreparedStmt.addBatch();
-                    relationTagPreparedStmtBatchSize++;
+                if (geometryBuilder != null) {
+                    // The relation geometry is built once all the ways are imported
+                    rowSink.write(relationTarget, new Object[]{relationOSMElement.getID(), relationOSMElement.getUser(),
+                            relationOSMElement.getUID(), relationOSMElement.getVisible(), relationOSMElement.getVersion(),
+                            relationOSMElement.getChangeSet(), relationOSMElement.getTimeStamp(), null});
+                } else {
+                    rowSink.write(relationTarget, new Object[]{relationOSMElement.getID(), relationOSMElement.getUser(),
+                            relationOSMElement.getUID(), relationOSMElement.getVisible(), relationOSMElement.getVersion(),
+                            relationOSMElement.getChangeSet(), relationOSMElement.getTimeStamp()});
+                }
+                if (importTags) {
+                    HashMap<String, String> tags = relationOSMElement.getTags();
+                    for (Map.Entry<String, String> entry : tags.entrySet()) {
+                        rowSink.write(relationTagTarget, new Object[]{relationOSMElement.getID(), entry.getKey(), entry.getValue()});
+                    }
                 }
                 idMemberOrder = 0;
             } catch (SQLException ex) {
@@ -433,11 +358,6 @@ public class OSMParser extends DefaultHandler {
         } else if (localName.compareToIgnoreCase("member") == 0) {
             idMemberOrder++;
         }
-        try {
-            insertBatch();
-        } catch (SQLException ex) {
-            throw new SAXException("Could not insert sql batch", ex);
-        }
         if(nodeCountProgress++ % readFileSizeEachNode == 0) {
             // Update Progress
             try {
@@ -448,33 +368,6 @@ public class OSMParser extends DefaultHandler {
         }
     }
 
-    private void insertBatch() throws SQLException {
-        nodePreparedStmtBatchSize = insertBatch(nodePreparedStmt, nodePreparedStmtBatchSize);
-        nodeTagPreparedStmtBatchSize = insertBatch(nodeTagPreparedStmt, nodeTagPreparedStmtBatchSize);
-        wayPreparedStmtBatchSize = insertBatch(wayPreparedStmt, wayPreparedStmtBatchSize);
-        wayTagPreparedStmtBatchSize = insertBatch(wayTagPreparedStmt, wayTagPreparedStmtBatchSize);
-        relationPreparedStmtBatchSize = insertBatch(relationPreparedStmt, relationPreparedStmtBatchSize);
-        relationTagPreparedStmtBatchSize = insertBatch(relationTagPreparedStmt, relationTagPreparedStmtBatchSize);
-        nodeMemberPreparedStmtBatchSize = insertBatch(nodeMemberPreparedStmt,nodeMemberPreparedStmtBatchSize);
-        wayMemberPreparedStmtBatchSize = insertBatch(wayMemberPreparedStmt, wayMemberPreparedStmtBatchSize);
-        relationMemberPreparedStmtBatchSize = insertBatch(relationMemberPreparedStmt, relationMemberPreparedStmtBatchSize);
-        wayNodePreparedStmtBatchSize = insertBatch(wayNodePreparedStmt, wayNodePreparedStmtBatchSize);
-    }
-    private int insertBatch(PreparedStatement st, int batchSize, int maxBatchSize) throws SQLException {
-        if(batchSize >= maxBatchSize) {
-            st.executeBatch();
-            connection.commit();
-            st.clearBatch();
-            return 0;
-        } else {
-            return batchSize;
-        }
-    }
-
-    private int insertBatch(PreparedStatement st, int batchSize) throws SQLException {
-        return insertBatch(st, batchSize, BATCH_SIZE);
-    }
-
     /**
      *
      * @param osmElement
@@ -0,0 +1,825 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.utility.PipelinedWriter;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.PrecisionModel;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Parse an OSM PBF file and store the elements into the same 10 tables as {@link OSMParser}.
+ *
+ * The file blobs are read sequentially, then decompressed and decoded by a fixed size pool of threads. The decoded
+ * blocks are written in the file order, each table being a distinct batched target of a {@link PipelinedWriter}.
+ *
+ * @author Nicolas Fortin
+ */
+public class OSMPbfParser {
+    // Limits given by the OSM PBF specification
+    private static final int MAX_BLOB_HEADER_SIZE = 64 * 1024;
+    private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+    private static final List<String> SUPPORTED_FEATURES = Arrays.asList("OsmSchema-V0.6", "DenseNodes");
+    private static final double COORDINATE_SCALE = 1e9;
+
+    private final GeometryFactory gf = new GeometryFactory(new PrecisionModel(), 4326);
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private boolean importTags = true;
+    private boolean importMembers = true;
+    private boolean buildGeometries = false;
+    private OSMGeometryBuilder geometryBuilder;
+    private int nodeTarget, nodeTagTarget, wayTarget, wayTagTarget, wayNodeTarget, relationTarget,
+            relationTagTarget, nodeMemberTarget, wayMemberTarget, relationMemberTarget;
+
+    /**
+     * @param threadCount Number of threads decoding the file blobs
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    /**
+     * @param importTags False to leave the tag tables empty
+     */
+    public void setImportTags(boolean importTags) {
+        this.importTags = importTags;
+    }
+
+    /**
+     * @param importMembers False to leave the relation member tables empty
+     */
+    public void setImportMembers(boolean importMembers) {
+        this.importMembers = importMembers;
+    }
+
+    /**
+     * @param buildGeometries True to fill a geometry column of the way and relation tables while the file is read
+     */
+    public void setBuildGeometries(boolean buildGeometries) {
+        this.buildGeometries = buildGeometries;
+    }
+
+    /**
+     * Read the OSM PBF file and create its corresponding tables.
+     *
+     * @param connection
+     * @param tableName
+     * @param inputFile
+     * @param progress
+     * @return
+     * @throws SQLException
+     */
+    public boolean read(Connection connection, String tableName, File inputFile, ProgressVisitor progress) throws SQLException {
+        final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
+        TableLocation requestedTable = TableLocation.parse(tableName, isH2);
+        String osmTableName = requestedTable.getTable();
+        OSMTablesFactory.checkOSMTables(connection, isH2, requestedTable, osmTableName);
+        PipelinedWriter writer = new PipelinedWriter(connection);
+        geometryBuilder = buildGeometries ? new OSMGeometryBuilder(gf) : null;
+        createOSMDatabaseModel(connection, isH2, requestedTable, osmTableName, writer);
+        ProgressVisitor readProgress = progress.subProcess(100);
+        try (FileInputStream fis = new FileInputStream(inputFile)) {
+            FileChannel fc = fis.getChannel();
+            long fileSize = fc.size();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 64 * 1024));
+            writer.run(rows -> {
+                ExecutorService pool = Executors.newFixedThreadPool(threadCount, r -> {
+                    Thread thread = new Thread(r, "H2GIS PBF decoder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                ArrayDeque<Future<DecodedBlock>> pending = new ArrayDeque<>();
+                try {
+                    int lastStep = 0;
+                    while (true) {
+                        int headerSize;
+                        try {
+                            headerSize = in.readInt();
+                        } catch (EOFException ex) {
+                            break;
+                        }
+                        if (headerSize < 0 || headerSize > MAX_BLOB_HEADER_SIZE) {
+                            throw new IOException("Invalid PBF blob header size " + headerSize);
+                        }
+                        byte[] header = new byte[headerSize];
+                        in.readFully(header);
+                        String type = null;
+                        int dataSize = -1;
+                        ProtobufReader headerReader = new ProtobufReader(header);
+                        while (headerReader.hasNext()) {
+                            int tag = headerReader.readTag();
+                            switch (ProtobufReader.fieldNumber(tag)) {
+                                case 1:
+                                    type = headerReader.readString();
+                                    break;
+                                case 3:
+                                    dataSize = headerReader.readInt32();
+                                    break;
+                                default:
+                                    headerReader.skip(tag);
+                            }
+                        }
+                        if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE) {
+                            throw new IOException("Invalid PBF blob header");
+                        }
+                        byte[] blob = new byte[dataSize];
+                        in.readFully(blob);
+                        final String blobType = type;
+                        pending.add(pool.submit(() -> decodeBlob(blobType, blob)));
+                        // Keep a bounded number of decoded blocks in memory
+                        if (pending.size() >= threadCount * 2) {
+                            writeBlock(pending.poll(), rows);
+                        }
+                        if (readProgress.isCanceled()) {
+                            throw new SQLException("Canceled by user");
+                        }
+                        if (fileSize > 0) {
+                            int step = (int) ((fc.position() * 100) / fileSize);
+                            if (step > lastStep) {
+                                readProgress.setStep(step);
+                                lastStep = step;
+                            }
+                        }
+                    }
+                    while (!pending.isEmpty()) {
+                        writeBlock(pending.poll(), rows);
+                    }
+                } finally {
+                    pool.shutdownNow();
+                }
+            });
+        } catch (IOException ex) {
+            throw new SQLException("Cannot parse the file " + inputFile.getAbsolutePath(), ex);
+        }
+        if (geometryBuilder != null && importTags && importMembers) {
+            geometryBuilder.buildRelationGeometries(connection, isH2, requestedTable, osmTableName);
+        }
+        geometryBuilder = null;
+        return true;
+    }
+
+    /**
+     * Create the OMS data model to store the content of the file
+     *
+     * @param connection
+     * @param isH2
+     * @param requestedTable
+     * @param osmTableName
+     * @param writer
+     * @throws SQLException
+     */
+    private void createOSMDatabaseModel(Connection connection, boolean isH2, TableLocation requestedTable, String osmTableName, PipelinedWriter writer) throws SQLException {
+        String nodeTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE, isH2);
+        OSMTablesFactory.createNodeTable(connection, nodeTableName, isH2).close();
+        nodeTarget = writer.addTable(nodeTableName, 0);
+        String nodeTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE_TAG, isH2);
+        OSMTablesFactory.createNodeTagTable(connection, nodeTagTableName).close();
+        nodeTagTarget = writer.addTable(nodeTagTableName, 0);
+        String wayTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY, isH2);
+        OSMTablesFactory.createWayTable(connection, wayTableName, isH2, buildGeometries).close();
+        wayTarget = writer.addTable(wayTableName, 0);
+        String wayTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_TAG, isH2);
+        OSMTablesFactory.createWayTagTable(connection, wayTagTableName).close();
+        wayTagTarget = writer.addTable(wayTagTableName, 0);
+        String wayNodeTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_NODE, isH2);
+        OSMTablesFactory.createWayNodeTable(connection, wayNodeTableName).close();
+        wayNodeTarget = writer.addTable(wayNodeTableName, 0);
+        String relationTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION, isH2);
+        OSMTablesFactory.createRelationTable(connection, relationTableName, buildGeometries).close();
+        relationTarget = writer.addTable(relationTableName, 0);
+        String relationTagTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION_TAG, isH2);
+        OSMTablesFactory.createRelationTagTable(connection, relationTagTableName).close();
+        relationTagTarget = writer.addTable(relationTagTableName, 0);
+        String nodeMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.NODE_MEMBER, isH2);
+        OSMTablesFactory.createNodeMemberTable(connection, nodeMemberTableName).close();
+        nodeMemberTarget = writer.addTable(nodeMemberTableName, 0);
+        String wayMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.WAY_MEMBER, isH2);
+        OSMTablesFactory.createWayMemberTable(connection, wayMemberTableName).close();
+        wayMemberTarget = writer.addTable(wayMemberTableName, 0);
+        String relationMemberTableName = TableUtilities.caseIdentifier(requestedTable, osmTableName + OSMTablesFactory.RELATION_MEMBER, isH2);
+        OSMTablesFactory.createRelationMemberTable(connection, relationMemberTableName).close();
+        relationMemberTarget = writer.addTable(relationMemberTableName, 0);
+    }
+
+    private void writeBlock(Future<DecodedBlock> future, PipelinedWriter.RowSink rows) throws SQLException, IOException {
+        DecodedBlock block;
+        try {
+            block = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+        for (int i = 0; i < block.size(); i++) {
+            Object[] row = block.rows[i];
+            if (geometryBuilder != null) {
+                // The blocks are written in the file order, so the nodes are stored before the ways using them
+                if (block.targets[i] == nodeTarget) {
+                    Point point = (Point) row[1];
+                    geometryBuilder.addNode((Long) row[0], point.getX(), point.getY());
+                } else if (block.wayRefs[i] != null) {
+                    row[row.length - 1] = geometryBuilder.wayGeometry(block.wayRefs[i], block.areas[i]);
+                }
+            }
+            rows.write(block.targets[i], row);
+        }
+    }
+
+    /**
+     * Decompress and decode a file blob, run by the decoder threads
+     *
+     * @param type Blob type given by its header
+     * @param blob Blob message
+     * @return Decoded rows
+     * @throws IOException
+     */
+    private DecodedBlock decodeBlob(String type, byte[] blob) throws IOException {
+        DecodedBlock block = new DecodedBlock();
+        if (!type.equals("OSMHeader") && !type.equals("OSMData")) {
+            // Unknown blob types must be skipped
+            return block;
+        }
+        byte[] data = null;
+        byte[] zlibData = null;
+        int rawSize = -1;
+        ProtobufReader reader = new ProtobufReader(blob);
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (ProtobufReader.fieldNumber(tag)) {
+                case 1:
+                    data = reader.readBytes();
+                    break;
+                case 2:
+                    rawSize = reader.readInt32();
+                    break;
+                case 3:
+                    zlibData = reader.readBytes();
+                    break;
+                case 4:
+                case 5:
+                case 6:
+                case 7:
+                    throw new IOException("Unsupported PBF blob compression, only raw and zlib blobs are read");
+                default:
+                    reader.skip(tag);
+            }
+        }
+        if (zlibData != null) {
+            data = inflate(zlibData, rawSize);
+        }
+        if (data == null) {
+            return block;
+        }
+        if (type.equals("OSMHeader")) {
+            checkHeader(new ProtobufReader(data));
+        } else {
+            decodePrimitiveBlock(new ProtobufReader(data), block);
+        }
+        return block;
+    }
+
+    private static byte[] inflate(byte[] zlibData, int rawSize) throws IOException {
+        if (rawSize < 0 || rawSize > MAX_BLOB_SIZE) {
+            throw new IOException("Invalid PBF blob size " + rawSize);
+        }
+        byte[] data = new byte[rawSize];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlibData);
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                int read = inflater.inflate(data, length, rawSize - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            if (length != rawSize) {
+                throw new IOException("Truncated PBF zlib blob");
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Invalid PBF zlib blob", ex);
+        } finally {
+            inflater.end();
+        }
+        return data;
+    }
+
+    private static void checkHeader(ProtobufReader reader) throws IOException {
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            if (ProtobufReader.fieldNumber(tag) == 4) {
+                String feature = reader.readString();
+                if (!SUPPORTED_FEATURES.contains(feature)) {
+                    throw new IOException("Unsupported PBF required feature " + feature);
+                }
+            } else {
+                reader.skip(tag);
+            }
+        }
+    }
+
+    private void decodePrimitiveBlock(ProtobufReader reader, DecodedBlock block) throws IOException {
+        PrimitiveBlock primitiveBlock = new PrimitiveBlock();
+        List<ProtobufReader> groups = new ArrayList<>();
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (ProtobufReader.fieldNumber(tag)) {
+                case 1:
+                    primitiveBlock.readStringTable(reader.readMessage());
+                    break;
+                case 2:
+                    groups.add(reader.readMessage());
+                    break;
+                case 17:
+                    primitiveBlock.granularity = reader.readInt32();
+                    break;
+                case 18:
+                    primitiveBlock.dateGranularity = reader.readInt32();
+                    break;
+                case 19:
+                    primitiveBlock.latOffset = reader.readVarint();
+                    break;
+                case 20:
+                    primitiveBlock.lonOffset = reader.readVarint();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        // The block settings may follow the groups
+        for (ProtobufReader group : groups) {
+            while (group.hasNext()) {
+                int tag = group.readTag();
+                switch (ProtobufReader.fieldNumber(tag)) {
+                    case 1:
+                        decodeNode(group.readMessage(), primitiveBlock, block);
+                        break;
+                    case 2:
+                        decodeDenseNodes(group.readMessage(), primitiveBlock, block);
+                        break;
+                    case 3:
+                        decodeWay(group.readMessage(), primitiveBlock, block);
+                        break;
+                    case 4:
+                        decodeRelation(group.readMessage(), primitiveBlock, block);
+                        break;
+                    default:
+                        group.skip(tag);
+                }
+            }
+        }
+    }
+
+    private void decodeNode(ProtobufReader reader, PrimitiveBlock primitiveBlock, DecodedBlock block) throws IOException {
+        long id = 0, lat = 0, lon = 0;
+        int[] keys = new int[0], values = new int[0];
+        Info info = new Info();
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (ProtobufReader.fieldNumber(tag)) {
+                case 1:
+                    id = reader.readSInt64();
+                    break;
+                case 2:
+                    keys = reader.readPackedInt32();
+                    break;
+                case 3:
+                    values = reader.readPackedInt32();
+                    break;
+                case 4:
+                    info.read(reader.readMessage(), primitiveBlock);
+                    break;
+                case 8:
+                    lat = reader.readSInt64();
+                    break;
+                case 9:
+                    lon = reader.readSInt64();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        NodeOSMElement node = new NodeOSMElement(primitiveBlock.latitude(lat), primitiveBlock.longitude(lon));
+        for (int i = 0; i < Math.min(keys.length, values.length); i++) {
+            node.addTag(primitiveBlock.string(keys[i]), primitiveBlock.string(values[i]));
+        }
+        addNode(id, node, info, block);
+    }
+
+    private void decodeDenseNodes(ProtobufReader reader, PrimitiveBlock primitiveBlock, DecodedBlock block) throws IOException {
+        long[] ids = new long[0], lats = new long[0], lons = new long[0];
+        int[] keysValues = new int[0];
+        DenseInfo denseInfo = new DenseInfo();
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (ProtobufReader.fieldNumber(tag)) {
+                case 1:
+                    ids = reader.readPackedDeltaSInt64();
+                    break;
+                case 5:
+                    denseInfo.read(reader.readMessage());
+                    break;
+                case 8:
+                    lats = reader.readPackedDeltaSInt64();
+                    break;
+                case 9:
+                    lons = reader.readPackedDeltaSInt64();
+                    break;
+                case 10:
+                    keysValues = reader.readPackedInt32();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        if (lats.length != ids.length || lons.length != ids.length) {
+            throw new IOException("Invalid PBF dense nodes");
+        }
+        // Keys and values of all nodes, each node list ends with a 0 index
+        int keyValueIndex = 0;
+        for (int i = 0; i < ids.length; i++) {
+            NodeOSMElement node = new NodeOSMElement(primitiveBlock.latitude(lats[i]), primitiveBlock.longitude(lons[i]));
+            while (keyValueIndex < keysValues.length && keysValues[keyValueIndex] != 0) {
+                if (keyValueIndex + 1 >= keysValues.length) {
+                    throw new IOException("Invalid PBF dense nodes tags");
+                }
+                node.addTag(primitiveBlock.string(keysValues[keyValueIndex]),
+                        primitiveBlock.string(keysValues[keyValueIndex + 1]));
+                keyValueIndex += 2;
+            }
+            keyValueIndex++;
+            addNode(ids[i], node, denseInfo.get(i, primitiveBlock), block);
+        }
+    }
+
+    private void addNode(long id, NodeOSMElement node, Info info, DecodedBlock block) {
+        block.add(nodeTarget, new Object[]{id, node.getPoint(gf), node.getElevation(), info.user, info.uid,
+                info.visible, info.version, info.changeset, info.timestamp, node.getName()});
+        if (importTags) {
+            for (Map.Entry<String, String> entry : node.getTags().entrySet()) {
+                block.add(nodeTagTarget, new Object[]{id, entry.getKey(), entry.getValue()});
+            }
+        }
+    }
+
+    private void decodeWay(ProtobufReader reader, PrimitiveBlock primitiveBlock, DecodedBlock block) throws IOException {
+        long id = 0;
+        int[] keys = new int[0], values = new int[0];
+        long[] refs = new long[0];
+        Info info = new Info();
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (ProtobufReader.fieldNumber(tag)) {
+                case 1:
+                    id = reader.readVarint();
+                    break;
+                case 2:
+                    keys = reader.readPackedInt32();
+                    break;
+                case 3:
+                    values = reader.readPackedInt32();
+                    break;
+                case 4:
+                    info.read(reader.readMessage(), primitiveBlock);
+                    break;
+                case 8:
+                    refs = reader.readPackedDeltaSInt64();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        OSMElement way = new OSMElement();
+        for (int i = 0; i < Math.min(keys.length, values.length); i++) {
+            way.addTag(primitiveBlock.string(keys[i]), primitiveBlock.string(values[i]));
+        }
+        if (buildGeometries) {
+            // The geometry is built when the block is written
+            block.addWay(wayTarget, new Object[]{id, info.user, info.uid, info.visible, info.version,
+                    info.changeset, info.timestamp, way.getName(), null}, refs, OSMGeometryBuilder.isArea(way.getTags()));
+        } else {
+            block.add(wayTarget, new Object[]{id, info.user, info.uid, info.visible, info.version, info.changeset,
+                    info.timestamp, way.getName()});
+        }
+        if (importTags) {
+            for (Map.Entry<String, String> entry : way.getTags().entrySet()) {
+                block.add(wayTagTarget, new Object[]{id, entry.getKey(), entry.getValue()});
+            }
+        }
+        for (int i = 0; i < refs.length; i++) {
+            block.add(wayNodeTarget, new Object[]{id, refs[i], i + 1});
+        }
+    }
+
+    private void decodeRelation(ProtobufReader reader, PrimitiveBlock primitiveBlock, DecodedBlock block) throws IOException {
+        long id = 0;
+        int[] keys = new int[0], values = new int[0], roles = new int[0], types = new int[0];
+        long[] memberIds = new long[0];
+        Info info = new Info();
+        while (reader.hasNext()) {
+            int tag = reader.readTag();
+            switch (ProtobufReader.fieldNumber(tag)) {
+                case 1:
+                    id = reader.readVarint();
+                    break;
+                case 2:
+                    keys = reader.readPackedInt32();
+                    break;
+                case 3:
+                    values = reader.readPackedInt32();
+                    break;
+                case 4:
+                    info.read(reader.readMessage(), primitiveBlock);
+                    break;
+                case 8:
+                    roles = reader.readPackedInt32();
+                    break;
+                case 9:
+                    memberIds = reader.readPackedDeltaSInt64();
+                    break;
+                case 10:
+                    types = reader.readPackedInt32();
+                    break;
+                default:
+                    reader.skip(tag);
+            }
+        }
+        OSMElement relation = new OSMElement();
+        for (int i = 0; i < Math.min(keys.length, values.length); i++) {
+            relation.addTag(primitiveBlock.string(keys[i]), primitiveBlock.string(values[i]));
+        }
+        if (buildGeometries) {
+            block.add(relationTarget, new Object[]{id, info.user, info.uid, info.visible, info.version,
+                    info.changeset, info.timestamp, null});
+        } else {
+            block.add(relationTarget, new Object[]{id, info.user, info.uid, info.visible, info.version,
+                    info.changeset, info.timestamp});
+        }
+        if (importTags) {
+            for (Map.Entry<String, String> entry : relation.getTags().entrySet()) {
+                block.add(relationTagTarget, new Object[]{id, entry.getKey(), entry.getValue()});
+            }
+        }
+        if (importMembers) {
+            if (roles.length != memberIds.length || types.length != memberIds.length) {
+                throw new IOException("Invalid PBF relation members of the relation " + id);
+            }
+            for (int i = 0; i < memberIds.length; i++) {
+                Object[] row = new Object[]{id, memberIds[i], primitiveBlock.string(roles[i]), i + 1};
+                switch (types[i]) {
+                    case 0:
+                        block.add(nodeMemberTarget, row);
+                        break;
+                    case 1:
+                        block.add(wayMemberTarget, row);
+                        break;
+                    case 2:
+                        block.add(relationMemberTarget, row);
+                        break;
+                    default:
+                        throw new IOException("Unknown PBF member type " + types[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows decoded from one blob, with their target table
+     */
+    private static final class DecodedBlock {
+        private int[] targets = new int[256];
+        private Object[][] rows = new Object[256][];
+        private long[][] wayRefs = new long[256][];
+        private boolean[] areas = new boolean[256];
+        private int size = 0;
+
+        void add(int target, Object[] row) {
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                rows = Arrays.copyOf(rows, size * 2);
+                wayRefs = Arrays.copyOf(wayRefs, size * 2);
+                areas = Arrays.copyOf(areas, size * 2);
+            }
+            targets[size] = target;
+            rows[size] = row;
+            size++;
+        }
+
+        /**
+         * Add a way row, its last value is the geometry built from the node references
+         */
+        void addWay(int target, Object[] row, long[] refs, boolean area) {
+            add(target, row);
+            wayRefs[size - 1] = refs;
+            areas[size - 1] = area;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Settings and string table of a primitive block
+     */
+    private static final class PrimitiveBlock {
+        private String[] strings = new String[0];
+        private int granularity = 100;
+        private int dateGranularity = 1000;
+        private long latOffset = 0;
+        private long lonOffset = 0;
+
+        void readStringTable(ProtobufReader reader) throws IOException {
+            List<String> table = new ArrayList<>();
+            while (reader.hasNext()) {
+                int tag = reader.readTag();
+                if (ProtobufReader.fieldNumber(tag) == 1) {
+                    table.add(reader.readString());
+                } else {
+                    reader.skip(tag);
+                }
+            }
+            strings = table.toArray(new String[0]);
+        }
+
+        String string(int index) throws IOException {
+            if (index < 0 || index >= strings.length) {
+                throw new IOException("Invalid PBF string index " + index);
+            }
+            return strings[index];
+        }
+
+        String user(int index) throws IOException {
+            // The first string of the table is empty, it is used for anonymous edits
+            return index == 0 ? null : string(index);
+        }
+
+        double latitude(long lat) {
+            // Division keeps the decimal degrees written in the file
+            return (latOffset + (long) granularity * lat) / COORDINATE_SCALE;
+        }
+
+        double longitude(long lon) {
+            return (lonOffset + (long) granularity * lon) / COORDINATE_SCALE;
+        }
+
+        Timestamp timestamp(long timestamp) {
+            return new Timestamp(timestamp * dateGranularity);
+        }
+    }
+
+    /**
+     * Metadata of an element
+     */
+    private static final class Info {
+        private int version = 0;
+        private Timestamp timestamp;
+        private int changeset;
+        private long uid;
+        private String user;
+        private boolean visible = true;
+
+        void read(ProtobufReader reader, PrimitiveBlock primitiveBlock) throws IOException {
+            while (reader.hasNext()) {
+                int tag = reader.readTag();
+                switch (ProtobufReader.fieldNumber(tag)) {
+                    case 1:
+                        version = reader.readInt32();
+                        break;
+                    case 2:
+                        timestamp = primitiveBlock.timestamp(reader.readVarint());
+                        break;
+                    case 3:
+                        changeset = (int) reader.readVarint();
+                        break;
+                    case 4:
+                        uid = reader.readInt32();
+                        break;
+                    case 5:
+                        user = primitiveBlock.user(reader.readInt32());
+                        break;
+                    case 6:
+                        visible = reader.readBool();
+                        break;
+                    default:
+                        reader.skip(tag);
+                }
+            }
+        }
+    }
+
+    /**
+     * Metadata of the dense nodes, stored by columns
+     */
+    private static final class DenseInfo {
+        private int[] versions = new int[0];
+        private long[] timestamps = new long[0];
+        private long[] changesets = new long[0];
+        private long[] uids = new long[0];
+        private long[] userIndexes = new long[0];
+        private int[] visible = new int[0];
+
+        void read(ProtobufReader reader) throws IOException {
+            while (reader.hasNext()) {
+                int tag = reader.readTag();
+                switch (ProtobufReader.fieldNumber(tag)) {
+                    case 1:
+                        versions = reader.readPackedInt32();
+                        break;
+                    case 2:
+                        timestamps = reader.readPackedDeltaSInt64();
+                        break;
+                    case 3:
+                        changesets = reader.readPackedDeltaSInt64();
+                        break;
+                    case 4:
+                        uids = reader.readPackedDeltaSInt64();
+                        break;
+                    case 5:
+                        userIndexes = reader.readPackedDeltaSInt64();
+                        break;
+                    case 6:
+                        visible = reader.readPackedInt32();
+                        break;
+                    default:
+                        reader.skip(tag);
+                }
+            }
+        }
+
+        Info get(int index, PrimitiveBlock primitiveBlock) throws IOException {
+            Info info = new Info();
+            if (index < versions.length) {
+                info.version = versions[index];
+            }
+            if (index < timestamps.length) {
+                info.timestamp = primitiveBlock.timestamp(timestamps[index]);
+            }
+            if (index < changesets.length) {
+                info.changeset = (int) changesets[index];
+            }
+            if (index < uids.length) {
+                info.uid = uids[index];
+            }
+            if (index < userIndexes.length) {
+                info.user = primitiveBlock.user((int) userIndexes[index]);
+            }
+            if (index < visible.length) {
+                info.visible = visible[index] != 0;
+            }
+            return info;
+        }
+    }
+}
@@ -40,9 +40,12 @@ import java.sql.SQLException;
 public class OSMRead extends AbstractFunction implements ScalarFunction {
 
     public OSMRead() {
-        addProperty(PROP_REMARKS, "Read a OSM file and copy the content in the specified tables.\n"
+        addProperty(PROP_REMARKS, "Read a OSM file (.osm, .osm.gz, .osm.bz2 or .osm.pbf) and copy the content in the specified tables.\n"
                 + "The user can set a prefix name for all OSM tables and specify if the existing OSM\n"
-                + " tables must be dropped." +
+                + " tables must be dropped.\n"
+                + "Import options can be set as a last argument ie 'threads=4 tags=false members=false geometries=true'\n"
+                + " to set the number of threads decoding a .osm.pbf file, to skip the tags or the relation members\n"
+                + " and to fill a THE_GEOM column of the way table and of the multipolygon relations while reading." +
                 "\nHere a sample in order to extract buildings polygons using way nodes:\n" +
                 "create index on MAP_WAY_NODE(ID_WAY,ID_NODE);\n" +
                 "drop table if exists MAP_BUILDINGS,MAP_WAY_GEOM;\n" +
@@ -62,15 +65,16 @@ public class OSMRead extends AbstractFunction implements ScalarFunction {
     }
     
     /**
-     * 
+     *
      * @param connection
      * @param fileName
      * @param tableReference
      * @param deleteTables  true to delete the existing tables
+     * @param options import options ie "threads=4 tags=false members=false geometries=true"
      * @throws FileNotFoundException
-     * @throws SQLException 
+     * @throws SQLException
      */
-    public static void readOSM(Connection connection, String fileName, String tableReference, boolean deleteTables) throws FileNotFoundException, SQLException, IOException {
+    public static void readOSM(Connection connection, String fileName, String tableReference, boolean deleteTables, String options) throws FileNotFoundException, SQLException, IOException {
         if (deleteTables) {
             OSMTablesFactory.dropOSMTables(connection, JDBCUtilities.isH2DataBase(connection), tableReference);
         }
@@ -79,8 +83,20 @@ public class OSMRead extends AbstractFunction implements ScalarFunction {
             throw new FileNotFoundException("The following file does not exists:\n" + fileName);
         }
         OSMDriverFunction osmdf = new OSMDriverFunction();
-        osmdf.importFile(connection, tableReference, file, new EmptyProgressVisitor(), deleteTables);
- 
+        osmdf.importFile(connection, tableReference, file, new EmptyProgressVisitor(), options, deleteTables);
+    }
+
+    /**
+     * 
+     * @param connection
+     * @param fileName
+     * @param tableReference
+     * @param deleteTables  true to delete the existing tables
+     * @throws FileNotFoundException
+     * @throws SQLException 
+     */
+    public static void readOSM(Connection connection, String fileName, String tableReference, boolean deleteTables) throws FileNotFoundException, SQLException, IOException {
+        readOSM(connection, fileName, tableReference, deleteTables, null);
     }
 
     /**
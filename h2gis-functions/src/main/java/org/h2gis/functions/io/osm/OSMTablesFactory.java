@@ -20,6 +20,7 @@
 
 package org.h2gis.functions.io.osm;
 
+import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 import org.h2gis.utilities.TableUtilities;
 
@@ -77,7 +78,7 @@ public class OSMTablesFactory {
      * @param connection
      * @param nodeTableName
      * @param isH2
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createNodeTable(Connection connection, String nodeTableName, boolean isH2) throws SQLException {
@@ -105,7 +106,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param nodeTagTableName
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createNodeTagTable(Connection connection, String nodeTagTableName) throws SQLException {
@@ -115,11 +116,7 @@ public class OSMTablesFactory {
             sb.append("(ID_NODE BIGINT, TAG_KEY VARCHAR,TAG_VALUE VARCHAR); ");
             stmt.execute(sb.toString());
         }
-        //We return the preparedstatement of the tag table
-        StringBuilder insert = new StringBuilder("INSERT INTO ");
-        insert.append(nodeTagTableName);
-        insert.append("VALUES ( ?, ?, ?);");
-        return connection.prepareStatement(insert.toString());
+        return connection.prepareStatement("INSERT INTO " + nodeTagTableName + " VALUES ( ?, ?, ?);");
     }
 
     /**
@@ -130,17 +127,35 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param wayTableName
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createWayTable(Connection connection, String wayTableName, boolean isH2) throws SQLException {
+        return createWayTable(connection, wayTableName, isH2, false);
+    }
+
+    /**
+     * Create the ways table that will be used to import OSM ways
+     *
+     * @param connection
+     * @param wayTableName
+     * @param isH2
+     * @param withGeometry True to add a THE_GEOM column filled with the way geometry
+     * @return The statement that inserts the rows of the table
+     * @throws SQLException
+     */
+    public static PreparedStatement createWayTable(Connection connection, String wayTableName, boolean isH2, boolean withGeometry) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             StringBuilder sb = new StringBuilder("CREATE TABLE ");
             sb.append(wayTableName);
-            sb.append("(ID_WAY BIGINT PRIMARY KEY, USER_NAME VARCHAR, UID BIGINT, VISIBLE BOOLEAN, VERSION INTEGER, CHANGESET INTEGER, LAST_UPDATE TIMESTAMP, NAME VARCHAR);");
+            sb.append("(ID_WAY BIGINT PRIMARY KEY, USER_NAME VARCHAR, UID BIGINT, VISIBLE BOOLEAN, VERSION INTEGER, CHANGESET INTEGER, LAST_UPDATE TIMESTAMP, NAME VARCHAR");
+            if (withGeometry) {
+                sb.append(", THE_GEOM GEOMETRY(GEOMETRY, 4326)");
+            }
+            sb.append(");");
             stmt.execute(sb.toString());
         }
-        return connection.prepareStatement("INSERT INTO " + wayTableName + " VALUES (?,?,?,?,?,?,?,?);");
+        return connection.prepareStatement("INSERT INTO " + wayTableName + (withGeometry ? " VALUES (?,?,?,?,?,?,?,?,?);" : " VALUES (?,?,?,?,?,?,?,?);"));
     }
 
     /**
@@ -148,7 +163,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param wayTagTableName
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createWayTagTable(Connection connection, String wayTagTableName) throws SQLException {
@@ -158,11 +173,7 @@ public class OSMTablesFactory {
             sb.append("(ID_WAY BIGINT, TAG_KEY VARCHAR,TAG_VALUE VARCHAR);");
             stmt.execute(sb.toString());
         }
-        //We return the preparedstatement of the way tag table
-        StringBuilder insert = new StringBuilder("INSERT INTO ");
-        insert.append(wayTagTableName);
-        insert.append("VALUES ( ?, ?, ?);");
-        return connection.prepareStatement(insert.toString());
+        return connection.prepareStatement("INSERT INTO " + wayTagTableName + " VALUES ( ?, ?, ?);");
     }
 
     /**
@@ -170,7 +181,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param wayNodeTableName
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createWayNodeTable(Connection connection, String wayNodeTableName) throws SQLException{
@@ -188,10 +199,23 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param relationTable
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createRelationTable(Connection connection, String relationTable) throws SQLException {
+        return createRelationTable(connection, relationTable, false);
+    }
+
+    /**
+     * Create the relation table.
+     *
+     * @param connection
+     * @param relationTable
+     * @param withGeometry True to add a THE_GEOM column filled with the multipolygon geometry
+     * @return The statement that inserts the rows of the table
+     * @throws SQLException
+     */
+    public static PreparedStatement createRelationTable(Connection connection, String relationTable, boolean withGeometry) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             StringBuilder sb = new StringBuilder("CREATE TABLE ");
             sb.append(relationTable);
@@ -201,10 +225,14 @@ public class OSMTablesFactory {
                     + "VISIBLE BOOLEAN,"
                     + "VERSION INTEGER,"
                     + "CHANGESET INTEGER,"
-                    + "LAST_UPDATE TIMESTAMP);");
+                    + "LAST_UPDATE TIMESTAMP");
+            if (withGeometry) {
+                sb.append(", THE_GEOM GEOMETRY(MULTIPOLYGON, 4326)");
+            }
+            sb.append(");");
             stmt.execute(sb.toString());
         }
-        return connection.prepareStatement("INSERT INTO " + relationTable + " VALUES ( ?,?,?,?,?,?,?);");
+        return connection.prepareStatement("INSERT INTO " + relationTable + (withGeometry ? " VALUES ( ?,?,?,?,?,?,?,?);" : " VALUES ( ?,?,?,?,?,?,?);"));
     }
 
     /**
@@ -212,7 +240,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param relationTagTable
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createRelationTagTable(Connection connection, String relationTagTable) throws SQLException {
@@ -222,11 +250,7 @@ public class OSMTablesFactory {
             sb.append("(ID_RELATION BIGINT, TAG_KEY VARCHAR,TAG_VALUE VARCHAR);");
             stmt.execute(sb.toString());
         }
-        //We return the preparedstatement of the way tag table
-        StringBuilder insert = new StringBuilder("INSERT INTO ");
-        insert.append(relationTagTable);
-        insert.append("VALUES ( ?, ?, ?);");
-        return connection.prepareStatement(insert.toString());
+        return connection.prepareStatement("INSERT INTO " + relationTagTable + " VALUES ( ?, ?, ?);");
     }
 
     /**
@@ -234,7 +258,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param nodeMemberTable
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createNodeMemberTable(Connection connection, String nodeMemberTable) throws SQLException {
@@ -252,7 +276,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param wayMemberTable
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createWayMemberTable(Connection connection, String wayMemberTable) throws SQLException {
@@ -270,7 +294,7 @@ public class OSMTablesFactory {
      *
      * @param connection
      * @param relationMemberTable
-     * @return
+     * @return The statement that inserts the rows of the table
      * @throws SQLException
      */
     public static PreparedStatement createRelationMemberTable(Connection connection, String relationMemberTable) throws SQLException {
@@ -284,6 +308,26 @@ public class OSMTablesFactory {
     }
     
     
+    /**
+     * Check if one table already exists
+     *
+     * @param connection
+     * @param isH2
+     * @param requestedTable
+     * @param osmTableName
+     * @throws SQLException
+     */
+    public static void checkOSMTables(Connection connection, boolean isH2, TableLocation requestedTable, String osmTableName) throws SQLException {
+        String[] omsTables = new String[]{NODE, NODE_TAG, WAY, WAY_NODE, 
+            WAY_TAG, RELATION, RELATION_TAG, NODE_MEMBER, WAY_MEMBER, RELATION_MEMBER};
+        for (String omsTableSuffix : omsTables) {
+            String osmTable = TableUtilities.caseIdentifier(requestedTable, osmTableName + omsTableSuffix, isH2);
+            if (JDBCUtilities.tableExists(connection, TableLocation.parse(osmTable, isH2))) {
+                throw new SQLException("The table " + osmTable + " already exists.");
+            }
+        }
+    }
+
     /**
      * Drop the existing OSM tables used to store the imported OSM data 
      *
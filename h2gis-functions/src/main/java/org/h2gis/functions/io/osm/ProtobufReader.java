@@ -0,0 +1,219 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.osm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal reader of the protocol buffers wire format, enough to decode the OSM PBF messages.
+ * Repeated numeric fields are expected in their packed encoding.
+ *
+ * @author Nicolas Fortin
+ */
+final class ProtobufReader {
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+    static final int FIXED32 = 5;
+
+    private final byte[] data;
+    private int position;
+    private final int limit;
+
+    ProtobufReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    ProtobufReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * @return True if there is remaining bytes in the message
+     */
+    boolean hasNext() {
+        return position < limit;
+    }
+
+    /**
+     * @return Field number and wire type of the next field
+     */
+    int readTag() throws IOException {
+        return (int) readVarint();
+    }
+
+    static int fieldNumber(int tag) {
+        return tag >>> 3;
+    }
+
+    static int wireType(int tag) {
+        return tag & 7;
+    }
+
+    long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IOException("Truncated protocol buffers message");
+            }
+            byte b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    int readInt32() throws IOException {
+        return (int) readVarint();
+    }
+
+    long readSInt64() throws IOException {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    int readSInt32() throws IOException {
+        return (int) readSInt64();
+    }
+
+    boolean readBool() throws IOException {
+        return readVarint() != 0;
+    }
+
+    private int readLength() throws IOException {
+        long length = readVarint();
+        if (length < 0 || length > limit - position) {
+            throw new IOException("Truncated protocol buffers message");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Read a length delimited field as an embedded message, or as packed repeated values
+     * @return Reader of the field content
+     */
+    ProtobufReader readMessage() throws IOException {
+        int length = readLength();
+        ProtobufReader message = new ProtobufReader(data, position, length);
+        position += length;
+        return message;
+    }
+
+    byte[] readBytes() throws IOException {
+        int length = readLength();
+        byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    String readString() throws IOException {
+        int length = readLength();
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Skip the value of a field
+     * @param tag Tag of the field
+     */
+    void skip(int tag) throws IOException {
+        switch (wireType(tag)) {
+            case VARINT:
+                readVarint();
+                break;
+            case FIXED64:
+                skipBytes(8);
+                break;
+            case LENGTH_DELIMITED:
+                skipBytes(readLength());
+                break;
+            case FIXED32:
+                skipBytes(4);
+                break;
+            default:
+                throw new IOException("Unsupported protocol buffers wire type " + wireType(tag));
+        }
+    }
+
+    private void skipBytes(int count) throws IOException {
+        if (count > limit - position) {
+            throw new IOException("Truncated protocol buffers message");
+        }
+        position += count;
+    }
+
+    /**
+     * @return Packed repeated int32, uint32 or enum values
+     */
+    int[] readPackedInt32() throws IOException {
+        ProtobufReader packed = readMessage();
+        int[] values = new int[Math.max(1, packed.limit - packed.position)];
+        int count = 0;
+        while (packed.hasNext()) {
+            values[count++] = packed.readInt32();
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * @return Packed repeated sint32 values
+     */
+    int[] readPackedSInt32() throws IOException {
+        ProtobufReader packed = readMessage();
+        int[] values = new int[Math.max(1, packed.limit - packed.position)];
+        int count = 0;
+        while (packed.hasNext()) {
+            values[count++] = packed.readSInt32();
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * @return Packed repeated sint64 values
+     */
+    long[] readPackedSInt64() throws IOException {
+        ProtobufReader packed = readMessage();
+        long[] values = new long[Math.max(1, packed.limit - packed.position)];
+        int count = 0;
+        while (packed.hasNext()) {
+            values[count++] = packed.readSInt64();
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * @return Packed repeated sint64 values stored as differences with the previous value
+     */
+    long[] readPackedDeltaSInt64() throws IOException {
+        long[] values = readPackedSInt64();
+        for (int i = 1; i < values.length; i++) {
+            values[i] += values[i - 1];
+        }
+        return values;
+    }
+}
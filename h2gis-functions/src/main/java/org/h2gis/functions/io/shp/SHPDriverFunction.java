@@ -22,16 +22,19 @@ package org.h2gis.functions.io.shp;
 
 import org.h2.table.Column;
 import org.h2gis.api.DriverFunction;
+import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
 import org.h2gis.functions.io.dbf.DBFDriverFunction;
 import org.h2gis.functions.io.dbf.internal.DbaseFileHeader;
 import org.h2gis.functions.io.file_table.FileEngine;
 import org.h2gis.functions.io.file_table.H2TableIndex;
 import org.h2gis.functions.io.shp.internal.SHPDriver;
+import org.h2gis.functions.io.shp.internal.SHPPartsWriter;
 import org.h2gis.functions.io.shp.internal.ShapeType;
 import org.h2gis.functions.io.shp.internal.ShapefileHeader;
 import org.h2gis.functions.io.utility.FileUtil;
 import org.h2gis.functions.io.utility.PRJUtil;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.utilities.GeometryTypeCodes;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
@@ -42,6 +45,13 @@ import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.h2gis.utilities.GeometryTableUtilities;
@@ -54,7 +64,9 @@ import org.h2gis.utilities.Tuple;
  */
 public class SHPDriverFunction implements DriverFunction {
     public static String DESCRIPTION = "ESRI shapefile";
-    private static final int BATCH_MAX_SIZE = 200;
+    private static final int PROGRESS_STEP_SIZE = 200;
+    // Rows fetched at once by the export result sets
+    private static final int FETCH_SIZE = 1000;
     
 
     @Override
@@ -74,6 +86,27 @@ public class SHPDriverFunction implements DriverFunction {
      */
     @Override
     public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress, String encoding) throws SQLException, IOException {
+        exportTable(connection, tableReference, fileName, progress, encoding, null);
+    }
+
+    /**
+     * Save a table or a query to a shpfile, split into several numbered shapefiles when a part exceeds the size or
+     * row limit.
+     * @param connection Active connection, do not close this connection.
+     * @param tableReference [[catalog.]schema.]table reference
+     * @param fileName File path to write, if exists it may be replaced
+     * @param progress to display the IO progress
+     * @param encoding File encoding, null will use default encoding
+     * @param options export options ie "maxsize=1000000000 maxrows=5000000 threads=4", maxsize is the maximum size
+     *                in bytes of the .shp and .dbf files of a part (2 GB by default), maxrows the maximum row count of
+     *                a part and threads the number of parts written at the same time. With more than one thread the
+     *                rows are distributed by blocks to the parts.
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void exportTable(Connection connection, String tableReference, File fileName, ProgressVisitor progress, String encoding, String options) throws SQLException, IOException {
+        ExportOptions exportOptions = ExportOptions.parse(options);
+        List<File> parts = new ArrayList<>();
         final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
         String regex = ".*(?i)\\b(select|from)\\b.*";
         Pattern pattern = Pattern.compile(regex);
@@ -81,18 +114,17 @@ public class SHPDriverFunction implements DriverFunction {
         if (matcher.find()) {
             if (tableReference.startsWith("(") && tableReference.endsWith(")")) {
                 if (FileUtil.isExtensionWellFormated(fileName, "shp")) {
-                    PreparedStatement ps = connection.prepareStatement(tableReference, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-                    ResultSet resultSet = ps.executeQuery();
-                    int recordCount = 0;
-                    resultSet.last();
-                    recordCount = resultSet.getRow();
-                    resultSet.beforeFirst();
-                    ProgressVisitor copyProgress = progress.subProcess(recordCount);
-                    Tuple<String, Integer> spatialFieldNameAndIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(resultSet);
-                    int srid = doExport(spatialFieldNameAndIndex.second(), resultSet, recordCount, fileName, progress, encoding);                    
-                    String path = fileName.getAbsolutePath();
-                    String nameWithoutExt = path.substring(0, path.lastIndexOf('.'));
-                    PRJUtil.writePRJ(connection, srid,  new File(nameWithoutExt + ".prj"));                
+                    // The row count is not known, the records are written in one forward pass
+                    ProgressVisitor copyProgress = progress.subProcess(1);
+                    try (PreparedStatement ps = connection.prepareStatement(tableReference, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                        ps.setFetchSize(FETCH_SIZE);
+                        ResultSet resultSet = ps.executeQuery();
+                        Tuple<String, Integer> spatialFieldNameAndIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(resultSet);
+                        int srid = doExport(spatialFieldNameAndIndex.second(), resultSet, fileName, new EmptyProgressVisitor(), encoding, exportOptions, parts);
+                        for (File part : parts) {
+                            PRJUtil.writePRJ(connection, srid, prjFile(part));
+                        }
+                    }
                     copyProgress.endOfProgress();
                 } else {
                     throw new SQLException("Only .shp extension is supported");
@@ -103,18 +135,23 @@ public class SHPDriverFunction implements DriverFunction {
         } else {
             if (FileUtil.isExtensionWellFormated(fileName, "shp")) {
                 TableLocation location = TableLocation.parse(tableReference, isH2);
-                int recordCount = JDBCUtilities.getRowCount(connection, tableReference);
-                ProgressVisitor copyProgress = progress.subProcess(recordCount);
+                // The headers are updated when the files are closed, the row count is only used by the progression
+                ProgressVisitor copyProgress = progress;
+                if (!(progress instanceof EmptyProgressVisitor)) {
+                    copyProgress = progress.subProcess(JDBCUtilities.getRowCount(connection, tableReference));
+                }
                 // Read Geometry Index and type
                 Tuple<String, Integer> spatialFieldNameAndIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(connection, TableLocation.parse(tableReference, isH2));
-                Statement st = connection.createStatement();
-                ResultSet rs = st.executeQuery(String.format("select * from %s", location.toString()));
-                doExport(spatialFieldNameAndIndex.second(), rs, recordCount, fileName, copyProgress, encoding);
-                String path = fileName.getAbsolutePath();
-                String nameWithoutExt = path.substring(0, path.lastIndexOf('.'));
-                PRJUtil.writePRJ(connection, location, spatialFieldNameAndIndex.first(), new File(nameWithoutExt + ".prj"));
+                try (Statement st = connection.createStatement()) {
+                    st.setFetchSize(FETCH_SIZE);
+                    ResultSet rs = st.executeQuery(String.format("select * from %s", location.toString()));
+                    doExport(spatialFieldNameAndIndex.second(), rs, fileName, copyProgress, encoding, exportOptions, parts);
+                }
+                for (File part : parts) {
+                    PRJUtil.writePRJ(connection, location, spatialFieldNameAndIndex.first(), prjFile(part));
+                }
                 copyProgress.endOfProgress();
-                
+
             } else {
                 throw new SQLException("Only .shp extension is supported");
             }
@@ -122,17 +159,22 @@ public class SHPDriverFunction implements DriverFunction {
     }
 
      /**
-     * Method to export a resulset into a shapefile
-     * @param connection Active connection, do not close this connection.
-     * @param selectQuery the select query to export
+     * Method to export a resulset into a shapefile, the rows are read once and the record count and file lengths
+     * are written in the headers when the files are closed
+     * @param spatialFieldIndex index of the geometry column
+     * @param rs the rows to export
      * @param fileName File path to write, if exists it may be replaced
      * @param progress to display the IO progress
      * @param encoding File encoding, null will use default encoding
+     * @param options size limits and thread count
+     * @param parts receive the written .shp files
      * @throws java.sql.SQLException 
      */
-    private int doExport(Integer spatialFieldIndex, ResultSet rs, int recordCount, File fileName, ProgressVisitor progress, String encoding) throws SQLException, IOException {
+    private int doExport(Integer spatialFieldIndex, ResultSet rs, File fileName, ProgressVisitor progress, String encoding,
+                         ExportOptions options, List<File> parts) throws SQLException, IOException {
         int srid =0;
         ShapeType shapeType = null;
+        PartsExport partsExport = null;
         try {
             ResultSetMetaData resultSetMetaData = rs.getMetaData();
             ArrayList<Integer> columnIndexes = new ArrayList<Integer>();
@@ -141,15 +183,14 @@ public class SHPDriverFunction implements DriverFunction {
             if (encoding != null) {
                 header.setEncoding(encoding);
             }
-            header.setNumRecords(recordCount);
-            SHPDriver shpDriver = null;
-            Object[] row = new Object[header.getNumFields() + 1];
             while (rs.next()) {
+                // The row may be written by another thread
+                Object[] row = new Object[header.getNumFields() + 1];
                 int i = 0;
                 for (Integer index : columnIndexes) {
                     row[i++] = rs.getObject(index);
                 }
-                if (shpDriver == null) {
+                if (partsExport == null) {
                     // If there is not shape type constraint read the first geometry and use the same type
                     byte[] wkb = rs.getBytes(spatialFieldIndex);
                     if (wkb != null) {
@@ -160,22 +201,21 @@ public class SHPDriverFunction implements DriverFunction {
                         shapeType = getShapeTypeFromGeometryMetaData(gm);                       
                     }
                     if (shapeType != null) {
-                        shpDriver = new SHPDriver();
-                        shpDriver.setGeometryFieldIndex(0);
-                        shpDriver.initDriver(fileName, shapeType, header);
+                        partsExport = new PartsExport(fileName, shapeType, header, options, parts);
                     } else {
                         throw new SQLException("Unsupported geometry type.");
                     }
                 }
-                if (shpDriver != null) {
-                    shpDriver.insertRow(row);
-                }
+                partsExport.insertRow(row);
                 progress.endStep();
             }
-            if (shpDriver != null) {
-                shpDriver.close();
+            if (partsExport != null) {
+                partsExport.finish();
             }
         } finally {
+            if (partsExport != null) {
+                partsExport.close();
+            }
             rs.close();
         }
         return srid;
@@ -233,7 +273,7 @@ public class SHPDriverFunction implements DriverFunction {
         final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
         SHPDriver shpDriver = new SHPDriver();
         shpDriver.initDriverFromFile(fileName, forceEncoding);
-        ProgressVisitor copyProgress = progress.subProcess((int)(shpDriver.getRowCount() / BATCH_MAX_SIZE));
+        ProgressVisitor copyProgress = progress.subProcess((int)(shpDriver.getRowCount() / PROGRESS_STEP_SIZE));
         // PostGIS does not show sql
         String lastSql = "";
         try {
@@ -265,42 +305,26 @@ public class SHPDriverFunction implements DriverFunction {
                             getPostGISSFSGeometryType(shpHeader),srid, types);
                     st.execute(lastSql);
                 }
+            } catch (SQLException ex) {
+                throw new SQLException(lastSql+"\n"+ex.getLocalizedMessage(), ex);
             }
             try {
-                        lastSql = String.format("INSERT INTO %s VALUES (DEFAULT, %s )", parse,
-                                DBFDriverFunction.getQuestionMark(dbfHeader.getNumFields() + 1));                        
-                        connection.setAutoCommit(false);
-                try (PreparedStatement preparedStatement = connection.prepareStatement(lastSql)) {
-                    long batchSize = 0;
-                    for (int rowId = 0; rowId < shpDriver.getRowCount(); rowId++) {
-                        Object[] values = shpDriver.getRow(rowId);
-                        for (int columnId = 0; columnId < values.length; columnId++) {
-                            preparedStatement.setObject(columnId + 1, values[columnId]);
-                        }
-                        preparedStatement.addBatch();
-                        batchSize++;
-                        if (batchSize >= BATCH_MAX_SIZE) {
-                            preparedStatement.executeBatch();
-                            connection.commit();
-                            preparedStatement.clearBatch();
-                            batchSize = 0;
-                            copyProgress.endStep();
+                try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                    int target = writer.addTable(parse.toString(), 1);
+                    writer.run(rows -> {
+                        for (int rowId = 0; rowId < shpDriver.getRowCount(); rowId++) {
+                            rows.write(target, shpDriver.getRow(rowId));
+                            if ((rowId + 1) % PROGRESS_STEP_SIZE == 0) {
+                                copyProgress.endStep();
+                            }
                         }
-                    }
-                    if(batchSize > 0) {
-                        preparedStatement.executeBatch();                        
-                        connection.commit();
-                    }
-                    
-                    connection.setAutoCommit(true);
-                }               
+                    });
+                }
                 //TODO create spatial index on the_geom ?
             } catch (Exception ex) {
                 connection.createStatement().execute("DROP TABLE IF EXISTS " + tableReference);
                 throw new SQLException(ex.getLocalizedMessage(), ex);
             }
-        } catch (SQLException ex) {
-            throw new SQLException(lastSql+"\n"+ex.getLocalizedMessage(), ex);
         } finally {
             shpDriver.close();
             copyProgress.endOfProgress();
@@ -416,4 +440,209 @@ public class SHPDriverFunction implements DriverFunction {
                 return "GEOMETRY";
         }
     }    
+
+    private static File prjFile(File shpFile) {
+        String path = shpFile.getAbsolutePath();
+        return new File(path.substring(0, path.lastIndexOf('.')) + ".prj");
+    }
+
+    /**
+     * Size limits and thread count of an export
+     */
+    private static final class ExportOptions {
+        // Offsets of the shx file and record count of the dbf file are signed integers
+        private long maxSize = Integer.MAX_VALUE;
+        private long maxRows = Integer.MAX_VALUE;
+        private int threadCount = 1;
+
+        static ExportOptions parse(String options) throws SQLException {
+            ExportOptions exportOptions = new ExportOptions();
+            if (options == null || options.trim().isEmpty()) {
+                return exportOptions;
+            }
+            for (String option : options.trim().split("\\s+")) {
+                int separator = option.indexOf('=');
+                if (separator <= 0) {
+                    throw new SQLException("Invalid SHP export option " + option);
+                }
+                String key = option.substring(0, separator);
+                long value;
+                try {
+                    value = Long.parseLong(option.substring(separator + 1));
+                } catch (NumberFormatException ex) {
+                    throw new SQLException("Invalid SHP export option " + option, ex);
+                }
+                if (value <= 0) {
+                    throw new SQLException("Invalid SHP export option " + option);
+                }
+                if (key.equalsIgnoreCase("maxsize")) {
+                    exportOptions.maxSize = Math.min(value, Integer.MAX_VALUE);
+                } else if (key.equalsIgnoreCase("maxrows")) {
+                    exportOptions.maxRows = Math.min(value, Integer.MAX_VALUE);
+                } else if (key.equalsIgnoreCase("threads")) {
+                    exportOptions.threadCount = (int) Math.min(value, Runtime.getRuntime().availableProcessors() * 4L);
+                } else {
+                    throw new SQLException("Unknown SHP export option " + key);
+                }
+            }
+            return exportOptions;
+        }
+    }
+
+    /**
+     * Write the exported rows into shapefile parts. With more than one thread each part writer runs in its own
+     * thread, the rows are split into whole parts and each part is written by the next writer in turn.
+     */
+    private static final class PartsExport {
+        private static final int BATCH_SIZE = 500;
+        private static final Chunk END = new Chunk(null);
+        private final File fileName;
+        private final SHPPartsWriter[] writers;
+        private final SHPPartsWriter.PartNumbers partNumbers;
+        private final SHPPartsWriter.PartLimit partLimit;
+        private final List<BlockingQueue<Chunk>> queues = new ArrayList<>();
+        private final List<Future<Void>> tasks = new ArrayList<>();
+        private final ExecutorService pool;
+        private Chunk chunk;
+        private int currentWriter = -1;
+
+        PartsExport(File fileName, ShapeType shapeType, DbaseFileHeader header, ExportOptions options, List<File> parts) throws IOException {
+            this.fileName = fileName;
+            partNumbers = new SHPPartsWriter.PartNumbers(parts);
+            partLimit = new SHPPartsWriter.PartLimit(shapeType, header, options.maxSize, options.maxRows);
+            writers = new SHPPartsWriter[options.threadCount];
+            for (int i = 0; i < writers.length; i++) {
+                writers[i] = new SHPPartsWriter(fileName, shapeType, header, options.maxSize, options.maxRows, partNumbers);
+            }
+            if (writers.length > 1) {
+                pool = Executors.newFixedThreadPool(writers.length, r -> {
+                    Thread thread = new Thread(r, "H2GIS SHP writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                for (SHPPartsWriter writer : writers) {
+                    BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(4);
+                    queues.add(queue);
+                    tasks.add(pool.submit(() -> {
+                        Chunk rows;
+                        while ((rows = queue.take()) != END) {
+                            if (rows.partFile != null) {
+                                writer.startPart(rows.partFile);
+                            }
+                            for (Object[] row : rows.rows) {
+                                writer.writeRow(row);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+            } else {
+                pool = null;
+            }
+        }
+
+        void insertRow(Object[] row) throws SQLException, IOException {
+            if (pool == null) {
+                writers[0].insertRow(row);
+                return;
+            }
+            if (partLimit.add(row)) {
+                // The whole part is written by the next writer
+                if (chunk != null) {
+                    dispatch(currentWriter, chunk);
+                }
+                currentWriter = (currentWriter + 1) % writers.length;
+                chunk = new Chunk(partNumbers.nextPart(fileName));
+            } else if (chunk == null) {
+                chunk = new Chunk(null);
+            }
+            chunk.rows.add(row);
+            if (chunk.rows.size() >= BATCH_SIZE) {
+                dispatch(currentWriter, chunk);
+                chunk = null;
+            }
+        }
+
+        private void dispatch(int writerIndex, Chunk rows) throws SQLException, IOException {
+            try {
+                while (!queues.get(writerIndex).offer(rows, 100, TimeUnit.MILLISECONDS)) {
+                    // The writer stopped on an error
+                    if (tasks.get(writerIndex).isDone()) {
+                        checkTask(tasks.get(writerIndex));
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(ex);
+            }
+        }
+
+        private static void checkTask(Future<Void> task) throws SQLException, IOException {
+            try {
+                task.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new SQLException(cause);
+            }
+        }
+
+        /**
+         * Write the remaining rows and wait for the writers
+         */
+        void finish() throws SQLException, IOException {
+            if (pool == null) {
+                return;
+            }
+            if (chunk != null) {
+                dispatch(currentWriter, chunk);
+                chunk = null;
+            }
+            for (int i = 0; i < writers.length; i++) {
+                dispatch(i, END);
+            }
+            for (Future<Void> task : tasks) {
+                checkTask(task);
+            }
+        }
+
+        /**
+         * Stop the writers and close the current parts
+         */
+        void close() throws IOException {
+            if (pool != null) {
+                pool.shutdownNow();
+                try {
+                    pool.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            for (SHPPartsWriter writer : writers) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Rows sent to a part writer thread
+     */
+    private static final class Chunk {
+        // File of the part started by these rows, null to continue the current part
+        private final File partFile;
+        private final List<Object[]> rows = new ArrayList<>(PartsExport.BATCH_SIZE);
+
+        private Chunk(File partFile) {
+            this.partFile = partFile;
+        }
+    }
 }
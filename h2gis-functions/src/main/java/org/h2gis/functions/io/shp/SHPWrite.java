@@ -36,7 +36,10 @@ import java.sql.SQLException;
 public class SHPWrite extends AbstractFunction implements ScalarFunction {    
 
     public SHPWrite() {
-        addProperty(PROP_REMARKS, "Transfer the content of a table into a new shape file\nCALL SHPWRITE('FILENAME', 'TABLE'[,'ENCODING'])");
+        addProperty(PROP_REMARKS, "Transfer the content of a table into a new shape file\nCALL SHPWRITE('FILENAME', 'TABLE'[,'ENCODING'[,'OPTIONS']])\n"
+                + "The options 'maxsize=1000000000 maxrows=5000000 threads=4' split the export into numbered shape files\n"
+                + " (name_2.shp, name_3.shp...) when a part exceeds the size in bytes or the row count, the parts being\n"
+                + " written by the given number of threads. The parts are limited to 2 GB by default.");
     }
 
     @Override
@@ -67,8 +70,23 @@ public class SHPWrite extends AbstractFunction implements ScalarFunction {
      * @throws SQLException
      */
     public static void exportTable(Connection connection, String fileName, String tableReference, String encoding) throws IOException, SQLException {
+        exportTable(connection, fileName, tableReference, encoding, null);
+    }
+
+    /**
+     * Read a table and write it into one or several shape files.
+     * @param connection Active connection
+     * @param fileName Shape file name or URI
+     * @param tableReference Table name or select query
+     * Note : The select query must be enclosed in parenthesis
+     * @param encoding File encoding
+     * @param options Export options ie "maxsize=1000000000 maxrows=5000000 threads=4"
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static void exportTable(Connection connection, String fileName, String tableReference, String encoding, String options) throws IOException, SQLException {
         SHPDriverFunction shpDriverFunction = new SHPDriverFunction();
-        shpDriverFunction.exportTable(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(), encoding);
+        shpDriverFunction.exportTable(connection, tableReference, URIUtilities.fileFromString(fileName), new EmptyProgressVisitor(), encoding, options);
     }
 
 }
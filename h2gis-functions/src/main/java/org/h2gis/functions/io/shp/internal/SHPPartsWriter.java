@@ -0,0 +1,205 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.shp.internal;
+
+import org.h2gis.functions.io.dbf.internal.DbaseFileHeader;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Write rows into shapefile parts, a new part is started when the current one would exceed the size or the row
+ * count limit. The first part uses the requested file name, the next ones are suffixed by their number
+ * (name_2.shp, name_3.shp...).
+ *
+ * The part numbers are given by a {@link PartNumbers} that may be shared by several writers running in distinct
+ * threads, each writer owning its own {@link SHPDriver}. In that case a {@link PartLimit} splits the rows in whole
+ * parts and each part is given to a single writer.
+ *
+ * @author Nicolas Fortin
+ */
+public class SHPPartsWriter {
+    // Length of the shp, shx headers
+    private static final int SHP_HEADER_LENGTH = 100;
+    // Length of the shp record header and of a shx record
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final int DBF_MINIMUM_HEADER = 33;
+
+    private final File fileName;
+    private final ShapeType shapeType;
+    private final DbaseFileHeader dbaseHeader;
+    private final PartLimit partLimit;
+    private final PartNumbers partNumbers;
+    private SHPDriver shpDriver;
+
+    /**
+     * @param fileName Requested .shp file
+     * @param shapeType Shape type of all parts
+     * @param dbaseHeader Fields of all parts, the geometry is the first value of the rows
+     * @param maxSize Maximum size in bytes of the .shp and .dbf files of a part
+     * @param maxRows Maximum number of rows of a part
+     * @param partNumbers Part numbering shared by the writers of the same export
+     * @throws IOException
+     */
+    public SHPPartsWriter(File fileName, ShapeType shapeType, DbaseFileHeader dbaseHeader, long maxSize, long maxRows,
+                          PartNumbers partNumbers) throws IOException {
+        this.fileName = fileName;
+        this.shapeType = shapeType;
+        this.dbaseHeader = dbaseHeader;
+        this.partLimit = new PartLimit(shapeType, dbaseHeader, maxSize, maxRows);
+        this.partNumbers = partNumbers;
+    }
+
+    /**
+     * Write a row, the first value is the geometry. A new part is started when the row does not fit in the
+     * current one.
+     * @param row Row values
+     * @throws IOException
+     */
+    public void insertRow(Object[] row) throws IOException {
+        if (partLimit.add(row)) {
+            startPart(partNumbers.nextPart(fileName));
+        }
+        shpDriver.insertRow(row);
+    }
+
+    /**
+     * Close the current part and start writing in the given file
+     * @param partFile .shp file of the part, given by {@link PartNumbers#nextPart(File)}
+     * @throws IOException
+     */
+    public void startPart(File partFile) throws IOException {
+        close();
+        shpDriver = new SHPDriver();
+        shpDriver.setGeometryFieldIndex(0);
+        shpDriver.initDriver(partFile, shapeType, dbaseHeader);
+    }
+
+    /**
+     * Write a row in the current part, without checking the part limits
+     * @param row Row values, the first value is the geometry
+     * @throws IOException
+     */
+    public void writeRow(Object[] row) throws IOException {
+        shpDriver.insertRow(row);
+    }
+
+    /**
+     * Close the current part
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (shpDriver != null) {
+            shpDriver.close();
+            shpDriver = null;
+        }
+    }
+
+    /**
+     * Split a sequence of rows into parts that do not exceed the size and the row count limits.
+     */
+    public static class PartLimit {
+        private final ShapeHandler handler;
+        private final long recordLength;
+        private final long dbfHeaderLength;
+        private final long maxSize;
+        private final long maxRows;
+        private boolean started = false;
+        private long rowCount;
+        private long shpSize;
+        private long dbfSize;
+
+        /**
+         * @param shapeType Shape type of all parts
+         * @param dbaseHeader Fields of all parts
+         * @param maxSize Maximum size in bytes of the .shp and .dbf files of a part
+         * @param maxRows Maximum number of rows of a part
+         * @throws IOException
+         */
+        public PartLimit(ShapeType shapeType, DbaseFileHeader dbaseHeader, long maxSize, long maxRows) throws IOException {
+            try {
+                this.handler = shapeType.getShapeHandler();
+            } catch (ShapefileException ex) {
+                throw new IOException("Error with type " + shapeType, ex);
+            }
+            this.recordLength = dbaseHeader.getRecordLength();
+            this.dbfHeaderLength = Math.max(DBF_MINIMUM_HEADER, dbaseHeader.getHeaderLength());
+            this.maxSize = maxSize;
+            this.maxRows = maxRows;
+        }
+
+        /**
+         * Account for the next row
+         * @param row Row values, the first value is the geometry
+         * @return True if the row is the first one of a new part
+         */
+        public boolean add(Object[] row) {
+            long shpLength = RECORD_HEADER_LENGTH;
+            if (row[0] instanceof Geometry) {
+                shpLength += handler.getLength(row[0]);
+            }
+            boolean newPart = !started || rowCount >= maxRows || shpSize + shpLength > maxSize
+                    || dbfSize + recordLength > maxSize;
+            if (newPart) {
+                started = true;
+                rowCount = 0;
+                shpSize = SHP_HEADER_LENGTH;
+                dbfSize = dbfHeaderLength;
+            }
+            rowCount++;
+            shpSize += shpLength;
+            dbfSize += recordLength;
+            return newPart;
+        }
+    }
+
+    /**
+     * Numbers of the parts of an export
+     */
+    public static class PartNumbers {
+        private final List<File> parts;
+
+        /**
+         * @param parts Receive the .shp file of each created part
+         */
+        public PartNumbers(List<File> parts) {
+            this.parts = parts;
+        }
+
+        /**
+         * @param fileName Requested .shp file
+         * @return The .shp file of the next part
+         */
+        public synchronized File nextPart(File fileName) {
+            int partNumber = parts.size() + 1;
+            File partFile = fileName;
+            if (partNumber > 1) {
+                String path = fileName.getAbsolutePath();
+                int dotIndex = path.lastIndexOf('.');
+                partFile = new File(path.substring(0, dotIndex) + "_" + partNumber + path.substring(dotIndex));
+            }
+            parts.add(partFile);
+            return partFile;
+        }
+    }
+}
@@ -25,12 +25,15 @@ import org.h2.tools.Csv;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.api.ProgressVisitor;
+import org.h2gis.functions.io.csv.CSVReaderDriver;
 import org.h2gis.functions.io.utility.FileUtil;
+import org.h2gis.functions.io.utility.PipelinedWriter;
 import org.h2gis.utilities.JDBCUtilities;
 import org.h2gis.utilities.TableLocation;
 
 import java.io.*;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.sql.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -58,7 +61,6 @@ import java.util.regex.Pattern;
 public class TSVDriverFunction implements DriverFunction{
 
     public static String DESCRIPTION = "TSV file (Tab Separated Values)";
-    private static final int BATCH_MAX_SIZE = 100;
    
     
     @Override
@@ -113,20 +115,20 @@ public class TSVDriverFunction implements DriverFunction{
         Matcher matcher = pattern.matcher(tableReference);
         if (matcher.find()) {
             if (tableReference.startsWith("(") && tableReference.endsWith(")")) {
-                if (FileUtil.isExtensionWellFormated(fileName, "tsv")) {
+                if (FileUtil.isExtensionWellFormated(fileName, "tsv", true)) {
                     try (Statement st = connection.createStatement()) {
                         JDBCUtilities.attachCancelResultSet(st, progress);
                         exportFromResultSet(connection, st.executeQuery(tableReference), fileName, new EmptyProgressVisitor(), encoding);
                     }
                 } else {
-                    throw new SQLException("Only .tsv extension is supported");
+                    throw new SQLException("Only .tsv and .tsv.gz extensions are supported");
                 }
 
             } else {
                 throw new SQLException("The select query must be enclosed in parenthesis: '(SELECT * FROM ORDERS)'.");
             }
         } else {
-            if (FileUtil.isExtensionWellFormated(fileName, "tsv")) {
+            if (FileUtil.isExtensionWellFormated(fileName, "tsv", true)) {
                 final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
                 TableLocation location = TableLocation.parse(tableReference, isH2);
                 try (Statement st = connection.createStatement()) {
@@ -134,7 +136,7 @@ public class TSVDriverFunction implements DriverFunction{
                     exportFromResultSet(connection, st.executeQuery("SELECT * FROM " + location.toString()), fileName,new EmptyProgressVisitor(),encoding);
                 }
             } else {
-                throw new SQLException("Only .tsv extension is supported");
+                throw new SQLException("Only .tsv and .tsv.gz extensions are supported");
             }
         }        
     }
@@ -155,13 +157,22 @@ public class TSVDriverFunction implements DriverFunction{
         if (encoding != null) {
             csvOptions = String.format("charset=%s fieldSeparator=\t fieldDelimiter=\t", encoding);
         }
-        csv.setOptions(csvOptions);
-        csv.write(fileName.getPath(), res, null);
+        String charset = csv.setOptions(csvOptions);
+        if (FileUtil.isGzipFile(fileName)) {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtil.openOutputStream(fileName),
+                    Charset.forName(charset)))) {
+                csv.write(writer, res);
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
+        } else {
+            csv.write(fileName.getPath(), res, null);
+        }
     }
 
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress) throws SQLException, IOException {
-        if (FileUtil.isFileImportable(fileName, "tsv")) {
+        if (FileUtil.isFileImportable(fileName, "tsv", true)) {
             final boolean isH2 = JDBCUtilities.isH2DataBase(connection);
             TableLocation requestedTable = TableLocation.parse(tableReference, isH2);
             String table = requestedTable.getTable();
@@ -173,76 +184,79 @@ public class TSVDriverFunction implements DriverFunction{
             // Given the file size and an average node file size.
             // Skip how many nodes in order to update progression at a step of 1%
             long readFileSizeEachNode = Math.max(1, (fileSize / AVERAGE_NODE_SIZE) / 100);            
-            int average_row_size = 0;
             
             Csv csv = new Csv();
             csv.setFieldDelimiter('\t');
             csv.setFieldSeparatorRead('\t');
-            ResultSet reader = csv.read(new BufferedReader(new InputStreamReader(fis)), null);
+            ResultSet reader = csv.read(new BufferedReader(new InputStreamReader(FileUtil.uncompressedInputStream(fileName, fis))), null);
             ResultSetMetaData metadata = reader.getMetaData();
             int columnCount = metadata.getColumnCount();
 
             StringBuilder createTable = new StringBuilder("CREATE TABLE ");
             createTable.append(table).append("(");
 
-            StringBuilder insertTable = new StringBuilder("INSERT INTO ");
-            insertTable.append(table).append(" VALUES(");
             for (int i = 0; i < columnCount; i++) {
                 if (i > 0) {
                     createTable.append(",");
-                    insertTable.append(",");
                 }
                 createTable.append(metadata.getColumnName(i + 1)).append(" VARCHAR");
-                insertTable.append("?");
             }
             createTable.append(")");
-            insertTable.append(")");
 
             try (Statement stmt = connection.createStatement()) {
                 stmt.execute(createTable.toString());
             }
 
-            PreparedStatement pst = connection.prepareStatement(insertTable.toString());
-            long batchSize = 0;
-            try {
-                while (reader.next()) {
-                    if (progress.isCanceled()) {
-                        throw new SQLException("Canceled by user");
-                    }
-                    
-                    for (int i = 0; i < columnCount; i++) {
-                        pst.setString(i + 1, reader.getString(i + 1));
-                    }
-                    pst.addBatch();
-                    batchSize++;
-                    if (batchSize >= BATCH_MAX_SIZE) {
-                        pst.executeBatch();
-                        pst.clearBatch();
-                        batchSize = 0;
-                    }
-                    
-                    if (average_row_size++ % readFileSizeEachNode == 0) {
-                        // Update Progress
-                        try {
-                            progress.setStep((int) (((double) fc.position() / fileSize) * 100));
-                        } catch (IOException ex) {
-                            // Ignore
+            try (PipelinedWriter writer = new PipelinedWriter(connection)) {
+                int target = writer.addTable(table, 0);
+                writer.run(rows -> {
+                    int rowCount = 0;
+                    while (reader.next()) {
+                        if (progress.isCanceled()) {
+                            throw new SQLException("Canceled by user");
+                        }
+                        Object[] row = new Object[columnCount];
+                        for (int i = 0; i < columnCount; i++) {
+                            row[i] = reader.getString(i + 1);
+                        }
+                        rows.write(target, row);
+                        if (rowCount++ % readFileSizeEachNode == 0) {
+                            // Update Progress
+                            try {
+                                progress.setStep((int) (((double) fc.position() / fileSize) * 100));
+                            } catch (IOException ex) {
+                                // Ignore
+                            }
                         }
                     }
-                }
-                if (batchSize > 0) {
-                    pst.executeBatch();
-                }
-            } finally {
-                pst.close();
+                });
             }
         }
     }
 
+    /**
+     * @param connection Active connection, do not close this connection.
+     * @param tableReference [[catalog.]schema.]table reference
+     * @param fileName File path to read
+     * @param progress
+     * @param options the import options ie "threads=4 types=true sample=1000 geometry=wkt lon=x lat=y srid=4326",
+     *                the file is read by a {@link CSVReaderDriver} into typed columns, without options all the
+     *                columns are VARCHAR
+     * @throws SQLException
+     * @throws IOException
+     */
     @Override
     public void importFile(Connection connection, String tableReference, File fileName, ProgressVisitor progress,
                            String options) throws SQLException, IOException {
-        importFile(connection, tableReference, fileName, progress);
+        if (options == null || options.trim().isEmpty()) {
+            importFile(connection, tableReference, fileName, progress);
+        } else if (FileUtil.isFileImportable(fileName, "tsv", true)) {
+            CSVReaderDriver csvReaderDriver = new CSVReaderDriver();
+            csvReaderDriver.setFieldSeparator('\t');
+            csvReaderDriver.setFieldDelimiter((char) 0);
+            csvReaderDriver.setOptions(options);
+            csvReaderDriver.read(connection, fileName, progress, tableReference);
+        }
     }
 
     @Override
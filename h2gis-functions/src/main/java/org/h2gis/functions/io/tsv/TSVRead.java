@@ -40,7 +40,9 @@ import java.sql.SQLException;
 public class TSVRead  extends AbstractFunction implements ScalarFunction{
 
     public TSVRead() {
-        addProperty(PROP_REMARKS, "Read a Tab-separated values file.");
+        addProperty(PROP_REMARKS, "Read a Tab-separated values file, .tsv.gz files are decompressed while they are read.\n"
+                + "The options 'threads=4 types=true sample=1000 geometry=wkt lon=x lat=y srid=4326' read the file "
+                + "in parallel into typed columns.");
     }
 
     @Override
@@ -59,12 +61,30 @@ public class TSVRead  extends AbstractFunction implements ScalarFunction{
      */
     public static void readTSV(Connection connection, String fileName, String tableReference) throws SQLException, FileNotFoundException, IOException {
         File file = URIUtilities.fileFromString(fileName);
-        if (FileUtil.isFileImportable(file, "tsv")) {
+        if (FileUtil.isFileImportable(file, "tsv", true)) {
             TSVDriverFunction tsvDriver = new TSVDriverFunction();
             tsvDriver.importFile(connection, tableReference, file, new EmptyProgressVisitor());
         }
     }
 
+    /**
+     * Copy data from TSV File into a new table with typed columns.
+     * @param connection
+     * @param fileName
+     * @param tableReference
+     * @param options Import options ie "threads=4 types=true sample=1000 geometry=wkt lon=x lat=y srid=4326"
+     * @throws SQLException
+     * @throws IOException
+     */
+    public static void readTSV(Connection connection, String fileName, String tableReference, String options)
+            throws SQLException, IOException {
+        File file = URIUtilities.fileFromString(fileName);
+        if (FileUtil.isFileImportable(file, "tsv", true)) {
+            TSVDriverFunction tsvDriver = new TSVDriverFunction();
+            tsvDriver.importFile(connection, tableReference, file, new EmptyProgressVisitor(), options);
+        }
+    }
+
     /**
      * Copy data from TSV File into a new table in specified connection.
      * @param connection
@@ -73,7 +93,7 @@ public class TSVRead  extends AbstractFunction implements ScalarFunction{
      * @throws SQLException 
      */
     public static void readTSV(Connection connection, String fileName) throws IOException, SQLException {
-        final String name = URIUtilities.fileFromString(fileName).getName();
+        final String name = FileUtil.removeGzipExtension(URIUtilities.fileFromString(fileName).getName());
         String tableName = name.substring(0, name.lastIndexOf(".")).toUpperCase();
         if (tableName.matches("^[a-zA-Z][a-zA-Z0-9_]*$")) {
             readTSV(connection, fileName, tableName);
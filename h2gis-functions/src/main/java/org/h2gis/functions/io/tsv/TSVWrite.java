@@ -37,7 +37,7 @@ import java.sql.SQLException;
 public class TSVWrite extends AbstractFunction implements ScalarFunction {
 
     public TSVWrite() {
-        addProperty(PROP_REMARKS, "Write a Tab-separated values file.");
+        addProperty(PROP_REMARKS, "Write a Tab-separated values file, .tsv.gz files are compressed.");
     }
 
     @Override
@@ -22,14 +22,33 @@ package org.h2gis.functions.io.utility;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Some utilities
+ *
+ * The drivers supporting compressed files read and write .gz files, identified by a .gz suffix added to their
+ * extension.
  * 
  * @author Erwan Bocher
  */
 public class FileUtil {
+    /** Extension of the compressed files */
+    public static final String GZIP_EXTENSION = "gz";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
     
     /**
      * Check if the file is well formatted regarding an extension prefix.
@@ -68,4 +87,154 @@ public class FileUtil {
         }
         return extension.equalsIgnoreCase(prefix);
     }
+
+    /**
+     * Check if the file has the good extension, optionally followed by the .gz extension
+     * @param file
+     * @param prefix
+     * @param acceptGzip True to accept the prefix.gz extension
+     * @return
+     */
+    public static boolean isExtensionWellFormated(File file, String prefix, boolean acceptGzip) {
+        if (acceptGzip && isGzipFile(file)) {
+            String path = file.getAbsolutePath();
+            return isExtensionWellFormated(new File(path.substring(0, path.length() - GZIP_EXTENSION.length() - 1)), prefix);
+        }
+        return isExtensionWellFormated(file, prefix);
+    }
+
+    /**
+     * Check if the file is well formatted regarding an extension prefix, optionally followed by the .gz extension.
+     * Check also if the file doesn't exist.
+     *
+     * @param file
+     * @param prefix
+     * @param acceptGzip True to accept the prefix.gz extension
+     * @return
+     * @throws SQLException
+     * @throws java.io.FileNotFoundException
+     */
+    public static boolean isFileImportable(File file, String prefix, boolean acceptGzip) throws SQLException, FileNotFoundException {
+        if (isExtensionWellFormated(file, prefix, acceptGzip)) {
+            if (file.exists()) {
+                return true;
+            } else {
+                throw new FileNotFoundException("The following file does not exists:\n" + file.getPath());
+            }
+        } else {
+            throw new SQLException("Please use " + prefix + (acceptGzip ? " or " + prefix + "." + GZIP_EXTENSION : "")
+                    + " extension.");
+        }
+    }
+
+    /**
+     * @param file
+     * @return True if the file has the .gz extension
+     */
+    public static boolean isGzipFile(File file) {
+        return isExtensionWellFormated(file, GZIP_EXTENSION);
+    }
+
+    /**
+     * Remove the .gz extension of a file name
+     * @param fileName
+     * @return The file name without the .gz extension
+     */
+    public static String removeGzipExtension(String fileName) {
+        String suffix = "." + GZIP_EXTENSION;
+        if (fileName.toLowerCase().endsWith(suffix)) {
+            return fileName.substring(0, fileName.length() - suffix.length());
+        }
+        return fileName;
+    }
+
+    /**
+     * Open a file for writing, the data is compressed by a {@link ParallelGZIPOutputStream} if the file has the
+     * .gz extension.
+     *
+     * @param file
+     * @return Output stream, to close
+     * @throws IOException
+     */
+    public static OutputStream openOutputStream(File file) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        if (isGzipFile(file)) {
+            try {
+                return new ParallelGZIPOutputStream(fos);
+            } catch (IOException | RuntimeException ex) {
+                fos.close();
+                throw ex;
+            }
+        }
+        return fos;
+    }
+
+    /**
+     * Decompress the content of a file if it has the .gz extension.
+     *
+     * @param file
+     * @param inputStream Stream of the file content
+     * @return The decompressed stream or the given stream
+     * @throws IOException
+     */
+    public static InputStream uncompressedInputStream(File file, InputStream inputStream) throws IOException {
+        if (isGzipFile(file)) {
+            return new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE);
+        }
+        return inputStream;
+    }
+
+    /**
+     * Check if the name of a file is a glob pattern, ie *.gpx or track_20??.gpx
+     *
+     * @param file
+     * @return True if the file name contains a glob special character
+     */
+    public static boolean isGlobPattern(File file) {
+        String name = file.getName();
+        for (char c : new char[]{'*', '?', '[', '{'}) {
+            if (name.indexOf(c) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * List the files designated by a directory, or by a glob pattern on the file name ie /data/tracks/*.gpx
+     *
+     * @param path Directory, or glob pattern on the names of the files of a directory
+     * @param extension Extension of the files read from a directory
+     * @return The matching files sorted by path
+     * @throws IOException
+     */
+    public static List<File> listFiles(File path, String extension) throws IOException {
+        Path directory;
+        PathMatcher matcher;
+        if (path.isDirectory()) {
+            directory = path.toPath();
+            matcher = null;
+        } else {
+            File parent = path.getAbsoluteFile().getParentFile();
+            if (parent == null || !parent.isDirectory()) {
+                throw new FileNotFoundException("The following directory does not exists:\n" + parent);
+            }
+            directory = parent.toPath();
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + path.getName());
+        }
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                if (matcher == null ? isExtensionWellFormated(file.toFile(), extension)
+                        : matcher.matches(file.getFileName())) {
+                    files.add(file.toFile());
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
 }
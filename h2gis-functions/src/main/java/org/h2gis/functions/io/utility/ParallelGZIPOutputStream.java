@@ -0,0 +1,265 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.utility;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * GZIP output stream compressing blocks of data in a pool of threads.
+ *
+ * The data is cut into blocks deflated independently, each block uses the last 32 KB of the previous block as
+ * preset dictionary so the compression ratio stays close to a sequential compression. The blocks are ended by a
+ * sync flush and written in order into a single GZIP member, readable by any GZIP decoder. The CRC of the data is
+ * computed by the writing thread.
+ *
+ * @author Nicolas Fortin
+ */
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+    /** Default size of the compressed blocks */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    // Deflate window size
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = new byte[]{(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final ExecutorService pool;
+    private final int maxPendingBlocks;
+    private final int blockSize;
+    private final int level;
+    private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    // Input blocks that can be filled again
+    private final ArrayDeque<byte[]> freeBlocks = new ArrayDeque<>();
+    // Input blocks of the pending tasks, a block is used as dictionary by the next task
+    private final ArrayDeque<byte[]> usedBlocks = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private final byte[] singleByte = new byte[1];
+    private byte[] block;
+    private int blockLength = 0;
+    private byte[] previousBlock;
+    private long inputSize = 0;
+    private boolean closed = false;
+
+    /**
+     * Compress with one thread per available processor
+     *
+     * @param out Compressed output stream
+     * @throws IOException
+     */
+    public ParallelGZIPOutputStream(OutputStream out) throws IOException {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param out Compressed output stream
+     * @param threadCount Number of compressing threads
+     * @throws IOException
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threadCount) throws IOException {
+        this(out, threadCount, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param out Compressed output stream
+     * @param threadCount Number of compressing threads
+     * @param blockSize Size of the compressed blocks, at least 32 KB
+     * @param level Compression level, see {@link Deflater}
+     * @throws IOException
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threadCount, int blockSize, int level) throws IOException {
+        super(out);
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The thread count must be greater than 0");
+        }
+        this.blockSize = Math.max(DICTIONARY_SIZE, blockSize);
+        this.level = level;
+        this.maxPendingBlocks = threadCount * 2;
+        this.pool = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread thread = new Thread(r, "H2GIS GZIP compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.block = new byte[this.blockSize];
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        singleByte[0] = (byte) b;
+        write(singleByte, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        crc.update(b, off, len);
+        inputSize += len;
+        while (len > 0) {
+            int copyLength = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, copyLength);
+            blockLength += copyLength;
+            off += copyLength;
+            len -= copyLength;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Write the compressed blocks already submitted, the data of the current block is kept to be compressed with
+     * the next ones.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pendingBlocks.isEmpty()) {
+            writeNextBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Compress the remaining data, write the GZIP trailer then close the underlying stream.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock(true);
+            while (!pendingBlocks.isEmpty()) {
+                writeNextBlock();
+            }
+            byte[] trailer = new byte[8];
+            writeInt(trailer, 0, (int) crc.getValue());
+            writeInt(trailer, 4, (int) inputSize);
+            out.write(trailer);
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+            out.close();
+        }
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     * Compress the current block in the pool
+     *
+     * @param last True if this is the last block of the stream
+     * @throws IOException
+     */
+    private void submitBlock(boolean last) throws IOException {
+        if (pendingBlocks.size() >= maxPendingBlocks) {
+            writeNextBlock();
+        }
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] dictionary = previousBlock;
+        pendingBlocks.add(pool.submit(() -> deflate(input, length, dictionary, last)));
+        usedBlocks.add(input);
+        previousBlock = input;
+        block = freeBlocks.isEmpty() ? new byte[blockSize] : freeBlocks.poll();
+        blockLength = 0;
+    }
+
+    /**
+     * Wait for the oldest submitted block then write it
+     *
+     * @throws IOException
+     */
+    private void writeNextBlock() throws IOException {
+        byte[] compressed;
+        try {
+            compressed = pendingBlocks.poll().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compression interrupted");
+        } catch (ExecutionException ex) {
+            throw new IOException("Cannot compress the data", ex.getCause());
+        }
+        out.write(compressed);
+        // The input block of this task is no longer needed once the next task, using it as dictionary, is done
+        if (usedBlocks.size() > pendingBlocks.size() + 1) {
+            freeBlocks.add(usedBlocks.poll());
+        }
+    }
+
+    /**
+     * Deflate a block without the zlib header
+     *
+     * @param input Block data
+     * @param length Length of the block data
+     * @param dictionary Previous block or null for the first block
+     * @param last True to end the deflate stream, otherwise the output is ended by a sync flush
+     * @return Compressed data
+     */
+    private byte[] deflate(byte[] input, int length, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(input, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+            byte[] output = new byte[length + (length >> 3) + 64];
+            int outputLength = 0;
+            while (true) {
+                int space = output.length - outputLength;
+                int written = deflater.deflate(output, outputLength, space,
+                        last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                outputLength += written;
+                if (last ? deflater.finished() : written < space) {
+                    return Arrays.copyOf(output, outputLength);
+                }
+                if (outputLength == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+}
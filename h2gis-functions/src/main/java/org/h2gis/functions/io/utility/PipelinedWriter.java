@@ -0,0 +1,425 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.utility;
+
+import org.h2.value.Value;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.locationtech.jts.geom.Geometry;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Insert the rows read by a file driver into one or more tables.
+ *
+ * The file is parsed by a {@link RowProducer} running in a dedicated thread, the rows are sent through a bounded
+ * queue to the calling thread that owns the connection and inserts them. The producer must not use the connection.
+ *
+ * The rows of each target are grouped into batches sized by their estimated memory volume. After each batch the
+ * size is adapted to keep the execution time close to {@link #setTargetBatchTime(long)}. On a PostgreSQL
+ * connection a single table target is loaded with {@link PostGISCopyWriter}.
+ *
+ * @author Nicolas Fortin
+ */
+public class PipelinedWriter implements AutoCloseable {
+    /** Default number of rows waiting between the parser and the writer */
+    public static final int DEFAULT_QUEUE_SIZE = 4096;
+    /** Default time spent to insert one batch, in milliseconds */
+    public static final long DEFAULT_TARGET_BATCH_TIME = 100;
+    public static final long MIN_BATCH_BYTES = 64 * 1024;
+    public static final long MAX_BATCH_BYTES = 16 * 1024 * 1024;
+    public static final long INITIAL_BATCH_BYTES = 512 * 1024;
+    public static final int MAX_BATCH_ROWS = 100000;
+    private static final Object END = new Object();
+
+    private final Connection connection;
+    private final List<Target> targets = new ArrayList<>();
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private long targetBatchTime = DEFAULT_TARGET_BATCH_TIME;
+    private boolean copyEnabled = true;
+    private long rowCount = 0;
+
+    /**
+     * @param connection Active connection, the rows are written with this connection in the calling thread
+     */
+    public PipelinedWriter(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Add a target table.
+     *
+     * @param tableName Table identifier, already parsed and quoted
+     * @param columnOffset Number of leading columns of the table that are not written and take their default value
+     * @return Index of the target, to use with {@link RowSink#write(int, Object[])}
+     * @throws SQLException
+     */
+    public int addTable(String tableName, int columnOffset) throws SQLException {
+        boolean isH2 = JDBCUtilities.isH2DataBase(connection);
+        StringBuilder columns = new StringBuilder();
+        StringBuilder parameters = new StringBuilder();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + tableName + " LIMIT 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = columnOffset + 1; i <= meta.getColumnCount(); i++) {
+                if (columns.length() > 0) {
+                    columns.append(", ");
+                    parameters.append(", ");
+                }
+                columns.append(TableLocation.quoteIdentifier(meta.getColumnName(i), isH2));
+                parameters.append("?");
+            }
+        }
+        Target target = new Target("INSERT INTO " + tableName + " (" + columns + ") VALUES (" + parameters + ")");
+        target.tableName = tableName;
+        target.columnOffset = columnOffset;
+        targets.add(target);
+        return targets.size() - 1;
+    }
+
+    /**
+     * Add a target insert statement.
+     *
+     * @param insertSql Parametrized insert query, one parameter per written value
+     * @return Index of the target, to use with {@link RowSink#write(int, Object[])}
+     */
+    public int addInsert(String insertSql) {
+        targets.add(new Target(insertSql));
+        return targets.size() - 1;
+    }
+
+    /**
+     * @param queueSize Maximum number of rows waiting to be written, 0 to parse and write in the calling thread
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * @param targetBatchTime Time in milliseconds to spend on each batch, the batch size is adapted to it
+     */
+    public void setTargetBatchTime(long targetBatchTime) {
+        this.targetBatchTime = Math.max(1, targetBatchTime);
+    }
+
+    /**
+     * @param copyEnabled True to use the PostgreSQL COPY when there is only one target table
+     */
+    public void setCopyEnabled(boolean copyEnabled) {
+        this.copyEnabled = copyEnabled;
+    }
+
+    /**
+     * @return Number of rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Run the producer and write all its rows. The rows are committed once, when all of them have been written. On
+     * failure the rows written by this call are rolled back, unless the transaction was opened by the caller.
+     *
+     * @param producer Row producer
+     * @throws SQLException Write error, or parse error thrown by the producer
+     * @throws IOException Read error thrown by the producer
+     */
+    public void run(RowProducer producer) throws SQLException, IOException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        boolean success = false;
+        try {
+            if (copyEnabled && targets.size() == 1 && targets.get(0).tableName != null) {
+                Target target = targets.get(0);
+                target.copyWriter = PostGISCopyWriter.open(connection, target.tableName, target.columnOffset);
+            }
+            if (queueSize <= 0) {
+                producer.produce(this::write);
+            } else {
+                runPipelined(producer);
+            }
+            for (Target target : targets) {
+                target.finish();
+            }
+            if (autoCommit) {
+                connection.commit();
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                try {
+                    close();
+                    if (autoCommit) {
+                        connection.rollback();
+                    }
+                } catch (SQLException ex) {
+                    // Keep the original error
+                }
+            }
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void write(int target, Object[] values) throws SQLException {
+        if (target < 0 || target >= targets.size()) {
+            throw new SQLException("Unknown target " + target);
+        }
+        targets.get(target).write(values);
+        rowCount++;
+    }
+
+    private void runPipelined(RowProducer producer) throws SQLException, IOException {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+        AtomicBoolean canceled = new AtomicBoolean(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread parser = new Thread(() -> {
+            try {
+                producer.produce((target, values) -> {
+                    Row row = new Row(target, values);
+                    try {
+                        while (!queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                            if (canceled.get()) {
+                                throw new SQLException("Canceled by the writer");
+                            }
+                        }
+                    } catch (InterruptedException ex) {
+                        throw new SQLException(ex);
+                    }
+                });
+            } catch (Throwable ex) {
+                failure.set(ex);
+            } finally {
+                try {
+                    while (!canceled.get() && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                        // Wait for the writer
+                    }
+                } catch (InterruptedException ex) {
+                    // The writer does not wait anymore
+                }
+            }
+        }, "H2GIS file parser");
+        parser.setDaemon(true);
+        parser.start();
+        try {
+            Object item;
+            while ((item = queue.take()) != END) {
+                Row row = (Row) item;
+                write(row.target, row.values);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(ex);
+        } finally {
+            canceled.set(true);
+            queue.clear();
+            try {
+                parser.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Throwable ex = failure.get();
+        if (ex instanceof SQLException) {
+            throw (SQLException) ex;
+        } else if (ex instanceof IOException) {
+            throw (IOException) ex;
+        } else if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        } else if (ex instanceof Error) {
+            throw (Error) ex;
+        } else if (ex != null) {
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Release the statements, a running PostgreSQL copy is canceled.
+     *
+     * @throws SQLException
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException error = null;
+        for (Target target : targets) {
+            try {
+                target.close();
+            } catch (SQLException ex) {
+                error = ex;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Estimate the memory used by the values of a row
+     *
+     * @param values Row values
+     * @return Estimated size in bytes
+     */
+    public static long estimateSize(Object[] values) {
+        long size = 16;
+        for (Object value : values) {
+            if (value == null) {
+                size += 4;
+            } else if (value instanceof Geometry) {
+                size += 32 + 24L * ((Geometry) value).getNumPoints();
+            } else if (value instanceof Value) {
+                size += ((Value) value).getMemory();
+            } else if (value instanceof CharSequence) {
+                size += 2L * ((CharSequence) value).length();
+            } else if (value instanceof byte[]) {
+                size += ((byte[]) value).length;
+            } else {
+                size += 8;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Written table or insert statement
+     */
+    private final class Target {
+        private final String insertSql;
+        private String tableName;
+        private int columnOffset;
+        private PreparedStatement preparedStatement;
+        private PostGISCopyWriter copyWriter;
+        private int batchRows = 0;
+        private long batchBytes = 0;
+        private long maxBatchBytes = INITIAL_BATCH_BYTES;
+
+        Target(String insertSql) {
+            this.insertSql = insertSql;
+        }
+
+        void write(Object[] values) throws SQLException {
+            if (copyWriter != null) {
+                copyWriter.writeRow(values);
+                return;
+            }
+            if (preparedStatement == null) {
+                preparedStatement = connection.prepareStatement(insertSql);
+            }
+            for (int i = 0; i < values.length; i++) {
+                preparedStatement.setObject(i + 1, values[i]);
+            }
+            preparedStatement.addBatch();
+            batchRows++;
+            batchBytes += estimateSize(values);
+            if (batchBytes >= maxBatchBytes || batchRows >= MAX_BATCH_ROWS) {
+                long start = System.currentTimeMillis();
+                flush();
+                long elapsed = System.currentTimeMillis() - start;
+                // Adapt the volume of the next batches to the observed latency
+                if (elapsed * 2 < targetBatchTime) {
+                    maxBatchBytes = Math.min(MAX_BATCH_BYTES, maxBatchBytes * 2);
+                } else if (elapsed > targetBatchTime * 2) {
+                    maxBatchBytes = Math.max(MIN_BATCH_BYTES, maxBatchBytes / 2);
+                }
+            }
+        }
+
+        void flush() throws SQLException {
+            if (batchRows > 0) {
+                preparedStatement.executeBatch();
+                preparedStatement.clearBatch();
+                batchRows = 0;
+                batchBytes = 0;
+            }
+        }
+
+        void finish() throws SQLException {
+            if (copyWriter != null) {
+                copyWriter.endCopy();
+                copyWriter = null;
+            } else {
+                flush();
+            }
+            close();
+        }
+
+        void close() throws SQLException {
+            try {
+                if (copyWriter != null) {
+                    copyWriter.close();
+                    copyWriter = null;
+                }
+            } finally {
+                if (preparedStatement != null) {
+                    preparedStatement.close();
+                    preparedStatement = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Row waiting in the queue
+     */
+    private static final class Row {
+        private final int target;
+        private final Object[] values;
+
+        Row(int target, Object[] values) {
+            this.target = target;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Receive the parsed rows
+     */
+    @FunctionalInterface
+    public interface RowSink {
+        /**
+         * Write a row. The array must not be modified afterwards.
+         *
+         * @param target Index of the target
+         * @param values Values of the written columns
+         * @throws SQLException If the writer has failed
+         */
+        void write(int target, Object[] values) throws SQLException;
+    }
+
+    /**
+     * Parse a file and send its rows
+     */
+    @FunctionalInterface
+    public interface RowProducer {
+        /**
+         * @param sink Row receiver
+         * @throws SQLException
+         * @throws IOException
+         */
+        void produce(RowSink sink) throws SQLException, IOException;
+    }
+}
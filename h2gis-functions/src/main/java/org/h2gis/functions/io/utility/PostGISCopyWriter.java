@@ -0,0 +1,528 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.utility;
+
+import org.h2.value.Value;
+import org.h2.value.ValueGeometry;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBWriter;
+import org.locationtech.jts.io.WKTReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bulk load rows into a PostgreSQL table with {@code COPY ... FROM STDIN (FORMAT binary)}.
+ * Geometries are sent as EWKB. The PostgreSQL driver is accessed by reflection so that H2GIS does not depend on it.
+ *
+ * Use {@link #open(Connection, String, int)} to get a writer, it returns null when the connection or the
+ * column types of the table do not allow the binary copy. In that case the rows must be inserted with a
+ * {@link PreparedStatement}.
+ *
+ * @author Nicolas Fortin
+ */
+public final class PostGISCopyWriter implements AutoCloseable {
+    /** Column types that can be encoded */
+    public static final Set<String> SUPPORTED_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "bool", "int2", "int4", "int8", "serial", "bigserial", "float4", "float8", "numeric", "text", "varchar",
+            "bpchar", "name", "date", "time", "timestamp", "timestamptz", "bytea", "geometry")));
+    private static final byte[] HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    /** Days between 1970-01-01 and 2000-01-01, the PostgreSQL epoch */
+    private static final long PG_EPOCH_DAYS = 10957;
+    private static final long PG_EPOCH_SECONDS = PG_EPOCH_DAYS * 86400;
+    private static final int FLUSH_SIZE = 1 << 16;
+
+    private final Object copyIn;
+    private final Method writeToCopy;
+    private final Method endCopy;
+    private final Method cancelCopy;
+    private final String[] types;
+    private final CopyBuffer buffer = new CopyBuffer(FLUSH_SIZE + 4096);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+    private final WKBWriter wkbWriter2D = new WKBWriter(2, true);
+    private final WKBWriter wkbWriter3D = new WKBWriter(3, true);
+    private WKTReader wktReader;
+    private long rowCount = 0;
+    private boolean active = true;
+
+    /**
+     * @param copyIn Object with the methods of {@code org.postgresql.copy.CopyIn}
+     * @param copyInClass Class that declares the copy methods
+     * @param types PostgreSQL type names of the copied columns
+     * @throws NoSuchMethodException If a copy method is missing
+     */
+    PostGISCopyWriter(Object copyIn, Class<?> copyInClass, String[] types) throws NoSuchMethodException {
+        this.copyIn = copyIn;
+        this.writeToCopy = copyInClass.getMethod("writeToCopy", byte[].class, int.class, int.class);
+        this.endCopy = copyInClass.getMethod("endCopy");
+        this.cancelCopy = copyInClass.getMethod("cancelCopy");
+        this.types = types;
+        buffer.write(HEADER, 0, HEADER.length);
+    }
+
+    /**
+     * Start a binary copy into the given table.
+     *
+     * @param connection Active connection
+     * @param tableName Table identifier, already parsed and quoted
+     * @param columnOffset Number of leading columns of the table that are not copied and take their default value
+     * @return The writer or null if the connection is not a PostgreSQL connection or if a column type is not
+     * supported
+     * @throws SQLException
+     */
+    public static PostGISCopyWriter open(Connection connection, String tableName, int columnOffset) throws SQLException {
+        if (JDBCUtilities.isH2DataBase(connection)) {
+            return null;
+        }
+        Class<?> pgConnectionClass = loadClass(connection, "org.postgresql.PGConnection");
+        Class<?> copyManagerClass = loadClass(connection, "org.postgresql.copy.CopyManager");
+        Class<?> copyInClass = loadClass(connection, "org.postgresql.copy.CopyIn");
+        if (pgConnectionClass == null || copyManagerClass == null || copyInClass == null
+                || !connection.isWrapperFor(pgConnectionClass)) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + tableName + " LIMIT 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = columnOffset + 1; i <= meta.getColumnCount(); i++) {
+                String type = meta.getColumnTypeName(i).toLowerCase();
+                if (!SUPPORTED_TYPES.contains(type)) {
+                    return null;
+                }
+                columns.add(TableLocation.quoteIdentifier(meta.getColumnName(i), false));
+                types.add(type);
+            }
+        }
+        String sql = "COPY " + tableName + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT binary)";
+        try {
+            Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(connection.unwrap(pgConnectionClass));
+            Object copyIn = copyManagerClass.getMethod("copyIn", String.class).invoke(copyManager, sql);
+            return new PostGISCopyWriter(copyIn, copyInClass, types.toArray(new String[0]));
+        } catch (InvocationTargetException ex) {
+            throw asSQLException(ex.getCause());
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @param connection Connection used to find the class loader of the driver
+     * @param className Class name
+     * @return The class or null if it is not available
+     */
+    private static Class<?> loadClass(Connection connection, String className) {
+        try {
+            return Class.forName(className, false, connection.getClass().getClassLoader());
+        } catch (ClassNotFoundException | LinkageError ex) {
+            try {
+                return Class.forName(className);
+            } catch (ClassNotFoundException | LinkageError ex2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @return Number of rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Write a row.
+     *
+     * @param values Values of the copied columns, java objects or H2 values
+     * @throws SQLException If a value cannot be converted to the column type or if the copy fails
+     */
+    public void writeRow(Object[] values) throws SQLException {
+        if (values.length != types.length) {
+            throw new SQLException("Expected " + types.length + " values, got " + values.length);
+        }
+        try {
+            out.writeShort(types.length);
+            for (int i = 0; i < types.length; i++) {
+                writeValue(types[i], values[i]);
+            }
+        } catch (IOException | SQLException | RuntimeException ex) {
+            throw new SQLException("Cannot encode the row " + (rowCount + 1) + " : " + ex.getLocalizedMessage(), ex);
+        }
+        rowCount++;
+        if (buffer.size() >= FLUSH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the end of the copy stream and wait for the server.
+     *
+     * @return Number of rows copied by the server
+     * @throws SQLException
+     */
+    public long endCopy() throws SQLException {
+        try {
+            out.writeShort(-1);
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+        flush();
+        active = false;
+        return ((Number) invoke(endCopy)).longValue();
+    }
+
+    /**
+     * Cancel the copy if it has not been ended.
+     *
+     * @throws SQLException
+     */
+    @Override
+    public void close() throws SQLException {
+        if (active) {
+            active = false;
+            invoke(cancelCopy);
+        }
+    }
+
+    private void flush() throws SQLException {
+        if (buffer.size() > 0) {
+            invoke(writeToCopy, buffer.array(), 0, buffer.size());
+            buffer.reset();
+        }
+    }
+
+    private Object invoke(Method method, Object... args) throws SQLException {
+        try {
+            return method.invoke(copyIn, args);
+        } catch (InvocationTargetException ex) {
+            throw asSQLException(ex.getCause());
+        } catch (IllegalAccessException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    private static SQLException asSQLException(Throwable ex) {
+        return ex instanceof SQLException ? (SQLException) ex : new SQLException(ex);
+    }
+
+    /**
+     * Write the length and the binary representation of a value
+     *
+     * @param type PostgreSQL type name
+     * @param value Java object or H2 value
+     * @throws SQLException If the value does not fit in the column type
+     */
+    private void writeValue(String type, Object value) throws IOException, SQLException {
+        if (value instanceof Value) {
+            value = ((Value) value).getValueType() == Value.NULL ? null : value;
+        }
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        switch (type) {
+            case "bool":
+                out.writeInt(1);
+                out.writeByte(toBoolean(value) ? 1 : 0);
+                break;
+            case "int2": {
+                long shortValue = toLong(value, Short.MIN_VALUE, Short.MAX_VALUE);
+                out.writeInt(2);
+                out.writeShort((int) shortValue);
+                break;
+            }
+            case "int4":
+            case "serial": {
+                long intValue = toLong(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                out.writeInt(4);
+                out.writeInt((int) intValue);
+                break;
+            }
+            case "int8":
+            case "bigserial":
+                out.writeInt(8);
+                out.writeLong(toLong(value));
+                break;
+            case "float4":
+                out.writeInt(4);
+                out.writeFloat((float) toDouble(value));
+                break;
+            case "float8":
+                out.writeInt(8);
+                out.writeDouble(toDouble(value));
+                break;
+            case "numeric":
+                writeNumeric(toBigDecimal(value));
+                break;
+            case "date":
+                out.writeInt(4);
+                out.writeInt(Math.toIntExact(toLocalDate(value).toEpochDay() - PG_EPOCH_DAYS));
+                break;
+            case "time":
+                out.writeInt(8);
+                out.writeLong(toLocalTime(value).toNanoOfDay() / 1000);
+                break;
+            case "timestamp":
+                out.writeInt(8);
+                out.writeLong(toMicros(toLocalDateTime(value).toInstant(ZoneOffset.UTC)));
+                break;
+            case "timestamptz":
+                out.writeInt(8);
+                out.writeLong(toMicros(toInstant(value)));
+                break;
+            case "bytea":
+                writeBytes(value instanceof Value ? ((Value) value).getBytes() : (byte[]) value);
+                break;
+            case "geometry":
+                writeBytes(toEWKB(value));
+                break;
+            default:
+                writeBytes(toText(value).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Write a numeric value as base 10000 digits
+     *
+     * @param value Decimal value
+     */
+    private void writeNumeric(BigDecimal value) throws IOException {
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        int dscale = value.scale();
+        String unscaled = value.unscaledValue().abs().toString();
+        String integerPart;
+        String fractionPart;
+        if (unscaled.length() > dscale) {
+            integerPart = unscaled.substring(0, unscaled.length() - dscale);
+            fractionPart = unscaled.substring(unscaled.length() - dscale);
+        } else {
+            integerPart = "";
+            fractionPart = zeros(dscale - unscaled.length()) + unscaled;
+        }
+        integerPart = zeros((4 - integerPart.length() % 4) % 4) + integerPart;
+        fractionPart = fractionPart + zeros((4 - fractionPart.length() % 4) % 4);
+        String digitString = integerPart + fractionPart;
+        int groupCount = digitString.length() / 4;
+        short[] digits = new short[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            digits[i] = Short.parseShort(digitString.substring(i * 4, i * 4 + 4));
+        }
+        int weight = integerPart.length() / 4 - 1;
+        int first = 0;
+        while (first < groupCount && digits[first] == 0) {
+            first++;
+            weight--;
+        }
+        int last = groupCount;
+        while (last > first && digits[last - 1] == 0) {
+            last--;
+        }
+        int ndigits = last - first;
+        if (ndigits == 0) {
+            weight = 0;
+        }
+        out.writeInt(8 + 2 * ndigits);
+        out.writeShort(ndigits);
+        out.writeShort(weight);
+        out.writeShort(value.signum() < 0 ? 0x4000 : 0);
+        out.writeShort(dscale);
+        for (int i = first; i < last; i++) {
+            out.writeShort(digits[i]);
+        }
+    }
+
+    private static String zeros(int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, '0');
+        return new String(chars);
+    }
+
+    private static long toMicros(Instant instant) {
+        return (instant.getEpochSecond() - PG_EPOCH_SECONDS) * 1000000L + instant.getNano() / 1000;
+    }
+
+    private byte[] toEWKB(Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        Geometry geometry;
+        if (value instanceof ValueGeometry) {
+            geometry = ((ValueGeometry) value).getGeometry();
+        } else if (value instanceof Geometry) {
+            geometry = (Geometry) value;
+        } else {
+            if (wktReader == null) {
+                wktReader = new WKTReader();
+            }
+            try {
+                geometry = wktReader.read(toText(value));
+            } catch (ParseException ex) {
+                throw new IllegalArgumentException(ex.getLocalizedMessage(), ex);
+            }
+        }
+        boolean hasZ = !geometry.isEmpty() && !Double.isNaN(geometry.getCoordinate().getZ());
+        return (hasZ ? wkbWriter3D : wkbWriter2D).write(geometry);
+    }
+
+    private static String toText(Object value) {
+        return value instanceof Value ? ((Value) value).getString() : value.toString();
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Value) {
+            return ((Value) value).getBoolean();
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        String text = value.toString().trim();
+        return text.equalsIgnoreCase("true") || text.equalsIgnoreCase("t") || text.equals("1");
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Value) {
+            return ((Value) value).getLong();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return Long.parseLong(value.toString().trim());
+    }
+
+    private static long toLong(Object value, long min, long max) throws SQLException {
+        long longValue = toLong(value);
+        if (longValue < min || longValue > max) {
+            throw new SQLException("The value " + longValue + " is out of the range " + min + " to " + max);
+        }
+        return longValue;
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Value) {
+            return ((Value) value).getDouble();
+        }
+        return Double.parseDouble(value.toString().trim());
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Value) {
+            return ((Value) value).getBigDecimal();
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate) {
+            return (LocalDate) value;
+        } else if (value instanceof Date) {
+            return ((Date) value).toLocalDate();
+        } else if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().toLocalDate();
+        } else if (value instanceof java.util.Date) {
+            return new Date(((java.util.Date) value).getTime()).toLocalDate();
+        }
+        return LocalDate.parse(toText(value).trim());
+    }
+
+    private static LocalTime toLocalTime(Object value) {
+        if (value instanceof LocalTime) {
+            return (LocalTime) value;
+        } else if (value instanceof Time) {
+            return ((Time) value).toLocalTime();
+        }
+        return LocalTime.parse(toText(value).trim());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        } else if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        } else if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime()).toLocalDateTime();
+        } else if (value instanceof LocalDate) {
+            return ((LocalDate) value).atStartOfDay();
+        }
+        return Timestamp.valueOf(toText(value).trim()).toLocalDateTime();
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof Instant) {
+            return (Instant) value;
+        } else if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toInstant();
+        } else if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant();
+        } else if (value instanceof java.util.Date) {
+            return ((java.util.Date) value).toInstant();
+        }
+        String text = toText(value).trim();
+        try {
+            return OffsetDateTime.parse(text).toInstant();
+        } catch (DateTimeException ex) {
+            return toLocalDateTime(value).atZone(ZoneId.systemDefault()).toInstant();
+        }
+    }
+
+    /**
+     * Byte buffer that gives access to its array without copy
+     */
+    private static final class CopyBuffer extends ByteArrayOutputStream {
+        CopyBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
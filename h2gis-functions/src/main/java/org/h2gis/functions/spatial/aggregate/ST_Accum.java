@@ -27,9 +27,7 @@ import org.locationtech.jts.geom.*;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Construct an array of Geometries.
@@ -38,7 +36,9 @@ import java.util.List;
  * @author Erwan Bocher, CNRS
  */
 public class ST_Accum extends AbstractFunction implements Aggregate {
-    private List<Geometry> toUnite = new LinkedList<Geometry>();
+    private static final int INITIAL_CAPACITY = 16;
+    private Geometry[] toUnite = new Geometry[INITIAL_CAPACITY];
+    private int size = 0;
     private int minDim = Integer.MAX_VALUE;
     private int maxDim = Integer.MIN_VALUE;
     private int srid =-1;
@@ -71,6 +71,17 @@ public class ST_Accum extends AbstractFunction implements Aggregate {
         minDim = Math.min(minDim, geomDim);
     }
 
+    /**
+     * Grow the accumulation array so it can hold at least the given number of geometries
+     * @param minCapacity
+     */
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > toUnite.length) {
+            int newCapacity = Math.max(toUnite.length + (toUnite.length >> 1), minCapacity);
+            toUnite = Arrays.copyOf(toUnite, newCapacity);
+        }
+    }
+
     /**
      * Add geometry into an array to accumulate
      * @param geom 
@@ -78,19 +89,44 @@ public class ST_Accum extends AbstractFunction implements Aggregate {
     private void addGeometry(Geometry geom) {
         if (geom != null) {
             if (geom instanceof GeometryCollection) {
-                List<Geometry> toUnitTmp = new ArrayList<Geometry>(geom.getNumGeometries());
-                for (int i = 0; i < geom.getNumGeometries(); i++) {
-                    toUnitTmp.add(geom.getGeometryN(i));
-                    feedDim(geom.getGeometryN(i));
+                int numGeometries = geom.getNumGeometries();
+                ensureCapacity(size + numGeometries);
+                for (int i = 0; i < numGeometries; i++) {
+                    Geometry subGeom = geom.getGeometryN(i);
+                    toUnite[size++] = subGeom;
+                    feedDim(subGeom);
                 }
-                toUnite.addAll(toUnitTmp);
             } else {
-                toUnite.add(geom);
+                ensureCapacity(size + 1);
+                toUnite[size++] = geom;
                 feedDim(geom);
             }
         }
     }
 
+    /**
+     * Merge the geometries accumulated by another instance of this aggregate into this one.
+     * It allows to combine partial results computed over separate partitions of a table.
+     *
+     * @param other Partial aggregate
+     * @throws SQLException if both aggregates do not share the same SRID
+     */
+    public void merge(ST_Accum other) throws SQLException {
+        if (other == null || other.size == 0) {
+            return;
+        }
+        if (srid == -1) {
+            srid = other.srid;
+        } else if (other.srid != -1 && srid != other.srid) {
+            throw new SQLException("Operation on mixed SRID geometries not supported");
+        }
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.toUnite, 0, toUnite, size, other.size);
+        size += other.size;
+        maxDim = Math.max(maxDim, other.maxDim);
+        minDim = Math.min(minDim, other.minDim);
+    }
+
     @Override
     public void add(Object o) throws SQLException {
         if (o instanceof Geometry) {
@@ -114,15 +150,15 @@ public class ST_Accum extends AbstractFunction implements Aggregate {
     public GeometryCollection getResult() throws SQLException {
         GeometryFactory factory = new GeometryFactory(new PrecisionModel(), srid==-1?0:srid);        
         if(maxDim != minDim) {
-            return factory.createGeometryCollection(toUnite.toArray(new Geometry[0]));
+            return factory.createGeometryCollection(Arrays.copyOf(toUnite, size));
         } else {
             switch (maxDim) {
                 case 0:
-                    return factory.createMultiPoint(toUnite.toArray(new Point[0]));
+                    return factory.createMultiPoint(Arrays.copyOf(toUnite, size, Point[].class));
                 case 1:
-                    return factory.createMultiLineString(toUnite.toArray(new LineString[0]));
+                    return factory.createMultiLineString(Arrays.copyOf(toUnite, size, LineString[].class));
                 default:
-                    return factory.createMultiPolygon(toUnite.toArray(new Polygon[0]));
+                    return factory.createMultiPolygon(Arrays.copyOf(toUnite, size, Polygon[].class));
             }
         }
     }
@@ -17,7 +17,6 @@
  * For more information, please consult: <http://www.h2gis.org/>
  * or contact directly: info_at_h2gis.org
  */
-
 package org.h2gis.functions.spatial.create;
 
 import org.h2.tools.SimpleResultSet;
@@ -27,6 +26,10 @@ import org.h2gis.utilities.TableLocation;
 import org.locationtech.jts.geom.*;
 
 import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.stream.IntStream;
+
 import org.h2gis.utilities.GeometryMetaData;
 import org.h2gis.utilities.GeometryTableUtilities;
 import org.h2gis.utilities.Tuple;
@@ -34,18 +37,36 @@ import org.h2gis.utilities.Tuple;
 /**
  * GridRowSet is used to populate a result set with all grid cells. A cell could
  * be represented as a polygon or its center point.
+ * The cells are computed by chunks in parallel and returned in the grid order.
  *
  * @author Erwan Bocher
  */
 public class GridRowSet implements SimpleRowSource {
 
+    /**
+     * Shape of the grid cells
+     */
+    public enum GridType {
+        /** Rectangles of deltaX, deltaY starting at the lower left corner of the envelope */
+        RECTANGLE,
+        /** Squares aligned on the origin, the column and row indexes are global */
+        SQUARE,
+        /** Flat topped hexagons aligned on the origin, the size is the length of an edge */
+        HEXAGON
+    }
+
+    /** Number of cells computed at once */
+    private static final int CHUNK_SIZE = 4096;
     private static final GeometryFactory GF = new GeometryFactory();
-    private static int cellI = 0;
-    private static int cellJ = 0;
-    private int maxI, maxJ;
+    private GridType gridType = GridType.RECTANGLE;
+    private int minI, minJ;
+    private int countI, countJ;
+    private long cellCount;
+    private long cellIndex;
     private double deltaX, deltaY;
     private double minX, minY;
     private int id = 0;
+    private final Queue<Object[]> pendingRows = new ArrayDeque<>();
     private final Connection connection;
     private boolean firstRow = true;
     private Envelope envelope;
@@ -92,28 +113,35 @@ public class GridRowSet implements SimpleRowSource {
         if (firstRow) {
             reset();
         }
-        if (cellI == maxI) {
-            cellJ++;
-            cellI = 0;
-        }
-        if (cellJ >= maxJ) {
-            cellJ = 0;
-            return null;
-        }
-        if (isCenterCell) {
-            return new Object[]{getCellPoint(), id++, cellI, cellJ + 1};
+        while (pendingRows.isEmpty()) {
+            if (cellIndex >= cellCount) {
+                return null;
+            }
+            int chunkSize = (int) Math.min(CHUNK_SIZE, cellCount - cellIndex);
+            long firstCell = cellIndex;
+            Object[][] rows = new Object[chunkSize][];
+            IntStream.range(0, chunkSize).parallel().forEach(k -> rows[k] = createCell(firstCell + k));
+            for (Object[] row : rows) {
+                if (row != null) {
+                    row[1] = id++;
+                    pendingRows.add(row);
+                }
+            }
+            cellIndex += chunkSize;
         }
-        return new Object[]{getCellPolygon(), id++, cellI, cellJ + 1};
+        return pendingRows.poll();
     }
 
     @Override
     public void close() {
+        pendingRows.clear();
     }
 
     @Override
     public void reset() throws SQLException {
-        cellI = 0;
-        cellJ = 0;
+        close();
+        cellIndex = 0;
+        id = 0;
         firstRow = false;
         //We compute the extend according the first input value
         if (isTable) {
@@ -141,17 +169,54 @@ public class GridRowSet implements SimpleRowSource {
         }
     }
 
+    /**
+     * Compute a cell from its position in the grid.
+     * This method is called concurrently and does not modify the row set.
+     *
+     * @param cell Index of the cell, row by row
+     * @return The row of the cell, the ID being set later, or null if the cell is outside the envelope
+     */
+    private Object[] createCell(long cell) {
+        int i = (int) (cell % countI);
+        int j = (int) (cell / countI);
+        Geometry geometry;
+        switch (gridType) {
+            case SQUARE:
+                i += minI;
+                j += minJ;
+                geometry = isCenterCell ? getCellPoint(i * deltaX, j * deltaY) : getCellPolygon(i * deltaX, j * deltaY);
+                return new Object[]{geometry, null, i, j};
+            case HEXAGON:
+                i += minI;
+                j += minJ;
+                double height = Math.sqrt(3) * deltaX;
+                double cx = i * 1.5 * deltaX;
+                double cy = j * height + (Math.floorMod(i, 2) == 1 ? height / 2 : 0);
+                if (!envelope.intersects(new Envelope(cx - deltaX, cx + deltaX, cy - height / 2, cy + height / 2))) {
+                    return null;
+                }
+                geometry = isCenterCell ? GF.createPoint(new Coordinate(cx, cy)) : getHexagon(cx, cy, deltaX, height);
+                geometry.setSRID(srid);
+                return new Object[]{geometry, null, i, j};
+            default:
+                double x1 = minX + i * deltaX;
+                double y1 = minY + j * deltaY;
+                geometry = isCenterCell ? getCellPoint(x1, y1) : getCellPolygon(x1, y1);
+                return new Object[]{geometry, null, i + 1, j + 1};
+        }
+    }
+
     /**
      * Compute the polygon corresponding to the cell
      *
+     * @param x1 lower left x of the cell
+     * @param y1 lower left y of the cell
      * @return Polygon of the cell
      */
-    private Polygon getCellPolygon() {
+    private Polygon getCellPolygon(double x1, double y1) {
         final Coordinate[] summits = new Coordinate[5];
-        double x1 = minX + cellI * deltaX;
-        double y1 = minY + cellJ * deltaY;
-        double x2 = minX + (cellI + 1) * deltaX;
-        double y2 = minY + (cellJ + 1) * deltaY;
+        double x2 = x1 + deltaX;
+        double y2 = y1 + deltaY;
         summits[0] = new Coordinate(x1, y1);
         summits[1] = new Coordinate(x2, y1);
         summits[2] = new Coordinate(x2, y2);
@@ -159,7 +224,6 @@ public class GridRowSet implements SimpleRowSource {
         summits[4] = new Coordinate(x1, y1);
         final LinearRing g = GF.createLinearRing(summits);
         final Polygon gg = GF.createPolygon(g, null);
-        cellI++;
         gg.setSRID(srid);
         return gg;
     }
@@ -167,17 +231,38 @@ public class GridRowSet implements SimpleRowSource {
     /**
      * Compute the point of the cell
      *
+     * @param x1 lower left x of the cell
+     * @param y1 lower left y of the cell
      * @return Center point of the cell
      */
-    private Point getCellPoint() {
-        double x1 = (minX + cellI * deltaX) + (deltaX / 2d);
-        double y1 = (minY + cellJ * deltaY) + (deltaY / 2d);
-        cellI++;
-        Point gg = GF.createPoint(new Coordinate(x1, y1));
+    private Point getCellPoint(double x1, double y1) {
+        Point gg = GF.createPoint(new Coordinate(x1 + (deltaX / 2d), y1 + (deltaY / 2d)));
         gg.setSRID(srid);
         return gg;
     }
 
+    /**
+     * Compute a flat topped hexagon
+     *
+     * @param cx center x
+     * @param cy center y
+     * @param size length of an edge
+     * @param height height of the hexagon
+     * @return the hexagon
+     */
+    private static Polygon getHexagon(double cx, double cy, double size, double height) {
+        double halfSize = size / 2;
+        double halfHeight = height / 2;
+        return GF.createPolygon(new Coordinate[]{
+                new Coordinate(cx + size, cy),
+                new Coordinate(cx + halfSize, cy + halfHeight),
+                new Coordinate(cx - halfSize, cy + halfHeight),
+                new Coordinate(cx - size, cy),
+                new Coordinate(cx - halfSize, cy - halfHeight),
+                new Coordinate(cx + halfSize, cy - halfHeight),
+                new Coordinate(cx + size, cy)});
+    }
+
     /**
      * Return true is cell is represented as point, false as a polygon
      *
@@ -195,7 +280,22 @@ public class GridRowSet implements SimpleRowSource {
     public void setCenterCell(boolean isCenterCell) {
         this.isCenterCell = isCenterCell;
     }
-   
+
+    /**
+     * @return The shape of the cells
+     */
+    public GridType getGridType() {
+        return gridType;
+    }
+
+    /**
+     * Set the shape of the cells. For the {@link GridType#HEXAGON} grid deltaX is the length of an edge.
+     *
+     * @param gridType The shape of the cells
+     */
+    public void setGridType(GridType gridType) {
+        this.gridType = gridType;
+    }
 
     /**
      * Compute the parameters need to create each cells
@@ -204,12 +304,27 @@ public class GridRowSet implements SimpleRowSource {
     private void initParameters() {
         this.minX = envelope.getMinX();
         this.minY = envelope.getMinY();
-        double cellWidth = envelope.getWidth();
-        double cellHeight = envelope.getHeight();
-        this.maxI = (int) Math.ceil(cellWidth
-                / deltaX);
-        this.maxJ = (int) Math.ceil(cellHeight
-                / deltaY);
+        switch (gridType) {
+            case SQUARE:
+                minI = (int) Math.floor(envelope.getMinX() / deltaX);
+                minJ = (int) Math.floor(envelope.getMinY() / deltaY);
+                countI = Math.max(minI, (int) Math.ceil(envelope.getMaxX() / deltaX) - 1) - minI + 1;
+                countJ = Math.max(minJ, (int) Math.ceil(envelope.getMaxY() / deltaY) - 1) - minJ + 1;
+                break;
+            case HEXAGON:
+                double height = Math.sqrt(3) * deltaX;
+                minI = (int) Math.floor((envelope.getMinX() - deltaX) / (1.5 * deltaX));
+                minJ = (int) Math.floor((envelope.getMinY() - height) / height);
+                countI = (int) Math.ceil((envelope.getMaxX() + deltaX) / (1.5 * deltaX)) - minI + 1;
+                countJ = (int) Math.ceil(envelope.getMaxY() / height) - minJ + 1;
+                break;
+            default:
+                minI = 0;
+                minJ = 0;
+                countI = (int) Math.ceil(envelope.getWidth() / deltaX);
+                countJ = (int) Math.ceil(envelope.getHeight() / deltaY);
+        }
+        cellCount = countI <= 0 || countJ <= 0 ? 0 : (long) countI * countJ;
     }
 
     /**
@@ -0,0 +1,79 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.create;
+
+import org.h2.value.Value;
+import org.h2.value.ValueGeometry;
+import org.h2.value.ValueVarchar;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Create a grid of square cells aligned on the origin based on a table or a geometry envelope.
+ *
+ * @author Erwan Bocher
+ */
+public class ST_SquareGrid extends AbstractFunction implements ScalarFunction {
+
+    public ST_SquareGrid() {
+        addProperty(PROP_REMARKS, "Calculate a grid of square cells aligned on the origin.\n"
+                + "The first argument is either a geometry or a table.\n"
+                + "The ID_COL and ID_ROW columns hold the global index of the cell, floor(x / size) and floor(y / size).\n"
+                + "Note :The geometry could be expressed using a subquery as\n"
+                + " (SELECT the_geom from myTable)");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "createSquareGrid";
+    }
+
+    /**
+     * Create a square grid using the first input value to compute the full extent.
+     *
+     * @param connection
+     * @param value could be the name of a table or a geometry.
+     * @param size the length of the square edge
+     * @return a resultset that contains the square cells
+     * @throws SQLException
+     */
+    public static ResultSet createSquareGrid(Connection connection, Value value, double size) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        if (size <= 0) {
+            throw new SQLException("The cell size must be greater than 0.");
+        }
+        GridRowSet gridRowSet;
+        if (value instanceof ValueVarchar) {
+            gridRowSet = new GridRowSet(connection, size, size, value.getString());
+        } else if (value instanceof ValueGeometry) {
+            gridRowSet = new GridRowSet(connection, size, size, ((ValueGeometry) value).getGeometry());
+        } else {
+            throw new SQLException("This function supports only table name or geometry as first argument.");
+        }
+        gridRowSet.setGridType(GridRowSet.GridType.SQUARE);
+        return gridRowSet.getResultSet();
+    }
+}
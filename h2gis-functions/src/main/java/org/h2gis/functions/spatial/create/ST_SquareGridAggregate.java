@@ -0,0 +1,152 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.create;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.spatial.join.GeometryTableIndex;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.TableUtilities;
+import org.locationtech.jts.geom.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Count, and optionally sum a column of, the geometries of a table by the cells of a square grid
+ * computed in one pass over the table. The cells are the ones of {@link ST_SquareGrid} and only
+ * the cells that hold at least one geometry are returned, so the full grid is never materialized.
+ *
+ * @author Erwan Bocher
+ */
+public class ST_SquareGridAggregate extends AbstractFunction implements ScalarFunction {
+
+    /** Name of the column that holds the number of geometries in the cell */
+    public static final String COUNT_FIELD = "CELL_COUNT";
+
+    /** Name of the column that holds the sum of the values in the cell */
+    public static final String SUM_FIELD = "CELL_SUM";
+
+    public ST_SquareGridAggregate() {
+        addProperty(PROP_REMARKS, "Aggregate the geometries of a table by the cells of a square grid aligned on the origin.\n"
+                + "ST_SquareGridAggregate('tableName', size[, 'columnName'])\n"
+                + "A geometry belongs to the cell that contains the center of its envelope.\n"
+                + "The result contains THE_GEOM, ID_COL, ID_ROW, the " + COUNT_FIELD + " of the geometries"
+                + " and the " + SUM_FIELD + " of the column values when a column is given.\n"
+                + "The cells are the ones of ST_SquareGrid, only the non empty cells are returned.\n"
+                + "Note : the table could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "aggregate";
+    }
+
+    /**
+     * Count the geometries of a table by cell
+     *
+     * @param connection Active connection
+     * @param tableName Table name or select query
+     * @param size the length of the square edge
+     * @return The non empty cells
+     * @throws SQLException
+     */
+    public static ResultSet aggregate(Connection connection, String tableName, double size) throws SQLException {
+        return aggregate(connection, tableName, size, null);
+    }
+
+    /**
+     * Count the geometries of a table and sum the values of a column by cell
+     *
+     * @param connection Active connection
+     * @param tableName Table name or select query
+     * @param size the length of the square edge
+     * @param columnName Numeric column to sum
+     * @return The non empty cells
+     * @throws SQLException
+     */
+    public static ResultSet aggregate(Connection connection, String tableName, double size, String columnName) throws SQLException {
+        if (size <= 0) {
+            throw new SQLException("The cell size must be greater than 0.");
+        }
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("THE_GEOM", Types.OTHER, "GEOMETRY", 0, 0);
+        rs.addColumn("ID_COL", Types.INTEGER, 10, 0);
+        rs.addColumn("ID_ROW", Types.INTEGER, 10, 0);
+        rs.addColumn(COUNT_FIELD, Types.BIGINT, 19, 0);
+        if (columnName != null) {
+            rs.addColumn(SUM_FIELD, Types.DOUBLE, 17, 0);
+        }
+        if (TableUtilities.isColumnListConnection(connection)) {
+            return rs;
+        }
+        // Key is the column index in the high bits and the row index in the low bits
+        Map<Long, double[]> cells = new HashMap<>();
+        int srid = 0;
+        try (Statement st = connection.createStatement();
+             ResultSet source = st.executeQuery(GeometryTableIndex.getSelectQuery(connection, tableName))) {
+            int geometryIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(source.getMetaData()).second();
+            int valueIndex = columnName == null ? -1 : source.findColumn(columnName);
+            while (source.next()) {
+                Geometry geometry = (Geometry) source.getObject(geometryIndex);
+                if (geometry == null || geometry.isEmpty()) {
+                    continue;
+                }
+                srid = geometry.getSRID();
+                Envelope envelope = geometry.getEnvelopeInternal();
+                long i = (long) Math.floor((envelope.getMinX() + envelope.getMaxX()) / 2 / size);
+                long j = (long) Math.floor((envelope.getMinY() + envelope.getMaxY()) / 2 / size);
+                double[] cell = cells.computeIfAbsent((i << 32) | (j & 0xFFFFFFFFL), k -> new double[2]);
+                cell[0]++;
+                if (valueIndex > 0) {
+                    cell[1] += source.getDouble(valueIndex);
+                }
+            }
+        }
+        List<Long> keys = new ArrayList<>(cells.keySet());
+        // Same order as the grid, row by row
+        keys.sort((a, b) -> {
+            int cmp = Integer.compare((int) (long) a, (int) (long) b);
+            return cmp != 0 ? cmp : Integer.compare((int) (a >> 32), (int) (b >> 32));
+        });
+        GeometryFactory factory = new GeometryFactory();
+        for (long key : keys) {
+            int i = (int) (key >> 32);
+            int j = (int) key;
+            double x1 = i * size;
+            double y1 = j * size;
+            Polygon cellPolygon = factory.createPolygon(new Coordinate[]{new Coordinate(x1, y1),
+                    new Coordinate(x1 + size, y1), new Coordinate(x1 + size, y1 + size),
+                    new Coordinate(x1, y1 + size), new Coordinate(x1, y1)});
+            cellPolygon.setSRID(srid);
+            double[] cell = cells.get(key);
+            if (columnName != null) {
+                rs.addRow(cellPolygon, i, j, (long) cell[0], cell[1]);
+            } else {
+                rs.addRow(cellPolygon, i, j, (long) cell[0]);
+            }
+        }
+        return rs;
+    }
+}
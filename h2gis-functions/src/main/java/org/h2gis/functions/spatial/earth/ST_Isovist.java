@@ -91,8 +91,19 @@ public class ST_Isovist extends DeterministicScalarFunction {
         }
 
         Geometry isopoly = isovist(viewPoint, lineSegments, maxDistance);
+        return restrictView(viewPoint, isopoly, maxDistance, radBegin, radSize);
+    }
 
-        // Intersects with view constrain
+    /**
+     * Intersects a visibility polygon with a view angle constraint
+     * @param viewPoint Point instance, isovist location
+     * @param isopoly The visibility polygon
+     * @param maxDistance Maximum distance of view from viewPoint (spatial ref units)
+     * @param radBegin Constraint view angle start in radian
+     * @param radSize Constraint view angle size in radian
+     * @return The constrained visibility polygon
+     */
+    public static Geometry restrictView(Geometry viewPoint, Geometry isopoly, double maxDistance, double radBegin, double radSize) {
         GeometricShapeFactory geometricShapeFactory = new GeometricShapeFactory();
         geometricShapeFactory.setCentre(viewPoint.getCoordinate());
         geometricShapeFactory.setWidth(maxDistance * 2);
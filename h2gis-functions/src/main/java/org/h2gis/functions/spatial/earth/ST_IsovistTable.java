@@ -0,0 +1,213 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.earth;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.spatial.join.GeometryTableIndex;
+import org.h2gis.functions.spatial.join.ParallelBlockRowSet;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.jts_utils.VisibilityAlgorithm;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.sql.*;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Table function that computes the isovist of each point of a view point table.
+ * The obstacle segments are indexed once, only the segments located within the maximum distance
+ * of a view point are given to its visibility algorithm and the view points are processed in parallel.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_IsovistTable extends AbstractFunction implements ScalarFunction {
+
+    /** Name of the column that holds the visibility polygon */
+    public static final String ISOVIST_FIELD = "ISOVIST";
+
+    public ST_IsovistTable() {
+        addProperty(PROP_REMARKS, "Compute the visibility polygon of each point of a view point table.\n"
+                + "ST_IsovistTable('viewPoints', 'obstacles', maxDistance[, radBegin, radSize])\n"
+                + "viewPoints = Table of the view points\n"
+                + "obstacles = Table of LINESTRING(S) or POLYGON(S) used as walls\n"
+                + "maxDistance = Maximum distance of view (spatial ref units)\n"
+                + "radBegin, radSize = Optional view angle constraint in radian.\n"
+                + "The result contains the columns of the view point table and the " + ISOVIST_FIELD + " polygon.\n"
+                + "Note : tables could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "isovist";
+    }
+
+    /**
+     * Compute the visibility polygon of each point of a view point table
+     *
+     * @param connection Active connection
+     * @param viewPoints Table or select query of the view points
+     * @param obstacles Table or select query of the obstacle geometries
+     * @param maxDistance Maximum distance of view (spatial ref units)
+     * @return The view point rows with their visibility polygon
+     * @throws SQLException
+     */
+    public static ResultSet isovist(Connection connection, String viewPoints, String obstacles, double maxDistance) throws SQLException {
+        if (maxDistance <= 0) {
+            throw new SQLException("The maximum distance must be a valid distance superior than 0");
+        }
+        return new IsovistRowSet(connection, viewPoints, obstacles, maxDistance, 0, 0).getResultSet();
+    }
+
+    /**
+     * Compute the visibility polygon of each point of a view point table
+     *
+     * @param connection Active connection
+     * @param viewPoints Table or select query of the view points
+     * @param obstacles Table or select query of the obstacle geometries
+     * @param maxDistance Maximum distance of view (spatial ref units)
+     * @param radBegin Constraint view angle start in radian
+     * @param radSize Constraint view angle size in radian
+     * @return The view point rows with their visibility polygon
+     * @throws SQLException
+     */
+    public static ResultSet isovist(Connection connection, String viewPoints, String obstacles, double maxDistance,
+                                    double radBegin, double radSize) throws SQLException {
+        if (maxDistance <= 0) {
+            throw new SQLException("The maximum distance must be a valid distance superior than 0");
+        }
+        if (radSize <= 0) {
+            throw new SQLException("Angle size must be superior than 0 rad");
+        }
+        return new IsovistRowSet(connection, viewPoints, obstacles, maxDistance, radBegin, radSize).getResultSet();
+    }
+
+    /**
+     * Add the segments of the lines and polygons of a geometry in a STRtree
+     *
+     * @param geometry Obstacle geometry
+     * @param sTRtree the STRtree to store the segments
+     */
+    private static void addSegments(Geometry geometry, STRtree sTRtree) {
+        if (geometry instanceof LineString) {
+            CoordinateSequence coordinates = ((LineString) geometry).getCoordinateSequence();
+            for (int i = 0; i < coordinates.size() - 1; i++) {
+                LineSegment segment = new LineSegment(coordinates.getCoordinate(i), coordinates.getCoordinate(i + 1));
+                sTRtree.insert(new Envelope(segment.p0, segment.p1), segment);
+            }
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            addSegments(polygon.getExteriorRing(), sTRtree);
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                addSegments(polygon.getInteriorRingN(i), sTRtree);
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                addSegments(geometry.getGeometryN(i), sTRtree);
+            }
+        }
+    }
+
+    /**
+     * Stream the view point rows with their visibility polygon
+     */
+    public static class IsovistRowSet extends ParallelBlockRowSet {
+        private final String obstacles;
+        private final double maxDistance;
+        private final double radBegin;
+        private final double radSize;
+        private STRtree obstacleIndex;
+        private int obstacleSRID;
+        private boolean hasObstacles;
+
+        public IsovistRowSet(Connection connection, String viewPoints, String obstacles, double maxDistance,
+                             double radBegin, double radSize) {
+            super(connection, viewPoints);
+            this.obstacles = obstacles;
+            this.maxDistance = maxDistance;
+            this.radBegin = radBegin;
+            this.radSize = radSize;
+        }
+
+        @Override
+        protected void prepare() throws SQLException {
+            obstacleIndex = new STRtree();
+            obstacleSRID = 0;
+            hasObstacles = false;
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery(GeometryTableIndex.getSelectQuery(connection, obstacles))) {
+                int geometryIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(rs.getMetaData()).second();
+                while (rs.next()) {
+                    Geometry geometry = (Geometry) rs.getObject(geometryIndex);
+                    if (geometry != null && !geometry.isEmpty()) {
+                        obstacleSRID = geometry.getSRID();
+                        hasObstacles = true;
+                        addSegments(geometry, obstacleIndex);
+                    }
+                }
+            }
+            obstacleIndex.build();
+        }
+
+        @Override
+        protected void release() {
+            obstacleIndex = null;
+        }
+
+        @Override
+        protected List<Object[]> processRow(Object[] row, Geometry geometry) throws SQLException {
+            if (!(geometry instanceof Point)) {
+                throw new SQLException("The view point geometries must be points");
+            }
+            if (hasObstacles && geometry.getSRID() != obstacleSRID) {
+                throw new SQLException("Operation on mixed SRID geometries not supported");
+            }
+            Coordinate viewPoint = geometry.getCoordinate();
+            Envelope searchEnvelope = new Envelope(viewPoint);
+            searchEnvelope.expandBy(maxDistance);
+            VisibilityAlgorithm visibilityAlgorithm = new VisibilityAlgorithm(maxDistance);
+            obstacleIndex.query(searchEnvelope, (ItemVisitor) item -> {
+                LineSegment segment = (LineSegment) item;
+                if (segment.distance(viewPoint) <= maxDistance) {
+                    visibilityAlgorithm.addSegment(segment.p0, segment.p1);
+                }
+            });
+            Geometry isovist = visibilityAlgorithm.getIsoVist(viewPoint, true);
+            if (radSize > 0) {
+                isovist = ST_Isovist.restrictView(geometry, isovist, maxDistance, radBegin, radSize);
+            }
+            isovist.setSRID(geometry.getSRID());
+            Object[] outputRow = new Object[row.length + 1];
+            System.arraycopy(row, 0, outputRow, 0, row.length);
+            outputRow[row.length] = isovist;
+            return Collections.singletonList(outputRow);
+        }
+
+        @Override
+        protected void addColumns(SimpleResultSet rs) throws SQLException {
+            GeometryTableIndex.copyColumns(connection, tableName, rs, new HashSet<>(), "_");
+            rs.addColumn(ISOVIST_FIELD, Types.OTHER, "GEOMETRY", 0, 0);
+        }
+    }
+}
@@ -37,7 +37,7 @@ import java.util.List;
 public class ST_Svf extends DeterministicScalarFunction{
 
     //target step length m
-    private static int RAY_STEP_LENGTH = 10;
+    public static final int RAY_STEP_LENGTH = 10;
     
     public ST_Svf(){
         addProperty(PROP_REMARKS, "Return the Sky View Factor (SVF) for a given point.\n"
@@ -107,74 +107,113 @@ public class ST_Svf extends DeterministicScalarFunction{
             throw new IllegalArgumentException("The ray length parameter must be greater than 0");
         }
         
-        RAY_STEP_LENGTH = stepRayLength;
-
-        if (geoms.getDimension() > 0) {            
-            GeometryFactory factory = pt.getFactory();
-            //Convert input geoms to a set of linestring
-            STRtree sTRtree = new STRtree();
-            int nbGeoms = geoms.getNumGeometries();
-            for (int i = 0; i < nbGeoms; i++) {
-                Geometry subGeom = geoms.getGeometryN(i);
-                if (subGeom instanceof LineString) {
-                    addSegments(subGeom.getCoordinates(),factory, sTRtree);
-                } else if (subGeom instanceof Polygon) {
-                    Polygon p = (Polygon) subGeom;
-                    addSegments(p.getExteriorRing().getCoordinates(),factory, sTRtree);
-                    int nbInterior = p.getNumInteriorRing();
-                    for (int j = 0; j < nbInterior; j++) {
-                        addSegments(p.getInteriorRingN(j).getCoordinates(),factory, sTRtree);
-                    }
-                }
-            }
+        if (geoms.getDimension() > 0) {
+            STRtree sTRtree = createObstacleIndex(geoms, pt.getFactory());
             if(sTRtree.isEmpty()){
                 return 1D;
             }
-            Coordinate startCoordinate = pt.getCoordinate();
-            double startZ = Double.isNaN(startCoordinate.z)?0:startCoordinate.z;
-            double sumArea = 2*Math.PI; 
-            double elementaryAngle = sumArea / rayCount;
-            int stepCount = (int) Math.round(distance / RAY_STEP_LENGTH);
-            double stepLength = distance / stepCount;
-            //Compute the  SVF for each ray according an angle  
-            for (int i = 0; i < rayCount; i+=1) {             
-                //To limit the number of geometries in the query with create a progressive ray
-                Vector2D vStart = new Vector2D(startCoordinate);
-                double angleRad = elementaryAngle * i;
-                Vector2D v = Vector2D.create(Math.cos(angleRad), Math.sin(angleRad));
-                // This is the translation vector
-                v = v.multiply(stepLength);
-                double max = 0;
-                for (int j = 0; j < stepCount; j++) {
-                    LineSegment stepLine = new LineSegment(vStart.add(v.multiply(j)).toCoordinate(), vStart.add(v.multiply(j + 1)).toCoordinate());
-                    LineString rayStep = stepLine.toGeometry(factory);
-                    List<LineString> interEnv = sTRtree.query(rayStep.getEnvelopeInternal());
-                    if (!interEnv.isEmpty()) {
-                        for (LineString lineGeoms : interEnv) {
-                            Coordinate[] coords = lineGeoms.getCoordinates();
-                            Coordinate coordsStart = coords[0];
-                            Coordinate coordsEnd = coords[1];
-                            if (Math.max(coordsStart.z, coordsEnd.z) > max * j * stepLength){
-                                Geometry ptsIntersect =  lineGeoms.intersection(rayStep);
-                                if (ptsIntersect instanceof Point && ptsIntersect!=null) {
-                                    double coordWithZ = CoordinateUtils.interpolate(lineGeoms.getCoordinateN(0), lineGeoms.getCoordinateN(1), ptsIntersect.getCoordinate());
-                                    double distancePoint = ptsIntersect.distance(pt);
-                                    double ratio = (coordWithZ - startZ) / distancePoint;
-                                    if (ratio > max) {
-                                        max = ratio;
-                                    }
+            svf = skyViewFactor(pt, sTRtree, distance, rayCount, stepRayLength);
+        }        
+        return svf;
+        
+    }
+
+    /**
+     * Convert the obstacle geometries to a set of segments stored in a STRtree.
+     * The returned tree is built and can be shared by concurrent SVF calculations.
+     *
+     * @param geoms Geometries used as sky obstacles
+     * @param factory the geometry factory
+     * @return the STRtree of the segments
+     */
+    public static STRtree createObstacleIndex(Geometry geoms, GeometryFactory factory) {
+        STRtree sTRtree = new STRtree();
+        addObstacles(geoms, factory, sTRtree);
+        sTRtree.build();
+        return sTRtree;
+    }
+
+    /**
+     * Add the segments of the lines and polygons of a geometry in a STRtree
+     *
+     * @param geoms Geometries used as sky obstacles
+     * @param factory the geometry factory
+     * @param sTRtree the STRtree to store the segments
+     */
+    public static void addObstacles(Geometry geoms, GeometryFactory factory, STRtree sTRtree) {
+        int nbGeoms = geoms.getNumGeometries();
+        for (int i = 0; i < nbGeoms; i++) {
+            Geometry subGeom = geoms.getGeometryN(i);
+            if (subGeom instanceof LineString) {
+                addSegments(subGeom.getCoordinates(), factory, sTRtree);
+            } else if (subGeom instanceof Polygon) {
+                Polygon p = (Polygon) subGeom;
+                addSegments(p.getExteriorRing().getCoordinates(), factory, sTRtree);
+                int nbInterior = p.getNumInteriorRing();
+                for (int j = 0; j < nbInterior; j++) {
+                    addSegments(p.getInteriorRingN(j).getCoordinates(), factory, sTRtree);
+                }
+            } else if (subGeom instanceof GeometryCollection) {
+                addObstacles(subGeom, factory, sTRtree);
+            }
+        }
+    }
+
+    /**
+     * Compute the Sky View Factor of a point from an index of obstacle segments.
+     * The method does not modify any shared state and can be called concurrently.
+     *
+     * @param pt Point coordinates (x, y, z)
+     * @param sTRtree segments of the obstacles, see {@link #createObstacleIndex(Geometry, GeometryFactory)}
+     * @param distance Only obstacles located within this distance from pt are considered
+     * @param rayCount number of rays
+     * @param stepRayLength length of sub ray used to limit the number of geometries when requested
+     * @return the SVF value
+     */
+    public static double skyViewFactor(Point pt, STRtree sTRtree, double distance, int rayCount, int stepRayLength) {
+        GeometryFactory factory = pt.getFactory();
+        Coordinate startCoordinate = pt.getCoordinate();
+        double startZ = Double.isNaN(startCoordinate.z)?0:startCoordinate.z;
+        double sumArea = 2*Math.PI; 
+        double elementaryAngle = sumArea / rayCount;
+        int stepCount = Math.max(1, (int) Math.round(distance / stepRayLength));
+        double stepLength = distance / stepCount;
+        //Compute the  SVF for each ray according an angle  
+        for (int i = 0; i < rayCount; i+=1) {             
+            //To limit the number of geometries in the query with create a progressive ray
+            Vector2D vStart = new Vector2D(startCoordinate);
+            double angleRad = elementaryAngle * i;
+            Vector2D v = Vector2D.create(Math.cos(angleRad), Math.sin(angleRad));
+            // This is the translation vector
+            v = v.multiply(stepLength);
+            double max = 0;
+            for (int j = 0; j < stepCount; j++) {
+                LineSegment stepLine = new LineSegment(vStart.add(v.multiply(j)).toCoordinate(), vStart.add(v.multiply(j + 1)).toCoordinate());
+                LineString rayStep = stepLine.toGeometry(factory);
+                List<LineString> interEnv = sTRtree.query(rayStep.getEnvelopeInternal());
+                if (!interEnv.isEmpty()) {
+                    for (LineString lineGeoms : interEnv) {
+                        Coordinate[] coords = lineGeoms.getCoordinates();
+                        Coordinate coordsStart = coords[0];
+                        Coordinate coordsEnd = coords[1];
+                        if (Math.max(coordsStart.z, coordsEnd.z) > max * j * stepLength){
+                            Geometry ptsIntersect =  lineGeoms.intersection(rayStep);
+                            if (ptsIntersect instanceof Point && ptsIntersect!=null) {
+                                double coordWithZ = CoordinateUtils.interpolate(lineGeoms.getCoordinateN(0), lineGeoms.getCoordinateN(1), ptsIntersect.getCoordinate());
+                                double distancePoint = ptsIntersect.distance(pt);
+                                double ratio = (coordWithZ - startZ) / distancePoint;
+                                if (ratio > max) {
+                                    max = ratio;
                                 }
                             }
                         }
                     }
                 }
-                double sinTheta = Math.sin(Math.atan(max));
-                sumArea -= elementaryAngle * sinTheta * sinTheta;
             }
-            svf = sumArea / (2 * Math.PI);
-        }        
-        return svf;
-        
+            double sinTheta = Math.sin(Math.atan(max));
+            sumArea -= elementaryAngle * sinTheta * sinTheta;
+        }
+        return sumArea / (2 * Math.PI);
     }
     
     /**
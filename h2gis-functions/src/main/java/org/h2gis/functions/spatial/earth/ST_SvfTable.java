@@ -0,0 +1,182 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.earth;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.spatial.join.GeometryTableIndex;
+import org.h2gis.functions.spatial.join.ParallelBlockRowSet;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.sql.*;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Table function that computes the Sky View Factor of each point of a receptor table.
+ * The obstacle segments are indexed once and the receptors are evaluated in parallel by blocks.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_SvfTable extends AbstractFunction implements ScalarFunction {
+
+    /** Name of the column that holds the sky view factor */
+    public static final String SVF_FIELD = "SVF";
+
+    public ST_SvfTable() {
+        addProperty(PROP_REMARKS, "Return the Sky View Factor (SVF) for each point of a receptor table.\n"
+                + "ST_SvfTable('receptors', 'obstacles', distance, rayCount[, stepRayLength])\n"
+                + "receptors = Table of points (x, y, z) - the SVF is calculated from each point\n"
+                + "obstacles = Table of geometries used as sky obstacles (z coordinates should be given and not NaN)\n"
+                + "distance = Only obstacles located within this distance from each point are considered in the calculation (double - in meters)\n"
+                + "rayCount = Number of ray considered for the calculation (integer - number of direction of calculation)\n"
+                + "stepRayLength = 10 (default) Each ray is subdivided to make the calculation faster. This argument set\n"
+                + "the length of each subdivision.\n"
+                + "The result contains the columns of the receptor table and the " + SVF_FIELD + " value.\n"
+                + "Note : tables could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "computeSvf";
+    }
+
+    /**
+     * Compute the Sky View Factor of each point of a receptor table
+     *
+     * @param connection Active connection
+     * @param receptors Table or select query of the receptor points
+     * @param obstacles Table or select query of the obstacle geometries
+     * @param distance Only obstacles located within this distance are considered
+     * @param rayCount Number of rays
+     * @return The receptor rows with the SVF value
+     * @throws SQLException
+     */
+    public static ResultSet computeSvf(Connection connection, String receptors, String obstacles, double distance, int rayCount) throws SQLException {
+        return computeSvf(connection, receptors, obstacles, distance, rayCount, ST_Svf.RAY_STEP_LENGTH);
+    }
+
+    /**
+     * Compute the Sky View Factor of each point of a receptor table
+     *
+     * @param connection Active connection
+     * @param receptors Table or select query of the receptor points
+     * @param obstacles Table or select query of the obstacle geometries
+     * @param distance Only obstacles located within this distance are considered
+     * @param rayCount Number of rays
+     * @param stepRayLength Length of sub ray used to limit the number of geometries when requested
+     * @return The receptor rows with the SVF value
+     * @throws SQLException
+     */
+    public static ResultSet computeSvf(Connection connection, String receptors, String obstacles, double distance, int rayCount, int stepRayLength) throws SQLException {
+        if (distance <= 0) {
+            throw new SQLException("The distance value must be greater than 0");
+        }
+        if (rayCount < 4) {
+            throw new SQLException("The number of rays must be greater than or equal to 4");
+        }
+        if (stepRayLength <= 0) {
+            throw new SQLException("The ray length parameter must be greater than 0");
+        }
+        return new SvfRowSet(connection, receptors, obstacles, distance, rayCount, stepRayLength).getResultSet();
+    }
+
+    /**
+     * Stream the receptor rows with their SVF value
+     */
+    public static class SvfRowSet extends ParallelBlockRowSet {
+        private final String obstacles;
+        private final double distance;
+        private final int rayCount;
+        private final int stepRayLength;
+        private STRtree obstacleIndex;
+        private int obstacleSRID;
+
+        public SvfRowSet(Connection connection, String receptors, String obstacles, double distance, int rayCount, int stepRayLength) {
+            super(connection, receptors);
+            this.obstacles = obstacles;
+            this.distance = distance;
+            this.rayCount = rayCount;
+            this.stepRayLength = stepRayLength;
+        }
+
+        @Override
+        protected void prepare() throws SQLException {
+            obstacleIndex = new STRtree();
+            obstacleSRID = 0;
+            GeometryFactory factory = new GeometryFactory();
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery(GeometryTableIndex.getSelectQuery(connection, obstacles))) {
+                int geometryIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(rs.getMetaData()).second();
+                while (rs.next()) {
+                    Geometry geometry = (Geometry) rs.getObject(geometryIndex);
+                    if (geometry != null && !geometry.isEmpty() && geometry.getDimension() > 0) {
+                        obstacleSRID = geometry.getSRID();
+                        ST_Svf.addObstacles(geometry, factory, obstacleIndex);
+                    }
+                }
+            }
+            obstacleIndex.build();
+        }
+
+        @Override
+        protected void release() {
+            obstacleIndex = null;
+        }
+
+        @Override
+        protected List<Object[]> processRow(Object[] row, Geometry geometry) throws SQLException {
+            if (!(geometry instanceof Point)) {
+                throw new SQLException("The receptor geometries must be points");
+            }
+            double svf = 1;
+            if (!obstacleIndex.isEmpty()) {
+                if (geometry.getSRID() != obstacleSRID) {
+                    throw new SQLException("Operation on mixed SRID geometries not supported");
+                }
+                svf = ST_Svf.skyViewFactor((Point) geometry, obstacleIndex, distance, rayCount, stepRayLength);
+            }
+            Object[] outputRow = new Object[row.length + 1];
+            System.arraycopy(row, 0, outputRow, 0, row.length);
+            outputRow[row.length] = svf;
+            return Collections.singletonList(outputRow);
+        }
+
+        @Override
+        protected List<Object[]> processEmptyRow(Object[] row) {
+            // Keep the receptor row, its SVF is unknown
+            Object[] outputRow = new Object[row.length + 1];
+            System.arraycopy(row, 0, outputRow, 0, row.length);
+            return Collections.singletonList(outputRow);
+        }
+
+        @Override
+        protected void addColumns(SimpleResultSet rs) throws SQLException {
+            GeometryTableIndex.copyColumns(connection, tableName, rs, new HashSet<>(), "_");
+            rs.addColumn(SVF_FIELD, Types.DOUBLE, 17, 0);
+        }
+    }
+}
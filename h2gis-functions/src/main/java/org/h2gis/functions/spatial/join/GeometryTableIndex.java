@@ -0,0 +1,239 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.index.strtree.ItemBoundable;
+import org.locationtech.jts.index.strtree.ItemDistance;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In memory copy of a table, or of a select query, whose rows are indexed in a packed STR-tree
+ * by their first geometry column.
+ * The tree is bulk loaded once and can then be queried concurrently by several threads.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class GeometryTableIndex {
+
+    private final List<Object[]> rows = new ArrayList<>();
+    private final STRtree index = new STRtree();
+    private int geometryColumnIndex = -1;
+    private int srid = 0;
+
+    private GeometryTableIndex() {
+    }
+
+    /**
+     * Build the select query that reads all the rows of a table or of a select query
+     *
+     * @param connection Active connection
+     * @param tableName Table name or a select query enclosed in parenthesis
+     * @return The select query
+     * @throws SQLException
+     */
+    public static String getSelectQuery(Connection connection, String tableName) throws SQLException {
+        String source = tableName.trim();
+        if (source.startsWith("(") && source.endsWith(")")) {
+            return "SELECT * FROM " + source + " AS SRC";
+        }
+        return "SELECT * FROM " + TableLocation.parse(source, JDBCUtilities.isH2DataBase(connection));
+    }
+
+    /**
+     * Copy the columns of a table or of a select query into a result set
+     *
+     * @param connection Active connection
+     * @param tableName Table name or a select query enclosed in parenthesis
+     * @param rs Result set that will receive the columns
+     * @param usedNames Names of the columns already added, updated with the new ones
+     * @param suffix Suffix added to a column name already in use
+     * @return Number of copied columns
+     * @throws SQLException
+     */
+    public static int copyColumns(Connection connection, String tableName, SimpleResultSet rs,
+                                  Set<String> usedNames, String suffix) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet resultSet = st.executeQuery(getSelectQuery(connection, tableName) + " LIMIT 0")) {
+            ResultSetMetaData metadata = resultSet.getMetaData();
+            int columnCount = metadata.getColumnCount();
+            for (int i = 1; i <= columnCount; i++) {
+                String columnName = metadata.getColumnName(i);
+                while (!usedNames.add(columnName.toUpperCase())) {
+                    columnName += suffix;
+                }
+                rs.addColumn(columnName, metadata.getColumnType(i), metadata.getColumnTypeName(i),
+                        metadata.getPrecision(i), metadata.getScale(i));
+            }
+            return columnCount;
+        }
+    }
+
+    /**
+     * Read all the rows of a table or of a select query and index them by their first geometry column.
+     * Rows with a null or empty geometry are kept out of the index.
+     *
+     * @param connection Active connection
+     * @param tableName Table name or a select query enclosed in parenthesis
+     * @return The loaded index
+     * @throws SQLException
+     */
+    public static GeometryTableIndex load(Connection connection, String tableName) throws SQLException {
+        GeometryTableIndex tableIndex = new GeometryTableIndex();
+        try (Statement st = connection.createStatement();
+             ResultSet resultSet = st.executeQuery(getSelectQuery(connection, tableName))) {
+            ResultSetMetaData metadata = resultSet.getMetaData();
+            int columnCount = metadata.getColumnCount();
+            tableIndex.geometryColumnIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(metadata).second() - 1;
+            boolean firstGeometry = true;
+            while (resultSet.next()) {
+                Object[] row = new Object[columnCount];
+                for (int i = 0; i < columnCount; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+                Geometry geometry = (Geometry) row[tableIndex.geometryColumnIndex];
+                if (geometry != null && !geometry.isEmpty()) {
+                    if (firstGeometry) {
+                        tableIndex.srid = geometry.getSRID();
+                        firstGeometry = false;
+                    }
+                    tableIndex.index.insert(geometry.getEnvelopeInternal(), tableIndex.rows.size());
+                    tableIndex.rows.add(row);
+                }
+            }
+        }
+        // Pack the tree now, so that concurrent queries do not have to build it
+        tableIndex.index.build();
+        return tableIndex;
+    }
+
+    /**
+     * @return The STR-tree, items are the row identifiers
+     */
+    public STRtree getIndex() {
+        return index;
+    }
+
+    /**
+     * Return the row identifiers whose geometry envelope intersects the given envelope
+     *
+     * @param envelope Search envelope
+     * @return Row identifiers
+     */
+    @SuppressWarnings("unchecked")
+    public List<Integer> query(Envelope envelope) {
+        return index.query(envelope);
+    }
+
+    /**
+     * Return the identifiers of the k rows whose geometries are the nearest of the given geometry,
+     * sorted by increasing distance.
+     * The tree is traversed best-first with the exact geometry distance.
+     *
+     * @param geometry Search geometry
+     * @param k Number of neighbours
+     * @return Row identifiers, less than k if the index holds less than k rows
+     */
+    public int[] nearest(Geometry geometry, int k) {
+        if (rows.isEmpty() || k <= 0) {
+            return new int[0];
+        }
+        Object[] items = index.nearestNeighbour(geometry.getEnvelopeInternal(), geometry, itemDistance, k);
+        int[] rowIds = new int[items.length];
+        double[] distances = new double[items.length];
+        for (int i = 0; i < items.length; i++) {
+            rowIds[i] = (Integer) items[i];
+            distances[i] = geometry.distance(getGeometry(rowIds[i]));
+        }
+        // Insertion sort, k is expected to be small
+        for (int i = 1; i < rowIds.length; i++) {
+            int rowId = rowIds[i];
+            double distance = distances[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > distance) {
+                rowIds[j + 1] = rowIds[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            rowIds[j + 1] = rowId;
+            distances[j + 1] = distance;
+        }
+        return rowIds;
+    }
+
+    /**
+     * Distance between the indexed geometries and the search geometry
+     */
+    private final ItemDistance itemDistance = new ItemDistance() {
+        @Override
+        public double distance(ItemBoundable item1, ItemBoundable item2) {
+            return toGeometry(item1.getItem()).distance(toGeometry(item2.getItem()));
+        }
+
+        private Geometry toGeometry(Object item) {
+            return item instanceof Geometry ? (Geometry) item : getGeometry((Integer) item);
+        }
+    };
+
+    /**
+     * @param rowId Row identifier
+     * @return The values of the row
+     */
+    public Object[] getRow(int rowId) {
+        return rows.get(rowId);
+    }
+
+    /**
+     * @param rowId Row identifier
+     * @return The indexed geometry of the row
+     */
+    public Geometry getGeometry(int rowId) {
+        return (Geometry) rows.get(rowId)[geometryColumnIndex];
+    }
+
+    /**
+     * @return Number of indexed rows
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return SRID of the first indexed geometry, 0 if the index is empty
+     */
+    public int getSRID() {
+        return srid;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2.tools.SimpleResultSet;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stream the rows of a join between a table that is read by blocks and a table loaded in a
+ * {@link GeometryTableIndex}. The rows of a block are matched in parallel and the joined rows are
+ * returned in the order of the streamed table.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public abstract class IndexedJoinRowSet extends ParallelBlockRowSet {
+
+    /** Suffix added to the columns of the indexed table that have the same name as a column of the streamed table */
+    public static final String COLUMN_SUFFIX = "_B";
+
+    private final String tableB;
+    protected GeometryTableIndex indexB;
+
+    /**
+     * @param connection Active connection
+     * @param tableA Streamed table or select query
+     * @param tableB Indexed table or select query
+     */
+    public IndexedJoinRowSet(Connection connection, String tableA, String tableB) {
+        super(connection, tableA);
+        this.tableB = tableB;
+    }
+
+    /**
+     * Find the rows of the indexed table that match a geometry of the streamed table.
+     * This method is called concurrently.
+     *
+     * @param rowA Row of the streamed table
+     * @param geomA Geometry of the row, never null nor empty
+     * @return The joined rows
+     */
+    protected abstract List<Object[]> joinRow(Object[] rowA, Geometry geomA);
+
+    /**
+     * Add the columns that follow the columns of both tables
+     *
+     * @param rs Result set
+     * @throws SQLException
+     */
+    protected abstract void addExtraColumns(SimpleResultSet rs) throws SQLException;
+
+    /**
+     * Concatenate a row of each table and the extra values
+     *
+     * @param rowA Row of the streamed table
+     * @param rowB Row of the indexed table
+     * @param extraValues Values of the extra columns
+     * @return The joined row
+     */
+    protected static Object[] concat(Object[] rowA, Object[] rowB, Object... extraValues) {
+        Object[] joined = new Object[rowA.length + rowB.length + extraValues.length];
+        System.arraycopy(rowA, 0, joined, 0, rowA.length);
+        System.arraycopy(rowB, 0, joined, rowA.length, rowB.length);
+        System.arraycopy(extraValues, 0, joined, rowA.length + rowB.length, extraValues.length);
+        return joined;
+    }
+
+    @Override
+    protected void prepare() throws SQLException {
+        indexB = GeometryTableIndex.load(connection, tableB);
+    }
+
+    @Override
+    protected void release() {
+        indexB = null;
+    }
+
+    @Override
+    protected List<Object[]> processRow(Object[] row, Geometry geometry) {
+        if (indexB.size() == 0) {
+            return Collections.emptyList();
+        }
+        return joinRow(row, geometry);
+    }
+
+    @Override
+    protected void addColumns(SimpleResultSet rs) throws SQLException {
+        Set<String> usedNames = new HashSet<>();
+        GeometryTableIndex.copyColumns(connection, tableName, rs, usedNames, COLUMN_SUFFIX);
+        GeometryTableIndex.copyColumns(connection, tableB, rs, usedNames, COLUMN_SUFFIX);
+        addExtraColumns(rs);
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2.tools.SimpleRowSource;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Stream the rows of a table, or of a select query, by blocks. The rows of a block are processed in parallel
+ * and the produced rows are returned in the order of the streamed table.
+ * Sub classes prepare the shared, read only, structures before the first row is read.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public abstract class ParallelBlockRowSet implements SimpleRowSource {
+
+    /** Default number of rows processed at once */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    protected final Connection connection;
+    protected final String tableName;
+    private int blockSize = DEFAULT_BLOCK_SIZE;
+    private boolean firstRow = true;
+    private Statement statement;
+    private ResultSet tableQuery;
+    private int columnCount;
+    private int geometryIndex;
+    private final Queue<Object[]> pendingRows = new ArrayDeque<>();
+
+    /**
+     * @param connection Active connection
+     * @param tableName Streamed table or select query enclosed in parenthesis
+     */
+    public ParallelBlockRowSet(Connection connection, String tableName) {
+        this.connection = connection;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Build the structures shared by the processing of all the rows
+     *
+     * @throws SQLException
+     */
+    protected abstract void prepare() throws SQLException;
+
+    /**
+     * Release the shared structures
+     */
+    protected abstract void release();
+
+    /**
+     * Produce the output rows of a row of the streamed table.
+     * This method is called concurrently.
+     *
+     * @param row Row of the streamed table
+     * @param geometry First geometry of the row, never null nor empty
+     * @return The output rows
+     * @throws SQLException
+     */
+    protected abstract List<Object[]> processRow(Object[] row, Geometry geometry) throws SQLException;
+
+    /**
+     * Produce the output rows of a row of the streamed table that has a null or empty geometry.
+     * By default these rows are skipped.
+     *
+     * @param row Row of the streamed table
+     * @return The output rows
+     */
+    protected List<Object[]> processEmptyRow(Object[] row) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return Index of the first geometry column in the rows of the streamed table
+     */
+    protected int getGeometryIndex() {
+        return geometryIndex;
+    }
+
+    /**
+     * Add the output columns
+     *
+     * @param rs Result set
+     * @throws SQLException
+     */
+    protected abstract void addColumns(SimpleResultSet rs) throws SQLException;
+
+    /**
+     * @param blockSize Number of rows processed at once
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    @Override
+    public Object[] readRow() throws SQLException {
+        if (firstRow) {
+            reset();
+        }
+        while (pendingRows.isEmpty()) {
+            if (!readBlock()) {
+                return null;
+            }
+        }
+        return pendingRows.poll();
+    }
+
+    /**
+     * Read a block of rows and process them in parallel
+     *
+     * @return False if there is no more rows to read
+     * @throws SQLException
+     */
+    private boolean readBlock() throws SQLException {
+        List<Object[]> block = new ArrayList<>(blockSize);
+        while (block.size() < blockSize && tableQuery.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = tableQuery.getObject(i + 1);
+            }
+            block.add(row);
+        }
+        if (block.isEmpty()) {
+            return false;
+        }
+        SQLException[] error = new SQLException[1];
+        // The parallel stream is ordered, the results are collected in the order of the block rows
+        List<List<Object[]>> results = IntStream.range(0, block.size()).parallel().mapToObj(i -> {
+            Object[] row = block.get(i);
+            Geometry geometry = (Geometry) row[geometryIndex];
+            if (geometry == null || geometry.isEmpty()) {
+                return processEmptyRow(row);
+            }
+            try {
+                return processRow(row, geometry);
+            } catch (SQLException ex) {
+                synchronized (error) {
+                    error[0] = ex;
+                }
+                return Collections.<Object[]>emptyList();
+            }
+        }).collect(Collectors.toList());
+        if (error[0] != null) {
+            throw error[0];
+        }
+        for (List<Object[]> rows : results) {
+            pendingRows.addAll(rows);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (tableQuery != null) {
+                tableQuery.close();
+                tableQuery = null;
+            }
+            if (statement != null) {
+                statement.close();
+                statement = null;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+        release();
+        pendingRows.clear();
+    }
+
+    @Override
+    public void reset() throws SQLException {
+        close();
+        prepare();
+        statement = connection.createStatement();
+        tableQuery = statement.executeQuery(GeometryTableIndex.getSelectQuery(connection, tableName));
+        ResultSetMetaData metadata = tableQuery.getMetaData();
+        columnCount = metadata.getColumnCount();
+        geometryIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(metadata).second() - 1;
+        firstRow = false;
+    }
+
+    /**
+     * @return The output rows as a result set
+     * @throws SQLException
+     */
+    public ResultSet getResultSet() throws SQLException {
+        SimpleResultSet rs = new SimpleResultSet(this);
+        addColumns(rs);
+        return rs;
+    }
+}
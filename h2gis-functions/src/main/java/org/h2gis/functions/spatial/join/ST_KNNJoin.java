@@ -0,0 +1,109 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table function that returns, for each row of a table, the k nearest rows of another table.
+ * The second table is loaded once in a packed STR-tree that is traversed best-first for each row
+ * of the first table.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_KNNJoin extends AbstractFunction implements ScalarFunction {
+
+    /** Name of the column that holds the distance between the two geometries */
+    public static final String DISTANCE_FIELD = "DISTANCE";
+
+    /** Name of the column that holds the rank of the neighbour, from 1 to k */
+    public static final String RANK_FIELD = "NEIGHBOUR_RANK";
+
+    public ST_KNNJoin() {
+        addProperty(PROP_REMARKS, "Return, for each row of tableA, the k nearest rows of tableB.\n"
+                + "ST_KNNJoin('tableA', 'tableB', k)\n"
+                + "The result contains the columns of both tables, the " + DISTANCE_FIELD + " between the geometries"
+                + " and the " + RANK_FIELD + " of the neighbour.\n"
+                + "Columns of tableB with the same name as a column of tableA are suffixed by " + IndexedJoinRowSet.COLUMN_SUFFIX + ".\n"
+                + "Note : tables could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "join";
+    }
+
+    /**
+     * Return, for each row of tableA, the k nearest rows of tableB
+     *
+     * @param connection Active connection
+     * @param tableA First table or select query, streamed
+     * @param tableB Second table or select query, loaded in an index
+     * @param k Number of neighbours
+     * @return The joined rows
+     * @throws SQLException
+     */
+    public static ResultSet join(Connection connection, String tableA, String tableB, int k) throws SQLException {
+        if (k < 1) {
+            throw new SQLException("The number of neighbours must be greater than 0.");
+        }
+        return new KNNJoinRowSet(connection, tableA, tableB, k).getResultSet();
+    }
+
+    /**
+     * Stream the joined rows
+     */
+    public static class KNNJoinRowSet extends IndexedJoinRowSet {
+        private final int k;
+
+        public KNNJoinRowSet(Connection connection, String tableA, String tableB, int k) {
+            super(connection, tableA, tableB);
+            this.k = k;
+        }
+
+        @Override
+        protected List<Object[]> joinRow(Object[] rowA, Geometry geomA) {
+            int[] nearest = indexB.nearest(geomA, k);
+            List<Object[]> joinedRows = new ArrayList<>(nearest.length);
+            for (int i = 0; i < nearest.length; i++) {
+                Geometry geomB = indexB.getGeometry(nearest[i]);
+                joinedRows.add(concat(rowA, indexB.getRow(nearest[i]), geomA.distance(geomB), i + 1));
+            }
+            return joinedRows;
+        }
+
+        @Override
+        protected void addExtraColumns(SimpleResultSet rs) {
+            rs.addColumn(DISTANCE_FIELD, Types.DOUBLE, 17, 0);
+            rs.addColumn(RANK_FIELD, Types.INTEGER, 10, 0);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2.engine.Session;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.tools.SimpleResultSet;
+import org.h2.tools.SimpleRowSource;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.TableUtilities;
+import org.locationtech.jts.geom.Geometry;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Table function that returns the k rows of a table that are the nearest of a geometry.
+ * The rows of the table are loaded once in an in memory STR-tree, the tree is kept for the next calls of the same
+ * session on the same table while the database is not modified.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_Nearest extends AbstractFunction implements ScalarFunction {
+
+    /** Name of the column that holds the distance to the geometry */
+    public static final String DISTANCE_FIELD = "DISTANCE";
+
+    /** Last index loaded by each session, H2 gives a new connection to each function call */
+    private static final Map<Session, CachedIndex> INDEX_CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public ST_Nearest() {
+        addProperty(PROP_REMARKS, "Return the k rows of a table that are the nearest of a geometry.\n"
+                + "ST_Nearest('table', geom, k)\n"
+                + "The result contains the columns of the table and the " + DISTANCE_FIELD + " to the geometry,"
+                + " sorted by increasing distance.\n"
+                + "The table is indexed in memory on the first call, the index is reused by the next calls"
+                + " until the database is modified.\n"
+                + "To find the nearest rows of each row of a table use ST_KNNJoin.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "nearest";
+    }
+
+    /**
+     * Return the k rows of a table that are the nearest of a geometry
+     *
+     * @param connection Active connection
+     * @param tableName Table name
+     * @param geometry Search geometry
+     * @param k Number of rows
+     * @return The nearest rows
+     * @throws SQLException
+     */
+    public static ResultSet nearest(Connection connection, String tableName, Geometry geometry, int k) throws SQLException {
+        if (k < 1) {
+            throw new SQLException("The number of neighbours must be greater than 0.");
+        }
+        return new NearestRowSet(connection, TableUtilities.parseInputTable(connection, tableName), geometry, k).getResultSet();
+    }
+
+    /**
+     * Return the index of the table, it is loaded again if the session has not indexed this table yet or if the
+     * database has been modified since the last load.
+     *
+     * @param connection Active connection
+     * @param tableName Table identifier, already parsed and quoted
+     * @return The table index
+     * @throws SQLException
+     */
+    private static GeometryTableIndex getIndex(Connection connection, String tableName) throws SQLException {
+        Session session = getSession(connection);
+        if (session == null) {
+            return GeometryTableIndex.load(connection, tableName);
+        }
+        long modificationId = session.getDatabase().getModificationDataId();
+        CachedIndex cachedIndex = INDEX_CACHE.get(session);
+        if (cachedIndex == null || cachedIndex.modificationId != modificationId
+                || !cachedIndex.tableName.equals(tableName)) {
+            // Release the previous index before loading the new one
+            INDEX_CACHE.remove(session);
+            cachedIndex = new CachedIndex(tableName, modificationId, GeometryTableIndex.load(connection, tableName));
+            INDEX_CACHE.put(session, cachedIndex);
+        }
+        return cachedIndex.index;
+    }
+
+    /**
+     * @param connection Active connection
+     * @return The embedded H2 session of the connection, null if the connection is not an embedded H2 connection
+     */
+    private static Session getSession(Connection connection) {
+        try {
+            if (connection.isWrapperFor(JdbcConnection.class)) {
+                Object session = connection.unwrap(JdbcConnection.class).getSession();
+                if (session instanceof Session) {
+                    return (Session) session;
+                }
+            }
+        } catch (SQLException ex) {
+            // Not an H2 connection, the index is not cached
+        }
+        return null;
+    }
+
+    /**
+     * Index of a table with the modification identifier of the database when it has been loaded
+     */
+    private static final class CachedIndex {
+        private final String tableName;
+        private final long modificationId;
+        private final GeometryTableIndex index;
+
+        CachedIndex(String tableName, long modificationId, GeometryTableIndex index) {
+            this.tableName = tableName;
+            this.modificationId = modificationId;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Search the nearest rows on first read
+     */
+    public static class NearestRowSet implements SimpleRowSource {
+        private final Connection connection;
+        private final TableLocation tableLocation;
+        private final Geometry geometry;
+        private final int k;
+        private Iterator<Object[]> nearestRows;
+
+        public NearestRowSet(Connection connection, TableLocation tableLocation, Geometry geometry, int k) {
+            this.connection = connection;
+            this.tableLocation = tableLocation;
+            this.geometry = geometry;
+            this.k = k;
+        }
+
+        @Override
+        public Object[] readRow() throws SQLException {
+            if (nearestRows == null) {
+                reset();
+            }
+            return nearestRows.hasNext() ? nearestRows.next() : null;
+        }
+
+        @Override
+        public void close() {
+            nearestRows = null;
+        }
+
+        @Override
+        public void reset() throws SQLException {
+            nearestRows = search().iterator();
+        }
+
+        /**
+         * @return The nearest rows, the last value of each row is the distance
+         * @throws SQLException
+         */
+        private List<Object[]> search() throws SQLException {
+            List<Object[]> nearest = new ArrayList<>();
+            if (geometry == null || geometry.isEmpty()) {
+                return nearest;
+            }
+            GeometryTableIndex tableIndex = getIndex(connection, tableLocation.toString());
+            for (int rowId : tableIndex.nearest(geometry, k)) {
+                Object[] tableRow = tableIndex.getRow(rowId);
+                Object[] row = new Object[tableRow.length + 1];
+                System.arraycopy(tableRow, 0, row, 0, tableRow.length);
+                row[tableRow.length] = geometry.distance(tableIndex.getGeometry(rowId));
+                nearest.add(row);
+            }
+            return nearest;
+        }
+
+        /**
+         * @return The nearest rows as a result set
+         * @throws SQLException
+         */
+        public ResultSet getResultSet() throws SQLException {
+            SimpleResultSet rs = new SimpleResultSet(this);
+            TableUtilities.copyFields(connection, rs, tableLocation);
+            rs.addColumn(DISTANCE_FIELD, Types.DOUBLE, 17, 0);
+            return rs;
+        }
+    }
+}
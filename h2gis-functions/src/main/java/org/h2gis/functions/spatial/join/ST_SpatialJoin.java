@@ -0,0 +1,208 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table function that joins two tables on a spatial predicate.
+ * The rows of the second table are bulk loaded in a packed STR-tree, the rows of the first table are then
+ * read by blocks and each block is evaluated in parallel against the tree with prepared geometries.
+ * The joined rows are streamed out in the order of the first table.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_SpatialJoin extends AbstractFunction implements ScalarFunction {
+
+    /** Name of the column that holds the distance between the two geometries for a distance join */
+    public static final String DISTANCE_FIELD = "DISTANCE";
+
+    public ST_SpatialJoin() {
+        addProperty(PROP_REMARKS, "Join two tables on a spatial predicate and return the columns of both tables.\n"
+                + "ST_SpatialJoin('tableA', 'tableB', 'predicate') or "
+                + "ST_SpatialJoin('tableA', 'tableB', 'dwithin', distance).\n"
+                + "Supported predicates are : intersects, contains, within, covers, coveredby, touches, crosses,"
+                + " overlaps and dwithin.\n"
+                + "The distance join adds a " + DISTANCE_FIELD + " column.\n"
+                + "Columns of tableB with the same name as a column of tableA are suffixed by " + IndexedJoinRowSet.COLUMN_SUFFIX + ".\n"
+                + "Note : tables could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "join";
+    }
+
+    /**
+     * Join two tables on a spatial predicate
+     *
+     * @param connection Active connection
+     * @param tableA First table or select query, streamed
+     * @param tableB Second table or select query, loaded in an index
+     * @param predicate Name of the spatial predicate
+     * @return The joined rows
+     * @throws SQLException
+     */
+    public static ResultSet join(Connection connection, String tableA, String tableB, String predicate) throws SQLException {
+        SpatialPredicate spatialPredicate = SpatialPredicate.fromString(predicate);
+        if (spatialPredicate == SpatialPredicate.DWITHIN) {
+            throw new SQLException("The dwithin predicate expects a distance argument.");
+        }
+        return new SpatialJoinRowSet(connection, tableA, tableB, spatialPredicate, 0).getResultSet();
+    }
+
+    /**
+     * Join two tables on a spatial predicate
+     *
+     * @param connection Active connection
+     * @param tableA First table or select query, streamed
+     * @param tableB Second table or select query, loaded in an index
+     * @param predicate Name of the spatial predicate
+     * @param distance Distance used by the dwithin predicate
+     * @return The joined rows
+     * @throws SQLException
+     */
+    public static ResultSet join(Connection connection, String tableA, String tableB, String predicate, double distance) throws SQLException {
+        if (distance < 0) {
+            throw new SQLException("The distance must be greater than or equal to 0.");
+        }
+        return new SpatialJoinRowSet(connection, tableA, tableB, SpatialPredicate.fromString(predicate), distance).getResultSet();
+    }
+
+    /**
+     * Spatial predicates supported by the join
+     */
+    public enum SpatialPredicate {
+        INTERSECTS, CONTAINS, WITHIN, COVERS, COVEREDBY, TOUCHES, CROSSES, OVERLAPS, DWITHIN;
+
+        /**
+         * @param predicate Predicate name, case insensitive, with or without the ST_ prefix
+         * @return The predicate
+         * @throws SQLException if the predicate is not supported
+         */
+        public static SpatialPredicate fromString(String predicate) throws SQLException {
+            if (predicate == null) {
+                throw new SQLException("The spatial predicate cannot be null.");
+            }
+            String name = predicate.trim().toUpperCase();
+            if (name.startsWith("ST_")) {
+                name = name.substring(3);
+            }
+            try {
+                return SpatialPredicate.valueOf(name);
+            } catch (IllegalArgumentException ex) {
+                throw new SQLException("Unsupported spatial predicate : " + predicate);
+            }
+        }
+
+        /**
+         * Evaluate the predicate
+         *
+         * @param a Prepared geometry of the first table
+         * @param b Geometry of the second table
+         * @param distance Distance of the dwithin predicate
+         * @return True if the predicate holds
+         */
+        public boolean evaluate(PreparedGeometry a, Geometry b, double distance) {
+            switch (this) {
+                case INTERSECTS:
+                    return a.intersects(b);
+                case CONTAINS:
+                    return a.contains(b);
+                case WITHIN:
+                    return a.within(b);
+                case COVERS:
+                    return a.covers(b);
+                case COVEREDBY:
+                    return a.coveredBy(b);
+                case TOUCHES:
+                    return a.touches(b);
+                case CROSSES:
+                    return a.crosses(b);
+                case OVERLAPS:
+                    return a.overlaps(b);
+                default:
+                    return a.getGeometry().isWithinDistance(b, distance);
+            }
+        }
+    }
+
+    /**
+     * Stream the joined rows
+     */
+    public static class SpatialJoinRowSet extends IndexedJoinRowSet {
+        private final SpatialPredicate predicate;
+        private final double distance;
+
+        public SpatialJoinRowSet(Connection connection, String tableA, String tableB, SpatialPredicate predicate, double distance) {
+            super(connection, tableA, tableB);
+            this.predicate = predicate;
+            this.distance = distance;
+        }
+
+        @Override
+        protected List<Object[]> joinRow(Object[] rowA, Geometry geomA) {
+            Envelope searchEnvelope = new Envelope(geomA.getEnvelopeInternal());
+            boolean withDistance = predicate == SpatialPredicate.DWITHIN;
+            if (withDistance) {
+                searchEnvelope.expandBy(distance);
+            }
+            List<Integer> candidates = indexB.query(searchEnvelope);
+            if (candidates.isEmpty()) {
+                return Collections.emptyList();
+            }
+            PreparedGeometry preparedA = PreparedGeometryFactory.prepare(geomA);
+            List<Object[]> joinedRows = new ArrayList<>();
+            for (Integer rowId : candidates) {
+                Geometry geomB = indexB.getGeometry(rowId);
+                if (predicate.evaluate(preparedA, geomB, distance)) {
+                    if (withDistance) {
+                        joinedRows.add(concat(rowA, indexB.getRow(rowId), geomA.distance(geomB)));
+                    } else {
+                        joinedRows.add(concat(rowA, indexB.getRow(rowId)));
+                    }
+                }
+            }
+            return joinedRows;
+        }
+
+        @Override
+        protected void addExtraColumns(SimpleResultSet rs) {
+            if (predicate == SpatialPredicate.DWITHIN) {
+                rs.addColumn(DISTANCE_FIELD, Types.DOUBLE, 17, 0);
+            }
+        }
+    }
+}
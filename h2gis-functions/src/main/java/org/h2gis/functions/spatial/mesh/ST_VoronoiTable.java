@@ -0,0 +1,91 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.mesh;
+
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.utilities.TableUtilities;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Table function that computes the Voronoi cells of the points of a table without accumulating them in
+ * a geometry. The points are triangulated in primitive arrays and the Voronoi cells are streamed out as rows.
+ *
+ * @author Nicolas Fortin
+ */
+public class ST_VoronoiTable extends AbstractFunction implements ScalarFunction {
+
+    public ST_VoronoiTable() {
+        addProperty(PROP_REMARKS, "Compute the Voronoi diagram of all the coordinates of the geometries of a table and return one row per cell, clipped to the table extent.\n"
+                + "SITE_ID is the integer primary key of the row of the site, if any.\n"
+                + "ST_VoronoiTable('table')\n"
+                + "ST_VoronoiTable('table', tileSize)\n"
+                + "ST_VoronoiTable('table', tileSize, margin)\n"
+                + "With a tile size the table extent is split in tiles processed one by one, the points located"
+                + " within the margin (default is tileSize/2) around a tile are used to complete its triangulation.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "voronoi";
+    }
+
+    /**
+     * @param connection Active connection
+     * @param tableName Table name
+     * @return The Voronoi cells
+     * @throws SQLException
+     */
+    public static ResultSet voronoi(Connection connection, String tableName) throws SQLException {
+        return voronoi(connection, tableName, 0, 0);
+    }
+
+    /**
+     * @param connection Active connection
+     * @param tableName Table name
+     * @param tileSize Size of the square tiles
+     * @return The Voronoi cells
+     * @throws SQLException
+     */
+    public static ResultSet voronoi(Connection connection, String tableName, double tileSize) throws SQLException {
+        return voronoi(connection, tableName, tileSize, tileSize / 2);
+    }
+
+    /**
+     * @param connection Active connection
+     * @param tableName Table name
+     * @param tileSize Size of the square tiles
+     * @param margin Distance around a tile used to read the neighbouring points
+     * @return The Voronoi cells
+     * @throws SQLException
+     */
+    public static ResultSet voronoi(Connection connection, String tableName, double tileSize, double margin) throws SQLException {
+        if (tileSize < 0 || margin < 0) {
+            throw new SQLException("The tile size and the margin must be greater than or equal to 0.");
+        }
+        TriangulationRowSet rowSet = new TriangulationRowSet(connection, TableUtilities.parseInputTable(connection, tableName),
+                TriangulationRowSet.MODE.VORONOI, tileSize, margin);
+        return rowSet.getResultSet();
+    }
+}
@@ -0,0 +1,304 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.mesh;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2.tools.SimpleRowSource;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.JDBCUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.Tuple;
+import org.h2gis.utilities.jts_utils.DelaunayTriangulator;
+import org.locationtech.jts.geom.*;
+
+import java.sql.*;
+import java.util.Arrays;
+
+/**
+ * Read the coordinates of the geometries of a table, triangulate them with {@link DelaunayTriangulator} and
+ * stream out the Delaunay triangles or the Voronoi cells as rows.
+ * When a tile size is given, the table extent is split into tiles. The points of a tile and of its margin are
+ * read through the spatial index and triangulated alone. A triangle is returned by the tile that contains its
+ * centroid and a Voronoi cell by the tile that contains its site, so the result equals the one of the whole
+ * table as long as the margin is larger than the triangles circumradius.
+ *
+ * @author Nicolas Fortin
+ */
+public class TriangulationRowSet implements SimpleRowSource {
+    public enum MODE {DELAUNAY, VORONOI}
+
+    private final Connection connection;
+    private final TableLocation tableLocation;
+    private final MODE mode;
+    private final double tileSize;
+    private final double margin;
+    private boolean firstRow = true;
+    private String geometryColumn;
+    private String pkColumn;
+    private Envelope extent;
+    private Polygon clip;
+    private GeometryFactory factory;
+    private int tileCountX;
+    private int tileCountY;
+    private int tileId;
+    private Envelope tileCore;
+    private boolean lastTileX;
+    private boolean lastTileY;
+    // Points of the current tile
+    private double[] xs = new double[1024];
+    private double[] ys = new double[1024];
+    private double[] zs = new double[1024];
+    private long[] siteIds = new long[1024];
+    private int pointCount;
+    private long currentSiteId;
+    private DelaunayTriangulator triangulator;
+    private int[] triangles;
+    private int cursor;
+    private int id = 1;
+
+    /**
+     * @param connection Active connection
+     * @param tableLocation Table of the points or geometries to triangulate
+     * @param mode Output triangles or Voronoi cells
+     * @param tileSize Size of the tiles, 0 or less to triangulate the whole table at once
+     * @param margin Distance around each tile used to fetch the neighbouring points
+     */
+    public TriangulationRowSet(Connection connection, TableLocation tableLocation, MODE mode, double tileSize, double margin) {
+        this.connection = connection;
+        this.tableLocation = tableLocation;
+        this.mode = mode;
+        this.tileSize = tileSize;
+        this.margin = margin;
+    }
+
+    @Override
+    public Object[] readRow() throws SQLException {
+        if (firstRow) {
+            reset();
+        }
+        if (extent == null) {
+            return null;
+        }
+        while (true) {
+            if (triangulator != null) {
+                Object[] row = mode == MODE.DELAUNAY ? nextTriangle() : nextCell();
+                if (row != null) {
+                    return row;
+                }
+            }
+            if (tileId >= tileCountX * tileCountY) {
+                return null;
+            }
+            loadTile(tileId++);
+        }
+    }
+
+    private Object[] nextTriangle() {
+        while (cursor < triangles.length) {
+            int a = triangles[cursor], b = triangles[cursor + 1], c = triangles[cursor + 2];
+            cursor += 3;
+            double cx = (xs[a] + xs[b] + xs[c]) / 3;
+            double cy = (ys[a] + ys[b] + ys[c]) / 3;
+            if (inTileCore(cx, cy)) {
+                Polygon triangle = factory.createPolygon(new Coordinate[]{
+                        new Coordinate(xs[a], ys[a], zs[a]), new Coordinate(xs[b], ys[b], zs[b]),
+                        new Coordinate(xs[c], ys[c], zs[c]), new Coordinate(xs[a], ys[a], zs[a])});
+                return new Object[]{triangle, id++};
+            }
+        }
+        return null;
+    }
+
+    private Object[] nextCell() {
+        while (cursor < pointCount) {
+            int site = cursor++;
+            if (!triangulator.isInserted(site) || !inTileCore(xs[site], ys[site])) {
+                continue;
+            }
+            double[] ring = triangulator.getVoronoiCell(site);
+            if (ring == null || ring.length < 6) {
+                continue;
+            }
+            int count = ring.length / 2;
+            Coordinate[] coordinates = new Coordinate[count + 1];
+            for (int i = 0; i < count; i++) {
+                coordinates[i] = new Coordinate(ring[i * 2], ring[i * 2 + 1]);
+            }
+            coordinates[count] = coordinates[0];
+            Geometry cell = factory.createPolygon(coordinates);
+            if (!extent.contains(cell.getEnvelopeInternal())) {
+                cell = cell.intersection(clip);
+            }
+            if (cell.isEmpty()) {
+                continue;
+            }
+            return new Object[]{cell, id++, pkColumn == null ? null : siteIds[site]};
+        }
+        return null;
+    }
+
+    /**
+     * Half open test so that a point on the border of two tiles belongs to one tile only
+     */
+    private boolean inTileCore(double x, double y) {
+        return x >= tileCore.getMinX() && (x < tileCore.getMaxX() || lastTileX)
+                && y >= tileCore.getMinY() && (y < tileCore.getMaxY() || lastTileY);
+    }
+
+    /**
+     * Read the points of a tile and triangulate them
+     */
+    private void loadTile(int tile) throws SQLException {
+        int i = tile % tileCountX;
+        int j = tile / tileCountX;
+        lastTileX = i == tileCountX - 1;
+        lastTileY = j == tileCountY - 1;
+        if (tileCountX == 1 && tileCountY == 1) {
+            tileCore = new Envelope(extent);
+        } else {
+            tileCore = new Envelope(extent.getMinX() + i * tileSize, extent.getMinX() + (i + 1) * tileSize,
+                    extent.getMinY() + j * tileSize, extent.getMinY() + (j + 1) * tileSize);
+        }
+        String columns = TableLocation.quoteIdentifier(geometryColumn)
+                + (pkColumn == null ? "" : ", " + TableLocation.quoteIdentifier(pkColumn));
+        pointCount = 0;
+        if (tileCountX == 1 && tileCountY == 1) {
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT " + columns + " FROM " + tableLocation)) {
+                readPoints(rs);
+            }
+        } else {
+            Envelope readEnvelope = new Envelope(tileCore);
+            readEnvelope.expandBy(margin);
+            try (PreparedStatement ps = connection.prepareStatement("SELECT " + columns + " FROM " + tableLocation
+                    + " WHERE " + TableLocation.quoteIdentifier(geometryColumn) + " && ?")) {
+                Geometry readGeometry = factory.toGeometry(readEnvelope);
+                readGeometry.setSRID(factory.getSRID());
+                ps.setObject(1, readGeometry);
+                try (ResultSet rs = ps.executeQuery()) {
+                    readPoints(rs);
+                }
+            }
+        }
+        triangulator = new DelaunayTriangulator(xs, ys, pointCount);
+        triangulator.triangulate();
+        triangles = mode == MODE.DELAUNAY ? triangulator.getTriangles() : null;
+        cursor = 0;
+    }
+
+    private void readPoints(ResultSet rs) throws SQLException {
+        CoordinateSequenceFilter pointReader = new PointReader();
+        while (rs.next()) {
+            Geometry geometry = (Geometry) rs.getObject(1);
+            if (geometry != null) {
+                currentSiteId = pkColumn == null ? 0 : rs.getLong(2);
+                geometry.apply(pointReader);
+            }
+        }
+    }
+
+    /**
+     * Append the coordinates of a geometry to the point arrays
+     */
+    private class PointReader implements CoordinateSequenceFilter {
+        @Override
+        public void filter(CoordinateSequence seq, int i) {
+            if (pointCount == xs.length) {
+                int capacity = xs.length * 2;
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+                siteIds = Arrays.copyOf(siteIds, capacity);
+            }
+            xs[pointCount] = seq.getX(i);
+            ys[pointCount] = seq.getY(i);
+            zs[pointCount] = seq.getZ(i);
+            siteIds[pointCount] = currentSiteId;
+            pointCount++;
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean isGeometryChanged() {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        triangulator = null;
+        triangles = null;
+    }
+
+    @Override
+    public void reset() throws SQLException {
+        firstRow = false;
+        close();
+        id = 1;
+        tileId = 0;
+        Tuple<String, Integer> geometryField = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(connection, tableLocation);
+        geometryColumn = geometryField.first();
+        Tuple<String, Integer> pk = JDBCUtilities.getIntegerPrimaryKeyNameAndIndex(connection, tableLocation);
+        pkColumn = pk == null ? null : pk.first();
+        int srid = GeometryTableUtilities.getSRID(connection, tableLocation, geometryColumn);
+        factory = new GeometryFactory(new PrecisionModel(), srid);
+        extent = null;
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ST_Extent(" + TableLocation.quoteIdentifier(geometryColumn)
+                     + ") FROM " + tableLocation)) {
+            if (rs.next() && rs.getObject(1) != null) {
+                extent = ((Geometry) rs.getObject(1)).getEnvelopeInternal();
+            }
+        }
+        if (extent == null || (mode == MODE.VORONOI && extent.getArea() == 0)) {
+            extent = null;
+            return;
+        }
+        clip = factory.createPolygon(new Coordinate[]{
+                new Coordinate(extent.getMinX(), extent.getMinY()), new Coordinate(extent.getMaxX(), extent.getMinY()),
+                new Coordinate(extent.getMaxX(), extent.getMaxY()), new Coordinate(extent.getMinX(), extent.getMaxY()),
+                new Coordinate(extent.getMinX(), extent.getMinY())});
+        if (tileSize > 0) {
+            tileCountX = Math.max(1, (int) Math.ceil(extent.getWidth() / tileSize));
+            tileCountY = Math.max(1, (int) Math.ceil(extent.getHeight() / tileSize));
+        } else {
+            tileCountX = 1;
+            tileCountY = 1;
+        }
+    }
+
+    /**
+     * @return The triangles or the Voronoi cells as a result set
+     */
+    public ResultSet getResultSet() {
+        SimpleResultSet srs = new SimpleResultSet(this);
+        srs.addColumn("THE_GEOM", Types.OTHER, "GEOMETRY", 0, 0);
+        srs.addColumn("ID", Types.INTEGER, 10, 0);
+        if (mode == MODE.VORONOI) {
+            srs.addColumn("SITE_ID", Types.BIGINT, 19, 0);
+        }
+        return srs;
+    }
+}
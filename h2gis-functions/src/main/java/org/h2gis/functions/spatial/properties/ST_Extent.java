@@ -32,10 +32,14 @@ import java.sql.SQLException;
 
 /**
  * ST_Extent returns an {@link org.locationtech.jts.geom.Envelope} that cover all aggregated geometries.
+ * The extent is kept as four doubles, no envelope is allocated per aggregated row.
  * @author Nicolas Fortin
  */
 public class ST_Extent extends AbstractFunction implements Aggregate {
-    private Envelope aggregatedEnvelope = new Envelope();
+    private double minX = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
     private int srid = 0;
 
     public ST_Extent() {
@@ -44,7 +48,10 @@ public class ST_Extent extends AbstractFunction implements Aggregate {
 
     @Override
     public void init(Connection connection) throws SQLException {
-        aggregatedEnvelope = new Envelope();
+        minX = Double.POSITIVE_INFINITY;
+        maxX = Double.NEGATIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        maxY = Double.NEGATIVE_INFINITY;
     }
 
     @Override
@@ -62,23 +69,55 @@ public class ST_Extent extends AbstractFunction implements Aggregate {
     public void add(Object o) throws SQLException {
         if (o instanceof Geometry) {
             Geometry geom = (Geometry) o;            
-            int currentSRID = geom.getSRID();
-            if(srid==0){
-                srid=currentSRID;
+            checkSRID(geom.getSRID());
+            Envelope envelope = geom.getEnvelopeInternal();
+            if (!envelope.isNull()) {
+                expand(envelope.getMinX(), envelope.getMaxX(), envelope.getMinY(), envelope.getMaxY());
             }
-            else if(srid!=currentSRID){
-                throw new SQLException("Operation on mixed SRID geometries not supported");
-            }
-            aggregatedEnvelope.expandToInclude(geom.getEnvelopeInternal());
         }
     }
 
+    /**
+     * Check that the SRID is the same for all aggregated geometries
+     * @param currentSRID
+     * @throws SQLException
+     */
+    private void checkSRID(int currentSRID) throws SQLException {
+        if (srid == 0) {
+            srid = currentSRID;
+        } else if (srid != currentSRID) {
+            throw new SQLException("Operation on mixed SRID geometries not supported");
+        }
+    }
+
+    private void expand(double minX, double maxX, double minY, double maxY) {
+        this.minX = Math.min(this.minX, minX);
+        this.maxX = Math.max(this.maxX, maxX);
+        this.minY = Math.min(this.minY, minY);
+        this.maxY = Math.max(this.maxY, maxY);
+    }
+
+    /**
+     * Merge the extent computed by another instance of this aggregate into this one.
+     * It allows to combine partial results computed over separate partitions of a table.
+     *
+     * @param other Partial aggregate
+     * @throws SQLException if both aggregates do not share the same SRID
+     */
+    public void merge(ST_Extent other) throws SQLException {
+        if (other == null || other.minX > other.maxX) {
+            return;
+        }
+        checkSRID(other.srid);
+        expand(other.minX, other.maxX, other.minY, other.maxY);
+    }
+
     @Override
     public Geometry getResult() throws SQLException {
-        if(aggregatedEnvelope.isNull()) {
+        if(minX > maxX) {
             return null;
         } else {
-            Geometry geom = new GeometryFactory().toGeometry(aggregatedEnvelope);
+            Geometry geom = new GeometryFactory().toGeometry(new Envelope(minX, maxX, minY, maxY));
             geom.setSRID(srid);
             return geom;
         }
@@ -186,7 +186,7 @@ public class ST_Drape extends DeterministicScalarFunction{
      * @param factory
      * @return 
      */
-    private static Polygon processPolygon(Polygon p, Geometry triangleLines, GeometryFactory factory) {
+    static Polygon processPolygon(Polygon p, Geometry triangleLines, GeometryFactory factory) {
         Geometry diffExt = p.getExteriorRing().difference(triangleLines);
         final int nbOfHoles = p.getNumInteriorRing();
         final LinearRing[] holes = new LinearRing[nbOfHoles];
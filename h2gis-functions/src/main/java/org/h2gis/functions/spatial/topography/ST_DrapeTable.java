@@ -0,0 +1,211 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.topography;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.spatial.join.GeometryTableIndex;
+import org.h2gis.functions.spatial.join.ParallelBlockRowSet;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.locationtech.jts.geom.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Table function that drapes the geometries of a table on the triangles of a TIN table.
+ * The triangles are loaded once in a {@link TriangleIndex}, each geometry is only split by the
+ * triangles that intersect its envelope and the geometries are draped in parallel.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_DrapeTable extends AbstractFunction implements ScalarFunction {
+
+    public ST_DrapeTable() {
+        addProperty(PROP_REMARKS, "This function drapes the geometries of a table to the triangles of a TIN table.\n"
+                + "ST_DrapeTable('tinTable', 'inputTable')\n"
+                + "The result contains the columns of the input table, the first geometry column being draped.\n"
+                + "Notes : The supported input geometry types are POINT, MULTIPOINT, LINESTRING, MULTILINESTRING, POLYGON and MULTIPOLYGON \n"
+                + "In case of 1 or 2 dimension, the input geometry is intersected with the triangles to perform a full draping.\n"
+                + "If a point lies on two triangles the z value of the first triangle is kept.\n"
+                + "A zero value is set to the z ordinate when the point is outside a triangle.\n"
+                + "Input triangles must be passed using a POLYGON Z form.\n"
+                + "Tables could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "drape";
+    }
+
+    /**
+     * Drape the geometries of a table on the triangles of a TIN table
+     *
+     * @param connection Active connection
+     * @param tinTable Table or select query of the triangles
+     * @param inputTable Table or select query of the geometries to drape
+     * @return The rows of the input table with the draped geometries
+     * @throws SQLException
+     */
+    public static ResultSet drape(Connection connection, String tinTable, String inputTable) throws SQLException {
+        return new DrapeRowSet(connection, tinTable, inputTable).getResultSet();
+    }
+
+    /**
+     * Drape a geometry on the triangles of an index
+     *
+     * @param geomToDrape Geometry to drape
+     * @param triangles Triangle index
+     * @return The draped geometry
+     * @throws SQLException
+     */
+    public static Geometry drape(Geometry geomToDrape, TriangleIndex triangles) throws SQLException {
+        GeometryFactory factory = geomToDrape.getFactory();
+        Geometry geomDrapped;
+        if (geomToDrape.getDimension() == 0) {
+            geomDrapped = geomToDrape.copy();
+        } else {
+            //Split the geometry with the triangles located in its envelope
+            Geometry triangleLines = triangles.getTriangleLines(geomToDrape.getEnvelopeInternal(), factory);
+            if (geomToDrape instanceof MultiLineString) {
+                int nbLines = geomToDrape.getNumGeometries();
+                LineString[] lineStrings = new LineString[nbLines];
+                for (int i = 0; i < nbLines; i++) {
+                    lineStrings[i] = (LineString) ST_Drape.lineMerge(geomToDrape.getGeometryN(i).difference(triangleLines), factory);
+                }
+                geomDrapped = factory.createMultiLineString(lineStrings);
+            } else if (geomToDrape instanceof MultiPolygon) {
+                int nbPolygons = geomToDrape.getNumGeometries();
+                Polygon[] polygons = new Polygon[nbPolygons];
+                for (int i = 0; i < nbPolygons; i++) {
+                    polygons[i] = ST_Drape.processPolygon((Polygon) geomToDrape.getGeometryN(i), triangleLines, factory);
+                }
+                geomDrapped = factory.createMultiPolygon(polygons);
+            } else if (geomToDrape instanceof Polygon) {
+                geomDrapped = ST_Drape.processPolygon((Polygon) geomToDrape, triangleLines, factory);
+            } else if (geomToDrape instanceof LineString) {
+                geomDrapped = ST_Drape.lineMerge(geomToDrape.difference(triangleLines), factory);
+            } else {
+                throw new SQLException("Drape " + geomToDrape.getGeometryType() + " is not supported.");
+            }
+        }
+        geomDrapped.apply(new DrapeFilter(triangles));
+        geomDrapped.setSRID(geomToDrape.getSRID());
+        return geomDrapped;
+    }
+
+    /**
+     * A filter to compute the z value of a coordinate according its location
+     * on a triangle
+     */
+    private static class DrapeFilter implements CoordinateSequenceFilter {
+
+        private final TriangleIndex triangles;
+
+        public DrapeFilter(TriangleIndex triangles) {
+            this.triangles = triangles;
+        }
+
+        @Override
+        public void filter(CoordinateSequence seq, int i) {
+            seq.setOrdinate(i, 2, triangles.interpolateZ(seq.getCoordinate(i)));
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public boolean isGeometryChanged() {
+            return true;
+        }
+    }
+
+    /**
+     * Stream the rows of the input table with the draped geometries
+     */
+    public static class DrapeRowSet extends ParallelBlockRowSet {
+        private final String tinTable;
+        private TriangleIndex triangles;
+        private int tinSRID;
+
+        public DrapeRowSet(Connection connection, String tinTable, String inputTable) {
+            super(connection, inputTable);
+            this.tinTable = tinTable;
+        }
+
+        @Override
+        protected void prepare() throws SQLException {
+            triangles = new TriangleIndex();
+            tinSRID = 0;
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery(GeometryTableIndex.getSelectQuery(connection, tinTable))) {
+                int geometryIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(rs.getMetaData()).second();
+                while (rs.next()) {
+                    Geometry geometry = (Geometry) rs.getObject(geometryIndex);
+                    if (geometry != null && !geometry.isEmpty()) {
+                        tinSRID = geometry.getSRID();
+                        int nb = geometry.getNumGeometries();
+                        for (int i = 0; i < nb; i++) {
+                            try {
+                                triangles.add(geometry.getGeometryN(i));
+                            } catch (IllegalArgumentException ex) {
+                                throw new SQLException(ex.getMessage(), ex);
+                            }
+                        }
+                    }
+                }
+            }
+            triangles.build();
+        }
+
+        @Override
+        protected void release() {
+            triangles = null;
+        }
+
+        @Override
+        protected List<Object[]> processRow(Object[] row, Geometry geometry) throws SQLException {
+            if (triangles.size() > 0 && geometry.getSRID() != tinSRID) {
+                throw new SQLException("Operation on mixed SRID geometries not supported");
+            }
+            Object[] outputRow = row.clone();
+            outputRow[getGeometryIndex()] = drape(geometry, triangles);
+            return Collections.singletonList(outputRow);
+        }
+
+        @Override
+        protected List<Object[]> processEmptyRow(Object[] row) {
+            return Collections.singletonList(row);
+        }
+
+        @Override
+        protected void addColumns(SimpleResultSet rs) throws SQLException {
+            GeometryTableIndex.copyColumns(connection, tableName, rs, new HashSet<>(), "_");
+        }
+    }
+}
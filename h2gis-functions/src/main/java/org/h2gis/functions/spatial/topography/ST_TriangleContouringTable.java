@@ -0,0 +1,444 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.topography;
+
+import org.h2.tools.SimpleResultSet;
+import org.h2.tools.SimpleRowSource;
+import org.h2.value.Value;
+import org.h2.value.ValueArray;
+import org.h2gis.api.AbstractFunction;
+import org.h2gis.api.ScalarFunction;
+import org.h2gis.functions.spatial.join.GeometryTableIndex;
+import org.h2gis.functions.spatial.join.ParallelBlockRowSet;
+import org.h2gis.utilities.GeometryTableUtilities;
+import org.h2gis.utilities.TableLocation;
+import org.h2gis.utilities.jts_utils.Contouring;
+import org.h2gis.utilities.jts_utils.TriMarkers;
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.operation.union.UnaryUnionOp;
+
+import java.sql.*;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel version of {@link ST_TriangleContouring}.
+ * The triangles are split by blocks of rows processed in parallel. When a tile size is given, the
+ * triangles of each tile are read through the spatial index and the iso triangles of a same band
+ * are dissolved into polygons tile by tile.
+ *
+ * @author Nicolas Fortin
+ * @author Erwan Bocher, CNRS
+ */
+public class ST_TriangleContouringTable extends AbstractFunction implements ScalarFunction {
+
+    public ST_TriangleContouringTable() {
+        addProperty(PROP_REMARKS, "Split triangles into polygons within the specified range of values, in parallel.\n" +
+                "Iso contouring using Z:\n" +
+                "SELECT * FROM ST_TriangleContouringTable('input_table', ARRAY[10,20,30,40])\n" +
+                "Iso contouring using table columns:\n" +
+                "SELECT * FROM ST_TriangleContouringTable('input_table', 'm1', 'm2', 'm3', ARRAY[10,20,30,40])\n" +
+                "An optional tile size could be added as last argument. The iso triangles of a same band are then\n" +
+                "merged into polygons within each tile and the result contains THE_GEOM and " +
+                ST_TriangleContouring.ISO_FIELD_NAME + " columns.\n" +
+                "A tile size of 0 merges the whole table at once.\n" +
+                "Note : the table could be expressed as a select query enclosed in parenthesis.");
+    }
+
+    @Override
+    public String getJavaStaticMethod() {
+        return "triangleContouring";
+    }
+
+    /**
+     * Iso contouring using Z
+     *
+     * @param connection Active connection
+     * @param tableName Table name or select query
+     * @param isoLevels Iso levels
+     * @return Result Set
+     * @throws SQLException
+     */
+    public static ResultSet triangleContouring(Connection connection, String tableName, Value isoLevels) throws SQLException {
+        return new ContouringRowSet(connection, tableName, null, parseIsoLevels(isoLevels)).getResultSet();
+    }
+
+    /**
+     * Iso contouring using Z, the iso triangles being merged by tile
+     *
+     * @param connection Active connection
+     * @param tableName Table name or select query
+     * @param isoLevels Iso levels
+     * @param tileSize Size of the tiles, 0 to merge the whole table at once
+     * @return Result Set
+     * @throws SQLException
+     */
+    public static ResultSet triangleContouring(Connection connection, String tableName, Value isoLevels, double tileSize) throws SQLException {
+        return new MergedContouringRowSet(connection, tableName, null, parseIsoLevels(isoLevels), tileSize).getResultSet();
+    }
+
+    /**
+     * Iso contouring using table columns
+     *
+     * @param connection Active connection
+     * @param tableName Table name or select query
+     * @param isoField1 Column of the value of the first vertex
+     * @param isoField2 Column of the value of the second vertex
+     * @param isoField3 Column of the value of the third vertex
+     * @param isoLevels Iso levels
+     * @return Result Set
+     * @throws SQLException
+     */
+    public static ResultSet triangleContouring(Connection connection, String tableName, String isoField1, String isoField2,
+                                               String isoField3, Value isoLevels) throws SQLException {
+        return new ContouringRowSet(connection, tableName, new String[]{isoField1, isoField2, isoField3},
+                parseIsoLevels(isoLevels)).getResultSet();
+    }
+
+    /**
+     * Iso contouring using table columns, the iso triangles being merged by tile
+     *
+     * @param connection Active connection
+     * @param tableName Table name or select query
+     * @param isoField1 Column of the value of the first vertex
+     * @param isoField2 Column of the value of the second vertex
+     * @param isoField3 Column of the value of the third vertex
+     * @param isoLevels Iso levels
+     * @param tileSize Size of the tiles, 0 to merge the whole table at once
+     * @return Result Set
+     * @throws SQLException
+     */
+    public static ResultSet triangleContouring(Connection connection, String tableName, String isoField1, String isoField2,
+                                               String isoField3, Value isoLevels, double tileSize) throws SQLException {
+        return new MergedContouringRowSet(connection, tableName, new String[]{isoField1, isoField2, isoField3},
+                parseIsoLevels(isoLevels), tileSize).getResultSet();
+    }
+
+    /**
+     * Read the iso levels from an array or from a single value
+     */
+    private static List<Double> parseIsoLevels(Value isoLevels) throws SQLException {
+        List<Double> isoLvls = new ArrayList<>();
+        if (isoLevels instanceof ValueArray) {
+            for (Value arrVal : ((ValueArray) isoLevels).getList()) {
+                isoLvls.add(arrVal.getDouble());
+            }
+        } else if (isoLevels != null) {
+            isoLvls.add(isoLevels.getDouble());
+        }
+        if (isoLvls.isEmpty()) {
+            throw new SQLException("At least one iso level must be given");
+        }
+        return isoLvls;
+    }
+
+    /**
+     * Find the index of the iso value columns
+     *
+     * @return The 0 based indexes or null if the Z values are used
+     */
+    private static int[] findIsoFields(ResultSetMetaData metadata, String[] isoFields) throws SQLException {
+        if (isoFields == null) {
+            return null;
+        }
+        int[] indexes = new int[isoFields.length];
+        for (int i = 0; i < isoFields.length; i++) {
+            indexes[i] = -1;
+            for (int column = 1; column <= metadata.getColumnCount(); column++) {
+                if (metadata.getColumnName(column).equalsIgnoreCase(isoFields[i])) {
+                    indexes[i] = column - 1;
+                    break;
+                }
+            }
+            if (indexes[i] < 0) {
+                throw new SQLException("Column " + isoFields[i] + " not found");
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Split a triangle into iso triangles
+     *
+     * @param row Row of the triangle
+     * @param inputTriangle Triangle geometry
+     * @param isoFieldIndexes Index of the iso value columns, null to use the Z values
+     * @param isoLvls Iso levels
+     * @param factory Geometry factory
+     * @return The iso triangles by iso level
+     * @throws SQLException
+     */
+    private static Map<Short, List<Polygon>> contourTriangle(Object[] row, Geometry inputTriangle, int[] isoFieldIndexes,
+                                                             List<Double> isoLvls, GeometryFactory factory) throws SQLException {
+        if (inputTriangle.getNumPoints() != 4) {
+            throw new SQLException("Invalid geometry input, got " + inputTriangle.toText());
+        }
+        Coordinate[] pts = inputTriangle.getCoordinates();
+        TriMarkers triangle;
+        if (isoFieldIndexes == null) {
+            triangle = new TriMarkers(pts[0], pts[1], pts[2], pts[0].z, pts[1].z, pts[2].z);
+        } else {
+            triangle = new TriMarkers(pts[0], pts[1], pts[2], ((Number) row[isoFieldIndexes[0]]).doubleValue(),
+                    ((Number) row[isoFieldIndexes[1]]).doubleValue(), ((Number) row[isoFieldIndexes[2]]).doubleValue());
+        }
+        Map<Short, List<Polygon>> isoTriangles = new TreeMap<>();
+        for (Map.Entry<Short, Deque<TriMarkers>> isoResult : Contouring.processTriangle(triangle, isoLvls).entrySet()) {
+            List<Polygon> polygons = new ArrayList<>(isoResult.getValue().size());
+            for (TriMarkers outputTriangle : isoResult.getValue()) {
+                Polygon polygon = factory.createPolygon(new Coordinate[]{outputTriangle.p0, outputTriangle.p1,
+                        outputTriangle.p2, outputTriangle.p0});
+                polygon.setSRID(inputTriangle.getSRID());
+                polygons.add(polygon);
+            }
+            isoTriangles.put(isoResult.getKey(), polygons);
+        }
+        return isoTriangles;
+    }
+
+    /**
+     * Stream the iso triangles with the columns of their source triangle
+     */
+    public static class ContouringRowSet extends ParallelBlockRowSet {
+        private final String[] isoFields;
+        private final List<Double> isoLvls;
+        private final GeometryFactory factory = new GeometryFactory();
+        private int[] isoFieldIndexes;
+
+        public ContouringRowSet(Connection connection, String tableName, String[] isoFields, List<Double> isoLvls) {
+            super(connection, tableName);
+            this.isoFields = isoFields;
+            this.isoLvls = isoLvls;
+        }
+
+        @Override
+        protected void prepare() throws SQLException {
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery(GeometryTableIndex.getSelectQuery(connection, tableName) + " LIMIT 0")) {
+                isoFieldIndexes = findIsoFields(rs.getMetaData(), isoFields);
+            }
+        }
+
+        @Override
+        protected void release() {
+        }
+
+        @Override
+        protected List<Object[]> processRow(Object[] row, Geometry geometry) throws SQLException {
+            List<Object[]> rows = new ArrayList<>();
+            for (Map.Entry<Short, List<Polygon>> isoResult : contourTriangle(row, geometry, isoFieldIndexes, isoLvls, factory).entrySet()) {
+                for (Polygon polygon : isoResult.getValue()) {
+                    Object[] outputRow = Arrays.copyOf(row, row.length + 1);
+                    outputRow[getGeometryIndex()] = polygon;
+                    outputRow[row.length] = (int) isoResult.getKey();
+                    rows.add(outputRow);
+                }
+            }
+            return rows;
+        }
+
+        @Override
+        protected void addColumns(SimpleResultSet rs) throws SQLException {
+            GeometryTableIndex.copyColumns(connection, tableName, rs, new HashSet<>(), "_");
+            rs.addColumn(ST_TriangleContouring.ISO_FIELD_NAME, Types.INTEGER, 10, 0);
+        }
+    }
+
+    /**
+     * Read the triangles tile by tile and stream the polygons of the dissolved iso triangles.
+     * A triangle belongs to the tile that contains its centroid.
+     */
+    public static class MergedContouringRowSet implements SimpleRowSource {
+        private final Connection connection;
+        private final String tableName;
+        private final String[] isoFields;
+        private final List<Double> isoLvls;
+        private final double tileSize;
+        private final Queue<Object[]> pendingRows = new ArrayDeque<>();
+        private boolean firstRow = true;
+        private GeometryFactory factory;
+        private String geometryColumn;
+        private int geometryIndex;
+        private int columnCount;
+        private int[] isoFieldIndexes;
+        private Envelope extent;
+        private int tileCountX;
+        private int tileCountY;
+        private int tileId;
+
+        public MergedContouringRowSet(Connection connection, String tableName, String[] isoFields, List<Double> isoLvls, double tileSize) {
+            this.connection = connection;
+            this.tableName = tableName;
+            this.isoFields = isoFields;
+            this.isoLvls = isoLvls;
+            this.tileSize = tileSize;
+        }
+
+        @Override
+        public Object[] readRow() throws SQLException {
+            if (firstRow) {
+                reset();
+            }
+            if (extent == null) {
+                return null;
+            }
+            while (pendingRows.isEmpty()) {
+                if (tileId >= tileCountX * tileCountY) {
+                    return null;
+                }
+                processTile(tileId++);
+            }
+            return pendingRows.poll();
+        }
+
+        /**
+         * Contour the triangles of a tile in parallel then dissolve each band
+         */
+        private void processTile(int tile) throws SQLException {
+            int i = tile % tileCountX;
+            int j = tile / tileCountX;
+            boolean singleTile = tileCountX == 1 && tileCountY == 1;
+            boolean lastTileX = i == tileCountX - 1;
+            boolean lastTileY = j == tileCountY - 1;
+            Envelope tileCore = singleTile ? extent : new Envelope(extent.getMinX() + i * tileSize,
+                    extent.getMinX() + (i + 1) * tileSize, extent.getMinY() + j * tileSize, extent.getMinY() + (j + 1) * tileSize);
+            List<Object[]> rows = new ArrayList<>();
+            String query = GeometryTableIndex.getSelectQuery(connection, tableName);
+            if (!singleTile) {
+                query += " WHERE " + TableLocation.quoteIdentifier(geometryColumn) + " && ?";
+            }
+            try (PreparedStatement ps = connection.prepareStatement(query)) {
+                if (!singleTile) {
+                    Geometry tileGeometry = factory.toGeometry(tileCore);
+                    tileGeometry.setSRID(factory.getSRID());
+                    ps.setObject(1, tileGeometry);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Geometry triangle = (Geometry) rs.getObject(geometryIndex + 1);
+                        if (triangle == null || triangle.isEmpty()) {
+                            continue;
+                        }
+                        if (!singleTile) {
+                            Coordinate[] pts = triangle.getCoordinates();
+                            double cx = (pts[0].x + pts[1].x + pts[2].x) / 3;
+                            double cy = (pts[0].y + pts[1].y + pts[2].y) / 3;
+                            if (!(cx >= tileCore.getMinX() && (cx < tileCore.getMaxX() || lastTileX)
+                                    && cy >= tileCore.getMinY() && (cy < tileCore.getMaxY() || lastTileY))) {
+                                continue;
+                            }
+                        }
+                        Object[] row = new Object[columnCount];
+                        for (int c = 0; c < columnCount; c++) {
+                            row[c] = rs.getObject(c + 1);
+                        }
+                        rows.add(row);
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<Map<Short, List<Polygon>>> results = new ArrayList<>(Collections.nCopies(rows.size(), null));
+            SQLException[] error = new SQLException[1];
+            IntStream.range(0, rows.size()).parallel().forEach(r -> {
+                try {
+                    Object[] row = rows.get(r);
+                    results.set(r, contourTriangle(row, (Geometry) row[geometryIndex], isoFieldIndexes, isoLvls, factory));
+                } catch (SQLException ex) {
+                    synchronized (error) {
+                        error[0] = ex;
+                    }
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            Map<Short, List<Geometry>> bands = new TreeMap<>();
+            for (Map<Short, List<Polygon>> result : results) {
+                for (Map.Entry<Short, List<Polygon>> isoResult : result.entrySet()) {
+                    bands.computeIfAbsent(isoResult.getKey(), k -> new ArrayList<>()).addAll(isoResult.getValue());
+                }
+            }
+            List<Map.Entry<Short, List<Geometry>>> bandList = new ArrayList<>(bands.entrySet());
+            Geometry[] merged = new Geometry[bandList.size()];
+            IntStream.range(0, bandList.size()).parallel().forEach(b ->
+                    merged[b] = UnaryUnionOp.union(bandList.get(b).getValue(), factory));
+            for (int b = 0; b < merged.length; b++) {
+                int idIso = bandList.get(b).getKey();
+                for (int n = 0; n < merged[b].getNumGeometries(); n++) {
+                    Geometry polygon = merged[b].getGeometryN(n);
+                    polygon.setSRID(factory.getSRID());
+                    pendingRows.add(new Object[]{polygon, idIso});
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            pendingRows.clear();
+        }
+
+        @Override
+        public void reset() throws SQLException {
+            close();
+            firstRow = false;
+            tileId = 0;
+            extent = null;
+            String query = GeometryTableIndex.getSelectQuery(connection, tableName);
+            try (Statement st = connection.createStatement()) {
+                try (ResultSet rs = st.executeQuery(query + " LIMIT 0")) {
+                    ResultSetMetaData metadata = rs.getMetaData();
+                    columnCount = metadata.getColumnCount();
+                    geometryColumn = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(metadata).first();
+                    geometryIndex = GeometryTableUtilities.getFirstGeometryColumnNameAndIndex(metadata).second() - 1;
+                    isoFieldIndexes = findIsoFields(metadata, isoFields);
+                }
+                String column = TableLocation.quoteIdentifier(geometryColumn);
+                try (ResultSet rs = st.executeQuery("SELECT ST_Extent(" + column + "), MAX(ST_SRID(" + column + ")) FROM ("
+                        + query + ") AS EXTENT_SRC")) {
+                    if (rs.next() && rs.getObject(1) != null) {
+                        extent = ((Geometry) rs.getObject(1)).getEnvelopeInternal();
+                        factory = new GeometryFactory(new PrecisionModel(), rs.getInt(2));
+                    }
+                }
+            }
+            if (extent == null) {
+                return;
+            }
+            if (tileSize > 0) {
+                tileCountX = Math.max(1, (int) Math.ceil(extent.getWidth() / tileSize));
+                tileCountY = Math.max(1, (int) Math.ceil(extent.getHeight() / tileSize));
+            } else {
+                tileCountX = 1;
+                tileCountY = 1;
+            }
+        }
+
+        /**
+         * @return The dissolved iso polygons as a result set
+         */
+        public ResultSet getResultSet() {
+            SimpleResultSet srs = new SimpleResultSet(this);
+            srs.addColumn("THE_GEOM", Types.OTHER, "GEOMETRY", 0, 0);
+            srs.addColumn(ST_TriangleContouring.ISO_FIELD_NAME, Types.INTEGER, 10, 0);
+            return srs;
+        }
+    }
+}
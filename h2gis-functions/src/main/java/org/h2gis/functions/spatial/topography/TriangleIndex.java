@@ -0,0 +1,167 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.functions.spatial.topography;
+
+import org.locationtech.jts.geom.*;
+import org.locationtech.jts.index.ItemVisitor;
+import org.locationtech.jts.index.strtree.STRtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact index of the triangles of a TIN.
+ * The vertices are stored in a primitive array, nine ordinates per triangle, and only the triangle
+ * ids are kept in a packed STR-tree. Once built, the index is read only and can be queried concurrently.
+ *
+ * @author Erwan Bocher, CNRS
+ */
+public class TriangleIndex {
+
+    private static final double EPSILON = 1e-12;
+
+    private double[] vertices = new double[9 * 1024];
+    private int size = 0;
+    private final STRtree tree = new STRtree();
+
+    /**
+     * Add a triangle
+     *
+     * @param geometry a triangle, a polygon with 4 coordinates
+     * @throws IllegalArgumentException if the geometry is not a triangle
+     */
+    public void add(Geometry geometry) throws IllegalArgumentException {
+        Coordinate[] coordinates = geometry.getCoordinates();
+        if (coordinates.length != 4) {
+            throw new IllegalArgumentException("The geometry must be a triangle");
+        }
+        if (9 * (size + 1) > vertices.length) {
+            vertices = Arrays.copyOf(vertices, vertices.length + (vertices.length >> 1));
+        }
+        int offset = 9 * size;
+        for (int i = 0; i < 3; i++) {
+            vertices[offset++] = coordinates[i].x;
+            vertices[offset++] = coordinates[i].y;
+            vertices[offset++] = coordinates[i].getZ();
+        }
+        tree.insert(geometry.getEnvelopeInternal(), size);
+        size++;
+    }
+
+    /**
+     * Build the tree, no triangle can be added after this call
+     */
+    public void build() {
+        vertices = Arrays.copyOf(vertices, 9 * size);
+        tree.build();
+    }
+
+    /**
+     * @return Number of triangles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Compute the z value of a coordinate from the first triangle that contains it
+     *
+     * @param coord a coordinate
+     * @return the interpolated z value or 0 if the coordinate is outside the triangles
+     */
+    public double interpolateZ(Coordinate coord) {
+        double[] z = new double[]{0};
+        boolean[] found = new boolean[1];
+        tree.query(new Envelope(coord), (ItemVisitor) item -> {
+            if (!found[0]) {
+                int offset = 9 * (Integer) item;
+                if (intersects(coord, offset)) {
+                    z[0] = interpolateZ(coord, offset);
+                    found[0] = true;
+                }
+            }
+        });
+        return z[0];
+    }
+
+    /**
+     * Barycentric point in triangle test, see TriMarkers#intersects
+     */
+    private boolean intersects(Coordinate p, int offset) {
+        double x2 = vertices[offset + 6];
+        double y2 = vertices[offset + 7];
+        double v0x = vertices[offset] - x2;
+        double v0y = vertices[offset + 1] - y2;
+        double v1x = vertices[offset + 3] - x2;
+        double v1y = vertices[offset + 4] - y2;
+        double v2x = p.x - x2;
+        double v2y = p.y - y2;
+        double dot00 = v0x * v0x + v0y * v0y;
+        double dot01 = v0x * v1x + v0y * v1y;
+        double dot02 = v0x * v2x + v0y * v2y;
+        double dot11 = v1x * v1x + v1y * v1y;
+        double dot12 = v1x * v2x + v1y * v2y;
+        double invDenom = 1 / (dot00 * dot11 - dot01 * dot01);
+        double u = (dot11 * dot02 - dot01 * dot12) * invDenom;
+        double v = (dot00 * dot12 - dot01 * dot02) * invDenom;
+        return (u > -EPSILON) && (v > -EPSILON) && (u + v < 1 + EPSILON);
+    }
+
+    /**
+     * Planar interpolation of the z value, see Triangle#interpolateZ
+     */
+    private double interpolateZ(Coordinate p, int offset) {
+        double x0 = vertices[offset];
+        double y0 = vertices[offset + 1];
+        double z0 = vertices[offset + 2];
+        double a = vertices[offset + 3] - x0;
+        double b = vertices[offset + 6] - x0;
+        double c = vertices[offset + 4] - y0;
+        double d = vertices[offset + 7] - y0;
+        double det = a * d - b * c;
+        double dx = p.x - x0;
+        double dy = p.y - y0;
+        double t = (d * dx - b * dy) / det;
+        double u = (-c * dx + a * dy) / det;
+        return z0 + t * (vertices[offset + 5] - z0) + u * (vertices[offset + 8] - z0);
+    }
+
+    /**
+     * Return the boundaries of the triangles that intersect an envelope
+     *
+     * @param envelope Search envelope
+     * @param factory Geometry factory
+     * @return A MultiLineString of the closed triangle boundaries
+     */
+    public Geometry getTriangleLines(Envelope envelope, GeometryFactory factory) {
+        List<LineString> lines = new ArrayList<>();
+        tree.query(envelope, (ItemVisitor) item -> {
+            int offset = 9 * (Integer) item;
+            Coordinate[] ring = new Coordinate[4];
+            for (int i = 0; i < 3; i++) {
+                ring[i] = new Coordinate(vertices[offset + 3 * i], vertices[offset + 3 * i + 1], vertices[offset + 3 * i + 2]);
+            }
+            ring[3] = ring[0].copy();
+            lines.add(factory.createLineString(ring));
+        });
+        return factory.createMultiLineString(lines.toArray(new LineString[0]));
+    }
+}
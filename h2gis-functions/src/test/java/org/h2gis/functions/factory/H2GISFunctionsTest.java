@@ -0,0 +1,149 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.factory;
+
+import org.h2gis.api.Function;
+import org.h2gis.functions.spatial.properties.ST_Area;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the registration of the H2GIS functions
+ *
+ * @author Nicolas Fortin
+ */
+public class H2GISFunctionsTest {
+    private static Connection connection;
+
+    @BeforeAll
+    public static void tearUp() throws Exception {
+        // Keep a connection alive to not close the DataBase on each unit test
+        connection = H2GISDBFactory.createSpatialDataBase(H2GISFunctionsTest.class.getSimpleName());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testVersionMarker() throws Exception {
+        String expected = H2GISFunctions.getFunctionsVersion(H2GISFunctions.getBuiltInsFunctions(), "");
+        assertEquals(expected, H2GISFunctions.getLoadedVersion(connection));
+        // Second load is skipped, functions are still there
+        H2GISFunctions.load(connection);
+        assertEquals(expected, H2GISFunctions.getLoadedVersion(connection));
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ST_ASTEXT(ST_BUFFER('POINT(0 0)'::GEOMETRY, 1)) IS NOT NULL")) {
+            assertTrue(rs.next());
+            assertTrue(rs.getBoolean(1));
+        }
+    }
+
+    @Test
+    public void testUnregisterClearVersionMarker() throws Exception {
+        try (Statement st = connection.createStatement()) {
+            H2GISFunctions.unRegisterFunction(st, new ST_Area());
+        }
+        assertNull(H2GISFunctions.getLoadedVersion(connection));
+        H2GISFunctions.load(connection);
+        assertEquals(H2GISFunctions.getFunctionsVersion(H2GISFunctions.getBuiltInsFunctions(), ""),
+                H2GISFunctions.getLoadedVersion(connection));
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT ST_AREA('POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))'::GEOMETRY)")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getDouble(1), 1e-12);
+        }
+    }
+
+    @Test
+    public void testFunctionsVersionChange() {
+        Function[] functions = H2GISFunctions.getBuiltInsFunctions();
+        Function[] lessFunctions = new Function[functions.length - 1];
+        System.arraycopy(functions, 0, lessFunctions, 0, lessFunctions.length);
+        assertNotEquals(H2GISFunctions.getFunctionsVersion(functions, ""),
+                H2GISFunctions.getFunctionsVersion(lessFunctions, ""));
+        assertNotEquals(H2GISFunctions.getFunctionsVersion(functions, ""),
+                H2GISFunctions.getFunctionsVersion(functions, "bundle:1.0:"));
+    }
+
+    /**
+     * Report the time spent to register the functions in a new database and in an already initialised one
+     */
+    @Test
+    public void benchmarkLoad() throws Exception {
+        try (Connection cold = H2GISDBFactory.createSpatialDataBase(H2GISFunctionsTest.class.getSimpleName() + "_bench", false)) {
+            long start = System.currentTimeMillis();
+            H2GISFunctions.load(cold);
+            long coldTime = System.currentTimeMillis() - start;
+            start = System.currentTimeMillis();
+            H2GISFunctions.load(cold);
+            long warmTime = System.currentTimeMillis() - start;
+            try (Statement st = cold.createStatement()) {
+                H2GISFunctions.unRegisterFunction(st, new ST_Area());
+            }
+            start = System.currentTimeMillis();
+            H2GISFunctions.load(cold);
+            long reloadTime = System.currentTimeMillis() - start;
+            System.out.println("H2GIS functions load : " + coldTime + " ms, skipped load : " + warmTime
+                    + " ms, reload after unregister : " + reloadTime + " ms");
+            assertNotNull(H2GISFunctions.getLoadedVersion(cold));
+            assertTrue(routineExists(cold, "ST_AREA"));
+        }
+    }
+
+    @Test
+    public void testReloadAfterDropAlias() throws Exception {
+        try (Connection db = H2GISDBFactory.createSpatialDataBase(H2GISFunctionsTest.class.getSimpleName() + "_drop", false)) {
+            H2GISFunctions.load(db);
+            String expected = H2GISFunctions.getFunctionsVersion(H2GISFunctions.getBuiltInsFunctions(), "");
+            assertEquals(expected, H2GISFunctions.getLoadedVersion(db));
+            try (Statement st = db.createStatement()) {
+                H2GISFunctions.unRegisterFunction(st, new ST_Area());
+            }
+            assertFalse(routineExists(db, "ST_AREA"));
+            H2GISFunctions.load(db);
+            assertTrue(routineExists(db, "ST_AREA"));
+            // The marker is kept when the alias is dropped directly
+            try (Statement st = db.createStatement()) {
+                st.execute("DROP ALIAS ST_AREA");
+            }
+            assertEquals(expected, H2GISFunctions.getLoadedVersion(db));
+            H2GISFunctions.load(db);
+            assertTrue(routineExists(db, "ST_AREA"));
+            assertEquals(expected, H2GISFunctions.getLoadedVersion(db));
+        }
+    }
+
+    private static boolean routineExists(Connection db, String name) throws Exception {
+        try (Statement st = db.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.ROUTINES"
+                     + " WHERE ROUTINE_SCHEMA = CURRENT_SCHEMA AND ROUTINE_NAME = '" + name + "'")) {
+            assertTrue(rs.next());
+            return rs.getInt(1) > 0;
+        }
+    }
+}
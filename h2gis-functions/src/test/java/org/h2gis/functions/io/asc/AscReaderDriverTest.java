@@ -29,8 +29,11 @@ import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -240,4 +243,112 @@ public class AscReaderDriverTest {
             GeometryAsserts.assertGeometryEquals("SRID=3857;POINT Z (-179.75 -80.25 234)", rs.getObject("THE_GEOM"));
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReadFileBands() throws IOException, SQLException {
+        // Grid of several bands with values wrapped on lines of various lengths
+        File file = File.createTempFile("bands", ".asc");
+        int ncols = 700;
+        int nrows = 500;
+        try (PrintWriter writer = new PrintWriter(file)) {
+            writer.println("ncols " + ncols);
+            writer.println("nrows " + nrows);
+            writer.println("xllcorner 0");
+            writer.println("yllcorner 0");
+            writer.println("cellsize 10");
+            writer.println("NODATA_value -9999");
+            for (int i = 0; i < nrows * ncols; i++) {
+                writer.print(i % 97 == 0 ? -9999 : i % 1000);
+                writer.print(i % 333 == 0 ? "\n" : " ");
+            }
+        }
+        try {
+            AscReaderDriver reader = new AscReaderDriver();
+            reader.setThreadCount(4);
+            reader.read(connection, file, new EmptyProgressVisitor(), "BANDS", 0);
+            reader = new AscReaderDriver();
+            try (InputStream inputStream = new FileInputStream(file)) {
+                reader.read(connection, inputStream, new EmptyProgressVisitor(), "BANDS_STREAM", 0);
+            }
+            Statement st = connection.createStatement();
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*), COUNT(Z), SUM(Z) FROM BANDS")) {
+                assertTrue(rs.next());
+                assertEquals(nrows * ncols, rs.getInt(1));
+                try (ResultSet rsStream = connection.createStatement().executeQuery("SELECT COUNT(*), COUNT(Z), SUM(Z) FROM BANDS_STREAM")) {
+                    assertTrue(rsStream.next());
+                    assertEquals(rsStream.getInt(1), rs.getInt(1));
+                    assertEquals(rsStream.getInt(2), rs.getInt(2));
+                    assertEquals(rsStream.getLong(3), rs.getLong(3));
+                }
+            }
+            // The rows are inserted in the order of the file
+            try (ResultSet rs = st.executeQuery("SELECT Z FROM BANDS WHERE PK = 1001")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+            }
+            try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM BANDS A, BANDS_STREAM B WHERE A.PK = B.PK AND A.THE_GEOM = B.THE_GEOM")) {
+                assertTrue(rs.next());
+                assertEquals(nrows * ncols, rs.getInt(1));
+            }
+            // Extract and down scale in bands
+            st.execute("DROP TABLE BANDS");
+            reader = new AscReaderDriver();
+            reader.setThreadCount(4);
+            reader.setDownScale(10);
+            reader.setExtractEnvelope(new Envelope(1000, 3000, 1000, 2000));
+            reader.read(connection, file, new EmptyProgressVisitor(), "BANDS", 0);
+            st.execute("DROP TABLE BANDS_STREAM");
+            reader.setThreadCount(1);
+            reader.read(connection, file, new EmptyProgressVisitor(), "BANDS_STREAM", 0);
+            try (ResultSet rs = st.executeQuery("SELECT (SELECT COUNT(*) FROM BANDS), (SELECT COUNT(*) FROM BANDS_STREAM)")) {
+                assertTrue(rs.next());
+                assertTrue(rs.getInt(1) > 0);
+                assertEquals(rs.getInt(2), rs.getInt(1));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testASCReadTiles() throws IOException, SQLException {
+        Statement st = connection.createStatement();
+        st.execute(String.format("CALL ASCREAD('%s', 'PRECIP30MIN', NULL, 1, FALSE, 8)",AscReaderDriverTest.class.getResource("precip30min.asc").getFile()));
+
+        // 15 x 20 cells in 2 x 3 tiles
+        try(ResultSet rs = st.executeQuery("SELECT COUNT(*) CPT, SUM(ST_NumGeometries(ST_AscTilePoints(TILE))) PTS FROM PRECIP30MIN")) {
+            assertTrue(rs.next());
+            assertEquals(6, rs.getInt("CPT"));
+            assertEquals(299, rs.getInt("PTS"));
+        }
+
+        // Check first read cell
+        try(ResultSet rs = st.executeQuery("SELECT TILE_ROW, TILE_COL, ST_AscTileValue(TILE, ST_MAKEPOINT(-179.74,-80.18)) Z FROM PRECIP30MIN WHERE ST_INTERSECTS(THE_GEOM, ST_SETSRID(ST_MAKEPOINT(-179.74,-80.18), 3857))")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt("TILE_ROW"));
+            assertEquals(0, rs.getInt("TILE_COL"));
+            assertEquals(234, rs.getInt("Z"));
+        }
+
+        // Check last read cell
+        try(ResultSet rs = st.executeQuery("SELECT ST_AscTileValue(TILE, ST_MAKEPOINT(-172.604,-89.867)) Z FROM PRECIP30MIN WHERE ST_INTERSECTS(THE_GEOM, ST_SETSRID(ST_MAKEPOINT(-172.604,-89.867), 3857))")) {
+            assertTrue(rs.next());
+            assertEquals(114, rs.getInt("Z"));
+        }
+
+        // Check nodata cell
+        try(ResultSet rs = st.executeQuery("SELECT ST_AscTileValue(TILE, ST_MAKEPOINT(-177.438, -84.077)) Z FROM PRECIP30MIN WHERE ST_INTERSECTS(THE_GEOM, ST_SETSRID(ST_MAKEPOINT(-177.438, -84.077), 3857))")) {
+            assertTrue(rs.next());
+            assertNull(rs.getObject("Z"));
+        }
+
+        // Clip the tiles on the envelope used by testASCRead, only the 8 x 10 cells intersecting the envelope are kept
+        Envelope env = new Envelope(-178.242, -174.775, -89.707, -85.205);
+        GeometryFactory factory = new GeometryFactory();
+        Geometry envGeom = factory.toGeometry(env);
+        try(ResultSet rs = st.executeQuery(String.format("SELECT SUM(ST_NumGeometries(ST_AscTilePoints(ST_AscTileClip(TILE, '%s'::GEOMETRY)))) CPT FROM PRECIP30MIN", envGeom))) {
+            assertTrue(rs.next());
+            assertEquals(80, rs.getInt("CPT"));
+        }
+    }
+}
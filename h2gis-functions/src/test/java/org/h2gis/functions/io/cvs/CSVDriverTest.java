@@ -23,18 +23,20 @@ package org.h2gis.functions.io.cvs;
 import org.h2gis.api.DriverFunction;
 import org.h2gis.api.EmptyProgressVisitor;
 import org.h2gis.functions.factory.H2GISDBFactory;
+import org.h2gis.functions.io.DriverManager;
 import org.h2gis.functions.io.csv.CSVDriverFunction;
 import org.junit.jupiter.api.*;
+import org.locationtech.jts.geom.Geometry;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  *
@@ -106,6 +108,28 @@ public class CSVDriverTest {
         }
     }
 
+    @Test
+    public void testDriverGzip() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS AREA, MYCSV");
+        stat.execute("create table area(the_geom GEOMETRY, idarea int primary key)");
+        stat.execute("insert into area select ST_BUFFER(ST_MAKEPOINT(X, X), 10), X from SYSTEM_RANGE(1, 10000)");
+        File csvFile = new File("target/area_export.csv.gz");
+        CSVDriverFunction exp = new CSVDriverFunction();
+        exp.exportTable(connection, "(SELECT * FROM AREA)", csvFile, new EmptyProgressVisitor(), "fieldSeparator=| charset=UTF-8");
+        try (InputStream in = new FileInputStream(csvFile)) {
+            // GZIP magic number
+            assertEquals(0x1f, in.read());
+            assertEquals(0x8b, in.read());
+        }
+        exp.importFile(connection, "MYCSV", csvFile, new EmptyProgressVisitor(), "fieldSeparator=|");
+        try (ResultSet rs = stat.executeQuery("select COUNT(*), SUM(idarea::int) from mycsv")) {
+            assertTrue(rs.next());
+            assertEquals(10000, rs.getInt(1));
+            assertEquals(50005000, rs.getLong(2));
+        }
+    }
+
     @Test
     public void testDriverDeleteTable() throws SQLException, IOException {
         Statement stat = connection.createStatement();
@@ -146,4 +170,154 @@ public class CSVDriverTest {
             assertEquals(3,rs.getDouble(1),1e-2);
         }
     }
+
+    @Test
+    public void testReaderTypes() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS AREA, MYCSV");
+        stat.execute("create table area(the_geom GEOMETRY, idarea int primary key, name varchar, area double precision," +
+                " valid boolean, creation date, code varchar)");
+        stat.execute("insert into area values('POLYGON ((-10 109, 90 109, 90 9, -10 9, -10 109))', 1, 'first, \"one\"'," +
+                " 10000, true, '2020-01-02', '0042')");
+        stat.execute("insert into area values('POLYGON ((90 109, 190 109, 190 9, 90 9, 90 109))', 2, null, 10000.5," +
+                " false, null, '0043')");
+        File csvFile = new File("target/csv_types.csv");
+        CSVDriverFunction exp = new CSVDriverFunction();
+        exp.exportTable(connection, "AREA", csvFile, new EmptyProgressVisitor());
+        exp.importFile(connection, "MYCSV", csvFile, new EmptyProgressVisitor(), "threads=1 geometry=the_geom srid=4326");
+        try (ResultSet rs = stat.executeQuery("select * from mycsv order by idarea")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            assertEquals("GEOMETRY", metaData.getColumnTypeName(1));
+            assertEquals(Types.INTEGER, metaData.getColumnType(2));
+            assertEquals(Types.VARCHAR, metaData.getColumnType(3));
+            assertEquals(Types.DOUBLE, metaData.getColumnType(4));
+            assertEquals(Types.BOOLEAN, metaData.getColumnType(5));
+            assertEquals(Types.DATE, metaData.getColumnType(6));
+            assertEquals(Types.VARCHAR, metaData.getColumnType(7));
+            assertTrue(rs.next());
+            Geometry geom = (Geometry) rs.getObject(1);
+            assertEquals("POLYGON ((-10 109, 90 109, 90 9, -10 9, -10 109))", geom.toText());
+            assertEquals(4326, geom.getSRID());
+            assertEquals(1, rs.getInt(2));
+            assertEquals("first, \"one\"", rs.getString(3));
+            assertEquals(10000, rs.getDouble(4), 1e-12);
+            assertTrue(rs.getBoolean(5));
+            assertEquals(Date.valueOf("2020-01-02"), rs.getDate(6));
+            assertEquals("0042", rs.getString(7));
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(2));
+            assertNull(rs.getString(3));
+            assertEquals(10000.5, rs.getDouble(4), 1e-12);
+            assertFalse(rs.getBoolean(5));
+            assertNull(rs.getDate(6));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testReaderPoints() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS MYCSV");
+        File csvFile = new File("target/csv_points.csv");
+        Files.write(csvFile.toPath(), ("name;x;y;wkb\n" +
+                "a;-1.5;47.2;0101000000000000000000F03F0000000000000040\n" +
+                "b;;;\n").getBytes(StandardCharsets.UTF_8));
+        CSVDriverFunction exp = new CSVDriverFunction();
+        exp.importFile(connection, "MYCSV", csvFile, new EmptyProgressVisitor(), "fieldSeparator=; lon=x lat=y geometry=wkb");
+        try (ResultSet rs = stat.executeQuery("select ST_ASTEXT(the_geom), ST_ASTEXT(wkb), x from mycsv order by name")) {
+            assertTrue(rs.next());
+            assertEquals("POINT (-1.5 47.2)", rs.getString(1));
+            assertEquals("POINT (1 2)", rs.getString(2));
+            assertEquals(-1.5, rs.getDouble(3), 1e-12);
+            assertTrue(rs.next());
+            assertNull(rs.getString(1));
+            assertNull(rs.getString(2));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    public void testReaderThreads() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS AREA, MYCSV, MYCSV_PARALLEL");
+        stat.execute("create table area(the_geom GEOMETRY, idarea int primary key, name varchar)");
+        stat.execute("insert into area select ST_BUFFER(ST_MAKEPOINT(X, X), 10, 2), X," +
+                " CASEWHEN(MOD(X, 3) = 0, 'line' || CHAR(10) || 'break, \"' || X || '\"', null)" +
+                " from SYSTEM_RANGE(1, 20000)");
+        File csvFile = new File("target/csv_threads.csv");
+        CSVDriverFunction exp = new CSVDriverFunction();
+        exp.exportTable(connection, "AREA", csvFile, new EmptyProgressVisitor());
+        exp.importFile(connection, "MYCSV", csvFile, new EmptyProgressVisitor(), "threads=1 geometry=the_geom");
+        exp.importFile(connection, "MYCSV_PARALLEL", csvFile, new EmptyProgressVisitor(), "threads=4 geometry=the_geom");
+        try (ResultSet rs = stat.executeQuery("select COUNT(*), SUM(idarea) from mycsv_parallel")) {
+            assertTrue(rs.next());
+            assertEquals(20000, rs.getInt(1));
+            assertEquals(200010000, rs.getLong(2));
+        }
+        try (ResultSet rs = stat.executeQuery("select COUNT(*) from (select * from mycsv_parallel" +
+                " except select * from mycsv)")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+        try (ResultSet rs = stat.executeQuery("select name from mycsv_parallel where idarea = 3")) {
+            assertTrue(rs.next());
+            assertEquals("line\nbreak, \"3\"", rs.getString(1));
+        }
+    }
+
+    @Test
+    public void testLinkedTable() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS LINKED_CSV");
+        File csvFile = new File("target/linked.csv");
+        File indexFile = new File("target/linked.csv.idx");
+        Files.deleteIfExists(indexFile.toPath());
+        StringBuilder content = new StringBuilder("id,name,value\n");
+        for (int i = 1; i <= 1000; i++) {
+            content.append(i).append(",\"row ").append(i).append(i % 10 == 0 ? "\nbreak" : "").append("\",")
+                    .append(i / 2.0).append("\n");
+        }
+        Files.write(csvFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        stat.execute("CALL FILE_TABLE('target/linked.csv', 'LINKED_CSV')");
+        assertTrue(indexFile.exists());
+        try (ResultSet rs = stat.executeQuery("select * from linked_csv where id = 500")) {
+            assertTrue(rs.next());
+            assertEquals(Types.INTEGER, rs.getMetaData().getColumnType(2));
+            assertEquals(Types.DOUBLE, rs.getMetaData().getColumnType(4));
+            assertEquals("row 500\nbreak", rs.getString("name"));
+            assertEquals(250, rs.getDouble("value"), 1e-12);
+        }
+        stat.execute("DROP TABLE LINKED_CSV");
+        // The index is reused
+        long indexModified = indexFile.lastModified();
+        stat.execute("CALL FILE_TABLE('target/linked.csv', 'LINKED_CSV')");
+        assertEquals(indexModified, indexFile.lastModified());
+        try (ResultSet rs = stat.executeQuery("select COUNT(*), SUM(id) from linked_csv")) {
+            assertTrue(rs.next());
+            assertEquals(1000, rs.getInt(1));
+            assertEquals(500500, rs.getLong(2));
+        }
+        stat.execute("DROP TABLE LINKED_CSV");
+    }
+
+    @Test
+    public void testLinkedTableOptions() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS LINKED_CSV_OPTIONS");
+        File csvFile = new File("target/linked_options.csv");
+        Files.deleteIfExists(new File("target/linked_options.csv.idx").toPath());
+        Files.write(csvFile.toPath(), "id;name\n1;a,b\n2;c\n".getBytes(StandardCharsets.UTF_8));
+        new DriverManager().importFile(connection, "LINKED_CSV_OPTIONS", csvFile, new EmptyProgressVisitor(),
+                "fieldSeparator=;");
+        try (ResultSet rs = stat.executeQuery("select * from linked_csv_options order by id")) {
+            assertEquals(3, rs.getMetaData().getColumnCount());
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt("id"));
+            assertEquals("a,b", rs.getString("name"));
+            assertTrue(rs.next());
+            assertEquals("c", rs.getString("name"));
+            assertFalse(rs.next());
+        }
+        stat.execute("DROP TABLE LINKED_CSV_OPTIONS");
+    }
 }
@@ -33,6 +33,8 @@ import org.locationtech.jts.io.WKTReader;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.*;
 import org.h2gis.unitTest.GeometryAsserts;
 
@@ -194,6 +196,34 @@ public class GeojsonImportExportTest {
         }
     }
 
+    @Test
+    public void testGeojsonPrecision() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            ResultSet res = stat.executeQuery("SELECT ST_AsGeoJSON('LINESTRING Z(1.123456 -2.5 10, 3.1 -0.0001 4.99999)'::GEOMETRY, 3),"
+                    + " ST_AsGeoJSON(NULL::GEOMETRY, 3);");
+            res.next();
+            assertEquals("{\"type\":\"LineString\",\"coordinates\":[[1.123,-2.5,10],[3.1,0,5]]}", res.getString(1));
+            assertNull(res.getString(2));
+            res.close();
+            assertThrows(SQLException.class, () -> stat.executeQuery("SELECT ST_AsGeoJSON('POINT(1 2)'::GEOMETRY, 16);"));
+        }
+    }
+
+    @Test
+    public void testWriteReadGeojsonPrecision() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS TABLE_PRECISION, TABLE_PRECISION_READ");
+            stat.execute("create table TABLE_PRECISION(idarea int primary key, the_geom GEOMETRY(POLYGON))");
+            stat.execute("insert into TABLE_PRECISION values(1, 'POLYGON((0.123456 0.123456, 2.654321 0, 2 2, 0.123456 0.123456))')");
+            stat.execute("CALL GeoJsonWrite('target/precision.geojson', 'TABLE_PRECISION', null, 2);");
+            stat.execute("CALL GeoJsonRead('target/precision.geojson', 'TABLE_PRECISION_READ');");
+            ResultSet res = stat.executeQuery("SELECT THE_GEOM FROM TABLE_PRECISION_READ;");
+            res.next();
+            GeometryAsserts.assertGeometryEquals("POLYGON((0.12 0.12, 2.65 0, 2 2, 0.12 0.12))", res.getObject(1));
+            res.close();
+        }
+    }
+
     @Test
     public void testWriteReadGeojsonPoint() throws Exception {
         try (Statement stat = connection.createStatement()) {
@@ -792,6 +822,24 @@ public class GeojsonImportExportTest {
     }
 
 
+    @Test
+    public void exportImportGzipFile() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS LINEAL, LINEAL_GZ");
+        stat.execute("create table lineal(idarea int primary key, the_geom GEOMETRY(LINESTRING Z))");
+        stat.execute("insert into lineal select X, ST_MAKELINE(ST_MAKEPOINT(X, X, 1), ST_MAKEPOINT(X + 1, X, 2)) from SYSTEM_RANGE(1, 20000)");
+        stat.execute("CALL GeoJSONWrite('target/lineal_gz.geojson.gz', 'LINEAL')");
+        File fileOut = new File("target/lineal_gz.geojson.gz");
+        assertTrue(fileOut.exists());
+        stat.execute("CALL GeoJSONRead('target/lineal_gz.geojson.gz')");
+        try (ResultSet res = stat.executeQuery("SELECT COUNT(*), SUM(IDAREA), SUM(ST_LENGTH(THE_GEOM)) FROM LINEAL_GZ;")) {
+            res.next();
+            assertEquals(20000, res.getInt(1));
+            assertEquals(200010000, res.getLong(2));
+            assertEquals(20000, res.getDouble(3), 1e-6);
+        }
+    }
+
     @Test
     public void exportImportFileWithSpace() throws SQLException, IOException {
         assertThrows(JdbcSQLDataException.class, () -> {
@@ -963,5 +1011,91 @@ public class GeojsonImportExportTest {
         res.close();
         stat.execute("DROP TABLE IF EXISTS startNull");
     }
-}
 
+    @Test
+    public void testLinkedTable() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS LINKED_GEOJSON");
+            File jsonFile = new File("target/linked.geojson");
+            Files.deleteIfExists(new File("target/linked.geojson.idx").toPath());
+            Files.write(jsonFile.toPath(), ("{\"type\":\"FeatureCollection\",\"features\":[" +
+                    "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}," +
+                    "\"properties\":{\"id\":1,\"area\":10,\"name\":\"a\",\"tags\":[1,2]}}," +
+                    "{\"type\":\"Feature\",\"geometry\":null," +
+                    "\"properties\":{\"id\":2,\"area\":10.5,\"name\":null}}]," +
+                    "\"crs\":{\"type\":\"name\",\"properties\":{\"name\":\"urn:ogc:def:crs:EPSG::2154\"}}}")
+                    .getBytes(StandardCharsets.UTF_8));
+            stat.execute("CALL FILE_TABLE('target/linked.geojson', 'LINKED_GEOJSON')");
+            try (ResultSet rs = stat.executeQuery("select * from linked_geojson order by id")) {
+                assertTrue(rs.next());
+                assertEquals(Types.BIGINT, rs.getMetaData().getColumnType(3));
+                assertEquals(Types.DOUBLE, rs.getMetaData().getColumnType(4));
+                Geometry geom = (Geometry) rs.getObject("THE_GEOM");
+                assertEquals("POINT (1 2)", geom.toText());
+                assertEquals(2154, geom.getSRID());
+                assertEquals(10, rs.getDouble("AREA"), 1e-12);
+                assertEquals("a", rs.getString("NAME"));
+                assertEquals("[1,2]", rs.getString("TAGS"));
+                assertTrue(rs.next());
+                assertNull(rs.getObject("THE_GEOM"));
+                assertEquals(10.5, rs.getDouble("AREA"), 1e-12);
+                assertNull(rs.getString("NAME"));
+                assertFalse(rs.next());
+            }
+            stat.execute("DROP TABLE LINKED_GEOJSON");
+        }
+    }
+
+    @Test
+    public void testLinkedTableSequence() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS LINKED_GEOJSONL");
+            File jsonFile = new File("target/linked.geojsonl");
+            StringBuilder content = new StringBuilder();
+            for (int i = 1; i <= 100; i++) {
+                content.append("\u001e{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+                        .append(i).append(",").append(i).append("]},\"properties\":{\"id\":").append(i)
+                        .append("}}\n");
+            }
+            Files.write(jsonFile.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+            stat.execute("CALL FILE_TABLE('target/linked.geojsonl', 'LINKED_GEOJSONL')");
+            try (ResultSet rs = stat.executeQuery("select COUNT(*), SUM(id), ST_EXTENT(the_geom) from linked_geojsonl")) {
+                assertTrue(rs.next());
+                assertEquals(100, rs.getInt(1));
+                assertEquals(5050, rs.getLong(2));
+                assertEquals("POLYGON ((1 1, 1 100, 100 100, 100 1, 1 1))", ((Geometry) rs.getObject(3)).toText());
+            }
+            stat.execute("DROP TABLE LINKED_GEOJSONL");
+        }
+    }
+
+    @Test
+    public void testLinkedTableColumnNames() throws Exception {
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS LINKED_GEOJSON_NAMES");
+            File jsonFile = new File("target/linked_names.geojson");
+            Files.deleteIfExists(new File("target/linked_names.geojson.idx").toPath());
+            Files.write(jsonFile.toPath(), ("{\"type\":\"FeatureCollection\",\"features\":[" +
+                    "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}," +
+                    "\"properties\":{\"the_geom\":\"a\",\"pk\":5,\"name\":\"b\",\"Name\":\"c\"}}]}")
+                    .getBytes(StandardCharsets.UTF_8));
+            stat.execute("CALL FILE_TABLE('target/linked_names.geojson', 'LINKED_GEOJSON_NAMES')");
+            try (ResultSet rs = stat.executeQuery("select * from linked_geojson_names")) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                assertEquals(5, metaData.getColumnCount());
+                assertEquals("PK2", metaData.getColumnName(1));
+                assertEquals("THE_GEOM2", metaData.getColumnName(2));
+                assertEquals("THE_GEOM", metaData.getColumnName(3));
+                assertEquals("PK", metaData.getColumnName(4));
+                assertEquals("NAME", metaData.getColumnName(5));
+                assertTrue(rs.next());
+                assertEquals("POINT (1 2)", ((Geometry) rs.getObject("THE_GEOM2")).toText());
+                assertEquals("a", rs.getString("THE_GEOM"));
+                assertEquals(5, rs.getLong("PK"));
+                assertEquals("c", rs.getString("NAME"));
+                assertFalse(rs.next());
+            }
+            stat.execute("DROP TABLE LINKED_GEOJSON_NAMES");
+        }
+    }
+}
@@ -25,8 +25,13 @@ import org.h2.util.StringUtils;
 import org.h2gis.functions.factory.H2GISDBFactory;
 import org.h2gis.functions.factory.H2GISFunctions;
 import org.junit.jupiter.api.*;
+import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -245,4 +250,76 @@ public class GPXImportTest {
         assertEquals(4326, ((Geometry)rs.getObject("the_geom")).getSRID());
         rs.close();
     }
+
+    @Test
+    public void importGPXCompactTrack() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS GPXDATA_WAYPOINT, GPXDATA_ROUTE, GPXDATA_ROUTEPOINT,GPXDATA_TRACK, GPXDATA_TRACKSEGMENT, GPXDATA_TRACKPOINT;");
+        st.execute("CALL GPXRead(" + StringUtils.quoteStringSQL(GPXImportTest.class.getResource("track.gpx").getPath()) + ", 'GPXDATA', false, 'compact=true');");
+        ResultSet rs = st.executeQuery("SELECT * FROM INFORMATION_SCHEMA.COLUMNS where TABLE_NAME = 'GPXDATA_TRACKPOINT'");
+        assertFalse(rs.next());
+        rs.close();
+        rs = st.executeQuery("SELECT count(id) FROM GPXDATA_TRACKSEGMENT");
+        rs.next();
+        assertEquals(2, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT the_geom FROM GPXDATA_TRACK");
+        assertTrue(rs.next());
+        Geometry geom = (Geometry) rs.getObject(1);
+        assertEquals(4326, geom.getSRID());
+        assertEquals(2, geom.getNumGeometries());
+        Coordinate[] coordinates = geom.getCoordinates();
+        assertEquals(4, coordinates.length);
+        assertEquals(-71.09622, coordinates[0].x, 1e-12);
+        assertEquals(42.210009, coordinates[0].y, 1e-12);
+        // 2001-06-24T15:09:09Z and 2001-06-24T15:09:29Z
+        assertEquals(993395349, coordinates[0].getM(), 1e-6);
+        assertEquals(993395369, coordinates[1].getM(), 1e-6);
+        rs.close();
+    }
+
+    @Test
+    public void importGPXDirectory() throws SQLException, IOException {
+        st.execute("DROP TABLE IF EXISTS GPXDIR_WAYPOINT, GPXDIR_ROUTE, GPXDIR_ROUTEPOINT,GPXDIR_TRACK, GPXDIR_TRACKSEGMENT, GPXDIR_TRACKPOINT;");
+        Path directory = Files.createTempDirectory("gpx");
+        for (String name : new String[]{"waypoint.gpx", "route.gpx", "track.gpx"}) {
+            for (int i = 0; i < 5; i++) {
+                Files.copy(new File(GPXImportTest.class.getResource(name).getPath()).toPath(),
+                        directory.resolve(i + "_" + name));
+            }
+        }
+        st.execute("CALL GPXRead(" + StringUtils.quoteStringSQL(directory.toString()) + ", 'GPXDIR', true, 'threads=4');");
+        ResultSet rs = st.executeQuery("SELECT count(*), count(distinct file_name) FROM GPXDIR_WAYPOINT");
+        rs.next();
+        assertEquals(15, rs.getInt(1));
+        assertEquals(5, rs.getInt(2));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*) FROM GPXDIR_ROUTEPOINT");
+        rs.next();
+        assertEquals(25, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*), count(distinct file_name) FROM GPXDIR_TRACKPOINT");
+        rs.next();
+        assertEquals(20, rs.getInt(1));
+        assertEquals(5, rs.getInt(2));
+        rs.close();
+        // Import the track files only with a pattern, the tracks are stored as measured lines
+        st.execute("CALL GPXRead(" + StringUtils.quoteStringSQL(directory.resolve("*_track.gpx").toString()) + ", 'GPXDIR', true, 'compact=true');");
+        rs = st.executeQuery("SELECT count(*) FROM GPXDIR_WAYPOINT");
+        rs.next();
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT count(*), sum(ST_NPoints(the_geom)) FROM GPXDIR_TRACK");
+        rs.next();
+        assertEquals(5, rs.getInt(1));
+        assertEquals(20, rs.getInt(2));
+        rs.close();
+        rs = st.executeQuery("SELECT * FROM INFORMATION_SCHEMA.COLUMNS where TABLE_NAME = 'GPXDIR_TRACKPOINT'");
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE IF EXISTS GPXDIR_WAYPOINT, GPXDIR_ROUTE, GPXDIR_ROUTEPOINT,GPXDIR_TRACK, GPXDIR_TRACKSEGMENT, GPXDIR_TRACKPOINT;");
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
 }
@@ -30,6 +30,8 @@ import org.junit.jupiter.api.Test;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.WKTReader;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -40,6 +42,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.zip.ZipInputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.h2gis.unitTest.GeometryAsserts;
@@ -369,4 +372,44 @@ public class KMLImporterExporterTest {
             stat.execute("DROP TABLE IF EXISTS TABLE_LINESTRINGS_READ");
         }
     }
+
+    @Test
+    public void exportKMZParallelPlacemarks() throws Exception {
+        File kmzFile = new File("target/kml_parallel.kmz");
+        File kmzParallelFile = new File("target/kml_parallel_threads.kmz");
+        try (Statement stat = connection.createStatement()) {
+            stat.execute("DROP TABLE IF EXISTS KML_PARALLEL");
+            stat.execute("create table KML_PARALLEL(the_geom GEOMETRY(GEOMETRY, 4326), id int, name varchar)");
+            stat.execute("insert into KML_PARALLEL select ST_SETSRID(CASE WHEN MOD(X, 2) = 0 THEN ST_MAKEPOINT(X / 1000.0, 47.5, X)" +
+                    " ELSE ST_BUFFER(ST_MAKEPOINT(X / 1000.0, 47.5), 0.0001) END, 4326), X, CASE WHEN MOD(X, 3) = 0 THEN NULL" +
+                    " ELSE 'name <' || X || '> & co' END from SYSTEM_RANGE(1, 2500)");
+            stat.execute("CALL KMLWrite('target/kml_parallel.kmz', 'KML_PARALLEL')");
+            stat.execute("CALL KMLWrite('target/kml_parallel_threads.kmz', 'KML_PARALLEL', NULL, 'threads=4')");
+            byte[] kml = readKMZ(kmzFile);
+            assertArrayEquals(kml, readKMZ(kmzParallelFile));
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document document = builder.parse(new InputSource(new ByteArrayInputStream(kml)));
+            assertEquals(2500, document.getElementsByTagName("Placemark").getLength());
+            assertEquals(1250, document.getElementsByTagName("Point").getLength());
+            assertEquals("name <1> & co", document.getElementsByTagName("SimpleData").item(1).getTextContent());
+            assertThrows(SQLException.class, () ->
+                    stat.execute("CALL KMLWrite('target/kml_parallel_threads.kmz', 'KML_PARALLEL', NULL, 'thread=4')"));
+        } finally {
+            kmzFile.delete();
+            kmzParallelFile.delete();
+        }
+    }
+
+    private static byte[] readKMZ(File kmzFile) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(kmzFile))) {
+            assertNotNull(zis.getNextEntry());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = zis.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
 }
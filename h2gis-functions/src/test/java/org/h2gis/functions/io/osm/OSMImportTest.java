@@ -213,6 +213,154 @@ public class OSMImportTest {
         assertEquals("yes", rs.getString(1));
         rs.close();
     }
+
+    @Test
+    public void importPbfOSMFile() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm.pbf").getPath()) + ", 'OSM');");
+        ResultSet rs = st.executeQuery("SELECT count(TABLE_NAME) FROM INFORMATION_SCHEMA.TABLES where TABLE_NAME LIKE 'OSM%'");
+        rs.next();
+        assertEquals(10, rs.getInt(1));
+        rs.close();
+        // Same content as the xml file
+        rs = st.executeQuery("SELECT (SELECT count(*) FROM OSM_NODE), (SELECT count(*) FROM OSM_NODE_TAG)," +
+                " (SELECT count(*) FROM OSM_WAY), (SELECT count(*) FROM OSM_WAY_TAG), (SELECT count(*) FROM OSM_WAY_NODE)," +
+                " (SELECT count(*) FROM OSM_RELATION), (SELECT count(*) FROM OSM_RELATION_TAG)," +
+                " (SELECT count(*) FROM OSM_NODE_MEMBER), (SELECT count(*) FROM OSM_WAY_MEMBER)," +
+                " (SELECT count(*) FROM OSM_RELATION_MEMBER)");
+        assertTrue(rs.next());
+        assertEquals(3243, rs.getInt(1));
+        assertEquals(24, rs.getInt(2));
+        assertEquals(472, rs.getInt(3));
+        assertEquals(1014, rs.getInt(4));
+        assertEquals(4180, rs.getInt(5));
+        assertEquals(3, rs.getInt(6));
+        assertEquals(25, rs.getInt(7));
+        assertEquals(4, rs.getInt(8));
+        assertEquals(79, rs.getInt(9));
+        assertEquals(26, rs.getInt(10));
+        rs.close();
+
+        rs = st.executeQuery("SELECT THE_GEOM FROM OSM_NODE WHERE ID_NODE=462020579");
+        assertTrue(rs.next());
+        assertEquals("SRID=4326;POINT (-2.1213541 47.6347657)", rs.getString("the_geom"));
+        rs.close();
+
+        rs = st.executeQuery("SELECT * FROM OSM_NODE WHERE ID_NODE=670177172");
+        assertTrue(rs.next());
+        assertEquals(91.9,rs.getDouble("ELE"),0.1);
+        assertEquals("Eric S", rs.getString("USER_NAME"));
+        assertEquals(45284, rs.getLong("UID"));
+        assertEquals(4326,((Point)rs.getObject("THE_GEOM")).getSRID());
+        rs.close();
+
+        rs = st.executeQuery("SELECT TAG_VALUE FROM OSM_NODE_TAG WHERE ID_NODE=1983979521 and TAG_KEY='amenity'");
+        assertTrue(rs.next());
+        assertEquals("post_office", rs.getString(1));
+        rs.close();
+
+        rs = st.executeQuery("SELECT ID_NODE FROM OSM_WAY_NODE WHERE ID_WAY=42026148 AND NODE_ORDER=1");
+        assertTrue(rs.next());
+        assertEquals(520171161, rs.getLong(1));
+        rs.close();
+
+        rs = st.executeQuery("SELECT ROLE FROM OSM_WAY_MEMBER WHERE ID_RELATION=128106 AND ID_WAY=267594286");
+        assertTrue(rs.next());
+        assertEquals("outer", rs.getString(1));
+        rs.close();
+    }
+
+    @Test
+    public void importPbfOSMFileOptions() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm.pbf").getPath()) + ", 'OSM', true, 'threads=2 tags=false members=false');");
+        ResultSet rs = st.executeQuery("SELECT (SELECT count(*) FROM OSM_NODE), (SELECT count(*) FROM OSM_NODE_TAG)," +
+                " (SELECT count(*) FROM OSM_WAY_TAG), (SELECT count(*) FROM OSM_WAY_NODE), (SELECT count(*) FROM OSM_WAY_MEMBER)");
+        assertTrue(rs.next());
+        assertEquals(3243, rs.getInt(1));
+        assertEquals(0, rs.getInt(2));
+        assertEquals(0, rs.getInt(3));
+        assertEquals(4180, rs.getInt(4));
+        assertEquals(0, rs.getInt(5));
+        rs.close();
+        // The name is still extracted from the tags
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY WHERE NAME <> ''");
+        assertTrue(rs.next());
+        assertTrue(rs.getInt(1) > 0);
+        rs.close();
+    }
+
+    @Test
+    public void importOSMFileGeometries() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("DROP TABLE IF EXISTS  PBF_NODE, PBF_NODE_TAG, PBF_WAY,PBF_WAY_TAG, PBF_WAY_NODE, PBF_RELATION, PBF_RELATION_TAG, PBF_NODE_MEMBER, PBF_WAY_MEMBER, PBF_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm").getPath()) + ", 'OSM', true, 'geometries=true');");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("saint_jean.osm.pbf").getPath()) + ", 'PBF', true, 'threads=2 geometries=true');");
+        // Closed buildings and landuses are polygons, the other ways are linestrings
+        ResultSet rs = st.executeQuery("SELECT (SELECT count(*) FROM OSM_WAY WHERE ST_Dimension(THE_GEOM) = 2)," +
+                " (SELECT count(*) FROM OSM_WAY WHERE ST_Dimension(THE_GEOM) = 1), (SELECT count(*) FROM OSM_WAY WHERE THE_GEOM IS NULL)");
+        assertTrue(rs.next());
+        assertEquals(450, rs.getInt(1));
+        assertEquals(22, rs.getInt(2));
+        assertEquals(0, rs.getInt(3));
+        rs.close();
+        rs = st.executeQuery("SELECT ST_Dimension(THE_GEOM), ST_NPoints(THE_GEOM) FROM OSM_WAY WHERE ID_WAY = 296514613");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(11, rs.getInt(2));
+        rs.close();
+        // Both readers build the same geometries
+        rs = st.executeQuery("SELECT count(*) FROM OSM_WAY O, PBF_WAY P WHERE O.ID_WAY = P.ID_WAY AND ST_AsText(O.THE_GEOM) = ST_AsText(P.THE_GEOM)");
+        assertTrue(rs.next());
+        assertEquals(472, rs.getInt(1));
+        rs.close();
+        // The members of the boundary relations are not in the file
+        rs = st.executeQuery("SELECT count(*) FROM OSM_RELATION WHERE THE_GEOM IS NOT NULL");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE IF EXISTS  PBF_NODE, PBF_NODE_TAG, PBF_WAY,PBF_WAY_TAG, PBF_WAY_NODE, PBF_RELATION, PBF_RELATION_TAG, PBF_NODE_MEMBER, PBF_WAY_MEMBER, PBF_RELATION_MEMBER;");
+    }
+
+    @Test
+    public void importOSMFileMultipolygon() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS  OSM_NODE, OSM_NODE_TAG, OSM_WAY,OSM_WAY_TAG, OSM_WAY_NODE, OSM_RELATION, OSM_RELATION_TAG, OSM_NODE_MEMBER, OSM_WAY_MEMBER, OSM_RELATION_MEMBER;");
+        st.execute("CALL OSMRead(" + StringUtils.quoteStringSQL(OSMImportTest.class.getResource("multipolygon.osm").getPath()) + ", 'OSM', true, 'geometries=true');");
+        ResultSet rs = st.executeQuery("SELECT ID_WAY, ST_Dimension(THE_GEOM), ST_NPoints(THE_GEOM) FROM OSM_WAY ORDER BY ID_WAY");
+        assertTrue(rs.next());
+        assertEquals(10, rs.getLong(1));
+        assertEquals(1, rs.getInt(2));
+        assertEquals(3, rs.getInt(3));
+        assertTrue(rs.next());
+        assertEquals(11, rs.getLong(1));
+        assertEquals(1, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals(12, rs.getLong(1));
+        assertEquals(2, rs.getInt(2));
+        assertEquals(5, rs.getInt(3));
+        // The missing nodes are skipped
+        assertTrue(rs.next());
+        assertEquals(13, rs.getLong(1));
+        assertEquals(1, rs.getInt(2));
+        assertEquals(2, rs.getInt(3));
+        assertTrue(rs.next());
+        assertEquals(14, rs.getLong(1));
+        assertNull(rs.getObject(2));
+        assertFalse(rs.next());
+        rs.close();
+        // The outer ways are merged and the inner way is a hole
+        rs = st.executeQuery("SELECT ID_RELATION, ST_NumGeometries(THE_GEOM), ST_NumInteriorRing(ST_GeometryN(THE_GEOM, 1)), ST_Area(THE_GEOM) FROM OSM_RELATION ORDER BY ID_RELATION");
+        assertTrue(rs.next());
+        assertEquals(20, rs.getLong(1));
+        assertEquals(1, rs.getInt(2));
+        assertEquals(1, rs.getInt(3));
+        assertEquals(9.6e-7, rs.getDouble(4), 1e-12);
+        assertTrue(rs.next());
+        assertEquals(21, rs.getLong(1));
+        assertNull(rs.getObject(2));
+        assertFalse(rs.next());
+        rs.close();
+    }
     
     @Test
     public void importOSMFileTwice() throws SQLException {
@@ -261,6 +409,19 @@ public class OSMImportTest {
         assertEquals(3, rs.getInt(1));
         rs.close();
     }
+
+    @Test
+    public void testNodeStoreUnsorted() {
+        OSMNodeStore store = new OSMNodeStore();
+        store.put(3, 3, 3);
+        store.put(1, 1, 1);
+        assertEquals(1, store.get(1).x, 1e-7);
+        // Added after the sort, lower than the greatest identifier
+        store.put(2, 2, 2);
+        assertEquals(2, store.get(2).x, 1e-7);
+        assertEquals(3, store.get(3).x, 1e-7);
+        assertNull(store.get(4));
+    }
     
     //Disable this @Test to avoid internet connection error
     //@Test
@@ -695,6 +695,84 @@ public class SHPImportExportTest {
     }   
     
     
+    @Test
+    public void exportSelectStreaming() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS POINTS_READ");
+        // The query is written in one pass, the counts and lengths are written in the headers on close
+        st.execute("CALL SHPWrite('target/streaming_points.shp', '(SELECT ST_MakePoint(X, X * 2) THE_GEOM, X ID FROM SYSTEM_RANGE(1, 5000))')");
+        assertEquals(100 + 8 * 5000, new File("target/streaming_points.shx").length());
+        assertEquals(100 + 28 * 5000, new File("target/streaming_points.shp").length());
+        st.execute("CALL SHPRead('target/streaming_points.shp', 'POINTS_READ');");
+        ResultSet rs = st.executeQuery("SELECT count(*), sum(ID), max(ST_Y(THE_GEOM)) FROM POINTS_READ");
+        assertTrue(rs.next());
+        assertEquals(5000, rs.getInt(1));
+        assertEquals(12502500, rs.getLong(2));
+        assertEquals(10000, rs.getDouble(3), 1e-12);
+        rs.close();
+        st.execute("DROP TABLE IF EXISTS POINTS_READ");
+    }
+
+    @Test
+    public void exportSelectParts() throws SQLException {
+        Statement st = connection.createStatement();
+        for (int part = 1; part <= 6; part++) {
+            String name = part == 1 ? "target/points_parts" : "target/points_parts_" + part;
+            new File(name + ".shp").delete();
+        }
+        // 5 parts of 1000 rows written by 3 threads
+        st.execute("CALL SHPWrite('target/points_parts.shp', '(SELECT ST_MakePoint(X, X * 2) THE_GEOM, X ID FROM SYSTEM_RANGE(1, 5000))', null, 'maxrows=1000 threads=3')");
+        assertFalse(new File("target/points_parts_6.shp").exists());
+        long count = 0;
+        long idSum = 0;
+        for (int part = 1; part <= 5; part++) {
+            String name = part == 1 ? "target/points_parts" : "target/points_parts_" + part;
+            assertTrue(new File(name + ".prj").exists());
+            st.execute("DROP TABLE IF EXISTS POINTS_READ");
+            st.execute("CALL SHPRead('" + name + ".shp', 'POINTS_READ');");
+            ResultSet rs = st.executeQuery("SELECT count(*), sum(ID), count(*) FILTER (WHERE ST_Y(THE_GEOM) = ID * 2) FROM POINTS_READ");
+            assertTrue(rs.next());
+            assertEquals(1000, rs.getInt(1));
+            assertEquals(1000, rs.getInt(3));
+            count += rs.getLong(1);
+            idSum += rs.getLong(2);
+            rs.close();
+        }
+        assertEquals(5000, count);
+        assertEquals(12502500, idSum);
+        st.execute("DROP TABLE IF EXISTS POINTS_READ");
+    }
+
+    @Test
+    public void exportTablePartsMaxSize() throws SQLException {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS POINTS, POINTS_READ");
+        st.execute("CREATE TABLE POINTS AS SELECT ST_MakePoint(X, X * 2) THE_GEOM, X ID FROM SYSTEM_RANGE(1, 2000)");
+        new File("target/points_size.shp").delete();
+        for (int part = 2; part <= 20; part++) {
+            new File("target/points_size_" + part + ".shp").delete();
+        }
+        st.execute("CALL SHPWrite('target/points_size.shp', 'POINTS', null, 'maxsize=10000')");
+        long count = 0;
+        int part = 1;
+        File shpFile = new File("target/points_size.shp");
+        while (shpFile.exists()) {
+            assertTrue(shpFile.length() <= 10000);
+            assertTrue(new File(shpFile.getPath().replace(".shp", ".dbf")).length() <= 10000);
+            st.execute("DROP TABLE IF EXISTS POINTS_READ");
+            st.execute("CALL SHPRead('" + shpFile.getPath() + "', 'POINTS_READ');");
+            ResultSet rs = st.executeQuery("SELECT count(*) FROM POINTS_READ");
+            assertTrue(rs.next());
+            count += rs.getLong(1);
+            rs.close();
+            part++;
+            shpFile = new File("target/points_size_" + part + ".shp");
+        }
+        assertTrue(part > 2);
+        assertEquals(2000, count);
+        st.execute("DROP TABLE IF EXISTS POINTS, POINTS_READ");
+    }
+
     @Test
     public void exportImportCharacters() throws SQLException, IOException {
         Statement stat = connection.createStatement();
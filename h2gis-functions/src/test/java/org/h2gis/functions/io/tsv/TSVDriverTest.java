@@ -107,6 +107,22 @@ public class TSVDriverTest {
 
     }
     
+    @Test
+    public void testWriteReadGzip() throws SQLException, IOException {
+        Statement stat = connection.createStatement();
+        stat.execute("DROP TABLE IF EXISTS myTSV, MYTSV_GZ");
+        stat.execute("create table myTSV(the_geom GEOMETRY, idarea int primary key)");
+        stat.execute("insert into myTSV values('POLYGON ((-10 109, 90 109, 90 9, -10 9, -10 109))', 1)");
+        stat.execute("insert into myTSV values('POLYGON ((90 109, 190 109, 190 9, 90 9, 90 109))', 2)");
+        stat.execute("CALL TSVWrite('target/mytsv_gz.tsv.gz', 'myTSV')");
+        assertTrue(new File("target/mytsv_gz.tsv.gz").exists());
+        stat.execute("CALL TSVRead('target/mytsv_gz.tsv.gz');");
+        try (ResultSet rs = stat.executeQuery("select SUM(ST_AREA(the_geom::GEOMETRY)) from MYTSV_GZ")) {
+            assertTrue(rs.next());
+            assertEquals(20000, rs.getDouble(1), 1e-6);
+        }
+    }
+
     @Test
     public void testWriteReadEmptyTable() throws SQLException {
         try (Statement stat = connection.createStatement()) {
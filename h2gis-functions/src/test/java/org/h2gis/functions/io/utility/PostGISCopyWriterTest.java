@@ -0,0 +1,279 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.io.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Check the binary encoding of {@link PostGISCopyWriter} without a PostgreSQL server.
+ *
+ * @author Nicolas Fortin
+ */
+public class PostGISCopyWriterTest {
+
+    /** Length of the copy header */
+    private static final int HEADER_LENGTH = 19;
+
+    @Test
+    public void testHeaderAndNull() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "int4", "text")) {
+            writer.writeRow(new Object[]{null, null});
+            assertEquals(1, writer.endCopy());
+        }
+        byte[] bytes = copyIn.data.toByteArray();
+        assertEquals('P', bytes[0]);
+        assertEquals((byte) 0xFF, bytes[7]);
+        DataInputStream in = rows(copyIn);
+        assertEquals(2, in.readShort());
+        assertEquals(-1, in.readInt());
+        assertEquals(-1, in.readInt());
+        assertEquals(-1, in.readShort());
+        assertEquals(0, in.available());
+        assertFalse(copyIn.cancelled);
+    }
+
+    @Test
+    public void testInt2Range() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "int2")) {
+            writer.writeRow(new Object[]{Short.MIN_VALUE});
+            writer.writeRow(new Object[]{32767L});
+            writer.writeRow(new Object[]{"-1"});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        for (short expected : new short[]{Short.MIN_VALUE, Short.MAX_VALUE, -1}) {
+            assertEquals(1, in.readShort());
+            assertEquals(2, in.readInt());
+            assertEquals(expected, in.readShort());
+        }
+        assertEquals(-1, in.readShort());
+    }
+
+    @Test
+    public void testInt2OutOfRange() throws Exception {
+        assertRejected("int2", 32768);
+        assertRejected("int2", -32769);
+        assertRejected("int2", "40000");
+    }
+
+    @Test
+    public void testInt4Range() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "int4", "serial")) {
+            writer.writeRow(new Object[]{Integer.MIN_VALUE, (long) Integer.MAX_VALUE});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        assertEquals(2, in.readShort());
+        assertEquals(4, in.readInt());
+        assertEquals(Integer.MIN_VALUE, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(Integer.MAX_VALUE, in.readInt());
+    }
+
+    @Test
+    public void testInt4OutOfRange() throws Exception {
+        assertRejected("int4", Integer.MAX_VALUE + 1L);
+        assertRejected("int4", Integer.MIN_VALUE - 1L);
+        assertRejected("serial", Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testInt8() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "int8")) {
+            writer.writeRow(new Object[]{Long.MIN_VALUE});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        assertEquals(1, in.readShort());
+        assertEquals(8, in.readInt());
+        assertEquals(Long.MIN_VALUE, in.readLong());
+    }
+
+    @Test
+    public void testNumeric() throws Exception {
+        // ndigits, weight, sign, dscale then the base 10000 digits
+        assertNumeric(new BigDecimal("0"), 0, 0, 0, 0);
+        assertNumeric(new BigDecimal("0.00"), 0, 0, 0, 2);
+        assertNumeric(new BigDecimal("12345.678"), 3, 1, 0, 3, 1, 2345, 6780);
+        assertNumeric(new BigDecimal("-12345.678"), 3, 1, 0x4000, 3, 1, 2345, 6780);
+        assertNumeric(new BigDecimal("0.0001"), 1, -1, 0, 4, 1);
+        assertNumeric(new BigDecimal("-0.00000123"), 1, -2, 0x4000, 8, 123);
+        assertNumeric(new BigDecimal("10000"), 1, 1, 0, 0, 1);
+        assertNumeric(new BigDecimal("9999"), 1, 0, 0, 0, 9999);
+        assertNumeric("42.5", 2, 0, 0, 1, 42, 5000);
+    }
+
+    @Test
+    public void testNumericNegativeScale() throws Exception {
+        BigDecimal value = new BigDecimal("1.2E+5");
+        assertEquals(-4, value.scale());
+        // 120000 = 12 * 10000
+        assertNumeric(value, 1, 1, 0, 0, 12);
+        assertNumeric(new BigDecimal("-1E+8"), 1, 2, 0x4000, 0, 1);
+    }
+
+    @Test
+    public void testDate() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "date")) {
+            writer.writeRow(new Object[]{LocalDate.of(2000, 1, 1)});
+            writer.writeRow(new Object[]{Date.valueOf("1999-12-31")});
+            writer.writeRow(new Object[]{"2020-02-29"});
+            writer.writeRow(new Object[]{Timestamp.valueOf("1970-01-01 12:00:00")});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        for (int expected : new int[]{0, -1, 7364, -10957}) {
+            assertEquals(1, in.readShort());
+            assertEquals(4, in.readInt());
+            assertEquals(expected, in.readInt());
+        }
+    }
+
+    @Test
+    public void testTimestamp() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "timestamp")) {
+            writer.writeRow(new Object[]{LocalDateTime.of(2000, 1, 1, 0, 0)});
+            writer.writeRow(new Object[]{Timestamp.valueOf("2000-01-01 00:00:01.000001")});
+            writer.writeRow(new Object[]{"1999-12-31 23:59:59"});
+            writer.writeRow(new Object[]{LocalDate.of(2000, 1, 2)});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        for (long expected : new long[]{0, 1000001, -1000000, 86400000000L}) {
+            assertEquals(1, in.readShort());
+            assertEquals(8, in.readInt());
+            assertEquals(expected, in.readLong());
+        }
+    }
+
+    @Test
+    public void testTime() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "time")) {
+            writer.writeRow(new Object[]{LocalTime.of(1, 0, 0, 1000)});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        assertEquals(1, in.readShort());
+        assertEquals(8, in.readInt());
+        assertEquals(3600000001L, in.readLong());
+    }
+
+    @Test
+    public void testRowLength() throws Exception {
+        try (PostGISCopyWriter writer = open(new FakeCopyIn(), "int4", "text")) {
+            assertThrows(SQLException.class, () -> writer.writeRow(new Object[]{1}));
+            assertEquals(0, writer.getRowCount());
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "int4")) {
+            writer.writeRow(new Object[]{1});
+        }
+        assertTrue(copyIn.cancelled);
+    }
+
+    private static PostGISCopyWriter open(FakeCopyIn copyIn, String... types) throws NoSuchMethodException {
+        return new PostGISCopyWriter(copyIn, FakeCopyIn.class, types);
+    }
+
+    /**
+     * @return Stream of the rows written after the header
+     */
+    private static DataInputStream rows(FakeCopyIn copyIn) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(copyIn.data.toByteArray()));
+        assertEquals(HEADER_LENGTH, in.skipBytes(HEADER_LENGTH));
+        return in;
+    }
+
+    private static void assertRejected(String type, Object value) throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, type)) {
+            SQLException ex = assertThrows(SQLException.class, () -> writer.writeRow(new Object[]{value}));
+            assertTrue(ex.getMessage().contains("out of the range"), ex.getMessage());
+            assertEquals(0, writer.getRowCount());
+        }
+        assertTrue(copyIn.cancelled);
+    }
+
+    private static void assertNumeric(Object value, int ndigits, int weight, int sign, int dscale,
+                                      int... digits) throws Exception {
+        FakeCopyIn copyIn = new FakeCopyIn();
+        try (PostGISCopyWriter writer = open(copyIn, "numeric")) {
+            writer.writeRow(new Object[]{value});
+            writer.endCopy();
+        }
+        DataInputStream in = rows(copyIn);
+        assertEquals(1, in.readShort());
+        assertEquals(8 + 2 * ndigits, in.readInt());
+        assertEquals(ndigits, in.readShort());
+        assertEquals(weight, in.readShort());
+        assertEquals(sign, in.readShort());
+        assertEquals(dscale, in.readShort());
+        for (int digit : digits) {
+            assertEquals(digit, in.readShort());
+        }
+        assertEquals(-1, in.readShort());
+    }
+
+    /**
+     * Stand-in for org.postgresql.copy.CopyIn that keeps the written bytes
+     */
+    public static final class FakeCopyIn {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private boolean cancelled = false;
+
+        public void writeToCopy(byte[] buf, int off, int siz) {
+            data.write(buf, off, siz);
+        }
+
+        public long endCopy() {
+            return 1;
+        }
+
+        public void cancelCopy() {
+            cancelled = true;
+        }
+    }
+}
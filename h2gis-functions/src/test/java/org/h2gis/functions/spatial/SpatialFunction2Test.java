@@ -984,6 +984,51 @@ public class SpatialFunction2Test {
     }
     
     
+    @Test
+    public void test_ST_SvfTable() throws Exception {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS RECEPTORS, OBSTACLES;"
+                + "CREATE TABLE RECEPTORS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POINTZ));"
+                + "INSERT INTO RECEPTORS VALUES (1, 'POINTZ(0 0 0)'), (2, 'POINTZ(500 500 0)');"
+                + "CREATE TABLE OBSTACLES(THE_GEOM GEOMETRY);"
+                + "INSERT INTO OBSTACLES VALUES ('POLYGON ((10 -1 10, 20 -1 10, 20 20 10, 10 20 10, 10 -1 10))');");
+        ResultSet rs = st.executeQuery("SELECT * FROM ST_SvfTable('RECEPTORS', 'OBSTACLES', 50, 8) ORDER BY ID");
+        double dTheta = Math.toRadians(45);
+        double sinGamma0 = Math.sin(Math.atan(10/Math.sqrt(200)));
+        double sinGamma1 = Math.sin(Math.atan(1));
+        double svfTest = 1-(dTheta*(sinGamma0*sinGamma0 + sinGamma1*sinGamma1))/(2*Math.PI);
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("ID"));
+        assertEquals(svfTest, rs.getDouble("SVF"), 0.01);
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt("ID"));
+        assertEquals(1, rs.getDouble("SVF"), 0.01);
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE RECEPTORS, OBSTACLES");
+    }
+
+    @Test
+    public void test_ST_SvfTableNullReceptor() throws Exception {
+        Statement st = connection.createStatement();
+        st.execute("DROP TABLE IF EXISTS RECEPTORS, OBSTACLES;"
+                + "CREATE TABLE RECEPTORS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POINTZ));"
+                + "INSERT INTO RECEPTORS VALUES (1, NULL), (2, 'POINTZ(500 500 0)');"
+                + "CREATE TABLE OBSTACLES(THE_GEOM GEOMETRY);"
+                + "INSERT INTO OBSTACLES VALUES ('POLYGON ((10 -1 10, 20 -1 10, 20 20 10, 10 20 10, 10 -1 10))');");
+        ResultSet rs = st.executeQuery("SELECT * FROM ST_SvfTable('RECEPTORS', 'OBSTACLES', 50, 8) ORDER BY ID");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("ID"));
+        assertNull(rs.getObject("THE_GEOM"));
+        assertNull(rs.getObject("SVF"));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt("ID"));
+        assertEquals(1, rs.getDouble("SVF"), 0.01);
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE RECEPTORS, OBSTACLES");
+    }
+
     @Test
     public void test_ST_ShortestLine1() throws Exception {
         Statement st = connection.createStatement();
@@ -1118,4 +1163,29 @@ public class SpatialFunction2Test {
     }
     
     
+    @Test
+    public void test_ST_IsovistTable() throws Exception {
+        st.execute("DROP TABLE IF EXISTS VIEWPOINTS, WALLS;"
+                + "CREATE TABLE VIEWPOINTS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POINT));"
+                + "INSERT INTO VIEWPOINTS VALUES (1, 'POINT(0 0)'), (2, 'POINT(1000 1000)');"
+                + "CREATE TABLE WALLS(THE_GEOM GEOMETRY);"
+                + "INSERT INTO WALLS VALUES ('LINESTRING (100 0, 100 100, 0 100)'), ('LINESTRING (-100 100, -100 -100, 100 -100)');");
+        ResultSet rs = st.executeQuery("SELECT ID, ST_AREA(ISOVIST), "
+                + "ST_AREA(ST_Isovist(THE_GEOM, 'MULTILINESTRING ((100 0, 100 100, 0 100),  (-100 100, -100 -100, 100 -100))'::GEOMETRY, 150)) "
+                + "FROM ST_IsovistTable('VIEWPOINTS', 'WALLS', 150) ORDER BY ID");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals(rs.getDouble(3), rs.getDouble(2), 1e-6);
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(rs.getDouble(3), rs.getDouble(2), 1e-6);
+        assertFalse(rs.next());
+        rs.close();
+        rs = st.executeQuery("SELECT ST_AREA(ISOVIST) FROM ST_IsovistTable('VIEWPOINTS', 'WALLS', 150, 0, PI() / 2) WHERE ID = 2");
+        assertTrue(rs.next());
+        assertEquals(Math.PI * 150 * 150 / 4, rs.getDouble(1), 150);
+        rs.close();
+        st.execute("DROP TABLE VIEWPOINTS, WALLS");
+    }
+
 }
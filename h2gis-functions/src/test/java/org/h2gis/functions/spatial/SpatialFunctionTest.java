@@ -27,6 +27,8 @@ import org.h2.jdbc.JdbcSQLNonTransientException;
 import org.h2.value.ValueGeometry;
 import org.h2gis.functions.factory.H2GISDBFactory;
 import org.h2gis.functions.spatial.affine_transformations.ST_Translate;
+import org.h2gis.functions.spatial.aggregate.ST_Accum;
+import org.h2gis.functions.spatial.properties.ST_Extent;
 import org.h2gis.utilities.TableLocation;
 import org.junit.jupiter.api.*;
 import org.locationtech.jts.geom.*;
@@ -286,6 +288,30 @@ public class SpatialFunctionTest {
         st.execute("drop table ptClouds");
     }
 
+    @Test
+    public void test_ST_ExtentMerge() throws Exception {
+        ST_Extent left = new ST_Extent();
+        left.init(connection);
+        left.add(WKT_READER.read("MULTIPOINT((5 5), (1 2), (99 3))"));
+        ST_Extent right = new ST_Extent();
+        right.init(connection);
+        right.add(WKT_READER.read("MULTIPOINT((-5 12), (65 124))"));
+        left.merge(right);
+        assertGeometryEquals("POLYGON ((-5 2, -5 124, 99 124, 99 2, -5 2))", left.getResult());
+    }
+
+    @Test
+    public void test_ST_AccumMerge() throws Exception {
+        ST_Accum left = new ST_Accum();
+        left.init(connection);
+        left.add(WKT_READER.read("POINT(1 1)"));
+        ST_Accum right = new ST_Accum();
+        right.init(connection);
+        right.add(WKT_READER.read("MULTIPOINT((2 2), (3 3))"));
+        left.merge(right);
+        assertGeometryEquals("MULTIPOINT((1 1), (2 2), (3 3))", left.getResult());
+    }
+
     @Test
     public void test_TableEnvelope() throws Exception {
         st.execute("drop table if exists ptClouds");
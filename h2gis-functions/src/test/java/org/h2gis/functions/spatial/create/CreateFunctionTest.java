@@ -645,6 +645,81 @@ public class CreateFunctionTest {
         st.execute("DROP TABLE input_table, grid;");
     }
 
+    @Test
+    public void test_ST_MakeGridConcurrentReads() throws Exception {
+        ResultSet rs = st.executeQuery("SELECT COUNT(*), SUM(A.ID * 10 + B.ID) FROM "
+                + "st_makegrid('POLYGON((0 0, 2 0, 2 2, 0 0 ))'::GEOMETRY, 1, 1) A, "
+                + "st_makegrid('POLYGON((0 0, 2 0, 2 2, 0 0 ))'::GEOMETRY, 1, 1) B");
+        assertTrue(rs.next());
+        assertEquals(16, rs.getInt(1));
+        assertEquals(4 * 10 * 6 + 4 * 6, rs.getInt(2));
+        rs.close();
+    }
+
+    @Test
+    public void test_ST_SquareGrid() throws Exception {
+        ResultSet rs = st.executeQuery("SELECT * FROM ST_SquareGrid('POLYGON((-1.5 0.5, 1 0.5, 1 1.5, -1.5 0.5))'::GEOMETRY, 1)");
+        rs.next();
+        assertGeometryEquals("POLYGON((-2 0, -1 0, -1 1, -2 1, -2 0))", rs.getObject(1));
+        assertEquals(-2, rs.getInt("ID_COL"));
+        assertEquals(0, rs.getInt("ID_ROW"));
+        rs.next();
+        assertGeometryEquals("POLYGON((-1 0, 0 0, 0 1, -1 1, -1 0))", rs.getObject(1));
+        rs.next();
+        assertGeometryEquals("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))", rs.getObject(1));
+        rs.next();
+        assertGeometryEquals("POLYGON((-2 1, -1 1, -1 2, -2 2, -2 1))", rs.getObject(1));
+        assertEquals(-2, rs.getInt("ID_COL"));
+        assertEquals(1, rs.getInt("ID_ROW"));
+        rs.next();
+        rs.next();
+        assertFalse(rs.next());
+        rs.close();
+    }
+
+    @Test
+    public void test_ST_HexagonGrid() throws Exception {
+        ResultSet rs = st.executeQuery("SELECT COUNT(*), SUM(ST_AREA(THE_GEOM)), MIN(ST_NPOINTS(THE_GEOM)) "
+                + "FROM ST_HexagonGrid('SRID=2154;POLYGON((0 0, 2 0, 2 2, 0 2, 0 0))'::GEOMETRY, 1)");
+        assertTrue(rs.next());
+        assertEquals(7, rs.getInt(1));
+        assertEquals(7 * 3 * Math.sqrt(3) / 2, rs.getDouble(2), 1e-9);
+        assertEquals(7, rs.getInt(3));
+        rs.close();
+        rs = st.executeQuery("SELECT THE_GEOM FROM ST_HexagonGrid('SRID=2154;POINT(0 0)'::GEOMETRY, 1) WHERE ID_COL = 0 AND ID_ROW = 0");
+        assertTrue(rs.next());
+        assertGeometryBarelyEquals("SRID=2154;POLYGON ((1 0, 0.5 0.866, -0.5 0.866, -1 0, -0.5 -0.866, 0.5 -0.866, 1 0))", rs.getObject(1), 0.001);
+        rs.close();
+    }
+
+    @Test
+    public void test_ST_SquareGridAggregate() throws Exception {
+        st.execute("DROP TABLE IF EXISTS input_table;"
+                + "CREATE TABLE input_table(the_geom GEOMETRY(POINT), val DOUBLE);"
+                + "INSERT INTO input_table VALUES ('POINT(0.5 0.5)', 1), ('POINT(0.2 0.7)', 2), ('POINT(1.5 0.5)', 4), ('POINT(-0.5 1.5)', 8);");
+        ResultSet rs = st.executeQuery("SELECT * FROM ST_SquareGridAggregate('input_table', 1, 'val')");
+        assertTrue(rs.next());
+        assertGeometryEquals("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))", rs.getObject(1));
+        assertEquals(2, rs.getLong("CELL_COUNT"));
+        assertEquals(3, rs.getDouble("CELL_SUM"), 1e-12);
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt("ID_COL"));
+        assertEquals(0, rs.getInt("ID_ROW"));
+        assertEquals(1, rs.getLong("CELL_COUNT"));
+        assertEquals(4, rs.getDouble("CELL_SUM"), 1e-12);
+        assertTrue(rs.next());
+        assertEquals(-1, rs.getInt("ID_COL"));
+        assertEquals(1, rs.getInt("ID_ROW"));
+        assertEquals(8, rs.getDouble("CELL_SUM"), 1e-12);
+        assertFalse(rs.next());
+        rs.close();
+        rs = st.executeQuery("SELECT SUM(CELL_COUNT) FROM ST_SquareGridAggregate('input_table', 10)");
+        assertTrue(rs.next());
+        assertEquals(4, rs.getLong(1));
+        rs.close();
+        st.execute("DROP TABLE input_table");
+    }
+
     @Test
     public void test_ST_MakePolygon1() throws Exception {
         ResultSet rs = st.executeQuery("SELECT ST_MakePolygon('LINESTRING (100 250, 100 350, 200 350, 200 250, 100 250)'::GEOMETRY );");
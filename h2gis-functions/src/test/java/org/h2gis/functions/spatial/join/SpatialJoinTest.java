@@ -0,0 +1,190 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.functions.spatial.join;
+
+import org.h2gis.functions.factory.H2GISDBFactory;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the spatial join table functions
+ *
+ * @author Erwan Bocher
+ */
+public class SpatialJoinTest {
+
+    private static Connection connection;
+    private Statement st;
+
+    @BeforeAll
+    public static void tearUp() throws Exception {
+        // Keep a connection alive to not close the DataBase on each unit test
+        connection = H2GISDBFactory.createSpatialDataBase(SpatialJoinTest.class.getSimpleName());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @BeforeEach
+    public void setUpStatement() throws Exception {
+        st = connection.createStatement();
+    }
+
+    @AfterEach
+    public void tearDownStatement() throws Exception {
+        st.close();
+    }
+
+    private void createTestTables() throws SQLException {
+        st.execute("DROP TABLE IF EXISTS POLYGONS, POINTS;"
+                + "CREATE TABLE POLYGONS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POLYGON));"
+                + "INSERT INTO POLYGONS VALUES (1, 'POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))'),"
+                + "(2, 'POLYGON ((20 0, 30 0, 30 10, 20 10, 20 0))');"
+                + "CREATE TABLE POINTS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POINT));"
+                + "INSERT INTO POINTS VALUES (1, 'POINT (5 5)'), (2, 'POINT (25 5)'), (3, 'POINT (8 8)'),"
+                + "(4, 'POINT (15 5)');");
+    }
+
+    @Test
+    public void test_ST_SpatialJoinContains() throws Exception {
+        createTestTables();
+        ResultSet rs = st.executeQuery("SELECT ID, ID_B FROM ST_SpatialJoin('POLYGONS', 'POINTS', 'contains') ORDER BY ID, ID_B");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals(1, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals(3, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(2, rs.getInt(2));
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+
+    @Test
+    public void test_ST_SpatialJoinDistance() throws Exception {
+        createTestTables();
+        ResultSet rs = st.executeQuery("SELECT ID, ID_B, DISTANCE FROM ST_SpatialJoin('POINTS', "
+                + "'(SELECT * FROM POLYGONS WHERE ID = 2)', 'dwithin', 6) ORDER BY ID");
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(0, rs.getDouble(3), 1e-12);
+        assertTrue(rs.next());
+        assertEquals(4, rs.getInt(1));
+        assertEquals(5, rs.getDouble(3), 1e-12);
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+
+    @Test
+    public void test_ST_SpatialJoinBadPredicate() throws Exception {
+        createTestTables();
+        assertThrows(SQLException.class, () -> {
+            st.execute("SELECT * FROM ST_SpatialJoin('POLYGONS', 'POINTS', 'equals')");
+        });
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+
+    @Test
+    public void test_ST_Nearest() throws Exception {
+        createTestTables();
+        st.execute("CREATE SPATIAL INDEX ON POINTS(THE_GEOM)");
+        ResultSet rs = st.executeQuery("SELECT ID, DISTANCE FROM ST_Nearest('POINTS', 'POINT (14 5)'::GEOMETRY, 2)");
+        assertTrue(rs.next());
+        assertEquals(4, rs.getInt(1));
+        assertEquals(1, rs.getDouble(2), 1e-12);
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        assertEquals(Math.sqrt(45), rs.getDouble(2), 1e-12);
+        assertFalse(rs.next());
+        rs.close();
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+
+    @Test
+    public void test_ST_NearestMoreThanRows() throws Exception {
+        createTestTables();
+        ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM ST_Nearest('POINTS', 'POINT (1000 1000)'::GEOMETRY, 10)");
+        assertTrue(rs.next());
+        assertEquals(4, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+
+    @Test
+    public void test_ST_NearestAfterUpdate() throws Exception {
+        createTestTables();
+        String query = "SELECT ID FROM ST_Nearest('POINTS', 'POINT (14 5)'::GEOMETRY, 1)";
+        ResultSet rs = st.executeQuery(query);
+        assertTrue(rs.next());
+        assertEquals(4, rs.getInt(1));
+        rs.close();
+        // The index loaded by the first call must not be reused once the table is modified
+        st.execute("INSERT INTO POINTS VALUES (5, 'POINT (14 6)')");
+        rs = st.executeQuery(query);
+        assertTrue(rs.next());
+        assertEquals(5, rs.getInt(1));
+        rs.close();
+        rs = st.executeQuery("SELECT ID FROM ST_Nearest('POLYGONS', 'POINT (14 5)'::GEOMETRY, 1)");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+
+    @Test
+    public void test_ST_KNNJoin() throws Exception {
+        createTestTables();
+        ResultSet rs = st.executeQuery("SELECT ID, ID_B, DISTANCE, NEIGHBOUR_RANK FROM ST_KNNJoin('POINTS', 'POLYGONS', 1) ORDER BY ID");
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+        assertEquals(1, rs.getInt(2));
+        assertEquals(0, rs.getDouble(3), 1e-12);
+        assertEquals(1, rs.getInt(4));
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+        assertEquals(2, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals(3, rs.getInt(1));
+        assertEquals(1, rs.getInt(2));
+        assertTrue(rs.next());
+        assertEquals(4, rs.getInt(1));
+        assertEquals(5, rs.getDouble(3), 1e-12);
+        assertFalse(rs.next());
+        rs.close();
+        rs = st.executeQuery("SELECT COUNT(*) FROM ST_KNNJoin('POINTS', 'POLYGONS', 2)");
+        assertTrue(rs.next());
+        assertEquals(8, rs.getInt(1));
+        rs.close();
+        st.execute("DROP TABLE POLYGONS, POINTS");
+    }
+}
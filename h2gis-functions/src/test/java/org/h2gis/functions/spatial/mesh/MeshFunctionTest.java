@@ -305,4 +305,41 @@ public class MeshFunctionTest {
             }
         });
     }
+
+    @Test
+    public void test_ST_DelaunayTable() throws Exception {
+        st.execute("DROP TABLE IF EXISTS DT_POINTS;"
+                + "CREATE TABLE DT_POINTS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POINT));"
+                + "INSERT INTO DT_POINTS SELECT X, ST_MakePoint(MOD(X, 10), X / 10) FROM SYSTEM_RANGE(0, 99);");
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*), SUM(ST_Area(THE_GEOM)) FROM ST_DelaunayTable('DT_POINTS')")) {
+            assertTrue(rs.next());
+            assertEquals(162, rs.getInt(1));
+            assertEquals(81, rs.getDouble(2), 1e-9);
+        }
+        // Tiled triangulation covers the same area
+        try (ResultSet rs = st.executeQuery("SELECT SUM(ST_Area(THE_GEOM)) FROM ST_DelaunayTable('DT_POINTS', 3)")) {
+            assertTrue(rs.next());
+            assertEquals(81, rs.getDouble(1), 1e-9);
+        }
+        st.execute("DROP TABLE DT_POINTS");
+    }
+
+    @Test
+    public void test_ST_VoronoiTable() throws Exception {
+        st.execute("DROP TABLE IF EXISTS DT_POINTS;"
+                + "CREATE TABLE DT_POINTS(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY(POINT));"
+                + "INSERT INTO DT_POINTS VALUES (1, 'POINT (0 0)'), (2, 'POINT (10 0)'), (3, 'POINT (10 10)'),"
+                + "(4, 'POINT (0 10)'), (5, 'POINT (5 5)');");
+        try (ResultSet rs = st.executeQuery("SELECT THE_GEOM FROM ST_VoronoiTable('DT_POINTS') WHERE SITE_ID = 5")) {
+            assertTrue(rs.next());
+            assertGeometryEquals("POLYGON ((5 0, 10 5, 5 10, 0 5, 5 0))", rs.getObject(1));
+            assertFalse(rs.next());
+        }
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*), SUM(ST_Area(THE_GEOM)) FROM ST_VoronoiTable('DT_POINTS')")) {
+            assertTrue(rs.next());
+            assertEquals(5, rs.getInt(1));
+            assertEquals(100, rs.getDouble(2), 1e-9);
+        }
+        st.execute("DROP TABLE DT_POINTS");
+    }
 }
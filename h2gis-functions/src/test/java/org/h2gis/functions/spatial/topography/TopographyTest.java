@@ -457,4 +457,67 @@ public class TopographyTest {
             st.close();
         }
     }
+    @Test
+    public void testST_DrapeTable() throws SQLException {
+        Statement st = connection.createStatement();
+        try {
+            st.execute("DROP TABLE IF EXISTS TIN, LINES;"
+                    + "CREATE TABLE TIN(THE_GEOM GEOMETRY);"
+                    + "INSERT INTO TIN VALUES ('POLYGONZ ((0 0 0, 10 0 0, 10 10 10, 0 0 0))'), ('POLYGONZ ((10 10 10, 10 0 0, 15 0 0, 10 10 0))');"
+                    + "CREATE TABLE LINES(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY);"
+                    + "INSERT INTO LINES VALUES (1, 'LINESTRING (-5 5, 15 5)'), (2, 'POINT (8 5.1)'), (3, NULL);");
+            ResultSet rs = st.executeQuery("SELECT * FROM ST_DrapeTable('TIN', 'LINES') ORDER BY ID");
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt("ID"));
+            assertGeometryEquals("LINESTRING Z (-5 5 0, 5 5 5, 10 5 5, 12.5 5 5, 15 5 0)", rs.getObject("THE_GEOM"));
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt("ID"));
+            assertGeometryEquals("POINT Z (8 5.1 5.1)", rs.getObject("THE_GEOM"));
+            assertTrue(rs.next());
+            assertEquals(3, rs.getInt("ID"));
+            assertNull(rs.getObject("THE_GEOM"));
+            assertFalse(rs.next());
+            rs.close();
+            st.execute("DROP TABLE TIN, LINES");
+        } finally {
+            st.close();
+        }
+    }
+    @Test
+    public void testST_TriangleContouringTable() throws SQLException {
+        Statement st = connection.createStatement();
+        try {
+            st.execute("DROP TABLE IF EXISTS TIN");
+            st.execute("CREATE TABLE TIN(ID INTEGER PRIMARY KEY, THE_GEOM GEOMETRY);"
+                    + "INSERT INTO TIN VALUES (1, 'POLYGON Z((0 0 0, 10 0 2, 10 10 10, 0 0 0))'), (2, 'POLYGON Z((0 0 0, 10 10 10, 0 10 4, 0 0 0))');");
+            ResultSet rs = st.executeQuery("SELECT A.IDISO, A.CNT, A.AREA, B.CNT, B.AREA FROM "
+                    + "(SELECT IDISO, COUNT(*) CNT, SUM(ST_AREA(THE_GEOM)) AREA FROM ST_TriangleContouring('TIN', 2, 4, 8) GROUP BY IDISO) A, "
+                    + "(SELECT IDISO, COUNT(*) CNT, SUM(ST_AREA(THE_GEOM)) AREA FROM ST_TriangleContouringTable('TIN', ARRAY[2, 4, 8]) GROUP BY IDISO) B "
+                    + "WHERE A.IDISO = B.IDISO ORDER BY A.IDISO");
+            int bandCount = 0;
+            while (rs.next()) {
+                assertEquals(rs.getInt(2), rs.getInt(4));
+                assertEquals(rs.getDouble(3), rs.getDouble(5), 1e-8);
+                bandCount++;
+            }
+            assertEquals(4, bandCount);
+            rs.close();
+            rs = st.executeQuery("SELECT IDISO, COUNT(*), SUM(ST_AREA(THE_GEOM)) FROM ST_TriangleContouringTable('TIN', ARRAY[2, 4, 8], 0) "
+                    + "GROUP BY IDISO ORDER BY IDISO");
+            double area = 0;
+            while (rs.next()) {
+                assertEquals(1, rs.getInt(2));
+                area += rs.getDouble(3);
+            }
+            assertEquals(100, area, 1e-6);
+            rs.close();
+            rs = st.executeQuery("SELECT SUM(ST_AREA(THE_GEOM)) FROM ST_TriangleContouringTable('TIN', ARRAY[2, 4, 8], 3)");
+            assertTrue(rs.next());
+            assertEquals(100, rs.getDouble(1), 1e-6);
+            rs.close();
+            st.execute("DROP TABLE TIN");
+        } finally {
+            st.close();
+        }
+    }
 }
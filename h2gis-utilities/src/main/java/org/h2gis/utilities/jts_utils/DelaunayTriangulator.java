@@ -0,0 +1,568 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.utilities.jts_utils;
+
+import org.locationtech.jts.algorithm.CGAlgorithmsDD;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.triangulate.quadedge.TrianglePredicate;
+
+import java.util.Arrays;
+
+/**
+ * Incremental Delaunay triangulation of a point set stored in primitive arrays.
+ * Vertices, triangles and neighbours are kept in int and double arrays so that millions of points
+ * can be triangulated without allocating one object per vertex or per triangle.
+ * Points are inserted in a space filling curve order with the Bowyer-Watson algorithm, the
+ * containing triangle is found by walking from the last created triangle.
+ * Duplicated points are ignored.
+ * The orientation and in-circle tests fall back to extended precision when the double precision result is not
+ * reliable. The frame vertices may lie in the circumcircle of nearly collinear or cocircular hull triangles, the
+ * concave parts of the boundary are filled by edge flips once all the points are inserted, as done by JTS.
+ *
+ * @author Nicolas Fortin
+ */
+public class DelaunayTriangulator {
+    /** Distance of the frame vertices, relative to the size of the point set envelope */
+    private static final double FRAME_FACTOR = 1000;
+    private static final int HILBERT_ORDER = 16;
+    // Relative error bound of the double precision in-circle determinant
+    private static final double IN_CIRCLE_ERROR_BOUND = (10 + 96 * Math.ulp(1.0) / 2) * Math.ulp(1.0) / 2;
+
+    private final double[] x;
+    private final double[] y;
+    private final int pointCount;
+    // Vertices of the triangles, counter-clockwise, -1 for a free slot
+    private int[] triangleVertices;
+    // Neighbour across the edge i that goes from vertex i to vertex i+1, -1 if none
+    private int[] triangleNeighbours;
+    private int[] triangleMarks;
+    private int triangleSlots = 0;
+    private int[] freeTriangles;
+    private int freeTriangleCount = 0;
+    // One triangle that contains the vertex, -1 if the vertex is a duplicate
+    private int[] vertexTriangle;
+    private int lastTriangle = 0;
+    private int mark = 0;
+    private int walkSeed = 0;
+    // Working arrays of the point insertion
+    private int[] stack = new int[64];
+    private int[] cavity = new int[64];
+    private int[] boundary = new int[192];
+    private int[] created = new int[64];
+
+    /**
+     * @param x X ordinates
+     * @param y Y ordinates
+     * @param pointCount Number of points to read in the ordinate arrays
+     */
+    public DelaunayTriangulator(double[] x, double[] y, int pointCount) {
+        // Keep 3 more slots for the frame vertices
+        this.x = Arrays.copyOf(x, pointCount + 3);
+        this.y = Arrays.copyOf(y, pointCount + 3);
+        this.pointCount = pointCount;
+        int capacity = Math.max(16, pointCount * 2 + 8);
+        triangleVertices = new int[capacity * 3];
+        triangleNeighbours = new int[capacity * 3];
+        triangleMarks = new int[capacity];
+        freeTriangles = new int[16];
+        vertexTriangle = new int[pointCount + 3];
+        Arrays.fill(vertexTriangle, -1);
+    }
+
+    /**
+     * Compute the triangulation
+     */
+    public void triangulate() {
+        if (pointCount == 0) {
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pointCount; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double size = Math.max(maxX - minX, maxY - minY);
+        if (size == 0) {
+            size = 1;
+        }
+        double centerX = (minX + maxX) / 2;
+        double centerY = (minY + maxY) / 2;
+        // Frame triangle that contains all the points
+        int a = pointCount, b = pointCount + 1, c = pointCount + 2;
+        x[a] = centerX - FRAME_FACTOR * size;
+        y[a] = centerY - FRAME_FACTOR * size;
+        x[b] = centerX + FRAME_FACTOR * size;
+        y[b] = centerY - FRAME_FACTOR * size;
+        x[c] = centerX;
+        y[c] = centerY + FRAME_FACTOR * size;
+        lastTriangle = newTriangle(a, b, c);
+        vertexTriangle[a] = lastTriangle;
+        vertexTriangle[b] = lastTriangle;
+        vertexTriangle[c] = lastTriangle;
+        for (int vertex : insertionOrder(minX, minY, size)) {
+            insert(vertex);
+        }
+        completeHull();
+    }
+
+    /**
+     * Sort the points along a Hilbert curve so that consecutive points are close
+     */
+    private int[] insertionOrder(double minX, double minY, double size) {
+        long[] keys = new long[pointCount];
+        double scale = ((1 << HILBERT_ORDER) - 1) / size;
+        for (int i = 0; i < pointCount; i++) {
+            int hx = (int) ((x[i] - minX) * scale);
+            int hy = (int) ((y[i] - minY) * scale);
+            keys[i] = (hilbertIndex(hx, hy) << 31) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+        return order;
+    }
+
+    private static long hilbertIndex(int hx, int hy) {
+        long d = 0;
+        for (int s = 1 << (HILBERT_ORDER - 1); s > 0; s >>= 1) {
+            int rx = (hx & s) > 0 ? 1 : 0;
+            int ry = (hy & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    hx = s - 1 - hx;
+                    hy = s - 1 - hy;
+                }
+                int t = hx;
+                hx = hy;
+                hy = t;
+            }
+        }
+        return d;
+    }
+
+    private int newTriangle(int a, int b, int c) {
+        int t;
+        if (freeTriangleCount > 0) {
+            t = freeTriangles[--freeTriangleCount];
+        } else {
+            t = triangleSlots++;
+            if (t * 3 >= triangleVertices.length) {
+                int capacity = triangleVertices.length / 3 * 2;
+                triangleVertices = Arrays.copyOf(triangleVertices, capacity * 3);
+                triangleNeighbours = Arrays.copyOf(triangleNeighbours, capacity * 3);
+                triangleMarks = Arrays.copyOf(triangleMarks, capacity);
+            }
+        }
+        triangleVertices[t * 3] = a;
+        triangleVertices[t * 3 + 1] = b;
+        triangleVertices[t * 3 + 2] = c;
+        triangleNeighbours[t * 3] = -1;
+        triangleNeighbours[t * 3 + 1] = -1;
+        triangleNeighbours[t * 3 + 2] = -1;
+        triangleMarks[t] = 0;
+        return t;
+    }
+
+    private void freeTriangle(int t) {
+        triangleVertices[t * 3] = -1;
+        if (freeTriangleCount == freeTriangles.length) {
+            freeTriangles = Arrays.copyOf(freeTriangles, freeTriangleCount * 2);
+        }
+        freeTriangles[freeTriangleCount++] = t;
+    }
+
+    /**
+     * @return 1 if p is at the left of a-b, -1 if at the right, 0 if collinear
+     */
+    private int orient(int a, int b, double px, double py) {
+        return CGAlgorithmsDD.orientationIndex(x[a], y[a], x[b], y[b], px, py);
+    }
+
+    /**
+     * @return 1 if c is at the left of a-b, -1 if at the right, 0 if collinear
+     */
+    private int orient(int a, int b, int c) {
+        return orient(a, b, x[c], y[c]);
+    }
+
+    /**
+     * @return True if p is strictly inside the circumcircle of the triangle t
+     */
+    private boolean inCircle(int t, double px, double py) {
+        int a = triangleVertices[t * 3], b = triangleVertices[t * 3 + 1], c = triangleVertices[t * 3 + 2];
+        double adx = x[a] - px, ady = y[a] - py;
+        double bdx = x[b] - px, bdy = y[b] - py;
+        double cdx = x[c] - px, cdy = y[c] - py;
+        double bcd = bdx * cdy - cdx * bdy, cad = cdx * ady - adx * cdy, abd = adx * bdy - bdx * ady;
+        double aLift = adx * adx + ady * ady, bLift = bdx * bdx + bdy * bdy, cLift = cdx * cdx + cdy * cdy;
+        double det = aLift * bcd + bLift * cad + cLift * abd;
+        double permanent = aLift * (Math.abs(bdx * cdy) + Math.abs(cdx * bdy))
+                + bLift * (Math.abs(cdx * ady) + Math.abs(adx * cdy))
+                + cLift * (Math.abs(adx * bdy) + Math.abs(bdx * ady));
+        if (Math.abs(det) > IN_CIRCLE_ERROR_BOUND * permanent) {
+            return det > 0;
+        }
+        // The double precision result is not reliable
+        return TrianglePredicate.isInCircleRobust(new Coordinate(x[a], y[a]), new Coordinate(x[b], y[b]),
+                new Coordinate(x[c], y[c]), new Coordinate(px, py));
+    }
+
+    /**
+     * Walk from the last created triangle to the triangle that contains p
+     */
+    private int locate(double px, double py) {
+        int t = lastTriangle;
+        int maxSteps = triangleSlots * 3 + 3;
+        for (int step = 0; step < maxSteps; step++) {
+            int next = -1;
+            // Stochastic walk, the first tested edge changes to avoid cycles
+            int start = (walkSeed++) % 3;
+            for (int k = 0; k < 3; k++) {
+                int i = (start + k) % 3;
+                int a = triangleVertices[t * 3 + i];
+                int b = triangleVertices[t * 3 + (i + 1) % 3];
+                if (orient(a, b, px, py) < 0) {
+                    next = triangleNeighbours[t * 3 + i];
+                    break;
+                }
+            }
+            if (next < 0) {
+                return t;
+            }
+            t = next;
+        }
+        // Should not happen, fallback to a linear search
+        for (t = 0; t < triangleSlots; t++) {
+            if (triangleVertices[t * 3] >= 0) {
+                int a = triangleVertices[t * 3], b = triangleVertices[t * 3 + 1], c = triangleVertices[t * 3 + 2];
+                if (orient(a, b, px, py) >= 0 && orient(b, c, px, py) >= 0 && orient(c, a, px, py) >= 0) {
+                    return t;
+                }
+            }
+        }
+        return lastTriangle;
+    }
+
+    private void insert(int vertex) {
+        double px = x[vertex], py = y[vertex];
+        int t = locate(px, py);
+        for (int i = 0; i < 3; i++) {
+            int v = triangleVertices[t * 3 + i];
+            if (x[v] == px && y[v] == py) {
+                // Duplicate point
+                return;
+            }
+        }
+        // Find the triangles whose circumcircle contains the point
+        mark++;
+        int stackSize = 0, cavitySize = 0;
+        triangleMarks[t] = mark;
+        stack = push(stack, stackSize++, t);
+        while (stackSize > 0) {
+            int current = stack[--stackSize];
+            cavity = push(cavity, cavitySize++, current);
+            for (int i = 0; i < 3; i++) {
+                int n = triangleNeighbours[current * 3 + i];
+                if (n >= 0 && triangleMarks[n] != mark && inCircle(n, px, py)) {
+                    triangleMarks[n] = mark;
+                    stack = push(stack, stackSize++, n);
+                }
+            }
+        }
+        // Collect the edges of the cavity boundary, as (start vertex, end vertex, outer triangle)
+        int boundarySize = 0;
+        for (int k = 0; k < cavitySize; k++) {
+            int current = cavity[k];
+            for (int i = 0; i < 3; i++) {
+                int n = triangleNeighbours[current * 3 + i];
+                if (n < 0 || triangleMarks[n] != mark) {
+                    boundary = push(boundary, boundarySize++, triangleVertices[current * 3 + i]);
+                    boundary = push(boundary, boundarySize++, triangleVertices[current * 3 + (i + 1) % 3]);
+                    boundary = push(boundary, boundarySize++, n);
+                }
+            }
+        }
+        for (int k = 0; k < cavitySize; k++) {
+            freeTriangle(cavity[k]);
+        }
+        // Fan the cavity boundary to the new vertex
+        int edgeCount = boundarySize / 3;
+        for (int e = 0; e < edgeCount; e++) {
+            int a = boundary[e * 3], b = boundary[e * 3 + 1], outer = boundary[e * 3 + 2];
+            int newT = newTriangle(a, b, vertex);
+            created = push(created, e, newT);
+            triangleNeighbours[newT * 3] = outer;
+            if (outer >= 0) {
+                for (int i = 0; i < 3; i++) {
+                    if (triangleVertices[outer * 3 + i] == b && triangleVertices[outer * 3 + (i + 1) % 3] == a) {
+                        triangleNeighbours[outer * 3 + i] = newT;
+                        break;
+                    }
+                }
+            }
+            vertexTriangle[a] = newT;
+            vertexTriangle[b] = newT;
+        }
+        // Link the new triangles together, the triangle (a, b, v) is followed by the triangle (b, c, v)
+        for (int e = 0; e < edgeCount; e++) {
+            int newT = created[e];
+            int b = triangleVertices[newT * 3 + 1];
+            int a = triangleVertices[newT * 3];
+            for (int f = 0; f < edgeCount; f++) {
+                int other = created[f];
+                if (triangleVertices[other * 3] == b) {
+                    triangleNeighbours[newT * 3 + 1] = other;
+                }
+                if (triangleVertices[other * 3 + 1] == a) {
+                    triangleNeighbours[newT * 3 + 2] = other;
+                }
+            }
+        }
+        vertexTriangle[vertex] = created[0];
+        lastTriangle = created[0];
+    }
+
+    /**
+     * Fill the concave parts of the boundary of the triangulation.
+     * An edge between a point and a frame vertex is flipped while the two triangles around it form a convex
+     * quadrilateral, then the edges of the new triangles are flipped until they are locally Delaunay.
+     */
+    private void completeHull() {
+        int stackSize = 0;
+        boolean flipped = true;
+        // Each pass fills at least one concavity, the pass count is bounded for safety
+        for (int pass = 0; flipped && pass < triangleSlots; pass++) {
+            flipped = false;
+            for (int t = 0; t < triangleSlots; t++) {
+                for (int i = 0; i < 3 && triangleVertices[t * 3] >= 0; i++) {
+                    int a = triangleVertices[t * 3 + i];
+                    int b = triangleVertices[t * 3 + (i + 1) % 3];
+                    if ((a >= pointCount) != (b >= pointCount) && isConvexQuad(t, i)) {
+                        int n = triangleNeighbours[t * 3 + i];
+                        flip(t, i);
+                        stack = push(stack, stackSize++, t);
+                        stack = push(stack, stackSize++, n);
+                        flipped = true;
+                    }
+                }
+            }
+        }
+        // Legalize the edges shared by two triangles of points
+        while (stackSize > 0) {
+            int t = stack[--stackSize];
+            if (!isOutputTriangle(t)) {
+                continue;
+            }
+            for (int i = 0; i < 3; i++) {
+                int n = triangleNeighbours[t * 3 + i];
+                if (n >= 0 && isOutputTriangle(n)) {
+                    int d = oppositeVertex(n, triangleVertices[t * 3 + (i + 1) % 3]);
+                    if (inCircle(t, x[d], y[d])) {
+                        flip(t, i);
+                        stack = push(stack, stackSize++, t);
+                        stack = push(stack, stackSize++, n);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param n Triangle
+     * @param edgeStart Start vertex of the edge of n, in the reverse direction of the shared edge
+     * @return The vertex of n that is not on the edge starting at edgeStart
+     */
+    private int oppositeVertex(int n, int edgeStart) {
+        for (int j = 0; j < 3; j++) {
+            if (triangleVertices[n * 3 + j] == edgeStart) {
+                return triangleVertices[n * 3 + (j + 2) % 3];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param t Triangle
+     * @param i Edge index
+     * @return True if the edge i of t has a neighbour and can be flipped
+     */
+    private boolean isConvexQuad(int t, int i) {
+        int n = triangleNeighbours[t * 3 + i];
+        if (n < 0) {
+            return false;
+        }
+        int a = triangleVertices[t * 3 + i];
+        int b = triangleVertices[t * 3 + (i + 1) % 3];
+        int c = triangleVertices[t * 3 + (i + 2) % 3];
+        int d = oppositeVertex(n, b);
+        return orient(c, a, d) > 0 && orient(d, b, c) > 0;
+    }
+
+    /**
+     * Replace the edge a-b shared by the triangles (a, b, c) and (b, a, d) by the edge c-d
+     *
+     * @param t Triangle (a, b, c)
+     * @param i Index of the edge a-b in t
+     */
+    private void flip(int t, int i) {
+        int n = triangleNeighbours[t * 3 + i];
+        int a = triangleVertices[t * 3 + i];
+        int b = triangleVertices[t * 3 + (i + 1) % 3];
+        int c = triangleVertices[t * 3 + (i + 2) % 3];
+        int j = 0;
+        while (triangleVertices[n * 3 + j] != b) {
+            j++;
+        }
+        int d = triangleVertices[n * 3 + (j + 2) % 3];
+        int nbc = triangleNeighbours[t * 3 + (i + 1) % 3];
+        int nca = triangleNeighbours[t * 3 + (i + 2) % 3];
+        int nad = triangleNeighbours[n * 3 + (j + 1) % 3];
+        int ndb = triangleNeighbours[n * 3 + (j + 2) % 3];
+        // t becomes (c, a, d) and n becomes (d, b, c)
+        triangleVertices[t * 3] = c;
+        triangleVertices[t * 3 + 1] = a;
+        triangleVertices[t * 3 + 2] = d;
+        triangleNeighbours[t * 3] = nca;
+        triangleNeighbours[t * 3 + 1] = nad;
+        triangleNeighbours[t * 3 + 2] = n;
+        triangleVertices[n * 3] = d;
+        triangleVertices[n * 3 + 1] = b;
+        triangleVertices[n * 3 + 2] = c;
+        triangleNeighbours[n * 3] = ndb;
+        triangleNeighbours[n * 3 + 1] = nbc;
+        triangleNeighbours[n * 3 + 2] = t;
+        replaceNeighbour(nad, n, t);
+        replaceNeighbour(nbc, t, n);
+        vertexTriangle[a] = t;
+        vertexTriangle[c] = t;
+        vertexTriangle[d] = t;
+        vertexTriangle[b] = n;
+    }
+
+    private void replaceNeighbour(int t, int oldNeighbour, int newNeighbour) {
+        if (t >= 0) {
+            for (int i = 0; i < 3; i++) {
+                if (triangleNeighbours[t * 3 + i] == oldNeighbour) {
+                    triangleNeighbours[t * 3 + i] = newNeighbour;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int[] push(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+
+    /**
+     * @param t Triangle slot
+     * @return True if the triangle is alive and does not use a frame vertex
+     */
+    private boolean isOutputTriangle(int t) {
+        int a = triangleVertices[t * 3];
+        return a >= 0 && a < pointCount && triangleVertices[t * 3 + 1] < pointCount
+                && triangleVertices[t * 3 + 2] < pointCount;
+    }
+
+    /**
+     * @return The vertex indices of the triangles, three by triangle in counter-clockwise order
+     */
+    public int[] getTriangles() {
+        int count = 0;
+        for (int t = 0; t < triangleSlots; t++) {
+            if (isOutputTriangle(t)) {
+                count++;
+            }
+        }
+        int[] triangles = new int[count * 3];
+        int i = 0;
+        for (int t = 0; t < triangleSlots; t++) {
+            if (isOutputTriangle(t)) {
+                System.arraycopy(triangleVertices, t * 3, triangles, i, 3);
+                i += 3;
+            }
+        }
+        return triangles;
+    }
+
+    /**
+     * @param vertex Vertex index
+     * @return False if the vertex is not part of the triangulation because it duplicates another vertex
+     */
+    public boolean isInserted(int vertex) {
+        return vertexTriangle[vertex] >= 0;
+    }
+
+    /**
+     * Compute the Voronoi cell of a vertex, made of the circumcentres of the triangles around the vertex.
+     * Cells of the vertices on the convex hull are bounded by the frame of the triangulation
+     * and should be clipped.
+     *
+     * @param vertex Vertex index
+     * @return Interleaved x,y ordinates of the cell in counter-clockwise order, the ring is not closed.
+     * Null if the vertex is a duplicate.
+     */
+    public double[] getVoronoiCell(int vertex) {
+        int first = vertexTriangle[vertex];
+        if (first < 0) {
+            return null;
+        }
+        double[] cell = new double[16];
+        int size = 0;
+        int t = first;
+        do {
+            int i = 0;
+            while (triangleVertices[t * 3 + i] != vertex) {
+                i++;
+            }
+            if (size + 2 > cell.length) {
+                cell = Arrays.copyOf(cell, cell.length * 2);
+            }
+            circumcentre(t, cell, size);
+            size += 2;
+            // Next triangle counter-clockwise shares the edge that ends at the vertex
+            t = triangleNeighbours[t * 3 + (i + 2) % 3];
+        } while (t >= 0 && t != first);
+        return Arrays.copyOf(cell, size);
+    }
+
+    private void circumcentre(int t, double[] out, int offset) {
+        int a = triangleVertices[t * 3], b = triangleVertices[t * 3 + 1], c = triangleVertices[t * 3 + 2];
+        double bx = x[b] - x[a], by = y[b] - y[a];
+        double cx = x[c] - x[a], cy = y[c] - y[a];
+        double d = 2 * (bx * cy - by * cx);
+        double b2 = bx * bx + by * by;
+        double c2 = cx * cx + cy * cy;
+        out[offset] = x[a] + (cy * b2 - by * c2) / d;
+        out[offset + 1] = y[a] + (bx * c2 - cx * b2) / d;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software; 
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+
+package org.h2gis.utilities.jts_utils;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class DelaunayTriangulator
+ * @author Nicolas Fortin
+ */
+public class DelaunayTriangulatorTest {
+
+    private static double signedArea(double[] x, double[] y, int a, int b, int c) {
+        return ((x[b] - x[a]) * (y[c] - y[a]) - (y[b] - y[a]) * (x[c] - x[a])) / 2;
+    }
+
+    @Test
+    public void testGrid() {
+        double[] x = new double[100];
+        double[] y = new double[100];
+        for (int i = 0; i < 100; i++) {
+            x[i] = i % 10;
+            y[i] = i / 10;
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(x, y, 100);
+        triangulator.triangulate();
+        int[] triangles = triangulator.getTriangles();
+        assertEquals(162 * 3, triangles.length);
+        double area = 0;
+        for (int t = 0; t < triangles.length; t += 3) {
+            double triangleArea = signedArea(x, y, triangles[t], triangles[t + 1], triangles[t + 2]);
+            assertTrue(triangleArea > 0);
+            area += triangleArea;
+        }
+        assertEquals(81, area, 1e-12);
+    }
+
+    @Test
+    public void testEmptyCircumcircle() {
+        Random random = new Random(42);
+        int count = 500;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = random.nextDouble() * 1000;
+            y[i] = random.nextDouble() * 1000;
+        }
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(x, y, count);
+        triangulator.triangulate();
+        int[] triangles = triangulator.getTriangles();
+        for (int t = 0; t < triangles.length; t += 3) {
+            int a = triangles[t], b = triangles[t + 1], c = triangles[t + 2];
+            for (int p = 0; p < count; p++) {
+                if (p == a || p == b || p == c) {
+                    continue;
+                }
+                double adx = x[a] - x[p], ady = y[a] - y[p];
+                double bdx = x[b] - x[p], bdy = y[b] - y[p];
+                double cdx = x[c] - x[p], cdy = y[c] - y[p];
+                double det = (adx * adx + ady * ady) * (bdx * cdy - cdx * bdy)
+                        + (bdx * bdx + bdy * bdy) * (cdx * ady - adx * cdy)
+                        + (cdx * cdx + cdy * cdy) * (adx * bdy - bdx * ady);
+                assertTrue(det <= 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicatesAndVoronoiCell() {
+        double[] x = {0, 10, 10, 0, 5, 10};
+        double[] y = {0, 0, 10, 10, 5, 0};
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(x, y, 6);
+        triangulator.triangulate();
+        assertEquals(4 * 3, triangulator.getTriangles().length);
+        assertFalse(triangulator.isInserted(5));
+        assertNull(triangulator.getVoronoiCell(5));
+        double[] cell = triangulator.getVoronoiCell(4);
+        assertEquals(8, cell.length);
+        double area = 0;
+        for (int i = 0; i < 4; i++) {
+            int j = (i + 1) % 4;
+            area += cell[i * 2] * cell[j * 2 + 1] - cell[j * 2] * cell[i * 2 + 1];
+        }
+        assertEquals(50, area / 2, 1e-12);
+    }
+
+    /**
+     * Check that the triangulation covers the convex hull with 2n - 2 - h triangles, h being the hull vertex count
+     */
+    private static void assertCoversConvexHull(double[] x, double[] y) {
+        int count = x.length;
+        DelaunayTriangulator triangulator = new DelaunayTriangulator(x, y, count);
+        triangulator.triangulate();
+        int[] triangles = triangulator.getTriangles();
+        double area = 0;
+        for (int t = 0; t < triangles.length; t += 3) {
+            double triangleArea = signedArea(x, y, triangles[t], triangles[t + 1], triangles[t + 2]);
+            assertTrue(triangleArea > 0);
+            area += triangleArea;
+        }
+        Coordinate[] coordinates = new Coordinate[count];
+        for (int i = 0; i < count; i++) {
+            coordinates[i] = new Coordinate(x[i], y[i]);
+        }
+        Geometry hull = new GeometryFactory().createMultiPointFromCoords(coordinates).convexHull();
+        int hullVertexCount = hull.getNumPoints() - 1;
+        assertEquals(2 * count - 2 - hullVertexCount, triangles.length / 3);
+        assertEquals(hull.getArea(), area, hull.getArea() * 1e-9);
+    }
+
+    @Test
+    public void testCocircularHull() {
+        int count = 200;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count;
+            x[i] = 1e6 * Math.cos(angle);
+            y[i] = 1e6 * Math.sin(angle);
+        }
+        assertCoversConvexHull(x, y);
+    }
+
+    @Test
+    public void testNearlyCollinearHull() {
+        Random random = new Random(1);
+        int count = 300;
+        double[] x = new double[count];
+        double[] y = new double[count];
+        // Flat arc of a large circle, the hull vertices are nearly collinear
+        for (int i = 0; i < 100; i++) {
+            double angle = Math.PI * i / 99 * 0.01;
+            x[i] = 1e5 * Math.cos(angle);
+            y[i] = 1e5 * Math.sin(angle) - 1e5;
+        }
+        for (int i = 100; i < count; i++) {
+            x[i] = random.nextDouble() * 1e5;
+            y[i] = random.nextDouble() * 100 - 100;
+        }
+        assertCoversConvexHull(x, y);
+    }
+}
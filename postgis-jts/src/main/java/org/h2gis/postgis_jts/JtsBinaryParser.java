@@ -24,15 +24,36 @@ import org.locationtech.jts.geom.impl.PackedCoordinateSequence.Double;
 import org.postgis.binary.ByteGetter;
 import org.postgis.binary.ValueGetter;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
  * Parser class able to convert binary data into a JTS {@link org.locationtech.jts.geom.Geometry}.
  *
+ * Hexadecimal and binary inputs are decoded through a {@link ByteBuffer}, the coordinates are copied directly into
+ * packed coordinate sequences without intermediate {@link Coordinate} objects.
+ *
  * @author Nicolas Fortin
  * @author Sylvain PALOMINOS (UBS 2018)
  */
 public class JtsBinaryParser {
+    /**
+     * Value of each hexadecimal character, -1 if the character is not an hexadecimal digit.
+     */
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
     /**
      * Default empty constructor.
      */
@@ -57,27 +78,68 @@ public class JtsBinaryParser {
     }
 
     /**
-     * Parse the given {@link String} into a JTS {@link org.locationtech.jts.geom.Geometry}.
+     * Parse the given hexadecimal EWKB {@link String} into a JTS {@link org.locationtech.jts.geom.Geometry}.
      *
      * @param value {@link String} to parse.
      *
      * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry}.
      */
     public Geometry parse(String value) {
-        ByteGetter.StringByteGetter bytes = new ByteGetter.StringByteGetter(value);
-        return this.parseGeometry(valueGetterForEndian(bytes));
+        return parse(hexToBytes(value));
     }
 
     /**
-     * Parse the given byte array into a JTS {@link org.locationtech.jts.geom.Geometry}.
+     * Parse the given EWKB byte array into a JTS {@link org.locationtech.jts.geom.Geometry}.
      *
      * @param value byte array to parse.
      *
      * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry}.
      */
     public Geometry parse(byte[] value) {
-        ByteGetter.BinaryByteGetter bytes = new ByteGetter.BinaryByteGetter(value);
-        return this.parseGeometry(valueGetterForEndian(bytes));
+        return parse(value, 0, value.length);
+    }
+
+    /**
+     * Parse a part of the given EWKB byte array into a JTS {@link org.locationtech.jts.geom.Geometry}.
+     * The array is not copied.
+     *
+     * @param value byte array to parse.
+     * @param offset Index of the first byte of the geometry.
+     * @param length Number of bytes of the geometry.
+     *
+     * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry}.
+     */
+    public Geometry parse(byte[] value, int offset, int length) {
+        return this.parseGeometry(ByteBuffer.wrap(value, offset, length), 0, false);
+    }
+
+    /**
+     * Decode an hexadecimal {@link String} into a byte array.
+     *
+     * @param value Hexadecimal {@link String}, two characters per byte.
+     *
+     * @return The decoded bytes.
+     */
+    public static byte[] hexToBytes(String value) {
+        int length = value.length() / 2;
+        byte[] bytes = new byte[length];
+        for (int i = 0, c = 0; i < length; i++, c += 2) {
+            bytes[i] = (byte) ((hexValue(value.charAt(c)) << 4) | hexValue(value.charAt(c + 1)));
+        }
+        return bytes;
+    }
+
+    /**
+     * @param c Hexadecimal character.
+     *
+     * @return Value of the character.
+     */
+    private static int hexValue(char c) {
+        byte v = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException("No valid Hex char " + c);
+        }
+        return v;
     }
 
     /**
@@ -114,6 +176,13 @@ public class JtsBinaryParser {
             boolean haveZ = (typeword & -2147483648) != 0;
             boolean haveM = (typeword & 1073741824) != 0;
             boolean haveS = (typeword & 536870912) != 0;
+            // ISO WKB adds 1000 (Z), 2000 (M) or 3000 (ZM) to the type code instead of setting the flag bits
+            int isoDimension = realtype / 1000;
+            if (isoDimension >= 1 && isoDimension <= 3) {
+                haveZ |= isoDimension != 2;
+                haveM |= isoDimension != 1;
+                realtype %= 1000;
+            }
             if (haveS) {
                 int newsrid = org.postgis.Geometry.parseSRID(data.getInt());
                 if (inheritSrid && newsrid != srid) {
@@ -212,13 +281,11 @@ public class JtsBinaryParser {
     public CoordinateSequence parseCS(ValueGetter data, boolean haveZ, boolean haveM) {
         int count = data.getInt();
         int dims = haveZ ? 3 : 2;
-        Coordinate[] coordinates = new Coordinate[count];
-        Arrays.fill(coordinates, new Coordinate());
-        CoordinateSequence cs = new Double(coordinates, dims);
-
+        double[] ordinates = new double[count * dims];
+        int index = 0;
         for(int i = 0; i < count; ++i) {
             for(int d = 0; d < dims; ++d) {
-                cs.setOrdinate(i, d, data.getDouble());
+                ordinates[index++] = data.getDouble();
             }
 
             if (haveM) {
@@ -226,7 +293,36 @@ public class JtsBinaryParser {
             }
         }
 
-        return cs;
+        return new Double(ordinates, dims, 0);
+    }
+
+    /**
+     * Parse the given {@link ByteBuffer} into a JTS {@link org.locationtech.jts.geom.CoordinateSequence}.
+     * The ordinates are read in bulk into the packed sequence array.
+     *
+     * @param data {@link ByteBuffer} to parse, with the byte order of the current geometry.
+     * @param haveZ True if the {@link org.locationtech.jts.geom.CoordinateSequence} has a Z component.
+     * @param haveM True if the {@link org.locationtech.jts.geom.CoordinateSequence} has a M component.
+     *
+     * @return The parsed {@link org.locationtech.jts.geom.CoordinateSequence}.
+     */
+    public CoordinateSequence parseCS(ByteBuffer data, boolean haveZ, boolean haveM) {
+        int count = data.getInt();
+        int dims = haveZ ? 3 : 2;
+        double[] ordinates = new double[count * dims];
+        if (!haveM) {
+            data.asDoubleBuffer().get(ordinates);
+            data.position(data.position() + ordinates.length * java.lang.Double.BYTES);
+        } else {
+            int index = 0;
+            for(int i = 0; i < count; ++i) {
+                for(int d = 0; d < dims; ++d) {
+                    ordinates[index++] = data.getDouble();
+                }
+                data.getDouble();
+            }
+        }
+        return new Double(ordinates, dims, 0);
     }
 
     /**
@@ -344,5 +440,143 @@ public class JtsBinaryParser {
         this.parseGeometryArray(data, geoms, srid);
         return JtsGeometry.geofac.createGeometryCollection(geoms);
     }
-}
 
+    /**
+     * Parse data from the given {@link ByteBuffer} into a JTS {@link org.locationtech.jts.geom.Geometry} with
+     * the given SRID.
+     *
+     * @param data {@link ByteBuffer} to parse.
+     * @param srid SRID to give to the parsed geometry (different of the inherited SRID).
+     * @param inheritSrid Make the new {@link org.locationtech.jts.geom.Geometry} inherit its SRID if set to true,
+     *                    otherwise use the parameter given SRID.
+     *
+     * @return Parsed JTS {@link org.locationtech.jts.geom.Geometry} with SRID.
+     */
+    protected Geometry parseGeometry(ByteBuffer data, int srid, boolean inheritSrid) {
+        byte endian = data.get();
+        if (endian == 0) {
+            data.order(ByteOrder.BIG_ENDIAN);
+        } else if (endian == 1) {
+            data.order(ByteOrder.LITTLE_ENDIAN);
+        } else {
+            throw new IllegalArgumentException("Unknown Endian type:" + endian);
+        }
+        int typeword = data.getInt();
+        int realtype = typeword & 536870911;
+        boolean haveZ = (typeword & -2147483648) != 0;
+        boolean haveM = (typeword & 1073741824) != 0;
+        boolean haveS = (typeword & 536870912) != 0;
+        // ISO WKB adds 1000 (Z), 2000 (M) or 3000 (ZM) to the type code instead of setting the flag bits
+        int isoDimension = realtype / 1000;
+        if (isoDimension >= 1 && isoDimension <= 3) {
+            haveZ |= isoDimension != 2;
+            haveM |= isoDimension != 1;
+            realtype %= 1000;
+        }
+        if (haveS) {
+            int newsrid = org.postgis.Geometry.parseSRID(data.getInt());
+            if (inheritSrid && newsrid != srid) {
+                throw new IllegalArgumentException("Inconsistent srids in complex geometry: " + srid + ", " + newsrid);
+            }
+
+            srid = newsrid;
+        } else if (!inheritSrid) {
+            srid = 0;
+        }
+
+        Geometry result;
+        switch(realtype) {
+            case 1:
+                result = this.parsePoint(data, haveZ, haveM);
+                break;
+            case 2:
+                result = JtsGeometry.geofac.createLineString(this.parseCS(data, haveZ, haveM));
+                break;
+            case 3:
+                result = this.parsePolygon(data, haveZ, haveM, srid);
+                break;
+            case 4:
+                result = JtsGeometry.geofac.createMultiPoint(this.parseGeometryArray(data, new Point[data.getInt()], srid));
+                break;
+            case 5:
+                result = JtsGeometry.geofac.createMultiLineString(this.parseGeometryArray(data, new LineString[data.getInt()], srid));
+                break;
+            case 6:
+                result = JtsGeometry.geofac.createMultiPolygon(this.parseGeometryArray(data, new Polygon[data.getInt()], srid));
+                break;
+            case 7:
+                result = JtsGeometry.geofac.createGeometryCollection(this.parseGeometryArray(data, new Geometry[data.getInt()], srid));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Geometry Type!");
+        }
+
+        result.setSRID(srid);
+        return result;
+    }
+
+    /**
+     * Parse the given {@link ByteBuffer} into a JTS {@link org.locationtech.jts.geom.Point}.
+     *
+     * @param data {@link ByteBuffer} to parse.
+     * @param haveZ True if the {@link org.locationtech.jts.geom.Point} has a Z component.
+     * @param haveM True if the {@link org.locationtech.jts.geom.Point} has a M component.
+     *
+     * @return The parsed {@link org.locationtech.jts.geom.Point}.
+     */
+    private Point parsePoint(ByteBuffer data, boolean haveZ, boolean haveM) {
+        int dims = haveZ ? 3 : 2;
+        double[] ordinates = new double[dims];
+        for (int d = 0; d < dims; d++) {
+            ordinates[d] = data.getDouble();
+        }
+        if (haveM) {
+            data.getDouble();
+        }
+        return JtsGeometry.geofac.createPoint(new Double(ordinates, dims, 0));
+    }
+
+    /**
+     * Parse the given {@link ByteBuffer} into an array of JTS {@link org.locationtech.jts.geom.Geometry} with
+     * the given SRID.
+     *
+     * @param data {@link ByteBuffer} to parse.
+     * @param container Array of {@link org.locationtech.jts.geom.Geometry} which will contains the parsed ones.
+     * @param srid SRID of the parsed geometries.
+     *
+     * @return The given container.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Geometry> T[] parseGeometryArray(ByteBuffer data, T[] container, int srid) {
+        for(int i = 0; i < container.length; ++i) {
+            container[i] = (T) this.parseGeometry(data, srid, true);
+        }
+        return container;
+    }
+
+    /**
+     * Parse the given {@link ByteBuffer} into a JTS {@link org.locationtech.jts.geom.Polygon}.
+     *
+     * @param data {@link ByteBuffer} to parse.
+     * @param haveZ True if the {@link org.locationtech.jts.geom.Polygon} has a Z component.
+     * @param haveM True if the {@link org.locationtech.jts.geom.Polygon} has a M component.
+     * @param srid SRID of the rings.
+     *
+     * @return The parsed {@link org.locationtech.jts.geom.Polygon}.
+     */
+    private Polygon parsePolygon(ByteBuffer data, boolean haveZ, boolean haveM, int srid) {
+        int holecount = data.getInt() - 1;
+        if (holecount < 0) {
+            return JtsGeometry.geofac.createPolygon();
+        }
+        LinearRing shell = JtsGeometry.geofac.createLinearRing(this.parseCS(data, haveZ, haveM));
+        shell.setSRID(srid);
+        LinearRing[] rings = new LinearRing[holecount];
+        for(int i = 0; i < holecount; ++i) {
+            rings[i] = JtsGeometry.geofac.createLinearRing(this.parseCS(data, haveZ, haveM));
+            rings[i].setSRID(srid);
+        }
+
+        return JtsGeometry.geofac.createPolygon(shell, rings);
+    }
+}
@@ -22,13 +22,16 @@ package org.h2gis.postgis_jts;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.geom.impl.PackedCoordinateSequenceFactory;
 import org.locationtech.jts.io.WKTReader;
+import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 
 import java.sql.SQLException;
 
-public class JtsGeometry extends PGobject {
+public class JtsGeometry extends PGobject implements PGBinaryObject {
     private static final long serialVersionUID = 256L;
     private Geometry geom;
+    /** EWKB of the geometry, kept between lengthInBytes and toBytes of the binary transfer */
+    private transient byte[] binaryValue;
     private static final JtsBinaryParser bp = new JtsBinaryParser();
     private static final JtsBinaryWriter bw = new JtsBinaryWriter();
     private static final PrecisionModel prec = new PrecisionModel();
@@ -52,6 +55,42 @@ public class JtsGeometry extends PGobject {
 
     public void setValue(String value) throws SQLException {
         this.geom = geomFromString(value);
+        this.binaryValue = null;
+    }
+
+    /**
+     * Called by the driver when the geometry column is received with the binary transfer, the EWKB bytes are
+     * parsed without hexadecimal encoding.
+     */
+    @Override
+    public void setByteValue(byte[] value, int offset) throws SQLException {
+        try {
+            this.geom = bp.parse(value, offset, value.length - offset);
+            this.binaryValue = null;
+        } catch (Exception ex) {
+            throw new SQLException("Error parsing SQL data:" + ex, ex);
+        }
+    }
+
+    @Override
+    public int lengthInBytes() {
+        return getBinaryValue().length;
+    }
+
+    @Override
+    public void toBytes(byte[] bytes, int offset) {
+        byte[] value = getBinaryValue();
+        System.arraycopy(value, 0, bytes, offset, value.length);
+    }
+
+    /**
+     * @return The EWKB of the geometry
+     */
+    private byte[] getBinaryValue() {
+        if (binaryValue == null) {
+            binaryValue = bw.writeBinary(this.geom);
+        }
+        return binaryValue;
     }
 
     public static Geometry geomFromString(String value) throws SQLException {
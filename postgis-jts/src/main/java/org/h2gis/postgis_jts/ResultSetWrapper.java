@@ -44,7 +44,9 @@ public class ResultSetWrapper implements ResultSet {
     public static final Set<String> GEOMETRY_COLUMNS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("geometry", "box2d", "box3d")));
     private Set<Integer> spatialFields = new HashSet<Integer>();
     private Set<Integer> tidFields = new HashSet<>();
+    private Set<Integer> byteaFields = new HashSet<>();
     private static GeometryFactory geometryFactory = new GeometryFactory();
+    private static final JtsBinaryParser BINARY_PARSER = new JtsBinaryParser();
 
     public ResultSetWrapper(Statement statementWrapper, ResultSet rs) {
         this.statementWrapper = statementWrapper;
@@ -58,6 +60,8 @@ public class ResultSetWrapper implements ResultSet {
                     spatialFields.add(col);
                 } else if(typeName.equals("tid")) {
                     tidFields.add(col);
+                } else if(typeName.equals("bytea")) {
+                    byteaFields.add(col);
                 }
             }
         } catch (Exception ex) {
@@ -823,12 +827,32 @@ public class ResultSetWrapper implements ResultSet {
 
     @Override
     public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        if(Geometry.class.isAssignableFrom(type)) {
+            Object geometry;
+            if(spatialFields.contains(columnIndex)) {
+                geometry = getObject(columnIndex);
+            } else if(byteaFields.contains(columnIndex)) {
+                // WKB or EWKB bytes (ST_AsBinary, ST_AsEWKB) are parsed without hexadecimal encoding
+                byte[] bytes = rs.getBytes(columnIndex);
+                try {
+                    geometry = bytes == null ? null : BINARY_PARSER.parse(bytes);
+                } catch (RuntimeException ex) {
+                    throw new SQLException("Cannot read the geometry of the column " + columnIndex, ex);
+                }
+            } else {
+                return rs.getObject(columnIndex, type);
+            }
+            if(geometry == null || type.isInstance(geometry)) {
+                return type.cast(geometry);
+            }
+            throw new SQLException("The column " + columnIndex + " cannot be converted to " + type.getSimpleName());
+        }
         return rs.getObject(columnIndex, type);
     }
 
     @Override
     public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
-        return rs.getObject(columnLabel, type);
+        return getObject(findColumn(columnLabel), type);
     }
 
     @Override
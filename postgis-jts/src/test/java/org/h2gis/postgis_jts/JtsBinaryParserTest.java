@@ -0,0 +1,308 @@
+/*
+ * H2GIS is a library that brings spatial support to the H2 Database Engine
+ * <http://www.h2database.com>. H2GIS is developed by CNRS
+ * <http://www.cnrs.fr/>.
+ *
+ * This code is part of the H2GIS project. H2GIS is free software;
+ * you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation;
+ * version 3.0 of the License.
+ *
+ * H2GIS is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License
+ * for more details <http://www.gnu.org/licenses/>.
+ *
+ *
+ * For more information, please consult: <http://www.h2gis.org/>
+ * or contact directly: info_at_h2gis.org
+ */
+package org.h2gis.postgis_jts;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.io.WKTReader;
+import org.postgis.binary.ByteGetter;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Decode EWKB and ISO WKB geometries with {@link JtsBinaryParser}, {@link JtsGeometry} and
+ * {@link ResultSetWrapper}.
+ *
+ * @author Nicolas Fortin
+ */
+public class JtsBinaryParserTest {
+
+    private static final int EWKB_Z = 0x80000000;
+    private static final int EWKB_M = 0x40000000;
+    private static final int EWKB_SRID = 0x20000000;
+
+    private final JtsBinaryParser parser = new JtsBinaryParser();
+    private final JtsBinaryWriter writer = new JtsBinaryWriter();
+    private final WKTReader wktReader = new WKTReader();
+
+    @Test
+    public void testRoundTrip2D() throws Exception {
+        Geometry geom = wktReader.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 4 2, 4 4, 2 2))");
+        Geometry parsed = parser.parse(writer.writeBinary(geom));
+        assertTrue(geom.equalsExact(parsed));
+        assertEquals(0, parsed.getSRID());
+    }
+
+    @Test
+    public void testRoundTripZWithSrid() throws Exception {
+        Geometry geom = wktReader.read("MULTILINESTRING((0 0 1, 10 0 2), (5 5 3, 6 6 4, 7 7 5))");
+        geom.setSRID(4326);
+        Geometry parsed = parser.parse(writer.writeBinary(geom));
+        assertTrue(geom.equalsExact(parsed));
+        assertEquals(4326, parsed.getSRID());
+        assertEquals(4326, parsed.getGeometryN(1).getSRID());
+        assertEquals(5, parsed.getGeometryN(1).getCoordinates()[2].getZ(), 0);
+    }
+
+    @Test
+    public void testRoundTripHexBigEndian() throws Exception {
+        Geometry geom = wktReader.read("LINESTRING(1 2 3, 4 5 6)");
+        geom.setSRID(2154);
+        Geometry parsed = parser.parse(writer.writeHexed(geom, (byte) 0));
+        assertTrue(geom.equalsExact(parsed));
+        assertEquals(2154, parsed.getSRID());
+        assertEquals(6, parsed.getCoordinates()[1].getZ(), 0);
+    }
+
+    @Test
+    public void testEWKBPointM() {
+        byte[] wkb = new WKBBuilder(1 | EWKB_M | EWKB_SRID).srid(4326).ordinates(1, 2, 7).build();
+        assertPoint(parser.parse(wkb), 1, 2, Double.NaN, 4326);
+    }
+
+    @Test
+    public void testEWKBLineStringZM() {
+        byte[] wkb = new WKBBuilder(2 | EWKB_Z | EWKB_M).count(2).ordinates(1, 2, 3, 7, 4, 5, 6, 8).build();
+        assertLineZ(parser.parse(wkb), 0);
+    }
+
+    @Test
+    public void testISOPointZ() {
+        byte[] wkb = new WKBBuilder(1001).ordinates(1, 2, 3).build();
+        assertPoint(parser.parse(wkb), 1, 2, 3, 0);
+    }
+
+    @Test
+    public void testISOPointM() {
+        byte[] wkb = new WKBBuilder(2001).ordinates(1, 2, 7).build();
+        assertPoint(parser.parse(wkb), 1, 2, Double.NaN, 0);
+    }
+
+    @Test
+    public void testISOLineStringZM() {
+        byte[] wkb = new WKBBuilder(3002).count(2).ordinates(1, 2, 3, 7, 4, 5, 6, 8).build();
+        assertLineZ(parser.parse(wkb), 0);
+    }
+
+    @Test
+    public void testISOLineStringWithSrid() {
+        byte[] wkb = new WKBBuilder(1002 | EWKB_SRID).srid(4326).count(2).ordinates(1, 2, 3, 4, 5, 6).build();
+        assertLineZ(parser.parse(wkb), 4326);
+    }
+
+    @Test
+    public void testISOMultiPointM() {
+        // The M ordinate of each point has to be skipped to read the next point
+        byte[] wkb = new WKBBuilder(2004).count(2)
+                .header(2001).ordinates(1, 2, 7)
+                .header(2001).ordinates(3, 4, 8).build();
+        Geometry geom = parser.parse(wkb);
+        assertTrue(geom instanceof MultiPoint);
+        assertPoint(geom.getGeometryN(0), 1, 2, Double.NaN, 0);
+        assertPoint(geom.getGeometryN(1), 3, 4, Double.NaN, 0);
+    }
+
+    @Test
+    public void testISOPolygonZBigEndian() throws Exception {
+        byte[] wkb = new WKBBuilder(1003, ByteOrder.BIG_ENDIAN).count(1).count(4)
+                .ordinates(0, 0, 1, 10, 0, 2, 10, 10, 3, 0, 0, 1).build();
+        Geometry expected = wktReader.read("POLYGON((0 0 1, 10 0 2, 10 10 3, 0 0 1))");
+        assertTrue(expected.equalsExact(parser.parse(wkb)));
+        assertEquals(3, parser.parse(wkb).getCoordinates()[2].getZ(), 0);
+    }
+
+    @Test
+    public void testValueGetterISOAndEWKB() {
+        byte[] iso = new WKBBuilder(3002).count(2).ordinates(1, 2, 3, 7, 4, 5, 6, 8).build();
+        assertLineZ(parser.parseGeometry(JtsBinaryParser.valueGetterForEndian(new ByteGetter.BinaryByteGetter(iso))), 0);
+        byte[] ewkb = new WKBBuilder(2 | EWKB_Z | EWKB_SRID, ByteOrder.BIG_ENDIAN).srid(4326).count(2)
+                .ordinates(1, 2, 3, 4, 5, 6).build();
+        assertLineZ(parser.parseGeometry(JtsBinaryParser.valueGetterForEndian(new ByteGetter.BinaryByteGetter(ewkb)),
+                0, false), 4326);
+        byte[] isoM = new WKBBuilder(2001).ordinates(1, 2, 7).build();
+        assertPoint(parser.parseGeometry(JtsBinaryParser.valueGetterForEndian(new ByteGetter.BinaryByteGetter(isoM))),
+                1, 2, Double.NaN, 0);
+    }
+
+    @Test
+    public void testUnknownGeometryType() {
+        byte[] wkb = new WKBBuilder(4001).ordinates(1, 2, 3).build();
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(wkb));
+    }
+
+    @Test
+    public void testJtsGeometryByteValue() throws Exception {
+        byte[] iso = new WKBBuilder(1002).count(2).ordinates(1, 2, 3, 4, 5, 6).build();
+        // The driver gives the geometry bytes after a header
+        byte[] value = new byte[iso.length + 3];
+        System.arraycopy(iso, 0, value, 3, iso.length);
+        JtsGeometry jtsGeometry = new JtsGeometry();
+        jtsGeometry.setByteValue(value, 3);
+        assertLineZ(jtsGeometry.getGeometry(), 0);
+
+        Geometry geom = wktReader.read("LINESTRING(1 2 3, 4 5 6)");
+        geom.setSRID(4326);
+        JtsGeometry source = new JtsGeometry(geom);
+        byte[] bytes = new byte[source.lengthInBytes()];
+        source.toBytes(bytes, 0);
+        JtsGeometry copy = new JtsGeometry();
+        copy.setByteValue(bytes, 0);
+        assertLineZ(copy.getGeometry(), 4326);
+    }
+
+    @Test
+    public void testJtsGeometryHexValue() throws Exception {
+        Geometry geom = wktReader.read("POINT(1 2 3)");
+        geom.setSRID(4326);
+        JtsGeometry jtsGeometry = new JtsGeometry(writer.writeHexed(geom));
+        assertPoint(jtsGeometry.getGeometry(), 1, 2, 3, 4326);
+        jtsGeometry.setValue(toHex(new WKBBuilder(2001).ordinates(1, 2, 7).build()));
+        assertPoint(jtsGeometry.getGeometry(), 1, 2, Double.NaN, 0);
+    }
+
+    @Test
+    public void testResultSetWrapperBytea() throws Exception {
+        byte[] iso = new WKBBuilder(3002).count(2).ordinates(1, 2, 3, 7, 4, 5, 6, 8).build();
+        Geometry geom = wktReader.read("POINT(1 2)");
+        geom.setSRID(4326);
+        byte[] ewkb = writer.writeBinary(geom);
+        ResultSetWrapper rs = new ResultSetWrapper(null, byteaResultSet(iso, ewkb));
+        assertLineZ(rs.getObject(1, Geometry.class), 0);
+        assertLineZ(rs.getObject(1, LineString.class), 0);
+        assertPoint(rs.getObject(2, Point.class), 1, 2, Double.NaN, 4326);
+        assertThrows(SQLException.class, () -> rs.getObject(2, LineString.class));
+    }
+
+    private static void assertPoint(Geometry geom, double x, double y, double z, int srid) {
+        assertTrue(geom instanceof Point);
+        Coordinate coordinate = geom.getCoordinate();
+        assertEquals(x, coordinate.getX(), 0);
+        assertEquals(y, coordinate.getY(), 0);
+        assertEquals(z, coordinate.getZ(), 0);
+        assertEquals(srid, geom.getSRID());
+    }
+
+    /**
+     * Check the geometry is LINESTRING Z(1 2 3, 4 5 6)
+     */
+    private static void assertLineZ(Geometry geom, int srid) {
+        assertTrue(geom instanceof LineString);
+        Coordinate[] coordinates = geom.getCoordinates();
+        assertEquals(2, coordinates.length);
+        assertTrue(new Coordinate(1, 2, 3).equals3D(coordinates[0]));
+        assertTrue(new Coordinate(4, 5, 6).equals3D(coordinates[1]));
+        assertEquals(srid, geom.getSRID());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param columns Bytes of each bytea column of the single row.
+     *
+     * @return A {@link ResultSet} with only the metadata and getBytes methods.
+     */
+    private static ResultSet byteaResultSet(byte[]... columns) {
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return columns.length;
+                        case "getColumnTypeName":
+                            return "bytea";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return meta;
+                        case "getBytes":
+                            return columns[(Integer) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Write WKB bytes by hand, the type word is written as is so ISO and EWKB codes can be mixed.
+     */
+    private static final class WKBBuilder {
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        WKBBuilder(int typeword) {
+            this(typeword, ByteOrder.LITTLE_ENDIAN);
+        }
+
+        WKBBuilder(int typeword, ByteOrder order) {
+            buffer.order(order);
+            header(typeword);
+        }
+
+        WKBBuilder header(int typeword) {
+            buffer.put(buffer.order() == ByteOrder.BIG_ENDIAN ? (byte) 0 : (byte) 1);
+            buffer.putInt(typeword);
+            return this;
+        }
+
+        WKBBuilder srid(int srid) {
+            buffer.putInt(srid);
+            return this;
+        }
+
+        WKBBuilder count(int count) {
+            buffer.putInt(count);
+            return this;
+        }
+
+        WKBBuilder ordinates(double... ordinates) {
+            for (double ordinate : ordinates) {
+                buffer.putDouble(ordinate);
+            }
+            return this;
+        }
+
+        byte[] build() {
+            byte[] bytes = new byte[buffer.position()];
+            buffer.rewind();
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}